@@ -0,0 +1,74 @@
+package com.franquicias.jmh;
+
+import com.franquicias.FranquiciasApiApplication;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Starts the application without a web server on its own in-memory H2 database, and seeds
+ * inventories directly through JDBC so large datasets load in seconds.
+ */
+final class JmhContexts {
+
+    private static final AtomicInteger DATABASES = new AtomicInteger();
+
+    private JmhContexts() {
+    }
+
+    static ConfigurableApplicationContext start(String... properties) {
+        List<String> all = new ArrayList<>(List.of(
+                "spring.jpa.show-sql=false",
+                "spring.datasource.url=jdbc:h2:mem:jmh" + DATABASES.incrementAndGet(),
+                "logging.level.root=WARN"));
+        all.addAll(List.of(properties));
+        return new SpringApplicationBuilder(FranquiciasApiApplication.class)
+                .web(WebApplicationType.NONE)
+                .properties(all.toArray(String[]::new))
+                .run();
+    }
+
+    /**
+     * Inserts a franquicia with {@code sucursales} sucursales of {@code productosPorSucursal}
+     * productos each, with pseudo-random stock, and their inventory counters, and moves the id
+     * sequences past the new rows.
+     *
+     * @return the id of the franquicia
+     */
+    static long seed(ConfigurableApplicationContext context, int sucursales, int productosPorSucursal) {
+        JdbcTemplate jdbc = context.getBean(JdbcTemplate.class);
+        long franquiciaId = 1;
+        jdbc.update("INSERT INTO franquicias (id, name, version) VALUES (?, ?, 0)", franquiciaId, "Franquicia");
+        List<Object[]> sucursalRows = new ArrayList<>(sucursales);
+        List<Object[]> productoRows = new ArrayList<>(sucursales * productosPorSucursal);
+        long productoId = 1;
+        for (long s = 1; s <= sucursales; s++) {
+            sucursalRows.add(new Object[]{s, "Sucursal " + s, franquiciaId});
+            for (int p = 0; p < productosPorSucursal; p++, productoId++) {
+                int stock = (int) ((productoId * 2_654_435_761L) % 10_000);
+                productoRows.add(new Object[]{productoId, "Producto " + productoId, stock, s});
+            }
+        }
+        jdbc.batchUpdate("INSERT INTO sucursales (id, name, franquicia_id, version) VALUES (?, ?, ?, 0)", sucursalRows);
+        jdbc.batchUpdate("INSERT INTO productos (id, name, stock, sucursal_id, version) VALUES (?, ?, ?, ?, 0)",
+                productoRows);
+        // Producto writes only update the counter row of their sucursal, so it has to exist.
+        jdbc.update("""
+                INSERT INTO inventario_sucursales (sucursal_id, productos, total_stock, out_of_stock)
+                SELECT s.id, COUNT(p.id), COALESCE(SUM(p.stock), 0), COUNT(CASE WHEN p.stock = 0 THEN 1 END)
+                FROM sucursales s
+                         LEFT JOIN productos p ON p.sucursal_id = s.id
+                WHERE s.franquicia_id = ?
+                GROUP BY s.id
+                """, franquiciaId);
+        jdbc.execute("ALTER SEQUENCE franquicias_seq RESTART WITH 51");
+        jdbc.execute("ALTER SEQUENCE sucursales_seq RESTART WITH " + (sucursales + 50));
+        jdbc.execute("ALTER SEQUENCE productos_seq RESTART WITH " + (productoId - 1 + 50));
+        return franquiciaId;
+    }
+}
@@ -0,0 +1,64 @@
+package com.franquicias.jmh;
+
+import com.franquicias.dto.ProductoMaxStockPorSucursalResponse;
+import com.franquicias.service.ProductoService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link ProductoService#getProductosConMaxStockPorSucursal} for franquicias of 10, 1k and 10k
+ * sucursales, answered by the set-based query and by the max-stock index.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MaxStockReportBenchmark {
+
+    @Param({"10", "1000", "10000"})
+    public int sucursales;
+
+    @Param({"20"})
+    public int productosPorSucursal;
+
+    @Param({"true", "false"})
+    public boolean maxStockIndex;
+
+    private ConfigurableApplicationContext context;
+    private ProductoService productoService;
+    private long franquiciaId;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = JmhContexts.start("franquicias.max-stock-index.enabled=" + maxStockIndex);
+        franquiciaId = JmhContexts.seed(context, sucursales, productosPorSucursal);
+        productoService = context.getBean(ProductoService.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<ProductoMaxStockPorSucursalResponse> maxStockPorSucursal() {
+        return productoService.getProductosConMaxStockPorSucursal(franquiciaId);
+    }
+}
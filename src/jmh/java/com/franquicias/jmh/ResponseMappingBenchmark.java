@@ -0,0 +1,85 @@
+package com.franquicias.jmh;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.franquicias.dto.ProductoMaxStockPorSucursalResponse;
+import com.franquicias.dto.ProductoResponse;
+import com.franquicias.entity.Producto;
+import com.franquicias.entity.Sucursal;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Entity to DTO mapping and Jackson serialization of the responses, for lists of the size a
+ * max-stock report or a sucursal listing returns.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ResponseMappingBenchmark {
+
+    @Param({"1", "1000"})
+    public int size;
+
+    private List<Producto> productos;
+    private List<ProductoResponse> productoResponses;
+    private List<ProductoMaxStockPorSucursalResponse> maxStockResponses;
+    private ObjectWriter writer;
+
+    @Setup
+    public void setUp() {
+        productos = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            Sucursal sucursal = new Sucursal();
+            sucursal.setId((long) i);
+            sucursal.setName("Sucursal " + i);
+            Producto producto = new Producto();
+            producto.setId((long) i);
+            producto.setName("Producto " + i);
+            producto.setStock(i % 500);
+            producto.setVersion(3L);
+            producto.setSucursal(sucursal);
+            productos.add(producto);
+        }
+        productoResponses = productos.stream().map(ProductoResponse::from).toList();
+        maxStockResponses = productos.stream().map(ProductoMaxStockPorSucursalResponse::from).toList();
+        // Same defaults as the ObjectMapper Spring MVC uses for these records.
+        writer = new ObjectMapper().findAndRegisterModules().writer();
+    }
+
+    @Benchmark
+    public List<ProductoResponse> productoResponseFrom() {
+        return productos.stream().map(ProductoResponse::from).toList();
+    }
+
+    @Benchmark
+    public List<ProductoMaxStockPorSucursalResponse> maxStockResponseFrom() {
+        return productos.stream().map(ProductoMaxStockPorSucursalResponse::from).toList();
+    }
+
+    @Benchmark
+    public byte[] serializeProductoResponses() throws Exception {
+        return writer.writeValueAsBytes(productoResponses);
+    }
+
+    @Benchmark
+    public byte[] serializeMaxStockResponses() throws Exception {
+        return writer.writeValueAsBytes(maxStockResponses);
+    }
+}
@@ -0,0 +1,87 @@
+package com.franquicias.jmh;
+
+import com.franquicias.exception.ConflictException;
+import com.franquicias.service.ProductoService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.dao.ConcurrencyFailureException;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Stock writes from 8 threads spread over {@code hotProductos} productos of one sucursal; with
+ * a single hot producto every write contends for the same row. Lost optimistic-lock races and
+ * lock timeouts count as completed operations, as they do for clients that get an error.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(8)
+@Fork(1)
+public class UpdateStockBenchmark {
+
+    private static final long SUCURSAL_ID = 1;
+
+    @Param({"1", "64"})
+    public int hotProductos;
+
+    @Param({"false", "true"})
+    public boolean writeBehind;
+
+    private ConfigurableApplicationContext context;
+    private ProductoService productoService;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = JmhContexts.start("franquicias.stock-write-behind.enabled=" + writeBehind);
+        JmhContexts.seed(context, 1, hotProductos);
+        productoService = context.getBean(ProductoService.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    private long randomProducto() {
+        return 1 + ThreadLocalRandom.current().nextInt(hotProductos);
+    }
+
+    @Benchmark
+    public void updateStock(Blackhole blackhole) {
+        try {
+            blackhole.consume(productoService.updateStock(
+                    SUCURSAL_ID, randomProducto(), ThreadLocalRandom.current().nextInt(1_000)));
+        } catch (ConcurrencyFailureException ex) {
+            blackhole.consume(ex);
+        }
+    }
+
+    @Benchmark
+    public void adjustStock(Blackhole blackhole) {
+        int delta = ThreadLocalRandom.current().nextBoolean() ? 1 : -1;
+        try {
+            blackhole.consume(productoService.adjustStock(SUCURSAL_ID, randomProducto(), delta));
+        } catch (ConflictException | ConcurrencyFailureException ex) {
+            // The random walk reached zero stock, or a row lock wait timed out.
+            blackhole.consume(ex);
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package com.franquicias.loadtest;
+
+import java.util.List;
+
+/**
+ * Ids created by {@code seed}, used by {@code generate} to build requests against existing rows.
+ */
+record Dataset(List<FranquiciaIds> franquicias) {
+
+    record FranquiciaIds(long id, List<SucursalIds> sucursales) {
+    }
+
+    record SucursalIds(long id, List<Long> productos) {
+    }
+}
@@ -0,0 +1,80 @@
+package com.franquicias.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Creates franquicias, sucursales and productos through the public API of a running instance.
+ * Productos are spread over the sucursales of each franquicia following a Zipf distribution, so
+ * a few sucursales hold most of them when {@code skew} is high.
+ */
+final class DatasetSeeder {
+
+    private static final int BATCH_SIZE = 5_000;
+
+    private final HttpClient client = HttpClient.newHttpClient();
+    private final ObjectMapper objectMapper;
+    private final String baseUrl;
+
+    DatasetSeeder(ObjectMapper objectMapper, String baseUrl) {
+        this.objectMapper = objectMapper;
+        this.baseUrl = baseUrl;
+    }
+
+    Dataset seed(int franquicias, int sucursalesPorFranquicia, int productosPorFranquicia, double skew, long seed)
+            throws IOException, InterruptedException {
+        Random random = new Random(seed);
+        List<Dataset.FranquiciaIds> created = new ArrayList<>(franquicias);
+        for (int f = 0; f < franquicias; f++) {
+            long franquiciaId = post("/api/franquicias", Map.of("name", "Franquicia " + f)).get("id").asLong();
+            int[] productosPorSucursal = Zipf.split(productosPorFranquicia, sucursalesPorFranquicia, skew, 0);
+            List<Dataset.SucursalIds> sucursales = new ArrayList<>(sucursalesPorFranquicia);
+            for (int s = 0; s < sucursalesPorFranquicia; s++) {
+                long sucursalId = post("/api/franquicias/" + franquiciaId + "/sucursales",
+                        Map.of("name", "Sucursal " + f + "-" + s)).get("id").asLong();
+                sucursales.add(new Dataset.SucursalIds(sucursalId, createProductos(sucursalId, productosPorSucursal[s], random)));
+            }
+            created.add(new Dataset.FranquiciaIds(franquiciaId, sucursales));
+            System.out.printf("Seeded franquicia %d: %d sucursales, %d productos%n",
+                    franquiciaId, sucursalesPorFranquicia, productosPorFranquicia);
+        }
+        return new Dataset(created);
+    }
+
+    private List<Long> createProductos(long sucursalId, int count, Random random)
+            throws IOException, InterruptedException {
+        List<Long> ids = new ArrayList<>(count);
+        for (int from = 0; from < count; from += BATCH_SIZE) {
+            List<Map<String, Object>> batch = new ArrayList<>();
+            for (int i = from; i < Math.min(from + BATCH_SIZE, count); i++) {
+                batch.add(Map.of("name", "Producto " + sucursalId + "-" + i, "stock", random.nextInt(1_000)));
+            }
+            for (JsonNode item : post("/api/sucursales/" + sucursalId + "/productos/batch", batch).get("items")) {
+                ids.add(item.get("producto").get("id").asLong());
+            }
+        }
+        return ids;
+    }
+
+    private JsonNode post(String path, Object body) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(body)))
+                .build();
+        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() >= 300) {
+            throw new IOException("POST " + path + " failed with " + response.statusCode() + ": " + response.body());
+        }
+        return objectMapper.readTree(response.body());
+    }
+}
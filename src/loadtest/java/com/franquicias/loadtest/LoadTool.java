@@ -0,0 +1,152 @@
+package com.franquicias.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Command line entry point of the load-test harness; run it through the {@code loadtest}
+ * profile:
+ * <pre>
+ * mvn -Ploadtest test-compile exec:java -Dexec.args="seed --franquicias 2 --sucursales 50 --productos 20000"
+ * mvn -Ploadtest test-compile exec:java -Dexec.args="generate --requests 100000 --out target/loadtest/mix.jsonl"
+ * mvn -Ploadtest test-compile exec:java -Dexec.args="replay --in target/loadtest/mix.jsonl --concurrency 64"
+ * </pre>
+ * {@code seed} writes the created ids to {@code --dataset} (default
+ * {@code target/loadtest/dataset.json}), which {@code generate} reads to build the mix.
+ */
+public final class LoadTool {
+
+    private static final String DEFAULT_DATASET = "target/loadtest/dataset.json";
+    private static final String DEFAULT_MIX = "target/loadtest/mix.jsonl";
+
+    private LoadTool() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length == 0) {
+            usage();
+            return;
+        }
+        Map<String, String> options = options(args);
+        ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+        String baseUrl = options.getOrDefault("base-url", "http://localhost:8080");
+        switch (args[0]) {
+            case "seed" -> {
+                Dataset dataset = new DatasetSeeder(objectMapper, baseUrl).seed(
+                        Integer.parseInt(options.getOrDefault("franquicias", "1")),
+                        Integer.parseInt(options.getOrDefault("sucursales", "10")),
+                        Integer.parseInt(options.getOrDefault("productos", "1000")),
+                        Double.parseDouble(options.getOrDefault("skew", "1.0")),
+                        Long.parseLong(options.getOrDefault("seed", "42")));
+                Path out = Path.of(options.getOrDefault("dataset", DEFAULT_DATASET));
+                createParent(out);
+                objectMapper.writeValue(out.toFile(), dataset);
+                System.out.println("Dataset written to " + out);
+            }
+            case "generate" -> {
+                Dataset dataset = objectMapper.readValue(
+                        Path.of(options.getOrDefault("dataset", DEFAULT_DATASET)).toFile(), Dataset.class);
+                List<RecordedRequest> mix = new RequestMixGenerator(objectMapper, dataset,
+                        Double.parseDouble(options.getOrDefault("skew", "1.0")),
+                        Long.parseLong(options.getOrDefault("seed", "42")))
+                        .generate(Integer.parseInt(options.getOrDefault("requests", "10000")), mix(options.get("mix")));
+                Path out = Path.of(options.getOrDefault("out", DEFAULT_MIX));
+                createParent(out);
+                try (BufferedWriter writer = Files.newBufferedWriter(out)) {
+                    for (RecordedRequest request : mix) {
+                        writer.write(objectMapper.writeValueAsString(request));
+                        writer.newLine();
+                    }
+                }
+                System.out.println(mix.size() + " requests written to " + out);
+            }
+            case "replay" -> {
+                List<RecordedRequest> mix = new ArrayList<>();
+                try (BufferedReader reader = Files.newBufferedReader(Path.of(options.getOrDefault("in", DEFAULT_MIX)))) {
+                    for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                        if (!line.isBlank()) {
+                            mix.add(objectMapper.readValue(line, RecordedRequest.class));
+                        }
+                    }
+                }
+                List<Replayer.RouteStats> stats = new Replayer(baseUrl,
+                        Integer.parseInt(options.getOrDefault("concurrency", "32")))
+                        .replay(mix, Integer.parseInt(options.getOrDefault("iterations", "1")));
+                print(stats);
+                if (options.containsKey("report")) {
+                    Path report = Path.of(options.get("report"));
+                    createParent(report);
+                    objectMapper.writerWithDefaultPrettyPrinter().writeValue(report.toFile(), stats);
+                    System.out.println("Report written to " + report);
+                }
+            }
+            default -> usage();
+        }
+    }
+
+    private static Map<String, String> options(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (int i = 1; i < args.length; i++) {
+            if (!args[i].startsWith("--") || i + 1 >= args.length) {
+                throw new IllegalArgumentException("Expected --option value pairs, got: " + args[i]);
+            }
+            options.put(args[i].substring(2), args[++i]);
+        }
+        return options;
+    }
+
+    /**
+     * Parses {@code report=50,stock=30,...}; kinds that are not listed are not generated.
+     */
+    private static Map<String, Integer> mix(String spec) {
+        if (spec == null) {
+            return RequestMixGenerator.DEFAULT_MIX;
+        }
+        Map<String, Integer> mix = new LinkedHashMap<>();
+        for (String entry : spec.split(",")) {
+            String[] parts = entry.split("=");
+            if (parts.length != 2 || !RequestMixGenerator.DEFAULT_MIX.containsKey(parts[0].trim())) {
+                throw new IllegalArgumentException("Invalid mix entry: " + entry
+                        + " (kinds: " + RequestMixGenerator.DEFAULT_MIX.keySet() + ")");
+            }
+            mix.put(parts[0].trim(), Integer.parseInt(parts[1].trim()));
+        }
+        return mix;
+    }
+
+    private static void createParent(Path path) throws IOException {
+        if (path.toAbsolutePath().getParent() != null) {
+            Files.createDirectories(path.toAbsolutePath().getParent());
+        }
+    }
+
+    private static void print(List<Replayer.RouteStats> stats) {
+        System.out.printf("%-75s %9s %8s %9s %9s %9s %9s %9s%n",
+                "route", "requests", "errors", "req/s", "p50 ms", "p95 ms", "p99 ms", "max ms");
+        for (Replayer.RouteStats route : stats) {
+            System.out.printf("%-75s %9d %7.2f%% %9.1f %9.2f %9.2f %9.2f %9.2f%n",
+                    route.route(), route.requests(), route.errorRate() * 100, route.requestsPerSecond(),
+                    route.p50Millis(), route.p95Millis(), route.p99Millis(), route.maxMillis());
+        }
+    }
+
+    private static void usage() {
+        System.out.println("""
+                Usage: <command> [--option value ...]
+                  seed      --base-url --franquicias --sucursales (per franquicia) --productos (per franquicia)
+                            --skew --seed --dataset
+                  generate  --dataset --requests --skew --seed --out --mix report=30,stock=30,...
+                  replay    --base-url --in --concurrency --iterations --report <file.json>
+                """);
+    }
+}
@@ -0,0 +1,11 @@
+package com.franquicias.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+/**
+ * One line of a request mix. {@code route} is the handler's path template, e.g.
+ * {@code PATCH /api/sucursales/{sucursalId}/productos/{productoId}/stock}, and is what the
+ * replay report groups by. {@code body} is sent as JSON when present.
+ */
+record RecordedRequest(String route, String method, String path, JsonNode body) {
+}
@@ -0,0 +1,126 @@
+package com.franquicias.loadtest;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Replays a request mix against a running instance with a fixed number of concurrent clients,
+ * each taking the next request of the mix, and collects latencies and errors per route.
+ */
+final class Replayer {
+
+    private final String baseUrl;
+    private final int concurrency;
+
+    Replayer(String baseUrl, int concurrency) {
+        this.baseUrl = baseUrl;
+        this.concurrency = concurrency;
+    }
+
+    /**
+     * Per-route results. A request counts as an error when it fails at the connection level or
+     * gets a 4xx/5xx response.
+     */
+    record RouteStats(String route, long requests, long errors, double requestsPerSecond,
+                      double p50Millis, double p95Millis, double p99Millis, double maxMillis) {
+
+        double errorRate() {
+            return requests == 0 ? 0 : (double) errors / requests;
+        }
+    }
+
+    private static final class Samples {
+
+        private final List<Long> latencies = new ArrayList<>();
+        private long errors;
+    }
+
+    List<RouteStats> replay(List<RecordedRequest> mix, int iterations) throws Exception {
+        long total = (long) mix.size() * iterations;
+        AtomicLong next = new AtomicLong();
+        List<Future<Map<String, Samples>>> workers = new ArrayList<>(concurrency);
+        long started;
+        long elapsed;
+        try (HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+             ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            started = System.nanoTime();
+            for (int w = 0; w < concurrency; w++) {
+                workers.add(executor.submit(() -> {
+                    Map<String, Samples> samples = new HashMap<>();
+                    for (long i = next.getAndIncrement(); i < total; i = next.getAndIncrement()) {
+                        RecordedRequest request = mix.get((int) (i % mix.size()));
+                        Samples route = samples.computeIfAbsent(request.route(), r -> new Samples());
+                        long begin = System.nanoTime();
+                        try {
+                            int status = client.send(toHttp(request), HttpResponse.BodyHandlers.discarding()).statusCode();
+                            if (status >= 400) {
+                                route.errors++;
+                            }
+                        } catch (IOException ex) {
+                            route.errors++;
+                        }
+                        route.latencies.add(System.nanoTime() - begin);
+                    }
+                    return samples;
+                }));
+            }
+            for (Future<Map<String, Samples>> worker : workers) {
+                worker.get();
+            }
+            elapsed = System.nanoTime() - started;
+        }
+
+        Map<String, Samples> merged = new TreeMap<>();
+        Samples all = new Samples();
+        for (Future<Map<String, Samples>> worker : workers) {
+            worker.get().forEach((route, samples) -> {
+                Samples target = merged.computeIfAbsent(route, r -> new Samples());
+                target.latencies.addAll(samples.latencies);
+                target.errors += samples.errors;
+                all.latencies.addAll(samples.latencies);
+                all.errors += samples.errors;
+            });
+        }
+        double seconds = elapsed / 1_000_000_000.0;
+        List<RouteStats> stats = new ArrayList<>();
+        merged.forEach((route, samples) -> stats.add(stats(route, samples, seconds)));
+        stats.add(stats("TOTAL", all, seconds));
+        return stats;
+    }
+
+    private HttpRequest toHttp(RecordedRequest request) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(baseUrl + request.path()));
+        if (request.body() == null || request.body().isNull()) {
+            return builder.method(request.method(), HttpRequest.BodyPublishers.noBody()).build();
+        }
+        return builder.header("Content-Type", "application/json")
+                .method(request.method(), HttpRequest.BodyPublishers.ofString(request.body().toString()))
+                .build();
+    }
+
+    private static RouteStats stats(String route, Samples samples, double seconds) {
+        long[] sorted = samples.latencies.stream().mapToLong(Long::longValue).sorted().toArray();
+        return new RouteStats(route, sorted.length, samples.errors, sorted.length / seconds,
+                percentile(sorted, 0.50), percentile(sorted, 0.95), percentile(sorted, 0.99),
+                sorted.length == 0 ? 0 : sorted[sorted.length - 1] / 1_000_000.0);
+    }
+
+    private static double percentile(long[] sorted, double percentile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        return sorted[(int) Math.ceil(sorted.length * percentile) - 1] / 1_000_000.0;
+    }
+}
@@ -0,0 +1,135 @@
+package com.franquicias.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Builds a synthetic request mix over a seeded {@link Dataset}. Each kind of request has a
+ * relative weight, and the productos and franquicias it targets follow a Zipf distribution so
+ * that a few hot SKUs receive most of the writes.
+ */
+final class RequestMixGenerator {
+
+    static final Map<String, Integer> DEFAULT_MIX = defaultMix();
+
+    private final ObjectMapper objectMapper;
+    private final Dataset dataset;
+    private final Random random;
+    private final List<ProductoRef> productos = new ArrayList<>();
+    private final Zipf franquiciaZipf;
+    private final Zipf productoZipf;
+    private int created;
+
+    private record ProductoRef(long sucursalId, long productoId) {
+    }
+
+    RequestMixGenerator(ObjectMapper objectMapper, Dataset dataset, double skew, long seed) {
+        this.objectMapper = objectMapper;
+        this.dataset = dataset;
+        this.random = new Random(seed);
+        for (Dataset.FranquiciaIds franquicia : dataset.franquicias()) {
+            for (Dataset.SucursalIds sucursal : franquicia.sucursales()) {
+                sucursal.productos().forEach(id -> productos.add(new ProductoRef(sucursal.id(), id)));
+            }
+        }
+        if (productos.isEmpty()) {
+            throw new IllegalArgumentException("The dataset has no productos");
+        }
+        // Shuffle so hot productos are not all in the first sucursal.
+        Collections.shuffle(productos, random);
+        this.franquiciaZipf = new Zipf(dataset.franquicias().size(), skew);
+        this.productoZipf = new Zipf(productos.size(), skew);
+    }
+
+    private static Map<String, Integer> defaultMix() {
+        Map<String, Integer> mix = new LinkedHashMap<>();
+        mix.put("report", 30);
+        mix.put("stock", 30);
+        mix.put("adjust", 20);
+        mix.put("create-producto", 5);
+        mix.put("rename-producto", 5);
+        mix.put("delete-producto", 2);
+        mix.put("create-sucursal", 2);
+        mix.put("rename-sucursal", 3);
+        mix.put("create-franquicia", 1);
+        mix.put("rename-franquicia", 2);
+        return mix;
+    }
+
+    List<RecordedRequest> generate(int count, Map<String, Integer> mix) {
+        int totalWeight = mix.values().stream().mapToInt(Integer::intValue).sum();
+        if (totalWeight <= 0) {
+            throw new IllegalArgumentException("The request mix needs a positive weight");
+        }
+        List<RecordedRequest> requests = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int pick = random.nextInt(totalWeight);
+            for (Map.Entry<String, Integer> entry : mix.entrySet()) {
+                pick -= entry.getValue();
+                if (pick < 0) {
+                    requests.add(request(entry.getKey()));
+                    break;
+                }
+            }
+        }
+        return requests;
+    }
+
+    private RecordedRequest request(String kind) {
+        Dataset.FranquiciaIds franquicia = dataset.franquicias().get(franquiciaZipf.sample(random));
+        Dataset.SucursalIds sucursal = franquicia.sucursales().get(random.nextInt(franquicia.sucursales().size()));
+        // Deletions shrink the list; the coldest remaining producto absorbs their share.
+        ProductoRef producto = productos.get(Math.min(productoZipf.sample(random), productos.size() - 1));
+        String productoPath = "/api/sucursales/" + producto.sucursalId() + "/productos/" + producto.productoId();
+        return switch (kind) {
+            case "report" -> new RecordedRequest("GET /api/franquicias/{franquiciaId}/productos-max-stock",
+                    "GET", "/api/franquicias/" + franquicia.id() + "/productos-max-stock", null);
+            case "stock" -> new RecordedRequest("PATCH /api/sucursales/{sucursalId}/productos/{productoId}/stock",
+                    "PATCH", productoPath + "/stock", body("stock", random.nextInt(1_000)));
+            case "adjust" -> new RecordedRequest("POST /api/sucursales/{sucursalId}/productos/{productoId}/stock/adjust",
+                    "POST", productoPath + "/stock/adjust", body("delta", random.nextBoolean() ? 1 : -1));
+            case "create-producto" -> new RecordedRequest("POST /api/sucursales/{sucursalId}/productos",
+                    "POST", "/api/sucursales/" + sucursal.id() + "/productos",
+                    body("name", "Nuevo " + ++created).put("stock", random.nextInt(1_000)));
+            case "rename-producto" -> new RecordedRequest("PATCH /api/sucursales/{sucursalId}/productos/{productoId}/name",
+                    "PATCH", productoPath + "/name", body("name", "Producto renombrado " + random.nextInt(1_000)));
+            case "delete-producto" -> deleteProducto();
+            case "create-sucursal" -> new RecordedRequest("POST /api/franquicias/{franquiciaId}/sucursales",
+                    "POST", "/api/franquicias/" + franquicia.id() + "/sucursales", body("name", "Nueva " + ++created));
+            case "rename-sucursal" -> new RecordedRequest(
+                    "PATCH /api/franquicias/{franquiciaId}/sucursales/{sucursalId}/name",
+                    "PATCH", "/api/franquicias/" + franquicia.id() + "/sucursales/" + sucursal.id() + "/name",
+                    body("name", "Sucursal renombrada " + random.nextInt(1_000)));
+            case "create-franquicia" -> new RecordedRequest("POST /api/franquicias",
+                    "POST", "/api/franquicias", body("name", "Nueva " + ++created));
+            case "rename-franquicia" -> new RecordedRequest("PATCH /api/franquicias/{franquiciaId}/name",
+                    "PATCH", "/api/franquicias/" + franquicia.id() + "/name",
+                    body("name", "Franquicia renombrada " + random.nextInt(1_000)));
+            default -> throw new IllegalArgumentException("Unknown request kind: " + kind);
+        };
+    }
+
+    /**
+     * Deletes a producto from the cold end of the distribution and stops targeting it, so later
+     * requests of the mix do not run into 404s.
+     */
+    private RecordedRequest deleteProducto() {
+        if (productos.size() < 2) {
+            return request("stock");
+        }
+        ProductoRef producto = productos.remove(productos.size() - 1);
+        return new RecordedRequest("DELETE /api/sucursales/{sucursalId}/productos/{productoId}",
+                "DELETE", "/api/sucursales/" + producto.sucursalId() + "/productos/" + producto.productoId(), null);
+    }
+
+    private ObjectNode body(String field, Object value) {
+        return objectMapper.createObjectNode().putPOJO(field, value);
+    }
+}
@@ -0,0 +1,56 @@
+package com.franquicias.loadtest;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Samples ranks {@code 0..n-1} with probability proportional to {@code 1 / (rank + 1)^skew}.
+ * A skew of 0 is uniform; around 1 a few ranks receive most of the samples.
+ */
+final class Zipf {
+
+    private final double[] cumulative;
+
+    Zipf(int n, double skew) {
+        if (n < 1) {
+            throw new IllegalArgumentException("Zipf needs at least one rank");
+        }
+        cumulative = new double[n];
+        double total = 0;
+        for (int rank = 0; rank < n; rank++) {
+            total += 1 / Math.pow(rank + 1, skew);
+            cumulative[rank] = total;
+        }
+        for (int rank = 0; rank < n; rank++) {
+            cumulative[rank] /= total;
+        }
+    }
+
+    int sample(Random random) {
+        int index = Arrays.binarySearch(cumulative, random.nextDouble());
+        return Math.min(index >= 0 ? index : -index - 1, cumulative.length - 1);
+    }
+
+    /**
+     * Splits {@code total} items over {@code n} buckets following the distribution, giving every
+     * bucket at least {@code minimum}.
+     */
+    static int[] split(int total, int n, double skew, int minimum) {
+        Zipf zipf = new Zipf(n, skew);
+        int[] counts = new int[n];
+        Arrays.fill(counts, minimum);
+        int remaining = total - minimum * n;
+        double previous = 0;
+        int assigned = 0;
+        for (int rank = 0; rank < n && remaining > 0; rank++) {
+            int share = rank == n - 1
+                    ? remaining - assigned
+                    : (int) Math.round((zipf.cumulative[rank] - previous) * remaining);
+            share = Math.min(share, remaining - assigned);
+            counts[rank] += share;
+            assigned += share;
+            previous = zipf.cumulative[rank];
+        }
+        return counts;
+    }
+}
@@ -0,0 +1,28 @@
+package com.franquicias.cache;
+
+import java.util.List;
+
+/**
+ * Names of the Hibernate second-level cache regions. The limits of each region are set under
+ * {@code franquicias.second-level-cache.regions.<name>}.
+ */
+public final class CacheRegions {
+
+    public static final String FRANQUICIA = "franquicia";
+    public static final String SUCURSAL = "sucursal";
+    public static final String FRANQUICIA_SUCURSALES = "franquicia-sucursales";
+    public static final String SUCURSALES_BY_FRANQUICIA = "sucursales-by-franquicia";
+    public static final String DEFAULT_QUERY_RESULTS = "default-query-results-region";
+
+    /**
+     * Last modification time of each table, used to invalidate cached query results. It must
+     * never evict entries, so it is not size or time bounded.
+     */
+    public static final String UPDATE_TIMESTAMPS = "default-update-timestamps-region";
+
+    public static final List<String> BOUNDED =
+            List.of(FRANQUICIA, SUCURSAL, FRANQUICIA_SUCURSALES, SUCURSALES_BY_FRANQUICIA, DEFAULT_QUERY_RESULTS);
+
+    private CacheRegions() {
+    }
+}
@@ -0,0 +1,260 @@
+package com.franquicias.cache;
+
+import com.franquicias.dto.ProductoMaxStockPorSucursalResponse;
+import com.franquicias.entity.Sucursal;
+import com.franquicias.event.ProductoChangedEvent;
+import com.franquicias.event.ProductosDeletedEvent;
+import com.franquicias.repository.ProductoRepository;
+import com.franquicias.repository.ProductoVersionView;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Optional;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-process index of the productos with the highest stock of each sucursal.
+ * <p>
+ * Each sucursal keeps its top {@code depth} productos ordered by stock, plus the highest
+ * stock among the productos left out ({@code floor}). Changes are applied from
+ * {@link ProductoChangedEvent}s after the publishing transaction commits, so rolled-back
+ * writes never reach the index. A sucursal is loaded lazily from the database the first
+ * time it is read, and reloaded when deletions or stock decreases leave no tracked
+ * producto above its floor.
+ * <p>
+ * A load only publishes its snapshot if no write to the sucursal committed while it was being
+ * read. Each loaded sucursal has a generation that every change bumps; the bump, the change to
+ * the indexed state and the check-and-publish of a load all run inside
+ * {@code sucursales.compute} for the sucursal, so they cannot interleave. Generations are
+ * created by loads and dropped when the sucursal is evicted.
+ * <p>
+ * The listeners of two writes to the same producto may run in either order, so each sucursal
+ * remembers the latest version it applied per producto, loaded or changed, and ignores changes
+ * with an older one; a deleted producto ignores every later change. Changes without a version
+ * (bulk stock writes) are applied in the order they arrive.
+ */
+@Component
+public class MaxStockIndex {
+
+    static final Comparator<Entry> ORDER = Comparator.comparingInt(Entry::stock).reversed()
+            .thenComparing(Entry::productoId);
+
+    private final ProductoRepository productoRepository;
+    private final boolean enabled;
+    private final int depth;
+    private final Map<Long, SucursalTop> sucursales = new ConcurrentHashMap<>();
+    private final Map<Long, AtomicLong> generations = new ConcurrentHashMap<>();
+
+    public MaxStockIndex(ProductoRepository productoRepository,
+                         @Value("${franquicias.max-stock-index.enabled:true}") boolean enabled,
+                         @Value("${franquicias.max-stock-index.depth:16}") int depth) {
+        if (depth < 1) {
+            throw new IllegalArgumentException("Max-stock index depth must be positive");
+        }
+        this.productoRepository = productoRepository;
+        this.enabled = enabled;
+        this.depth = depth;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Returns the top producto of each given sucursal, in the same order. Sucursales that are
+     * not indexed yet are loaded together with a single query.
+     */
+    public List<ProductoMaxStockPorSucursalResponse> maxStockPorSucursal(List<Sucursal> sucursalList) {
+        Map<Long, SucursalTop> tops = new HashMap<>();
+        List<Long> pending = new ArrayList<>();
+        for (Sucursal sucursal : sucursalList) {
+            SucursalTop top = sucursales.get(sucursal.getId());
+            if (top != null && top.isReliable()) {
+                tops.put(sucursal.getId(), top);
+            } else {
+                pending.add(sucursal.getId());
+            }
+        }
+        if (!pending.isEmpty()) {
+            tops.putAll(load(pending));
+        }
+        List<ProductoMaxStockPorSucursalResponse> result = new ArrayList<>();
+        for (Sucursal sucursal : sucursalList) {
+            tops.get(sucursal.getId()).top().ifPresent(entry -> result.add(new ProductoMaxStockPorSucursalResponse(
+                    entry.productoId(),
+                    entry.name(),
+                    entry.stock(),
+                    sucursal.getId(),
+                    sucursal.getName())));
+        }
+        return result;
+    }
+
+    // Applied before MaxStockReportCache bumps the report version for the same event.
+    @Order(0)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductoChanged(ProductoChangedEvent event) {
+        if (!enabled) {
+            return;
+        }
+        sucursales.compute(event.sucursalId(), (sucursalId, top) -> {
+            // No generation means no load has read the sucursal since it was last evicted.
+            AtomicLong generation = generations.get(sucursalId);
+            if (generation != null) {
+                generation.incrementAndGet();
+            }
+            if (top == null) {
+                return null;
+            }
+            boolean consistent = event.deleted()
+                    ? top.remove(event.productoId())
+                    : top.upsert(event.productoId(), event.name(), event.stock(), event.version());
+            return consistent && top.isReliable() ? top : null;
+        });
+    }
+
+    @Order(0)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductosDeleted(ProductosDeletedEvent event) {
+        evict(event.sucursalId());
+    }
+
+    /**
+     * Drops the indexed state and the generation of a sucursal; it is reloaded on the next
+     * read. Loads in flight for it publish nothing.
+     */
+    public void evict(Long sucursalId) {
+        sucursales.compute(sucursalId, (id, top) -> {
+            generations.remove(id);
+            return null;
+        });
+    }
+
+    int generationCount() {
+        return generations.size();
+    }
+
+    private Map<Long, SucursalTop> load(List<Long> sucursalIds) {
+        Map<Long, AtomicLong> generationsRead = new HashMap<>();
+        Map<Long, Long> observed = new HashMap<>();
+        if (enabled) {
+            for (Long sucursalId : sucursalIds) {
+                AtomicLong generation = generations.computeIfAbsent(sucursalId, id -> new AtomicLong());
+                generationsRead.put(sucursalId, generation);
+                observed.put(sucursalId, generation.get());
+            }
+        }
+        Map<Long, List<Entry>> rows = new HashMap<>();
+        for (ProductoVersionView view : productoRepository.findTopByStockPorSucursal(sucursalIds, depth + 1)) {
+            rows.computeIfAbsent(view.getSucursalId(), id -> new ArrayList<>())
+                    .add(new Entry(view.getProductoId(), view.getName(), view.getStock(), view.getVersion()));
+        }
+        Map<Long, SucursalTop> loaded = new HashMap<>();
+        for (Long sucursalId : sucursalIds) {
+            SucursalTop top = SucursalTop.of(rows.getOrDefault(sucursalId, List.of()), depth);
+            loaded.put(sucursalId, top);
+            if (enabled) {
+                AtomicLong generation = generationsRead.get(sucursalId);
+                long read = observed.get(sucursalId);
+                // Publish only if no write committed and no eviction happened while it was read.
+                sucursales.compute(sucursalId, (id, current) ->
+                        generations.get(id) == generation && generation.get() == read ? top : current);
+            }
+        }
+        return loaded;
+    }
+
+    record Entry(Long productoId, String name, int stock, Long version) {
+    }
+
+    /**
+     * Top productos of a single sucursal. When {@code complete} is false, every producto
+     * that is not tracked has a stock lower than or equal to {@code floor}. {@code versions}
+     * holds the latest version applied to each producto since the load, tracked or not, and
+     * {@link #DELETED} for deleted productos.
+     */
+    static final class SucursalTop {
+
+        private static final long DELETED = Long.MAX_VALUE;
+
+        private final boolean complete;
+        private final int floor;
+        private final Map<Long, Entry> byId = new HashMap<>();
+        private final NavigableSet<Entry> ordered = new TreeSet<>(ORDER);
+        private final Map<Long, Long> versions = new HashMap<>();
+
+        private SucursalTop(boolean complete, int floor) {
+            this.complete = complete;
+            this.floor = floor;
+        }
+
+        static SucursalTop of(List<Entry> rows, int depth) {
+            List<Entry> sorted = new ArrayList<>(rows);
+            sorted.sort(ORDER);
+            boolean complete = sorted.size() <= depth;
+            SucursalTop top = new SucursalTop(complete, complete ? Integer.MIN_VALUE : sorted.get(depth).stock());
+            for (Entry entry : sorted.subList(0, Math.min(depth, sorted.size()))) {
+                top.byId.put(entry.productoId(), entry);
+                top.ordered.add(entry);
+                if (entry.version() != null) {
+                    top.versions.put(entry.productoId(), entry.version());
+                }
+            }
+            return top;
+        }
+
+        synchronized boolean isReliable() {
+            return complete || (!ordered.isEmpty() && ordered.first().stock() >= floor);
+        }
+
+        synchronized Optional<Entry> top() {
+            return ordered.isEmpty() ? Optional.empty() : Optional.of(ordered.first());
+        }
+
+        synchronized boolean upsert(Long productoId, String name, Integer stock, Long version) {
+            Long applied = versions.get(productoId);
+            if (applied != null && (applied == DELETED || version != null && version < applied)) {
+                // Committed before a change that is already applied.
+                return true;
+            }
+            if (version != null) {
+                versions.put(productoId, version);
+            }
+            Entry previous = byId.remove(productoId);
+            if (previous != null) {
+                ordered.remove(previous);
+            }
+            String resolvedName = name != null ? name : previous != null ? previous.name() : null;
+            Integer resolvedStock = stock != null ? stock : previous != null ? previous.stock() : null;
+            if (resolvedName == null || resolvedStock == null) {
+                // Partial change of a producto this index does not know about.
+                return !complete && (resolvedStock == null || resolvedStock < floor);
+            }
+            if (complete || resolvedStock >= floor) {
+                Entry entry = new Entry(productoId, resolvedName, resolvedStock, version);
+                byId.put(productoId, entry);
+                ordered.add(entry);
+            }
+            return true;
+        }
+
+        synchronized boolean remove(Long productoId) {
+            versions.put(productoId, DELETED);
+            Entry previous = byId.remove(productoId);
+            if (previous != null) {
+                ordered.remove(previous);
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package com.franquicias.cache;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.franquicias.dto.ProductoMaxStockPorSucursalResponse;
+import com.franquicias.event.ProductoChangedEvent;
+import com.franquicias.event.ProductosDeletedEvent;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Rendered max-stock reports, one per franquicia, tagged with a strong ETag.
+ * <p>
+ * Every franquicia has a change counter that is bumped after each committed producto write
+ * in any of its sucursales and after sucursal renames. The ETag is the counter prefixed with
+ * a random per-process epoch, so tags never repeat across restarts. A cached body is served
+ * only while its counter is current; bodies rendered while a write was committing are
+ * returned but not kept. Concurrent requests that miss the cache wait for one rendering
+ * instead of each running the report. While stock writes wait in the
+ * {@link StockWriteBuffer} both are bypassed, because the report has to flush them first.
+ * Those reports carry a weak ETag: the flush bumps the counter, so the body can include
+ * writes that the tag, read before rendering, does not account for.
+ */
+@Component
+public class MaxStockReportCache {
+
+    public record Report(String eTag, byte[] body) {
+    }
+
+    private record Rendered(long version, Report report) {
+    }
+
+    private record Flight(Long franquiciaId, long version) {
+    }
+
+    private final ReferenceCache referenceCache;
+    private final StockWriteBuffer stockWriteBuffer;
+    private final ObjectMapper objectMapper;
+    private final boolean enabled;
+    private final String epoch = Long.toString(ThreadLocalRandom.current().nextLong() >>> 1, 36);
+    private final Map<Long, AtomicLong> versions = new ConcurrentHashMap<>();
+    private final Cache<Long, Rendered> reports;
+    private final SingleFlight<Flight, Report> renders;
+
+    public MaxStockReportCache(ReferenceCache referenceCache,
+                               StockWriteBuffer stockWriteBuffer,
+                               ObjectMapper objectMapper,
+                               MeterRegistry meterRegistry,
+                               @Value("${franquicias.max-stock-report-cache.enabled:true}") boolean enabled,
+                               @Value("${franquicias.max-stock-report-cache.maximum-size:1000}") long maximumSize) {
+        this.referenceCache = referenceCache;
+        this.stockWriteBuffer = stockWriteBuffer;
+        this.objectMapper = objectMapper;
+        this.enabled = enabled;
+        this.reports = Caffeine.newBuilder().maximumSize(maximumSize).recordStats().build();
+        CaffeineCacheMetrics.monitor(meterRegistry, reports, "max-stock-report");
+        this.renders = new SingleFlight<>("max-stock-report", meterRegistry);
+    }
+
+    /**
+     * Returns the rendered report of the franquicia, calling {@code report} only when no
+     * current rendering is cached. Concurrent misses for the same franquicia and counter share
+     * a single rendering.
+     */
+    public Report get(Long franquiciaId, Supplier<List<ProductoMaxStockPorSucursalResponse>> report) {
+        // Counters are only created once the franquicia is known to exist, so requests for
+        // unknown ids do not grow the map.
+        AtomicLong counter = versions.get(franquiciaId);
+        long version = counter != null ? counter.get() : 0;
+        if (stockWriteBuffer.hasPending()) {
+            // The report flushes the buffered writes first; a rendering that started earlier
+            // may not include the caller's own writes. The tag is weak because the body may be
+            // newer than the counter it was read under.
+            return new Report("W/" + eTag(version), render(report.get()));
+        }
+        if (enabled) {
+            Rendered cached = reports.getIfPresent(franquiciaId);
+            if (cached != null && cached.version() == version) {
+                return cached.report();
+            }
+        }
+        return renders.execute(new Flight(franquiciaId, version), () -> {
+            Report rendered = new Report(eTag(version), render(report.get()));
+            if (enabled && version(franquiciaId).get() == version) {
+                reports.asMap().merge(franquiciaId, new Rendered(version, rendered),
+                        (current, candidate) -> current.version() >= candidate.version() ? current : candidate);
+            }
+            return rendered;
+        });
+    }
+
+    /**
+     * Marks the report of the franquicia as changed, now and again when the current
+     * transaction completes.
+     */
+    public void invalidate(Long franquiciaId) {
+        bump(franquiciaId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    bump(franquiciaId);
+                }
+            });
+        }
+    }
+
+    /**
+     * Runs after {@link MaxStockIndex} has applied the same event, so a report rendered under
+     * the new counter already reflects the change.
+     */
+    @Order(Ordered.LOWEST_PRECEDENCE)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductoChanged(ProductoChangedEvent event) {
+        referenceCache.franquiciaIdOfSucursal(event.sucursalId()).ifPresent(this::bump);
+    }
+
+    @Order(Ordered.LOWEST_PRECEDENCE)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductosDeleted(ProductosDeletedEvent event) {
+        referenceCache.franquiciaIdOfSucursal(event.sucursalId()).ifPresent(this::bump);
+    }
+
+    private void bump(Long franquiciaId) {
+        version(franquiciaId).incrementAndGet();
+        reports.invalidate(franquiciaId);
+    }
+
+    private AtomicLong version(Long franquiciaId) {
+        return versions.computeIfAbsent(franquiciaId, id -> new AtomicLong());
+    }
+
+    private String eTag(long version) {
+        return "\"" + epoch + "-" + version + "\"";
+    }
+
+    private byte[] render(List<ProductoMaxStockPorSucursalResponse> report) {
+        try {
+            return objectMapper.writeValueAsBytes(report);
+        } catch (JsonProcessingException ex) {
+            throw new IllegalStateException("Could not render the max-stock report", ex);
+        }
+    }
+}
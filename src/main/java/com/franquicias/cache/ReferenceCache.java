@@ -0,0 +1,88 @@
+package com.franquicias.cache;
+
+import com.franquicias.repository.FranquiciaRepository;
+import com.franquicias.repository.SucursalRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * Bounded, expiring cache of the facts every write checks before touching a producto or a
+ * sucursal: that a franquicia exists, and which franquicia a sucursal belongs to.
+ * <p>
+ * Only positive lookups are cached, so a row created after a miss is seen on the next read.
+ * Entries are evicted when the row is renamed or deleted, again after the transaction
+ * commits, so a concurrent read cannot put the old state back for longer than the TTL.
+ * Hit and miss counts are published as {@code cache.*} meters tagged
+ * {@code cache=franquicias} and {@code cache=sucursal-franquicia}.
+ */
+@Component
+public class ReferenceCache {
+
+    private final FranquiciaRepository franquiciaRepository;
+    private final SucursalRepository sucursalRepository;
+    private final Cache<Long, Boolean> franquicias;
+    private final Cache<Long, Long> sucursalFranquicia;
+
+    public ReferenceCache(FranquiciaRepository franquiciaRepository,
+                          SucursalRepository sucursalRepository,
+                          MeterRegistry meterRegistry,
+                          @Value("${franquicias.reference-cache.maximum-size:10000}") long maximumSize,
+                          @Value("${franquicias.reference-cache.ttl-seconds:600}") long ttlSeconds) {
+        this.franquiciaRepository = franquiciaRepository;
+        this.sucursalRepository = sucursalRepository;
+        this.franquicias = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .recordStats()
+                .build();
+        this.sucursalFranquicia = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, franquicias, "franquicias");
+        CaffeineCacheMetrics.monitor(meterRegistry, sucursalFranquicia, "sucursal-franquicia");
+    }
+
+    public boolean franquiciaExists(Long franquiciaId) {
+        return franquicias.get(franquiciaId, id -> franquiciaRepository.existsById(id) ? Boolean.TRUE : null) != null;
+    }
+
+    /**
+     * Returns the id of the franquicia the sucursal belongs to, or empty when the sucursal
+     * does not exist.
+     */
+    public Optional<Long> franquiciaIdOfSucursal(Long sucursalId) {
+        return Optional.ofNullable(sucursalFranquicia.get(sucursalId,
+                id -> sucursalRepository.findFranquiciaIdById(id).orElse(null)));
+    }
+
+    public void evictFranquicia(Long franquiciaId) {
+        afterCommit(() -> franquicias.invalidate(franquiciaId));
+    }
+
+    public void evictSucursal(Long sucursalId) {
+        afterCommit(() -> sucursalFranquicia.invalidate(sucursalId));
+    }
+
+    private static void afterCommit(Runnable eviction) {
+        eviction.run();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    eviction.run();
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.franquicias.cache;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Collapses concurrent computations of the same key into one: the first caller runs it and
+ * the callers that arrive while it is running wait for its result, or its exception.
+ * <p>
+ * Calls are counted in {@code franquicias.single-flight.calls}, tagged with the flight
+ * {@code name} and {@code result=executed} or {@code result=coalesced}.
+ */
+public class SingleFlight<K, V> {
+
+    public static final String METRIC = "franquicias.single-flight.calls";
+
+    private final Map<K, CompletableFuture<V>> flights = new ConcurrentHashMap<>();
+    private final Counter executed;
+    private final Counter coalesced;
+
+    public SingleFlight(String name, MeterRegistry meterRegistry) {
+        this.executed = counter(meterRegistry, name, "executed");
+        this.coalesced = counter(meterRegistry, name, "coalesced");
+    }
+
+    private static Counter counter(MeterRegistry meterRegistry, String name, String result) {
+        return Counter.builder(METRIC)
+                .description("Computations run or joined through single-flight coalescing")
+                .tag("name", name)
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    public V execute(K key, Supplier<V> computation) {
+        CompletableFuture<V> flight = new CompletableFuture<>();
+        CompletableFuture<V> inFlight = flights.putIfAbsent(key, flight);
+        if (inFlight != null) {
+            coalesced.increment();
+            return await(inFlight);
+        }
+        executed.increment();
+        try {
+            V value = computation.get();
+            flight.complete(value);
+            return value;
+        } catch (RuntimeException | Error ex) {
+            flight.completeExceptionally(ex);
+            throw ex;
+        } finally {
+            flights.remove(key, flight);
+        }
+    }
+
+    private static <V> V await(CompletableFuture<V> flight) {
+        try {
+            return flight.join();
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            if (ex.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw ex;
+        }
+    }
+}
@@ -0,0 +1,258 @@
+package com.franquicias.cache;
+
+import com.franquicias.event.ProductoChangedEvent;
+import com.franquicias.repository.InventarioDelta;
+import com.franquicias.repository.InventarioSucursalRepository;
+import com.franquicias.repository.ProductoRepository;
+import com.franquicias.repository.StockUpdate;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Predicate;
+
+/**
+ * Opt-in write-behind buffer for absolute stock writes.
+ * <p>
+ * Accepted writes are kept per producto, so repeated writes to the same producto coalesce to
+ * the last value. Pending writes are sent as batched UPDATE statements in a transaction of
+ * their own every {@code flush-interval-ms}, or as soon as {@code max-pending} productos are
+ * waiting, and the buffer is drained when the application shuts down. Flushes are serialized,
+ * so an older value of a producto never overwrites a newer one. Each write remembers the stock
+ * that was read when the producto was first buffered, and the flush moves the inventory
+ * counters by the difference. Writes that slip in between that read and the flush, such as a
+ * flush still committing, are not seen; the reconciliation job repairs that drift.
+ * <p>
+ * Anything that reads or changes a producto other than by setting its stock must call one of
+ * the {@code flush} methods first, so it observes the buffered value.
+ */
+@Component
+public class StockWriteBuffer {
+
+    private static final Logger log = LoggerFactory.getLogger(StockWriteBuffer.class);
+
+    private final ProductoRepository productoRepository;
+    private final InventarioSucursalRepository inventarioRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final boolean enabled;
+    private final int maxPending;
+    private final Map<Long, PendingStock> pending = new ConcurrentHashMap<>();
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private final ReadWriteLock acceptLock = new ReentrantReadWriteLock();
+    private final AtomicBoolean flushRequested = new AtomicBoolean();
+    private final ScheduledExecutorService scheduler;
+    private boolean accepting;
+
+    public StockWriteBuffer(ProductoRepository productoRepository,
+                            InventarioSucursalRepository inventarioRepository,
+                            PlatformTransactionManager transactionManager,
+                            ApplicationEventPublisher eventPublisher,
+                            @Value("${franquicias.stock-write-behind.enabled:false}") boolean enabled,
+                            @Value("${franquicias.stock-write-behind.flush-interval-ms:200}") long flushIntervalMs,
+                            @Value("${franquicias.stock-write-behind.max-pending:1000}") int maxPending) {
+        if (flushIntervalMs < 1) {
+            throw new IllegalArgumentException("Stock write-behind flush interval must be positive");
+        }
+        if (maxPending < 1) {
+            throw new IllegalArgumentException("Stock write-behind max pending must be positive");
+        }
+        this.productoRepository = productoRepository;
+        this.inventarioRepository = inventarioRepository;
+        // Buffered writes were already acknowledged, so they commit on their own even when
+        // flushed on behalf of a request whose transaction later rolls back.
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.eventPublisher = eventPublisher;
+        this.enabled = enabled;
+        this.maxPending = maxPending;
+        if (enabled) {
+            this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "stock-write-behind");
+                thread.setDaemon(true);
+                return thread;
+            });
+            this.scheduler.scheduleWithFixedDelay(this::flushInBackground,
+                    flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+            this.accepting = true;
+        } else {
+            this.scheduler = null;
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Returns true when some write may not be in the database yet, either because it is
+     * pending or because a flush is in progress.
+     */
+    public boolean hasPending() {
+        return enabled && (!pending.isEmpty() || flushLock.isLocked());
+    }
+
+    public Optional<PendingStock> pending(Long productoId) {
+        return Optional.ofNullable(pending.get(productoId));
+    }
+
+    /**
+     * Buffers the stock of a producto, replacing any value still pending for it.
+     * {@code previousStock} is the stock the write replaces in the database; a pending value
+     * keeps the one it was buffered with. Returns false when the buffer is disabled or shutting
+     * down, in which case the caller must write the stock itself.
+     */
+    public boolean offer(Long sucursalId, Long productoId, String name, int previousStock, int stock) {
+        acceptLock.readLock().lock();
+        try {
+            if (!accepting) {
+                return false;
+            }
+            pending.merge(productoId, new PendingStock(sucursalId, productoId, name, previousStock, stock),
+                    (current, next) -> new PendingStock(sucursalId, productoId, name, current.previousStock(), stock));
+        } finally {
+            acceptLock.readLock().unlock();
+        }
+        if (pending.size() >= maxPending && flushRequested.compareAndSet(false, true)) {
+            try {
+                scheduler.execute(this::flushInBackground);
+            } catch (RejectedExecutionException ex) {
+                // Shutting down; the final drain picks the write up.
+                flushRequested.set(false);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Writes the pending stock of the given productos, waiting for any flush in progress.
+     */
+    public void flush(Collection<Long> productoIds) {
+        flush(entry -> productoIds.contains(entry.productoId()));
+    }
+
+    /**
+     * Writes the pending stock of every producto of the given sucursales, waiting for any
+     * flush in progress.
+     */
+    public void flushSucursales(Collection<Long> sucursalIds) {
+        flush(entry -> sucursalIds.contains(entry.sucursalId()));
+    }
+
+    public void flushAll() {
+        flush(entry -> true);
+    }
+
+    /**
+     * Stops accepting writes and drains the buffer before the repositories are closed.
+     */
+    @PreDestroy
+    public void close() {
+        if (!enabled) {
+            return;
+        }
+        acceptLock.writeLock().lock();
+        try {
+            accepting = false;
+        } finally {
+            acceptLock.writeLock().unlock();
+        }
+        scheduler.shutdown();
+        try {
+            scheduler.awaitTermination(30, TimeUnit.SECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            flushAll();
+        } catch (RuntimeException ex) {
+            log.error("Discarding {} buffered stock writes that could not be flushed on shutdown", pending.size(), ex);
+        }
+    }
+
+    private void flushInBackground() {
+        flushRequested.set(false);
+        try {
+            flushAll();
+        } catch (RuntimeException ex) {
+            log.warn("Stock write-behind flush failed; {} writes will be retried", pending.size(), ex);
+        }
+    }
+
+    private void flush(Predicate<PendingStock> selector) {
+        if (!enabled) {
+            return;
+        }
+        flushLock.lock();
+        try {
+            List<PendingStock> batch = new ArrayList<>();
+            for (PendingStock entry : pending.values()) {
+                // A newer value that replaced the entry meanwhile stays for the next flush.
+                if (selector.test(entry) && pending.remove(entry.productoId(), entry)) {
+                    batch.add(entry);
+                }
+            }
+            if (!batch.isEmpty()) {
+                write(batch);
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    private void write(List<PendingStock> batch) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                int[] counts = productoRepository.updateStocks(batch.stream()
+                        .map(entry -> new StockUpdate(entry.sucursalId(), entry.productoId(), entry.stock()))
+                        .toList());
+                // Counters are updated in sucursal id order, like ProductoService does.
+                Map<Long, InventarioDelta> deltas = new TreeMap<>();
+                for (int i = 0; i < batch.size(); i++) {
+                    // A count of 0 means the producto was deleted after the write was accepted.
+                    if (counts[i] != 0) {
+                        PendingStock entry = batch.get(i);
+                        deltas.merge(entry.sucursalId(), InventarioDelta.stockChanged(
+                                entry.sucursalId(), entry.previousStock(), entry.stock()), InventarioDelta::plus);
+                        eventPublisher.publishEvent(new ProductoChangedEvent(
+                                entry.sucursalId(), entry.productoId(), entry.name(), entry.stock(), null, false));
+                    }
+                }
+                deltas.values().stream()
+                        .filter(delta -> !delta.isEmpty())
+                        .forEach(delta -> inventarioRepository.add(delta.sucursalId(), delta.productos(),
+                                delta.totalStock(), delta.outOfStock()));
+            });
+        } catch (RuntimeException ex) {
+            batch.forEach(entry -> pending.putIfAbsent(entry.productoId(), entry));
+            throw ex;
+        }
+    }
+
+    /**
+     * Stock of a producto accepted by the buffer but not yet written, and the stock it replaces.
+     */
+    public record PendingStock(Long sucursalId, Long productoId, String name, int previousStock, int stock) {
+    }
+}
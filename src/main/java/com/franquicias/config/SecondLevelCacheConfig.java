@@ -0,0 +1,70 @@
+package com.franquicias.config;
+
+import com.franquicias.cache.CacheRegions;
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import java.net.URI;
+import java.util.OptionalLong;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Enables the Hibernate second-level cache on Caffeine's JCache provider. Franquicia and
+ * Sucursal rows and the sucursales of a franquicia are cached read-write; cached query results
+ * are only used when {@code franquicias.second-level-cache.query-cache} is set. Region hits,
+ * misses and puts are published as {@code hibernate.second.level.cache.*} meters.
+ */
+@Configuration
+@EnableConfigurationProperties(SecondLevelCacheProperties.class)
+@ConditionalOnProperty(name = "franquicias.second-level-cache.enabled", matchIfMissing = true)
+public class SecondLevelCacheConfig {
+
+    private static final AtomicInteger CACHE_MANAGERS = new AtomicInteger();
+
+    /**
+     * Each application context gets its own cache manager, so that contexts running against
+     * different databases in one JVM (tests, benchmarks) never see each other's rows.
+     */
+    @Bean(destroyMethod = "close")
+    public CacheManager secondLevelCacheManager(SecondLevelCacheProperties properties) {
+        CacheManager cacheManager = Caching.getCachingProvider(CaffeineCachingProvider.class.getName())
+                .getCacheManager(URI.create("urn:franquicias:second-level-cache:" + CACHE_MANAGERS.incrementAndGet()),
+                        SecondLevelCacheConfig.class.getClassLoader());
+        for (String region : CacheRegions.BOUNDED) {
+            SecondLevelCacheProperties.Region limits = properties.region(region);
+            CaffeineConfiguration<Object, Object> configuration = new CaffeineConfiguration<>();
+            configuration.setStoreByValue(false);
+            configuration.setMaximumSize(OptionalLong.of(limits.maximumSize()));
+            configuration.setExpireAfterWrite(OptionalLong.of(TimeUnit.SECONDS.toNanos(limits.ttlSeconds())));
+            cacheManager.createCache(region, configuration);
+        }
+        CaffeineConfiguration<Object, Object> timestamps = new CaffeineConfiguration<>();
+        timestamps.setStoreByValue(false);
+        cacheManager.createCache(CacheRegions.UPDATE_TIMESTAMPS, timestamps);
+        return cacheManager;
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer secondLevelCacheCustomizer(CacheManager secondLevelCacheManager,
+                                                                    SecondLevelCacheProperties properties) {
+        return hibernateProperties -> {
+            hibernateProperties.put(AvailableSettings.CACHE_REGION_FACTORY, "jcache");
+            hibernateProperties.put(ConfigSettings.CACHE_MANAGER, secondLevelCacheManager);
+            hibernateProperties.put(AvailableSettings.USE_SECOND_LEVEL_CACHE, true);
+            hibernateProperties.put(AvailableSettings.USE_QUERY_CACHE, properties.queryCache());
+            // Sucursales are created and deleted through their own ManyToOne side; evict the
+            // cached franquicia.sucursales collection when that happens.
+            hibernateProperties.put(AvailableSettings.AUTO_EVICT_COLLECTION_CACHE, true);
+        };
+    }
+}
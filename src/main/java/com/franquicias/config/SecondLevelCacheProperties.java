@@ -0,0 +1,26 @@
+package com.franquicias.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.util.Map;
+
+/**
+ * Settings of the Hibernate second-level cache. Regions without an entry in {@code regions}
+ * hold up to 10000 entries for 10 minutes.
+ */
+@ConfigurationProperties("franquicias.second-level-cache")
+public record SecondLevelCacheProperties(
+        @DefaultValue("true") boolean enabled,
+        @DefaultValue("false") boolean queryCache,
+        Map<String, Region> regions) {
+
+    public record Region(@DefaultValue("10000") long maximumSize, @DefaultValue("600") long ttlSeconds) {
+
+        static final Region DEFAULT = new Region(10_000, 600);
+    }
+
+    public Region region(String name) {
+        return regions != null ? regions.getOrDefault(name, Region.DEFAULT) : Region.DEFAULT;
+    }
+}
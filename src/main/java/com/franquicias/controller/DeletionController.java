@@ -0,0 +1,35 @@
+package com.franquicias.controller;
+
+import com.franquicias.dto.DeletionResponse;
+import com.franquicias.metrics.StatementBudget;
+import com.franquicias.service.CascadeDeleteService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * Status of franquicia and sucursal deletions started with {@code async=true}. The status is
+ * kept in memory, so it is lost when the application restarts.
+ */
+@RestController
+@RequestMapping("/api/deletions")
+@Tag(name = "Deletions", description = "Status of deletions running in the background")
+public class DeletionController {
+
+    private final CascadeDeleteService cascadeDeleteService;
+
+    public DeletionController(CascadeDeleteService cascadeDeleteService) {
+        this.cascadeDeleteService = cascadeDeleteService;
+    }
+
+    @GetMapping("/{deletionId}")
+    @Operation(summary = "Get the progress of a background deletion")
+    @StatementBudget(0)
+    public ResponseEntity<DeletionResponse> getDeletion(@PathVariable String deletionId) {
+        return ResponseEntity.ok(cascadeDeleteService.getDeletion(deletionId));
+    }
+}
@@ -0,0 +1,42 @@
+package com.franquicias.controller;
+
+import org.springframework.http.ResponseEntity;
+
+/**
+ * Maps entity versions to strong ETags ({@code "3"}) and back from {@code If-Match} headers.
+ */
+final class ETags {
+
+    private ETags() {
+    }
+
+    /**
+     * Returns the version expected by an {@code If-Match} header, or null when the header is
+     * absent or {@code *}, in which case no version check is requested.
+     */
+    static Long parseIfMatch(String ifMatch) {
+        if (ifMatch == null || ifMatch.isBlank() || ifMatch.trim().equals("*")) {
+            return null;
+        }
+        String tag = ifMatch.trim();
+        if (tag.startsWith("W/")) {
+            tag = tag.substring(2);
+        }
+        if (tag.length() >= 2 && tag.startsWith("\"") && tag.endsWith("\"")) {
+            tag = tag.substring(1, tag.length() - 1);
+        }
+        try {
+            return Long.valueOf(tag);
+        } catch (NumberFormatException ex) {
+            throw new IllegalArgumentException("Invalid If-Match header: " + ifMatch);
+        }
+    }
+
+    static ResponseEntity.BodyBuilder ok(Long version) {
+        ResponseEntity.BodyBuilder builder = ResponseEntity.ok();
+        if (version != null) {
+            builder.eTag("\"" + version + "\"");
+        }
+        return builder;
+    }
+}
@@ -1,23 +1,39 @@
 package com.franquicias.controller;
 
+import com.franquicias.cache.MaxStockReportCache;
 import com.franquicias.dto.CreateSucursalRequest;
 import com.franquicias.dto.CreateFranquiciaRequest;
+import com.franquicias.dto.CursorPage;
+import com.franquicias.dto.DeletionResponse;
 import com.franquicias.dto.FranquiciaResponse;
+import com.franquicias.dto.InventarioFranquiciaResponse;
+import com.franquicias.dto.InventarioSucursalResponse;
 import com.franquicias.dto.ProductoMaxStockPorSucursalResponse;
 import com.franquicias.dto.SucursalResponse;
 import com.franquicias.dto.UpdateFranquiciaNameRequest;
 import com.franquicias.dto.UpdateSucursalNameRequest;
+import com.franquicias.metrics.StatementBudget;
+import com.franquicias.service.CascadeDeleteService;
 import com.franquicias.service.FranquiciaService;
+import com.franquicias.service.InventarioService;
 import com.franquicias.service.ProductoService;
 import com.franquicias.service.SucursalService;
 import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.ArraySchema;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
-
-import java.util.List;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
 @RestController
 @RequestMapping("/api/franquicias")
@@ -27,24 +43,54 @@ public class FranquiciaController {
     private final FranquiciaService franquiciaService;
     private final SucursalService sucursalService;
     private final ProductoService productoService;
+    private final MaxStockReportCache maxStockReportCache;
+    private final CascadeDeleteService cascadeDeleteService;
+    private final InventarioService inventarioService;
 
     public FranquiciaController(FranquiciaService franquiciaService,
                                 SucursalService sucursalService,
-                                ProductoService productoService) {
+                                ProductoService productoService,
+                                MaxStockReportCache maxStockReportCache,
+                                CascadeDeleteService cascadeDeleteService,
+                                InventarioService inventarioService) {
         this.franquiciaService = franquiciaService;
         this.sucursalService = sucursalService;
         this.productoService = productoService;
+        this.maxStockReportCache = maxStockReportCache;
+        this.cascadeDeleteService = cascadeDeleteService;
+        this.inventarioService = inventarioService;
+    }
+
+    @GetMapping
+    @Operation(summary = "List franquicias, one keyset page at a time")
+    @StatementBudget(1)
+    public ResponseEntity<CursorPage<FranquiciaResponse>> listFranquicias(
+            @RequestParam(required = false) String after,
+            @RequestParam(defaultValue = "50") @Min(1) @Max(500) int limit) {
+        return ResponseEntity.ok(franquiciaService.listFranquicias(after, limit));
     }
 
     @PostMapping
     @Operation(summary = "Create a franquicia")
+    @StatementBudget(2)
     public ResponseEntity<FranquiciaResponse> addFranquicia(@Valid @RequestBody CreateFranquiciaRequest request) {
         FranquiciaResponse franquicia = franquiciaService.createFranquicia(request.getName());
         return ResponseEntity.status(HttpStatus.CREATED).body(franquicia);
     }
 
+    @GetMapping("/{franquiciaId}/sucursales")
+    @Operation(summary = "List the sucursales of a franquicia, one keyset page at a time")
+    @StatementBudget(2)
+    public ResponseEntity<CursorPage<SucursalResponse>> listSucursales(
+            @PathVariable Long franquiciaId,
+            @RequestParam(required = false) String after,
+            @RequestParam(defaultValue = "50") @Min(1) @Max(500) int limit) {
+        return ResponseEntity.ok(sucursalService.listSucursales(franquiciaId, after, limit));
+    }
+
     @PostMapping("/{franquiciaId}/sucursales")
     @Operation(summary = "Create a sucursal in a franquicia")
+    @StatementBudget(4)
     public ResponseEntity<SucursalResponse> addSucursal(
             @PathVariable Long franquiciaId,
             @Valid @RequestBody CreateSucursalRequest request) {
@@ -56,28 +102,107 @@ public class FranquiciaController {
 
     @PatchMapping("/{franquiciaId}/name")
     @Operation(summary = "Update franquicia name")
+    @StatementBudget(2)
     public ResponseEntity<FranquiciaResponse> updateFranquiciaName(
             @PathVariable Long franquiciaId,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
             @Valid @RequestBody UpdateFranquiciaNameRequest request) {
-        FranquiciaResponse franquicia = franquiciaService.updateFranquiciaName(franquiciaId, request.getName());
-        return ResponseEntity.ok(franquicia);
+        FranquiciaResponse franquicia = franquiciaService.updateFranquiciaName(
+                franquiciaId, request.getName(), ETags.parseIfMatch(ifMatch));
+        return ETags.ok(franquicia.version()).body(franquicia);
     }
 
     @PatchMapping("/{franquiciaId}/sucursales/{sucursalId}/name")
     @Operation(summary = "Update sucursal name in a franquicia")
+    @StatementBudget(3)
     public ResponseEntity<SucursalResponse> updateSucursalName(
             @PathVariable Long franquiciaId,
             @PathVariable Long sucursalId,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
             @Valid @RequestBody UpdateSucursalNameRequest request) {
-        SucursalResponse sucursal = sucursalService.updateSucursalName(franquiciaId, sucursalId, request.getName());
-        return ResponseEntity.ok(sucursal);
+        SucursalResponse sucursal = sucursalService.updateSucursalName(
+                franquiciaId, sucursalId, request.getName(), ETags.parseIfMatch(ifMatch));
+        return ETags.ok(sucursal.version()).body(sucursal);
     }
 
-    @GetMapping("/{franquiciaId}/productos-max-stock")
+    /**
+     * Deletes the franquicia with its sucursales and productos, a chunk of productos per
+     * transaction. With {@code async=true} the deletion runs in the background and the 202
+     * response points to its status. Not budgeted: the statements grow with the productos.
+     */
+    @DeleteMapping("/{franquiciaId}")
+    @Operation(summary = "Delete a franquicia with its sucursales and productos")
+    @ApiResponse(responseCode = "202", description = "The deletion was started; Location points to its status")
+    public ResponseEntity<DeletionResponse> deleteFranquicia(
+            @PathVariable Long franquiciaId,
+            @RequestParam(defaultValue = "false") boolean async) {
+        if (async) {
+            return accepted(cascadeDeleteService.deleteFranquiciaAsync(franquiciaId));
+        }
+        return ResponseEntity.ok(cascadeDeleteService.deleteFranquicia(franquiciaId));
+    }
+
+    /**
+     * Deletes the sucursal with its productos, like {@link #deleteFranquicia}.
+     */
+    @DeleteMapping("/{franquiciaId}/sucursales/{sucursalId}")
+    @Operation(summary = "Delete a sucursal of a franquicia with its productos")
+    @ApiResponse(responseCode = "202", description = "The deletion was started; Location points to its status")
+    public ResponseEntity<DeletionResponse> deleteSucursal(
+            @PathVariable Long franquiciaId,
+            @PathVariable Long sucursalId,
+            @RequestParam(defaultValue = "false") boolean async) {
+        if (async) {
+            return accepted(cascadeDeleteService.deleteSucursalAsync(franquiciaId, sucursalId));
+        }
+        return ResponseEntity.ok(cascadeDeleteService.deleteSucursal(franquiciaId, sucursalId));
+    }
+
+    private static ResponseEntity<DeletionResponse> accepted(DeletionResponse deletion) {
+        return ResponseEntity.accepted()
+                .location(ServletUriComponentsBuilder.fromCurrentContextPath()
+                        .path("/api/deletions/{deletionId}").buildAndExpand(deletion.id()).toUri())
+                .body(deletion);
+    }
+
+    /**
+     * Totals come from counters kept per sucursal, so the cost does not depend on how many
+     * productos the franquicia has.
+     */
+    @GetMapping("/{franquiciaId}/inventario")
+    @Operation(summary = "Get the product count, total stock and out-of-stock count of a franquicia and its sucursales")
+    @StatementBudget(2)
+    public ResponseEntity<InventarioFranquiciaResponse> getFranquiciaInventario(@PathVariable Long franquiciaId) {
+        return ResponseEntity.ok(inventarioService.getFranquiciaInventario(franquiciaId));
+    }
+
+    @GetMapping("/{franquiciaId}/sucursales/{sucursalId}/inventario")
+    @Operation(summary = "Get the product count, total stock and out-of-stock count of a sucursal")
+    @StatementBudget(3)
+    public ResponseEntity<InventarioSucursalResponse> getSucursalInventario(
+            @PathVariable Long franquiciaId,
+            @PathVariable Long sucursalId) {
+        return ResponseEntity.ok(inventarioService.getSucursalInventario(franquiciaId, sucursalId));
+    }
+
+    /**
+     * Serves the report with a strong ETag and answers {@code If-None-Match} with 304. Until a
+     * producto or sucursal of the franquicia changes, the rendered body is served from memory.
+     */
+    @GetMapping(value = "/{franquiciaId}/productos-max-stock", produces = MediaType.APPLICATION_JSON_VALUE)
     @Operation(summary = "Get products with max stock per sucursal")
-    public ResponseEntity<List<ProductoMaxStockPorSucursalResponse>> getProductosConMaxStockPorSucursal(
-            @PathVariable Long franquiciaId) {
-        List<ProductoMaxStockPorSucursalResponse> productos = productoService.getProductosConMaxStockPorSucursal(franquiciaId);
-        return ResponseEntity.ok(productos);
+    @ApiResponse(responseCode = "200", content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
+            array = @ArraySchema(schema = @Schema(implementation = ProductoMaxStockPorSucursalResponse.class))))
+    @ApiResponse(responseCode = "304", description = "The report has not changed since the If-None-Match ETag")
+    @StatementBudget(3)
+    public ResponseEntity<byte[]> getProductosConMaxStockPorSucursal(
+            @PathVariable Long franquiciaId,
+            WebRequest request) {
+        MaxStockReportCache.Report report = maxStockReportCache.get(franquiciaId,
+                () -> productoService.getProductosConMaxStockPorSucursal(franquiciaId));
+        if (request.checkNotModified(report.eTag())) {
+            return null;
+        }
+        return ResponseEntity.ok().eTag(report.eTag()).body(report.body());
     }
 }
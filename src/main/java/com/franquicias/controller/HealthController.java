@@ -2,6 +2,10 @@ package com.franquicias.controller;
 
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.boot.actuate.health.HealthComponent;
+import org.springframework.boot.actuate.health.HealthEndpoint;
+import org.springframework.boot.actuate.health.Status;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
@@ -9,17 +13,47 @@ import org.springframework.web.bind.annotation.RestController;
 
 import java.util.Map;
 
+/**
+ * Health checks backed by the actuator health indicators. The overall status and readiness
+ * include a database round trip; liveness only reflects the application state.
+ */
 @RestController
 @RequestMapping("/api")
 @Tag(name = "Health", description = "System health endpoints")
 public class HealthController {
 
+    private static final String APPLICATION = "franquicias-api";
+
+    private final HealthEndpoint healthEndpoint;
+
+    public HealthController(HealthEndpoint healthEndpoint) {
+        this.healthEndpoint = healthEndpoint;
+    }
+
     @GetMapping("/health")
-    @Operation(summary = "Get API health status")
+    @Operation(summary = "Get API health status, including the database")
     public ResponseEntity<Map<String, String>> health() {
-        return ResponseEntity.ok(Map.of(
-                "status", "UP",
-                "application", "franquicias-api"
+        return respond(healthEndpoint.health());
+    }
+
+    @GetMapping("/health/liveness")
+    @Operation(summary = "Check whether the API is alive")
+    public ResponseEntity<Map<String, String>> liveness() {
+        return respond(healthEndpoint.healthForPath("liveness"));
+    }
+
+    @GetMapping("/health/readiness")
+    @Operation(summary = "Check whether the API and its database can serve requests")
+    public ResponseEntity<Map<String, String>> readiness() {
+        return respond(healthEndpoint.healthForPath("readiness"));
+    }
+
+    private static ResponseEntity<Map<String, String>> respond(HealthComponent health) {
+        Status status = health != null ? health.getStatus() : Status.UNKNOWN;
+        HttpStatus httpStatus = Status.UP.equals(status) ? HttpStatus.OK : HttpStatus.SERVICE_UNAVAILABLE;
+        return ResponseEntity.status(httpStatus).body(Map.of(
+                "status", status.getCode(),
+                "application", APPLICATION
         ));
     }
 }
@@ -0,0 +1,90 @@
+package com.franquicias.controller;
+
+import com.franquicias.dto.InventarioFormat;
+import com.franquicias.dto.ProductoBatchResponse;
+import com.franquicias.dto.ProductoResponse;
+import com.franquicias.dto.TransferStockRequest;
+import com.franquicias.dto.TransferStockResponse;
+import com.franquicias.dto.UpdateStockItemRequest;
+import com.franquicias.metrics.StatementBudget;
+import com.franquicias.service.FranquiciaService;
+import com.franquicias.service.InventarioExportService;
+import com.franquicias.service.ProductoService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/inventario")
+@Tag(name = "Inventario", description = "Bulk inventory operations across sucursales")
+public class InventarioController {
+
+    private final ProductoService productoService;
+    private final FranquiciaService franquiciaService;
+    private final InventarioExportService inventarioExportService;
+
+    public InventarioController(ProductoService productoService,
+                                FranquiciaService franquiciaService,
+                                InventarioExportService inventarioExportService) {
+        this.productoService = productoService;
+        this.franquiciaService = franquiciaService;
+        this.inventarioExportService = inventarioExportService;
+    }
+
+    @PatchMapping("/stock")
+    @Operation(summary = "Update the stock of many productos across sucursales")
+    public ResponseEntity<ProductoBatchResponse> updateStocks(
+            @RequestBody @NotEmpty @Size(max = 200_000) List<@Valid UpdateStockItemRequest> request) {
+        ProductoBatchResponse response = ProductoBatchResponse.of(productoService.updateStocks(request));
+        return ResponseEntity.ok(response);
+    }
+
+    @PostMapping("/transfers")
+    @Operation(summary = "Move stock between productos of two sucursales of the same franquicia")
+    @StatementBudget(8)
+    public ResponseEntity<TransferStockResponse> transferStock(@Valid @RequestBody TransferStockRequest request) {
+        return ResponseEntity.ok(productoService.transferStock(request));
+    }
+
+    /**
+     * Applies every transfer of the plan or none of them; the response lists each producto the
+     * plan changed.
+     */
+    @PostMapping("/transfers/batch")
+    @Operation(summary = "Apply a rebalancing plan of many stock transfers in one transaction")
+    public ResponseEntity<List<ProductoResponse>> transferStocks(
+            @RequestBody @NotEmpty @Size(max = 10_000) List<@Valid TransferStockRequest> request) {
+        return ResponseEntity.ok(productoService.transferStocks(request));
+    }
+
+    /**
+     * The franquicia is checked before the response starts, so an unknown id is still a 404; the
+     * rows are then written from the async request thread as they are read.
+     */
+    @GetMapping("/export")
+    @StatementBudget(1)
+    @Operation(summary = "Stream every producto of a franquicia as NDJSON or CSV")
+    public ResponseEntity<StreamingResponseBody> export(@RequestParam Long franquiciaId,
+                                                        @RequestParam(defaultValue = "ndjson") String format) {
+        InventarioFormat inventarioFormat = InventarioFormat.parse(format);
+        franquiciaService.checkExists(franquiciaId);
+        StreamingResponseBody body = out -> inventarioExportService.export(franquiciaId, inventarioFormat, out);
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(inventarioFormat.mediaType() + ";charset=UTF-8"))
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                        .filename("inventario-" + franquiciaId + "." + inventarioFormat.extension())
+                        .build()
+                        .toString())
+                .body(body);
+    }
+}
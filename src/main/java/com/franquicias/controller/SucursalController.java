@@ -1,17 +1,32 @@
 package com.franquicias.controller;
 
+import com.franquicias.dto.AdjustStockRequest;
 import com.franquicias.dto.CreateProductoRequest;
+import com.franquicias.dto.CursorPage;
+import com.franquicias.dto.DeleteProductosResponse;
+import com.franquicias.dto.ProductoBatchItemResponse;
+import com.franquicias.dto.ProductoBatchResponse;
 import com.franquicias.dto.ProductoResponse;
+import com.franquicias.dto.ProductoSort;
 import com.franquicias.dto.UpdateProductoNameRequest;
 import com.franquicias.dto.UpdateStockRequest;
+import com.franquicias.metrics.StatementBudget;
 import com.franquicias.service.ProductoService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.List;
+import java.util.stream.IntStream;
+
 @RestController
 @RequestMapping("/api/sucursales/{sucursalId}/productos")
 @Tag(name = "Productos", description = "Endpoints for productos in sucursales")
@@ -23,8 +38,21 @@ public class SucursalController {
         this.productoService = productoService;
     }
 
+    @GetMapping
+    @Operation(summary = "List the products of a sucursal by id, name or stock (highest first), "
+            + "one keyset page at a time")
+    @StatementBudget(2)
+    public ResponseEntity<CursorPage<ProductoResponse>> listProductos(
+            @PathVariable Long sucursalId,
+            @RequestParam(defaultValue = "id") String sort,
+            @RequestParam(required = false) String after,
+            @RequestParam(defaultValue = "50") @Min(1) @Max(500) int limit) {
+        return ResponseEntity.ok(productoService.listProductos(sucursalId, ProductoSort.parse(sort), after, limit));
+    }
+
     @PostMapping
     @Operation(summary = "Create product in sucursal")
+    @StatementBudget(4)
     public ResponseEntity<ProductoResponse> addProducto(
             @PathVariable Long sucursalId,
             @Valid @RequestBody CreateProductoRequest request) {
@@ -36,8 +64,21 @@ public class SucursalController {
         return ResponseEntity.status(HttpStatus.CREATED).body(producto);
     }
 
+    @PostMapping("/batch")
+    @Operation(summary = "Create many products in sucursal in a single transaction")
+    public ResponseEntity<ProductoBatchResponse> addProductos(
+            @PathVariable Long sucursalId,
+            @RequestBody @NotEmpty @Size(max = 10_000) List<@Valid CreateProductoRequest> request) {
+        List<ProductoResponse> productos = productoService.createProductos(sucursalId, request);
+        List<ProductoBatchItemResponse> items = IntStream.range(0, productos.size())
+                .mapToObj(i -> ProductoBatchItemResponse.succeeded(i, productos.get(i)))
+                .toList();
+        return ResponseEntity.status(HttpStatus.CREATED).body(ProductoBatchResponse.of(items));
+    }
+
     @DeleteMapping("/{productoId}")
     @Operation(summary = "Delete product from sucursal")
+    @StatementBudget(2)
     public ResponseEntity<Void> deleteProducto(
             @PathVariable Long sucursalId,
             @PathVariable Long productoId) {
@@ -45,23 +86,59 @@ public class SucursalController {
         return ResponseEntity.noContent().build();
     }
 
+    @DeleteMapping
+    @Operation(summary = "Delete many products of a sucursal: the given ids, those with stock up to maxStock, "
+            + "or all of them")
+    @StatementBudget(3)
+    public ResponseEntity<DeleteProductosResponse> deleteProductos(
+            @PathVariable Long sucursalId,
+            @RequestParam(required = false) @Size(min = 1, max = 1_000) List<Long> ids,
+            @RequestParam(required = false) @Min(0) Integer maxStock,
+            @RequestParam(defaultValue = "false") boolean all) {
+        int filters = (ids != null ? 1 : 0) + (maxStock != null ? 1 : 0) + (all ? 1 : 0);
+        if (filters != 1) {
+            throw new IllegalArgumentException("Pass exactly one of ids, maxStock or all=true");
+        }
+        int deleted = ids != null
+                ? productoService.deleteProductos(sucursalId, ids)
+                : productoService.deleteProductosMatching(sucursalId, maxStock);
+        return ResponseEntity.ok(new DeleteProductosResponse(deleted));
+    }
+
     @PatchMapping("/{productoId}/stock")
     @Operation(summary = "Update product stock")
+    @StatementBudget(3)
     public ResponseEntity<ProductoResponse> updateStock(
             @PathVariable Long sucursalId,
             @PathVariable Long productoId,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
             @Valid @RequestBody UpdateStockRequest request) {
-        ProductoResponse producto = productoService.updateStock(sucursalId, productoId, request.getStock());
+        ProductoResponse producto = productoService.updateStock(
+                sucursalId, productoId, request.getStock(), ETags.parseIfMatch(ifMatch));
+        return ETags.ok(producto.version()).body(producto);
+    }
+
+    @PostMapping("/{productoId}/stock/adjust")
+    @Operation(summary = "Increment or decrement product stock atomically")
+    @StatementBudget(3)
+    public ResponseEntity<ProductoResponse> adjustStock(
+            @PathVariable Long sucursalId,
+            @PathVariable Long productoId,
+            @Valid @RequestBody AdjustStockRequest request) {
+        ProductoResponse producto = productoService.adjustStock(sucursalId, productoId, request.getDelta());
         return ResponseEntity.ok(producto);
     }
 
     @PatchMapping("/{productoId}/name")
     @Operation(summary = "Update product name")
+    @StatementBudget(2)
     public ResponseEntity<ProductoResponse> updateProductoName(
             @PathVariable Long sucursalId,
             @PathVariable Long productoId,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
             @Valid @RequestBody UpdateProductoNameRequest request) {
-        ProductoResponse producto = productoService.updateProductoName(sucursalId, productoId, request.getName());
-        return ResponseEntity.ok(producto);
+        ProductoResponse producto = productoService.updateProductoName(
+                sucursalId, productoId, request.getName(), ETags.parseIfMatch(ifMatch));
+        return ETags.ok(producto.version()).body(producto);
     }
 }
@@ -0,0 +1,17 @@
+package com.franquicias.dto;
+
+import jakarta.validation.constraints.NotNull;
+
+public class AdjustStockRequest {
+
+    @NotNull(message = "Delta is required")
+    private Integer delta;
+
+    public Integer getDelta() {
+        return delta;
+    }
+
+    public void setDelta(Integer delta) {
+        this.delta = delta;
+    }
+}
@@ -0,0 +1,7 @@
+package com.franquicias.dto;
+
+/**
+ * Result of a bulk delete: how many productos were removed.
+ */
+public record DeleteProductosResponse(int deleted) {
+}
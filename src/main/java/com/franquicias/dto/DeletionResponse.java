@@ -0,0 +1,27 @@
+package com.franquicias.dto;
+
+import java.time.Instant;
+
+/**
+ * Progress of the deletion of a franquicia or a sucursal with everything below it. The counts
+ * cover the chunks committed so far; {@code error} and {@code finishedAt} are null while the
+ * deletion is running.
+ */
+public record DeletionResponse(String id,
+                               Resource resource,
+                               Long resourceId,
+                               State state,
+                               long sucursalesDeleted,
+                               long productosDeleted,
+                               String error,
+                               Instant startedAt,
+                               Instant finishedAt) {
+
+    public enum Resource {
+        FRANQUICIA, SUCURSAL
+    }
+
+    public enum State {
+        RUNNING, COMPLETED, FAILED
+    }
+}
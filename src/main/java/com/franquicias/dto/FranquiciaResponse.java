@@ -2,9 +2,13 @@ package com.franquicias.dto;
 
 import com.franquicias.entity.Franquicia;
 
-public record FranquiciaResponse(Long id, String name) {
+public record FranquiciaResponse(Long id, String name, Long version) {
+
+    public FranquiciaResponse(Long id, String name) {
+        this(id, name, null);
+    }
 
     public static FranquiciaResponse from(Franquicia franquicia) {
-        return new FranquiciaResponse(franquicia.getId(), franquicia.getName());
+        return new FranquiciaResponse(franquicia.getId(), franquicia.getName(), franquicia.getVersion());
     }
 }
@@ -0,0 +1,14 @@
+package com.franquicias.dto;
+
+/**
+ * One producto of the inventory export, with the sucursal it belongs to.
+ */
+public record InventarioExportRow(
+        Long sucursalId,
+        String sucursalName,
+        Long productoId,
+        String productoName,
+        Integer stock,
+        Long version
+) {
+}
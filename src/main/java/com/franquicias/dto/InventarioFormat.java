@@ -0,0 +1,33 @@
+package com.franquicias.dto;
+
+import java.util.Locale;
+
+/**
+ * Formats of the inventory export: one JSON object per line, or CSV with a header row.
+ */
+public enum InventarioFormat {
+    NDJSON("application/x-ndjson"),
+    CSV("text/csv");
+
+    private final String mediaType;
+
+    InventarioFormat(String mediaType) {
+        this.mediaType = mediaType;
+    }
+
+    public String mediaType() {
+        return mediaType;
+    }
+
+    public String extension() {
+        return name().toLowerCase(Locale.ROOT);
+    }
+
+    public static InventarioFormat parse(String value) {
+        try {
+            return valueOf(value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException ex) {
+            throw new IllegalArgumentException("Invalid format: " + value + " (expected ndjson or csv)");
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package com.franquicias.dto;
+
+import java.util.List;
+
+/**
+ * Inventory totals of a franquicia, summed over its sucursales, followed by the totals of each
+ * sucursal in id order.
+ */
+public record InventarioFranquiciaResponse(
+        Long franquiciaId,
+        long productos,
+        long totalStock,
+        long outOfStock,
+        List<InventarioSucursalResponse> sucursales
+) {
+    public static InventarioFranquiciaResponse of(Long franquiciaId, List<InventarioSucursalResponse> sucursales) {
+        long productos = 0;
+        long totalStock = 0;
+        long outOfStock = 0;
+        for (InventarioSucursalResponse sucursal : sucursales) {
+            productos += sucursal.productos();
+            totalStock += sucursal.totalStock();
+            outOfStock += sucursal.outOfStock();
+        }
+        return new InventarioFranquiciaResponse(franquiciaId, productos, totalStock, outOfStock, sucursales);
+    }
+}
@@ -0,0 +1,14 @@
+package com.franquicias.dto;
+
+/**
+ * Inventory totals of a sucursal: how many productos it has, their summed stock and how many
+ * of them are out of stock.
+ */
+public record InventarioSucursalResponse(
+        Long sucursalId,
+        String sucursalName,
+        Long productos,
+        Long totalStock,
+        Long outOfStock
+) {
+}
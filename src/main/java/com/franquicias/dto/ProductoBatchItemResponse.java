@@ -0,0 +1,15 @@
+package com.franquicias.dto;
+
+/**
+ * Outcome of a single item of a batch request, identified by its position in the request.
+ */
+public record ProductoBatchItemResponse(int index, boolean success, ProductoResponse producto, String error) {
+
+    public static ProductoBatchItemResponse succeeded(int index, ProductoResponse producto) {
+        return new ProductoBatchItemResponse(index, true, producto, null);
+    }
+
+    public static ProductoBatchItemResponse failed(int index, String error) {
+        return new ProductoBatchItemResponse(index, false, null, error);
+    }
+}
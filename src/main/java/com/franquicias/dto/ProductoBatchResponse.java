@@ -0,0 +1,11 @@
+package com.franquicias.dto;
+
+import java.util.List;
+
+public record ProductoBatchResponse(int total, int succeeded, int failed, List<ProductoBatchItemResponse> items) {
+
+    public static ProductoBatchResponse of(List<ProductoBatchItemResponse> items) {
+        int succeeded = (int) items.stream().filter(ProductoBatchItemResponse::success).count();
+        return new ProductoBatchResponse(items.size(), succeeded, items.size() - succeeded, items);
+    }
+}
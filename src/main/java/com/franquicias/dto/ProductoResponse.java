@@ -2,13 +2,22 @@ package com.franquicias.dto;
 
 import com.franquicias.entity.Producto;
 
-public record ProductoResponse(Long id, String name, Integer stock, Long sucursalId) {
+/**
+ * Producto as returned by the API. {@code version} is null when the producto was changed by a
+ * bulk operation that does not read it back.
+ */
+public record ProductoResponse(Long id, String name, Integer stock, Long sucursalId, Long version) {
+
+    public ProductoResponse(Long id, String name, Integer stock, Long sucursalId) {
+        this(id, name, stock, sucursalId, null);
+    }
 
     public static ProductoResponse from(Producto producto) {
         return new ProductoResponse(
                 producto.getId(),
                 producto.getName(),
                 producto.getStock(),
-                producto.getSucursal().getId());
+                producto.getSucursal().getId(),
+                producto.getVersion());
     }
 }
@@ -0,0 +1,21 @@
+package com.franquicias.dto;
+
+import java.util.Locale;
+
+/**
+ * Orders of the productos listing: by id, by name ascending or by stock descending. Ties are
+ * broken by id ascending.
+ */
+public enum ProductoSort {
+    ID,
+    NAME,
+    STOCK;
+
+    public static ProductoSort parse(String value) {
+        try {
+            return valueOf(value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException ex) {
+            throw new IllegalArgumentException("Invalid sort: " + value + " (expected id, name or stock)");
+        }
+    }
+}
@@ -2,12 +2,17 @@ package com.franquicias.dto;
 
 import com.franquicias.entity.Sucursal;
 
-public record SucursalResponse(Long id, String name, Long franquiciaId) {
+public record SucursalResponse(Long id, String name, Long franquiciaId, Long version) {
+
+    public SucursalResponse(Long id, String name, Long franquiciaId) {
+        this(id, name, franquiciaId, null);
+    }
 
     public static SucursalResponse from(Sucursal sucursal) {
         return new SucursalResponse(
                 sucursal.getId(),
                 sucursal.getName(),
-                sucursal.getFranquicia().getId());
+                sucursal.getFranquicia().getId(),
+                sucursal.getVersion());
     }
 }
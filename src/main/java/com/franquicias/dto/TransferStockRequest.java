@@ -0,0 +1,63 @@
+package com.franquicias.dto;
+
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+
+public class TransferStockRequest {
+
+    @NotNull(message = "Source sucursal id is required")
+    private Long fromSucursalId;
+
+    @NotNull(message = "Source producto id is required")
+    private Long fromProductoId;
+
+    @NotNull(message = "Target sucursal id is required")
+    private Long toSucursalId;
+
+    @NotNull(message = "Target producto id is required")
+    private Long toProductoId;
+
+    @NotNull(message = "Quantity is required")
+    @Min(value = 1, message = "Quantity must be positive")
+    private Integer quantity;
+
+    public Long getFromSucursalId() {
+        return fromSucursalId;
+    }
+
+    public void setFromSucursalId(Long fromSucursalId) {
+        this.fromSucursalId = fromSucursalId;
+    }
+
+    public Long getFromProductoId() {
+        return fromProductoId;
+    }
+
+    public void setFromProductoId(Long fromProductoId) {
+        this.fromProductoId = fromProductoId;
+    }
+
+    public Long getToSucursalId() {
+        return toSucursalId;
+    }
+
+    public void setToSucursalId(Long toSucursalId) {
+        this.toSucursalId = toSucursalId;
+    }
+
+    public Long getToProductoId() {
+        return toProductoId;
+    }
+
+    public void setToProductoId(Long toProductoId) {
+        this.toProductoId = toProductoId;
+    }
+
+    public Integer getQuantity() {
+        return quantity;
+    }
+
+    public void setQuantity(Integer quantity) {
+        this.quantity = quantity;
+    }
+}
@@ -0,0 +1,7 @@
+package com.franquicias.dto;
+
+/**
+ * Both productos of a stock transfer as they are after it.
+ */
+public record TransferStockResponse(ProductoResponse from, ProductoResponse to) {
+}
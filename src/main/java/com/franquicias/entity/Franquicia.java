@@ -1,20 +1,34 @@
 package com.franquicias.entity;
 
+import com.franquicias.cache.CacheRegions;
 import jakarta.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.OptimisticLock;
+
 import java.util.ArrayList;
 import java.util.List;
 
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = CacheRegions.FRANQUICIA)
 @Table(name = "franquicias")
 public class Franquicia {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "franquicias_seq")
+    @SequenceGenerator(name = "franquicias_seq", sequenceName = "franquicias_seq", allocationSize = 50)
     private Long id;
 
     @Column(nullable = false)
     private String name;
 
+    @Version
+    @Column(nullable = false)
+    private Long version;
+
+    @OptimisticLock(excluded = true)
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = CacheRegions.FRANQUICIA_SUCURSALES)
     @OneToMany(mappedBy = "franquicia", cascade = CascadeType.ALL, orphanRemoval = true)
     private List<Sucursal> sucursales = new ArrayList<>();
 
@@ -41,4 +55,12 @@ public class Franquicia {
     public void setSucursales(List<Sucursal> sucursales) {
         this.sucursales = sucursales;
     }
+
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
 }
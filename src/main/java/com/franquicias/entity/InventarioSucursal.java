@@ -0,0 +1,54 @@
+package com.franquicias.entity;
+
+import jakarta.persistence.*;
+
+// Kept in step with the productos of the sucursal by set-based updates only; never cached or
+// dirty-checked, so it has no version.
+@Entity
+@Table(name = "inventario_sucursales")
+public class InventarioSucursal {
+
+    @Id
+    private Long sucursalId;
+
+    @MapsId
+    @OneToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = "sucursal_id")
+    private Sucursal sucursal;
+
+    @Column(nullable = false)
+    private Long productos = 0L;
+
+    @Column(nullable = false)
+    private Long totalStock = 0L;
+
+    @Column(nullable = false)
+    private Long outOfStock = 0L;
+
+    protected InventarioSucursal() {
+    }
+
+    public InventarioSucursal(Sucursal sucursal) {
+        this.sucursal = sucursal;
+    }
+
+    public Long getSucursalId() {
+        return sucursalId;
+    }
+
+    public Sucursal getSucursal() {
+        return sucursal;
+    }
+
+    public Long getProductos() {
+        return productos;
+    }
+
+    public Long getTotalStock() {
+        return totalStock;
+    }
+
+    public Long getOutOfStock() {
+        return outOfStock;
+    }
+}
@@ -3,11 +3,14 @@ package com.franquicias.entity;
 import jakarta.persistence.*;
 
 @Entity
-@Table(name = "productos")
+@Table(name = "productos", indexes = {
+        @Index(name = "idx_productos_sucursal_stock", columnList = "sucursal_id, stock DESC, id, name, version")
+})
 public class Producto {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "productos_seq")
+    @SequenceGenerator(name = "productos_seq", sequenceName = "productos_seq", allocationSize = 50)
     private Long id;
 
     @Column(nullable = false)
@@ -16,6 +19,10 @@ public class Producto {
     @Column(nullable = false)
     private Integer stock = 0;
 
+    @Version
+    @Column(nullable = false)
+    private Long version;
+
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "sucursal_id", nullable = false)
     private Sucursal sucursal;
@@ -51,4 +58,12 @@ public class Producto {
     public void setSucursal(Sucursal sucursal) {
         this.sucursal = sucursal;
     }
+
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
 }
@@ -1,24 +1,39 @@
 package com.franquicias.entity;
 
+import com.franquicias.cache.CacheRegions;
 import jakarta.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.OptimisticLock;
+
 import java.util.ArrayList;
 import java.util.List;
 
 @Entity
-@Table(name = "sucursales")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = CacheRegions.SUCURSAL)
+@Table(name = "sucursales", indexes = @Index(name = "idx_sucursales_franquicia", columnList = "franquicia_id"))
 public class Sucursal {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "sucursales_seq")
+    @SequenceGenerator(name = "sucursales_seq", sequenceName = "sucursales_seq", allocationSize = 50)
     private Long id;
 
     @Column(nullable = false)
     private String name;
 
+    @Version
+    @Column(nullable = false)
+    private Long version;
+
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "franquicia_id", nullable = false)
     private Franquicia franquicia;
 
+    // Creating productos must not bump the sucursal version; otherwise concurrent inserts into
+    // the same sucursal would fail with optimistic lock conflicts.
+    @OptimisticLock(excluded = true)
     @OneToMany(mappedBy = "sucursal", cascade = CascadeType.ALL, orphanRemoval = true)
     private List<Producto> productos = new ArrayList<>();
 
@@ -53,4 +68,12 @@ public class Sucursal {
     public void setProductos(List<Producto> productos) {
         this.productos = productos;
     }
+
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
 }
@@ -0,0 +1,44 @@
+package com.franquicias.event;
+
+import com.franquicias.dto.ProductoResponse;
+import com.franquicias.entity.Producto;
+
+/**
+ * Published by the service layer whenever a producto is created, modified or deleted.
+ * Carries the resulting state of the row, so listeners can apply it idempotently, and the
+ * version it was written with, so they can tell a change delivered late from the newer one
+ * they already applied. {@code version} is null for deletions and for bulk stock writes that
+ * do not read the row back.
+ */
+public record ProductoChangedEvent(
+        Long sucursalId,
+        Long productoId,
+        String name,
+        Integer stock,
+        Long version,
+        boolean deleted
+) {
+    public static ProductoChangedEvent saved(Producto producto) {
+        return new ProductoChangedEvent(
+                producto.getSucursal().getId(),
+                producto.getId(),
+                producto.getName(),
+                producto.getStock(),
+                producto.getVersion(),
+                false);
+    }
+
+    public static ProductoChangedEvent saved(ProductoResponse producto) {
+        return new ProductoChangedEvent(
+                producto.sucursalId(),
+                producto.id(),
+                producto.name(),
+                producto.stock(),
+                producto.version(),
+                false);
+    }
+
+    public static ProductoChangedEvent deleted(Long sucursalId, Long productoId) {
+        return new ProductoChangedEvent(sucursalId, productoId, null, null, null, true);
+    }
+}
@@ -0,0 +1,8 @@
+package com.franquicias.event;
+
+/**
+ * Published when productos of a sucursal are deleted in bulk by a filter, so the ids of the
+ * deleted rows are not known. Listeners drop whatever they hold for the whole sucursal.
+ */
+public record ProductosDeletedEvent(Long sucursalId) {
+}
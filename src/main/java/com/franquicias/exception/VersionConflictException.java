@@ -0,0 +1,18 @@
+package com.franquicias.exception;
+
+/**
+ * Thrown when a client updates a resource based on a version that is no longer current.
+ */
+public class VersionConflictException extends ConflictException {
+
+    private final Long currentVersion;
+
+    public VersionConflictException(String message, Long currentVersion) {
+        super(message);
+        this.currentVersion = currentVersion;
+    }
+
+    public Long getCurrentVersion() {
+        return currentVersion;
+    }
+}
@@ -0,0 +1,49 @@
+package com.franquicias.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationHandler;
+import org.springframework.http.server.observation.ServerRequestObservationContext;
+import org.springframework.stereotype.Component;
+
+/**
+ * Records how many SQL statements each HTTP request ran as the
+ * {@code franquicias.http.statements} summary, tagged like {@code http.server.requests}.
+ * Relies on the request being observed on the thread that handles it.
+ */
+@Component
+public class RequestStatementsObservationHandler implements ObservationHandler<ServerRequestObservationContext> {
+
+    static final String METRIC = "franquicias.http.statements";
+
+    private final SqlStatementCounter statementCounter;
+    private final MeterRegistry meterRegistry;
+
+    public RequestStatementsObservationHandler(SqlStatementCounter statementCounter, MeterRegistry meterRegistry) {
+        this.statementCounter = statementCounter;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public void onStart(ServerRequestObservationContext context) {
+        statementCounter.reset();
+    }
+
+    @Override
+    public void onStop(ServerRequestObservationContext context) {
+        String uri = context.getPathPattern() != null ? context.getPathPattern() : "UNKNOWN";
+        DistributionSummary.builder(METRIC)
+                .description("SQL statements prepared while handling a request")
+                .baseUnit("statements")
+                .tag("method", context.getCarrier().getMethod())
+                .tag("uri", uri)
+                .register(meterRegistry)
+                .record(statementCounter.count());
+    }
+
+    @Override
+    public boolean supportsContext(Observation.Context context) {
+        return context instanceof ServerRequestObservationContext;
+    }
+}
@@ -0,0 +1,55 @@
+package com.franquicias.metrics;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Counts the SQL statements Hibernate prepares on the current thread and keeps the first
+ * {@value #MAX_RECORDED} of them since the last {@link #reset()}. Registered as the session
+ * factory's {@link StatementInspector}, so it sees entity loads, JPQL and native queries, but
+ * not statements sent directly through {@code JdbcTemplate}.
+ */
+@Component
+public class SqlStatementCounter implements StatementInspector {
+
+    static final int MAX_RECORDED = 200;
+
+    private static final ThreadLocal<Recording> RECORDING = ThreadLocal.withInitial(Recording::new);
+
+    @Override
+    public String inspect(String sql) {
+        Recording recording = RECORDING.get();
+        recording.count++;
+        if (recording.statements.size() < MAX_RECORDED) {
+            recording.statements.add(sql);
+        }
+        return sql;
+    }
+
+    public void reset() {
+        Recording recording = RECORDING.get();
+        recording.count = 0;
+        recording.statements.clear();
+    }
+
+    public int count() {
+        return RECORDING.get().count;
+    }
+
+    /**
+     * Returns the recorded statements prepared after {@link #count()} returned {@code mark}.
+     */
+    public List<String> statementsSince(int mark) {
+        List<String> statements = RECORDING.get().statements;
+        return List.copyOf(statements.subList(Math.min(mark, statements.size()), statements.size()));
+    }
+
+    private static final class Recording {
+
+        private int count;
+        private final List<String> statements = new ArrayList<>();
+    }
+}
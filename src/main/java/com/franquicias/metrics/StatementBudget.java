@@ -0,0 +1,18 @@
+package com.franquicias.metrics;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Maximum number of SQL statements a handler may run. Breaches are logged together with the
+ * statements and, when {@code franquicias.statement-budget.fail-on-breach} is set, fail the
+ * request. Only statements prepared by Hibernate count; see {@link SqlStatementCounter}.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface StatementBudget {
+
+    int value();
+}
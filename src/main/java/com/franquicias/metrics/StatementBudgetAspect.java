@@ -0,0 +1,49 @@
+package com.franquicias.metrics;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Enforces {@link StatementBudget}. The check runs when the handler returns, before the
+ * response is written, so a breach can still turn into an error response.
+ */
+@Aspect
+@Component
+public class StatementBudgetAspect {
+
+    private static final Logger log = LoggerFactory.getLogger(StatementBudgetAspect.class);
+
+    private final SqlStatementCounter statementCounter;
+    private final boolean failOnBreach;
+
+    public StatementBudgetAspect(SqlStatementCounter statementCounter,
+                                 @Value("${franquicias.statement-budget.fail-on-breach:false}") boolean failOnBreach) {
+        this.statementCounter = statementCounter;
+        this.failOnBreach = failOnBreach;
+    }
+
+    @Around("@annotation(budget)")
+    public Object enforce(ProceedingJoinPoint joinPoint, StatementBudget budget) throws Throwable {
+        int mark = statementCounter.count();
+        Object result = joinPoint.proceed();
+        int used = statementCounter.count() - mark;
+        if (used > budget.value()) {
+            String handler = joinPoint.getSignature().toShortString();
+            List<String> statements = statementCounter.statementsSince(mark);
+            log.warn("{} ran {} SQL statements, over its budget of {}:\n{}",
+                    handler, used, budget.value(), String.join("\n", statements));
+            if (failOnBreach) {
+                throw new StatementBudgetExceededException(
+                        handler + " ran " + used + " SQL statements, over its budget of " + budget.value());
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,8 @@
+package com.franquicias.metrics;
+
+public class StatementBudgetExceededException extends RuntimeException {
+
+    public StatementBudgetExceededException(String message) {
+        super(message);
+    }
+}
@@ -1,7 +1,34 @@
 package com.franquicias.repository;
 
+import com.franquicias.dto.FranquiciaResponse;
 import com.franquicias.entity.Franquicia;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
 
 public interface FranquiciaRepository extends JpaRepository<Franquicia, Long> {
+
+    /**
+     * Returns up to {@code limit} franquicias with an id greater than {@code after}, in id order.
+     */
+    @Query("""
+            select new com.franquicias.dto.FranquiciaResponse(f.id, f.name, f.version)
+            from Franquicia f
+            where f.id > :after
+            order by f.id
+            limit :limit
+            """)
+    List<FranquiciaResponse> findPage(@Param("after") long after, @Param("limit") int limit);
+
+    /**
+     * Deletes the franquicia with a single statement. Unlike {@link #deleteById} the row is not
+     * loaded and nothing cascades, so its sucursales must be gone already. Returns 0 when
+     * nothing matched.
+     */
+    @Modifying(flushAutomatically = true)
+    @Query("delete from Franquicia f where f.id = :franquiciaId")
+    int deleteRowById(@Param("franquiciaId") Long franquiciaId);
 }
@@ -0,0 +1,19 @@
+package com.franquicias.repository;
+
+/**
+ * The inventory counters of a sucursal next to the same figures counted from its productos.
+ */
+public record InventarioCount(Long sucursalId,
+                              Long productos,
+                              Long totalStock,
+                              Long outOfStock,
+                              Long countedProductos,
+                              Long countedTotalStock,
+                              Long countedOutOfStock) {
+
+    public boolean drifted() {
+        return !productos.equals(countedProductos)
+                || !totalStock.equals(countedTotalStock)
+                || !outOfStock.equals(countedOutOfStock);
+    }
+}
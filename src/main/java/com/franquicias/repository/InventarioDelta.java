@@ -0,0 +1,30 @@
+package com.franquicias.repository;
+
+/**
+ * Change to the inventory counters of a sucursal caused by creating, deleting or restocking
+ * its productos. Changes to the same sucursal add up.
+ */
+public record InventarioDelta(Long sucursalId, long productos, long totalStock, long outOfStock) {
+
+    public static InventarioDelta created(Long sucursalId, int stock) {
+        return new InventarioDelta(sucursalId, 1, stock, stock == 0 ? 1 : 0);
+    }
+
+    public static InventarioDelta deleted(Long sucursalId, int stock) {
+        return new InventarioDelta(sucursalId, -1, -stock, stock == 0 ? -1 : 0);
+    }
+
+    public static InventarioDelta stockChanged(Long sucursalId, int previousStock, int stock) {
+        return new InventarioDelta(sucursalId, 0, (long) stock - previousStock,
+                (stock == 0 ? 1 : 0) - (previousStock == 0 ? 1 : 0));
+    }
+
+    public InventarioDelta plus(InventarioDelta other) {
+        return new InventarioDelta(sucursalId, productos + other.productos, totalStock + other.totalStock,
+                outOfStock + other.outOfStock);
+    }
+
+    public boolean isEmpty() {
+        return productos == 0 && totalStock == 0 && outOfStock == 0;
+    }
+}
@@ -0,0 +1,97 @@
+package com.franquicias.repository;
+
+import com.franquicias.dto.InventarioSucursalResponse;
+import com.franquicias.entity.InventarioSucursal;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+public interface InventarioSucursalRepository extends JpaRepository<InventarioSucursal, Long> {
+
+    /**
+     * Adds the given amounts, possibly negative, to the counters of a sucursal in a single
+     * statement. Returns 0 when the sucursal has no counters.
+     */
+    @Modifying(flushAutomatically = true)
+    @Query("""
+            update InventarioSucursal i
+            set i.productos = i.productos + :productos,
+                i.totalStock = i.totalStock + :totalStock,
+                i.outOfStock = i.outOfStock + :outOfStock
+            where i.sucursalId = :sucursalId
+            """)
+    int add(@Param("sucursalId") Long sucursalId,
+            @Param("productos") long productos,
+            @Param("totalStock") long totalStock,
+            @Param("outOfStock") long outOfStock);
+
+    /**
+     * Replaces the counters of the sucursales with a count of their productos, read from
+     * {@code idx_productos_sucursal_stock}. For writes that do not know the stock they replaced.
+     */
+    @Modifying(flushAutomatically = true)
+    @Query("""
+            update InventarioSucursal i
+            set i.productos = (select count(p) from Producto p where p.sucursal.id = i.sucursalId),
+                i.totalStock = (select coalesce(sum(p.stock), 0L) from Producto p where p.sucursal.id = i.sucursalId),
+                i.outOfStock = (select count(p) from Producto p where p.sucursal.id = i.sucursalId and p.stock = 0)
+            where i.sucursalId in :sucursalIds
+            """)
+    int recount(@Param("sucursalIds") Collection<Long> sucursalIds);
+
+    @Modifying(flushAutomatically = true)
+    @Query("delete from InventarioSucursal i where i.sucursalId in :sucursalIds")
+    int deleteBySucursalIdIn(@Param("sucursalIds") Collection<Long> sucursalIds);
+
+    @Query("""
+            select new com.franquicias.dto.InventarioSucursalResponse(s.id, s.name, i.productos, i.totalStock, i.outOfStock)
+            from InventarioSucursal i join i.sucursal s
+            where i.sucursalId = :sucursalId
+            """)
+    Optional<InventarioSucursalResponse> findResponseBySucursalId(@Param("sucursalId") Long sucursalId);
+
+    /**
+     * Returns the counters of every sucursal of the franquicia in one statement, one primary
+     * key lookup per sucursal found through {@code idx_sucursales_franquicia}.
+     */
+    @Query("""
+            select new com.franquicias.dto.InventarioSucursalResponse(s.id, s.name, i.productos, i.totalStock, i.outOfStock)
+            from InventarioSucursal i join i.sucursal s
+            where s.franquicia.id = :franquiciaId
+            order by s.id
+            """)
+    List<InventarioSucursalResponse> findResponsesByFranquiciaId(@Param("franquiciaId") Long franquiciaId);
+
+    /**
+     * Returns up to {@code limit} counters with a sucursal id greater than {@code after}, in
+     * id order, each next to a count of the sucursal's productos. Both come from the same
+     * statement, so they agree unless the counters drifted.
+     */
+    @Query("""
+            select new com.franquicias.repository.InventarioCount(i.sucursalId, i.productos, i.totalStock, i.outOfStock,
+                   (select count(p) from Producto p where p.sucursal.id = i.sucursalId),
+                   (select coalesce(sum(p.stock), 0L) from Producto p where p.sucursal.id = i.sucursalId),
+                   (select count(p) from Producto p where p.sucursal.id = i.sucursalId and p.stock = 0))
+            from InventarioSucursal i
+            where i.sucursalId > :after
+            order by i.sucursalId
+            limit :limit
+            """)
+    List<InventarioCount> findCountsAfter(@Param("after") long after, @Param("limit") int limit);
+
+    /**
+     * Returns the ids of up to {@code limit} sucursales that have no counters, in id order.
+     */
+    @Query("""
+            select s.id from Sucursal s
+            where not exists (select 1 from InventarioSucursal i where i.sucursalId = s.id)
+            order by s.id
+            limit :limit
+            """)
+    List<Long> findSucursalIdsWithoutCounters(@Param("limit") int limit);
+}
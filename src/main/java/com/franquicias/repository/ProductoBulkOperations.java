@@ -0,0 +1,29 @@
+package com.franquicias.repository;
+
+import java.util.List;
+
+/**
+ * Set-based write operations on productos that bypass the persistence context.
+ * Callers are responsible for publishing the resulting changes.
+ */
+public interface ProductoBulkOperations {
+
+    /**
+     * Sets the stock of many productos with batched UPDATE statements, sent in producto id order
+     * so that concurrent batches lock rows in the same order. Updates of the same producto keep
+     * their relative order. Each row is only updated if it still belongs to the given sucursal,
+     * and its version is incremented.
+     *
+     * @return the number of rows updated by each statement, in the order of {@code updates}
+     */
+    int[] updateStocks(List<StockUpdate> updates);
+
+    /**
+     * Adds a delta to the stock of many productos with batched UPDATE statements, in the order
+     * of {@code adjustments}. Each row is only updated if it still belongs to the given sucursal
+     * and its stock would not become negative, and its version is incremented.
+     *
+     * @return the number of rows updated by each statement, in the order of {@code adjustments}
+     */
+    int[] adjustStocks(List<StockAdjustment> adjustments);
+}
@@ -0,0 +1,60 @@
+package com.franquicias.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.IntStream;
+
+public class ProductoBulkOperationsImpl implements ProductoBulkOperations {
+
+    static final int BATCH_SIZE = 1_000;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public ProductoBulkOperationsImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public int[] updateStocks(List<StockUpdate> updates) {
+        // Positions of the updates in producto id order; the sort is stable, so repeated
+        // productos keep their order and the last one still wins.
+        List<Integer> order = IntStream.range(0, updates.size()).boxed()
+                .sorted(Comparator.comparingLong(i -> updates.get(i).productoId()))
+                .toList();
+        int[][] counts = jdbcTemplate.batchUpdate(
+                "UPDATE productos SET stock = ?, version = version + 1 WHERE id = ? AND sucursal_id = ?",
+                order,
+                BATCH_SIZE,
+                (ps, i) -> {
+                    StockUpdate update = updates.get(i);
+                    ps.setInt(1, update.stock());
+                    ps.setLong(2, update.productoId());
+                    ps.setLong(3, update.sucursalId());
+                });
+        int[] sorted = Arrays.stream(counts).flatMapToInt(Arrays::stream).toArray();
+        int[] result = new int[sorted.length];
+        for (int k = 0; k < sorted.length; k++) {
+            result[order.get(k)] = sorted[k];
+        }
+        return result;
+    }
+
+    @Override
+    public int[] adjustStocks(List<StockAdjustment> adjustments) {
+        int[][] counts = jdbcTemplate.batchUpdate(
+                "UPDATE productos SET stock = stock + ?, version = version + 1"
+                        + " WHERE id = ? AND sucursal_id = ? AND stock + ? >= 0",
+                adjustments,
+                BATCH_SIZE,
+                (ps, adjustment) -> {
+                    ps.setInt(1, adjustment.delta());
+                    ps.setLong(2, adjustment.productoId());
+                    ps.setLong(3, adjustment.sucursalId());
+                    ps.setInt(4, adjustment.delta());
+                });
+        return Arrays.stream(counts).flatMapToInt(Arrays::stream).toArray();
+    }
+}
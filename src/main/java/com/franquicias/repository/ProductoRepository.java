@@ -1,16 +1,258 @@
 package com.franquicias.repository;
 
+import com.franquicias.dto.InventarioExportRow;
+import com.franquicias.dto.ProductoMaxStockPorSucursalResponse;
+import com.franquicias.dto.ProductoResponse;
 import com.franquicias.entity.Producto;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
-public interface ProductoRepository extends JpaRepository<Producto, Long> {
+public interface ProductoRepository extends JpaRepository<Producto, Long>, ProductoBulkOperations {
 
-    List<Producto> findBySucursalId(Long sucursalId);
+    // Explicit queries filter on the foreign key column; the derived equivalents join sucursales
+    // and make the database scan productos instead of using idx_productos_sucursal*.
 
-    boolean existsByIdAndSucursalId(Long productoId, Long sucursalId);
+    @Query("select p from Producto p where p.sucursal.id = :sucursalId")
+    List<Producto> findBySucursalId(@Param("sucursalId") Long sucursalId);
 
-    Optional<Producto> findFirstBySucursalIdOrderByStockDesc(Long sucursalId);
+    @Query("""
+            select case when count(p) > 0 then true else false end
+            from Producto p
+            where p.id = :productoId and p.sucursal.id = :sucursalId
+            """)
+    boolean existsByIdAndSucursalId(@Param("productoId") Long productoId, @Param("sucursalId") Long sucursalId);
+
+    /**
+     * Returns the producto with the highest stock of a sucursal. The redundant leading sort on
+     * the sucursal lets the database read {@code idx_productos_sucursal_stock} in index order
+     * instead of sorting the sucursal's rows.
+     */
+    @Query("""
+            select p from Producto p
+            where p.sucursal.id = :sucursalId
+            order by p.sucursal.id, p.stock desc, p.id
+            limit 1
+            """)
+    Optional<Producto> findFirstBySucursalIdOrderByStockDesc(@Param("sucursalId") Long sucursalId);
+
+    /**
+     * Returns the product with the highest stock of every sucursal of the franquicia in a single
+     * statement. Ties on stock resolve to the lowest producto id; sucursales without productos
+     * are omitted.
+     */
+    @Query("""
+            select new com.franquicias.dto.ProductoMaxStockPorSucursalResponse(p.id, p.name, p.stock, s.id, s.name)
+            from Producto p join p.sucursal s
+            where s.franquicia.id = :franquiciaId
+              and p.id = (select min(p2.id) from Producto p2
+                          where p2.sucursal = s
+                            and p2.stock = (select max(p3.stock) from Producto p3 where p3.sucursal = s))
+            order by s.id
+            """)
+    List<ProductoMaxStockPorSucursalResponse> findMaxStockPorSucursal(@Param("franquiciaId") Long franquiciaId);
+
+    /**
+     * Returns, for each given sucursal, its first {@code limit} productos ordered by stock
+     * descending and id ascending, with their versions.
+     */
+    @Query(value = """
+            select ranked.sucursal_id as sucursalId, ranked.id as productoId, ranked.name as name, ranked.stock as stock,
+                   ranked.version as version
+            from (select p.sucursal_id, p.id, p.name, p.stock, p.version,
+                         row_number() over (partition by p.sucursal_id order by p.stock desc, p.id) as posicion
+                  from productos p
+                  where p.sucursal_id in (:sucursalIds)) ranked
+            where ranked.posicion <= :limit
+            """, nativeQuery = true)
+    List<ProductoVersionView> findTopByStockPorSucursal(@Param("sucursalIds") Collection<Long> sucursalIds,
+                                                      @Param("limit") int limit);
+
+    @Query("""
+            select p.sucursal.id as sucursalId, p.id as productoId, p.name as name, p.stock as stock
+            from Producto p
+            where p.id in :productoIds
+            """)
+    List<ProductoStockView> findStockViewsByIdIn(@Param("productoIds") Collection<Long> productoIds);
+
+    @Query("""
+            select new com.franquicias.dto.ProductoResponse(p.id, p.name, p.stock, p.sucursal.id, p.version)
+            from Producto p
+            where p.id = :productoId
+            """)
+    Optional<ProductoResponse> findResponseById(@Param("productoId") Long productoId);
+
+    @Query("""
+            select new com.franquicias.dto.ProductoResponse(p.id, p.name, p.stock, p.sucursal.id, p.version)
+            from Producto p
+            where p.id in :productoIds
+            order by p.id
+            """)
+    List<ProductoResponse> findResponsesByIdIn(@Param("productoIds") Collection<Long> productoIds);
+
+    // Keyset pages: each query seeks to the last row of the previous page through an index in
+    // the requested order. The redundant bound on the sort column (stock <= :stock,
+    // name >= :name) is what lets the database start the index scan at the cursor.
+
+    @Query("""
+            select new com.franquicias.dto.ProductoResponse(p.id, p.name, p.stock, p.sucursal.id, p.version)
+            from Producto p
+            where p.sucursal.id = :sucursalId and p.id > :after
+            order by p.sucursal.id, p.id
+            limit :limit
+            """)
+    List<ProductoResponse> findPageBySucursalId(@Param("sucursalId") Long sucursalId,
+                                                @Param("after") long after,
+                                                @Param("limit") int limit);
+
+    /**
+     * Productos after ({@code name}, {@code after}) in name order, read from
+     * {@code idx_productos_sucursal_name}.
+     */
+    @Query("""
+            select new com.franquicias.dto.ProductoResponse(p.id, p.name, p.stock, p.sucursal.id, p.version)
+            from Producto p
+            where p.sucursal.id = :sucursalId
+              and p.name >= :name and (p.name > :name or p.id > :after)
+            order by p.sucursal.id, p.name, p.id
+            limit :limit
+            """)
+    List<ProductoResponse> findPageBySucursalIdOrderByName(@Param("sucursalId") Long sucursalId,
+                                                           @Param("name") String name,
+                                                           @Param("after") long after,
+                                                           @Param("limit") int limit);
+
+    /**
+     * Productos after ({@code stock}, {@code after}) in stock descending order, read from the
+     * covering {@code idx_productos_sucursal_stock}.
+     */
+    @Query("""
+            select new com.franquicias.dto.ProductoResponse(p.id, p.name, p.stock, p.sucursal.id, p.version)
+            from Producto p
+            where p.sucursal.id = :sucursalId
+              and p.stock <= :stock and (p.stock < :stock or p.id > :after)
+            order by p.sucursal.id, p.stock desc, p.id
+            limit :limit
+            """)
+    List<ProductoResponse> findPageBySucursalIdOrderByStock(@Param("sucursalId") Long sucursalId,
+                                                            @Param("stock") int stock,
+                                                            @Param("after") long after,
+                                                            @Param("limit") int limit);
+
+    /**
+     * Adds {@code delta} to the stock of a producto of the sucursal in a single statement, unless
+     * the result would be negative. The version is bumped like an entity update would. Returns the
+     * number of updated rows, 0 when the producto is not in the sucursal or does not have enough
+     * stock.
+     */
+    @Modifying(flushAutomatically = true)
+    @Query("""
+            update Producto p set p.stock = p.stock + :delta, p.version = p.version + 1
+            where p.id = :productoId and p.sucursal.id = :sucursalId and p.stock + :delta >= 0
+            """)
+    int adjustStock(@Param("sucursalId") Long sucursalId,
+                    @Param("productoId") Long productoId,
+                    @Param("delta") int delta);
+
+    // Writes that must tell the inventory counters what they replaced select the old row from
+    // H2's OLD TABLE of the same statement instead of reading, or locking, it beforehand. To Spring
+    // Data they are plain selects, so unlike the @Modifying updates above nothing flushes or clears
+    // the persistence context around them: callers must not hold managed productos, which these
+    // statements would leave stale, and must not have unflushed changes to them.
+
+    /**
+     * Sets the stock of a producto of the sucursal, leaving it unchanged when {@code stock} is
+     * null, and bumps the version. With an {@code expectedVersion} the row is only updated while
+     * it still has that version. Returns the row as it was before the update, or nothing when
+     * nothing matched.
+     */
+    @Query(value = """
+            select sucursal_id as sucursalId, id as productoId, name as name, stock as stock, version as version
+            from old table (
+                update productos set stock = coalesce(cast(:stock as integer), stock), version = version + 1
+                where id = :productoId and sucursal_id = :sucursalId
+                  and (cast(:expectedVersion as bigint) is null or version = :expectedVersion))
+            """, nativeQuery = true)
+    Optional<ProductoVersionView> updateStock(@Param("sucursalId") Long sucursalId,
+                                              @Param("productoId") Long productoId,
+                                              @Param("stock") Integer stock,
+                                              @Param("expectedVersion") Long expectedVersion);
+
+    /**
+     * Deletes a producto of the sucursal in a single statement and returns the stock it had, or
+     * nothing when it is not in the sucursal.
+     */
+    @Query(value = """
+            select stock from old table (delete from productos where id = :productoId and sucursal_id = :sucursalId)
+            """, nativeQuery = true)
+    Optional<Integer> deleteByIdAndSucursalId(@Param("productoId") Long productoId,
+                                              @Param("sucursalId") Long sucursalId);
+
+    /**
+     * Renames a producto of the sucursal and bumps the version, under the same conditions as
+     * {@link #updateStock}. Returns 0 when nothing matched.
+     */
+    @Modifying(flushAutomatically = true)
+    @Query("""
+            update Producto p set p.name = :name, p.version = p.version + 1
+            where p.id = :productoId and p.sucursal.id = :sucursalId
+              and (:expectedVersion is null or p.version = :expectedVersion)
+            """)
+    int updateName(@Param("sucursalId") Long sucursalId,
+                   @Param("productoId") Long productoId,
+                   @Param("name") String name,
+                   @Param("expectedVersion") Long expectedVersion);
+
+    // Deletes run as single statements without loading the productos; the affected-row count
+    // tells whether anything matched.
+
+    @Modifying(flushAutomatically = true)
+    @Query("delete from Producto p where p.sucursal.id = :sucursalId and p.id in :productoIds")
+    int deleteBySucursalIdAndIdIn(@Param("sucursalId") Long sucursalId,
+                                  @Param("productoIds") Collection<Long> productoIds);
+
+    @Modifying(flushAutomatically = true)
+    @Query("delete from Producto p where p.sucursal.id = :sucursalId and p.stock <= :maxStock")
+    int deleteBySucursalIdAndStockAtMost(@Param("sucursalId") Long sucursalId, @Param("maxStock") int maxStock);
+
+    @Modifying(flushAutomatically = true)
+    @Query("delete from Producto p where p.sucursal.id = :sucursalId")
+    int deleteBySucursalId(@Param("sucursalId") Long sucursalId);
+
+    /**
+     * Returns the ids of up to {@code limit} productos of the given sucursales, in id order.
+     * Deleting a whole sucursal or franquicia picks its productos a chunk at a time.
+     */
+    @Query("select p.id from Producto p where p.sucursal.id in :sucursalIds order by p.id limit :limit")
+    List<Long> findIdsBySucursalIdIn(@Param("sucursalIds") Collection<Long> sucursalIds, @Param("limit") int limit);
+
+    @Modifying(flushAutomatically = true)
+    @Query("delete from Producto p where p.id in :productoIds")
+    int deleteByIdIn(@Param("productoIds") Collection<Long> productoIds);
+
+    /**
+     * Every producto of the franquicia's sucursales, in no particular order. The rows are read from
+     * a forward-only cursor a thousand at a time and are never attached to the persistence context,
+     * so memory use does not grow with the inventory. The stream must be consumed and closed inside
+     * a transaction.
+     */
+    @Query("""
+            select new com.franquicias.dto.InventarioExportRow(s.id, s.name, p.id, p.name, p.stock, p.version)
+            from Producto p join p.sucursal s
+            where s.franquicia.id = :franquiciaId
+            """)
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    Stream<InventarioExportRow> streamInventarioByFranquiciaId(@Param("franquiciaId") Long franquiciaId);
 }
@@ -0,0 +1,16 @@
+package com.franquicias.repository;
+
+/**
+ * Read-only projection of the stock of a producto, used to build in-memory indexes
+ * without hydrating entities.
+ */
+public interface ProductoStockView {
+
+    Long getSucursalId();
+
+    Long getProductoId();
+
+    String getName();
+
+    Integer getStock();
+}
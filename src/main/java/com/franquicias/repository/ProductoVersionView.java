@@ -0,0 +1,10 @@
+package com.franquicias.repository;
+
+/**
+ * Stock projection of a producto that also carries its version, for targeted writes that
+ * return the row they replaced and for loads of the max-stock index.
+ */
+public interface ProductoVersionView extends ProductoStockView {
+
+    Long getVersion();
+}
@@ -0,0 +1,4 @@
+package com.franquicias.repository;
+
+public record StockAdjustment(Long sucursalId, Long productoId, int delta) {
+}
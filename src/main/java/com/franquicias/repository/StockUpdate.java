@@ -0,0 +1,4 @@
+package com.franquicias.repository;
+
+public record StockUpdate(Long sucursalId, Long productoId, int stock) {
+}
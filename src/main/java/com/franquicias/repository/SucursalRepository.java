@@ -1,11 +1,86 @@
 package com.franquicias.repository;
 
+import com.franquicias.cache.CacheRegions;
+import com.franquicias.dto.SucursalResponse;
 import com.franquicias.entity.Sucursal;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 public interface SucursalRepository extends JpaRepository<Sucursal, Long> {
 
-    List<Sucursal> findByFranquiciaId(Long franquiciaId);
+    /**
+     * Results are cached in the {@code sucursales-by-franquicia} region when the query cache is
+     * enabled, and invalidated by any write to the sucursales table.
+     */
+    @Query("select s from Sucursal s where s.franquicia.id = :franquiciaId")
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = CacheRegions.SUCURSALES_BY_FRANQUICIA)
+    })
+    List<Sucursal> findByFranquiciaId(@Param("franquiciaId") Long franquiciaId);
+
+    @Query("select s.franquicia.id from Sucursal s where s.id = :sucursalId")
+    Optional<Long> findFranquiciaIdById(@Param("sucursalId") Long sucursalId);
+
+    @Query("""
+            select new com.franquicias.dto.SucursalResponse(s.id, s.name, s.franquicia.id, s.version)
+            from Sucursal s
+            where s.id = :sucursalId
+            """)
+    Optional<SucursalResponse> findResponseById(@Param("sucursalId") Long sucursalId);
+
+    /**
+     * Renames a sucursal of the franquicia and bumps the version. With an
+     * {@code expectedVersion} the row is only updated while it still has that version. Returns
+     * 0 when nothing matched. Like any bulk update of a cached entity, this drops the
+     * {@code sucursal} and {@code franquicia-sucursales} second-level cache regions.
+     */
+    @Modifying(flushAutomatically = true)
+    @Query("""
+            update Sucursal s set s.name = :name, s.version = s.version + 1
+            where s.id = :sucursalId and s.franquicia.id = :franquiciaId
+              and (:expectedVersion is null or s.version = :expectedVersion)
+            """)
+    int updateName(@Param("franquiciaId") Long franquiciaId,
+                   @Param("sucursalId") Long sucursalId,
+                   @Param("name") String name,
+                   @Param("expectedVersion") Long expectedVersion);
+
+    /**
+     * Returns up to {@code limit} sucursales of the franquicia with an id greater than
+     * {@code after}, in id order.
+     */
+    @Query("""
+            select new com.franquicias.dto.SucursalResponse(s.id, s.name, s.franquicia.id, s.version)
+            from Sucursal s
+            where s.franquicia.id = :franquiciaId and s.id > :after
+            order by s.franquicia.id, s.id
+            limit :limit
+            """)
+    List<SucursalResponse> findPageByFranquiciaId(@Param("franquiciaId") Long franquiciaId,
+                                                  @Param("after") long after,
+                                                  @Param("limit") int limit);
+
+    /**
+     * Returns the ids of up to {@code limit} sucursales of the franquicia, in id order.
+     */
+    @Query("select s.id from Sucursal s where s.franquicia.id = :franquiciaId order by s.id limit :limit")
+    List<Long> findIdsByFranquiciaId(@Param("franquiciaId") Long franquiciaId, @Param("limit") int limit);
+
+    /**
+     * Deletes the sucursales without loading them or cascading to their productos, which must
+     * be gone already. Drops the same second-level cache regions as {@link #updateName}.
+     */
+    @Modifying(flushAutomatically = true)
+    @Query("delete from Sucursal s where s.id in :sucursalIds")
+    int deleteByIdIn(@Param("sucursalIds") Collection<Long> sucursalIds);
 }
@@ -0,0 +1,319 @@
+package com.franquicias.service;
+
+import com.franquicias.cache.MaxStockReportCache;
+import com.franquicias.cache.ReferenceCache;
+import com.franquicias.dto.DeletionResponse;
+import com.franquicias.event.ProductosDeletedEvent;
+import com.franquicias.exception.NotFoundException;
+import com.franquicias.repository.FranquiciaRepository;
+import com.franquicias.repository.InventarioSucursalRepository;
+import com.franquicias.repository.ProductoRepository;
+import com.franquicias.repository.SucursalRepository;
+import io.micrometer.core.annotation.Timed;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Deletes a franquicia or a sucursal together with everything below it, without loading the
+ * rows. Productos go {@code chunk-size} at a time, each chunk a set-based DELETE in a
+ * transaction of its own, and a sucursal is deleted in the transaction that finds it empty.
+ * A franquicia is emptied {@value #SUCURSAL_CHUNK_SIZE} sucursales at a time.
+ * <p>
+ * Deletions run on the caller's thread or, one at a time, in the background. Background
+ * deletions are tracked by id until {@code retention-minutes} after they finish; requesting
+ * the same one again while it runs returns the running one. Committed chunks stay deleted,
+ * so a deletion that failed or was cut short by a shutdown is resumed by requesting it again.
+ */
+@Service
+@Timed(value = "franquicias.service", description = "Time spent in service methods")
+public class CascadeDeleteService {
+
+    static final int SUCURSAL_CHUNK_SIZE = 100;
+
+    private static final Logger log = LoggerFactory.getLogger(CascadeDeleteService.class);
+
+    private record Target(DeletionResponse.Resource resource, Long id) {
+    }
+
+    private final FranquiciaRepository franquiciaRepository;
+    private final SucursalRepository sucursalRepository;
+    private final ProductoRepository productoRepository;
+    private final InventarioSucursalRepository inventarioRepository;
+    private final FranquiciaService franquiciaService;
+    private final SucursalService sucursalService;
+    private final ReferenceCache referenceCache;
+    private final MaxStockReportCache maxStockReportCache;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate transactionTemplate;
+    private final int chunkSize;
+    private final Duration retention;
+    private final Executor executor;
+    private final Map<String, Deletion> deletions = new ConcurrentHashMap<>();
+    private final Map<Target, Deletion> running = new ConcurrentHashMap<>();
+
+    @Autowired
+    public CascadeDeleteService(FranquiciaRepository franquiciaRepository,
+                                SucursalRepository sucursalRepository,
+                                ProductoRepository productoRepository,
+                                InventarioSucursalRepository inventarioRepository,
+                                FranquiciaService franquiciaService,
+                                SucursalService sucursalService,
+                                ReferenceCache referenceCache,
+                                MaxStockReportCache maxStockReportCache,
+                                ApplicationEventPublisher eventPublisher,
+                                PlatformTransactionManager transactionManager,
+                                @Value("${franquicias.cascade-delete.chunk-size:1000}") int chunkSize,
+                                @Value("${franquicias.cascade-delete.retention-minutes:60}") long retentionMinutes) {
+        this(franquiciaRepository, sucursalRepository, productoRepository, inventarioRepository, franquiciaService,
+                sucursalService, referenceCache, maxStockReportCache, eventPublisher, transactionManager, chunkSize,
+                retentionMinutes, Executors.newSingleThreadExecutor(runnable -> {
+                    Thread thread = new Thread(runnable, "cascade-delete");
+                    thread.setDaemon(true);
+                    return thread;
+                }));
+    }
+
+    CascadeDeleteService(FranquiciaRepository franquiciaRepository,
+                         SucursalRepository sucursalRepository,
+                         ProductoRepository productoRepository,
+                         InventarioSucursalRepository inventarioRepository,
+                         FranquiciaService franquiciaService,
+                         SucursalService sucursalService,
+                         ReferenceCache referenceCache,
+                         MaxStockReportCache maxStockReportCache,
+                         ApplicationEventPublisher eventPublisher,
+                         PlatformTransactionManager transactionManager,
+                         int chunkSize,
+                         long retentionMinutes,
+                         Executor executor) {
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("Cascade delete chunk size must be positive");
+        }
+        this.franquiciaRepository = franquiciaRepository;
+        this.sucursalRepository = sucursalRepository;
+        this.productoRepository = productoRepository;
+        this.inventarioRepository = inventarioRepository;
+        this.franquiciaService = franquiciaService;
+        this.sucursalService = sucursalService;
+        this.referenceCache = referenceCache;
+        this.maxStockReportCache = maxStockReportCache;
+        this.eventPublisher = eventPublisher;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.chunkSize = chunkSize;
+        this.retention = Duration.ofMinutes(retentionMinutes);
+        this.executor = executor;
+    }
+
+    /**
+     * Deletes the franquicia with its sucursales and productos before returning.
+     */
+    public DeletionResponse deleteFranquicia(Long franquiciaId) {
+        franquiciaService.checkExists(franquiciaId);
+        Deletion deletion = new Deletion(new Target(DeletionResponse.Resource.FRANQUICIA, franquiciaId));
+        deleteFranquicia(franquiciaId, deletion);
+        deletion.complete();
+        return deletion.toResponse();
+    }
+
+    /**
+     * Starts deleting the franquicia in the background and returns the running deletion.
+     */
+    public DeletionResponse deleteFranquiciaAsync(Long franquiciaId) {
+        franquiciaService.checkExists(franquiciaId);
+        return start(new Target(DeletionResponse.Resource.FRANQUICIA, franquiciaId),
+                deletion -> deleteFranquicia(franquiciaId, deletion));
+    }
+
+    /**
+     * Deletes the sucursal with its productos before returning.
+     */
+    public DeletionResponse deleteSucursal(Long franquiciaId, Long sucursalId) {
+        checkBelongs(franquiciaId, sucursalId);
+        Deletion deletion = new Deletion(new Target(DeletionResponse.Resource.SUCURSAL, sucursalId));
+        deleteSucursales(franquiciaId, List.of(sucursalId), deletion);
+        deletion.complete();
+        return deletion.toResponse();
+    }
+
+    /**
+     * Starts deleting the sucursal in the background and returns the running deletion.
+     */
+    public DeletionResponse deleteSucursalAsync(Long franquiciaId, Long sucursalId) {
+        checkBelongs(franquiciaId, sucursalId);
+        return start(new Target(DeletionResponse.Resource.SUCURSAL, sucursalId),
+                deletion -> deleteSucursales(franquiciaId, List.of(sucursalId), deletion));
+    }
+
+    public DeletionResponse getDeletion(String deletionId) {
+        prune();
+        Deletion deletion = deletions.get(deletionId);
+        if (deletion == null) {
+            throw new NotFoundException("Deletion not found: " + deletionId);
+        }
+        return deletion.toResponse();
+    }
+
+    /**
+     * Stops the background deletion at the end of its current chunk.
+     */
+    @PreDestroy
+    public void close() {
+        if (executor instanceof ExecutorService service) {
+            service.shutdownNow();
+            try {
+                service.awaitTermination(30, TimeUnit.SECONDS);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void checkBelongs(Long franquiciaId, Long sucursalId) {
+        franquiciaService.checkExists(franquiciaId);
+        if (!sucursalService.findFranquiciaId(sucursalId).equals(franquiciaId)) {
+            throw new NotFoundException("Sucursal does not belong to franquicia: " + franquiciaId);
+        }
+    }
+
+    private DeletionResponse start(Target target, Consumer<Deletion> work) {
+        prune();
+        Deletion deletion = new Deletion(target);
+        Deletion current = running.putIfAbsent(target, deletion);
+        if (current != null) {
+            return current.toResponse();
+        }
+        deletions.put(deletion.id, deletion);
+        try {
+            executor.execute(() -> run(deletion, work));
+        } catch (RejectedExecutionException ex) {
+            deletion.fail(new IllegalStateException("The application is shutting down"));
+            running.remove(target, deletion);
+        }
+        return deletion.toResponse();
+    }
+
+    private void run(Deletion deletion, Consumer<Deletion> work) {
+        try {
+            work.accept(deletion);
+            deletion.complete();
+        } catch (RuntimeException ex) {
+            log.warn("Deletion {} of {} {} failed after {} sucursales and {} productos", deletion.id,
+                    deletion.target.resource(), deletion.target.id(), deletion.sucursalesDeleted,
+                    deletion.productosDeleted, ex);
+            deletion.fail(ex);
+        } finally {
+            running.remove(deletion.target, deletion);
+        }
+    }
+
+    private void prune() {
+        Instant cutoff = Instant.now().minus(retention);
+        deletions.values().removeIf(deletion -> deletion.finishedAt != null && deletion.finishedAt.isBefore(cutoff));
+    }
+
+    /**
+     * Empties the franquicia a chunk of sucursales at a time, then deletes it in the
+     * transaction that finds no sucursales left.
+     */
+    private void deleteFranquicia(Long franquiciaId, Deletion deletion) {
+        List<Long> sucursalIds;
+        do {
+            sucursalIds = transactionTemplate.execute(status -> {
+                List<Long> ids = sucursalRepository.findIdsByFranquiciaId(franquiciaId, SUCURSAL_CHUNK_SIZE);
+                if (ids.isEmpty()) {
+                    franquiciaRepository.deleteRowById(franquiciaId);
+                    referenceCache.evictFranquicia(franquiciaId);
+                    maxStockReportCache.invalidate(franquiciaId);
+                }
+                return ids;
+            });
+            if (!sucursalIds.isEmpty()) {
+                deleteSucursales(franquiciaId, sucursalIds, deletion);
+            }
+        } while (!sucursalIds.isEmpty());
+    }
+
+    /**
+     * Deletes the productos of the sucursales a chunk at a time, then the sucursales in the
+     * transaction whose chunk comes back short. The inventory counters of the sucursales are
+     * left as they are until they go with them.
+     */
+    private void deleteSucursales(Long franquiciaId, List<Long> sucursalIds, Deletion deletion) {
+        boolean done = false;
+        while (!done) {
+            if (Thread.currentThread().isInterrupted()) {
+                throw new CancellationException("Interrupted before the deletion finished");
+            }
+            done = Boolean.TRUE.equals(transactionTemplate.execute(status -> {
+                List<Long> productoIds = productoRepository.findIdsBySucursalIdIn(sucursalIds, chunkSize);
+                if (!productoIds.isEmpty()) {
+                    deletion.productosDeleted.addAndGet(productoRepository.deleteByIdIn(productoIds));
+                }
+                boolean empty = productoIds.size() < chunkSize;
+                if (empty) {
+                    inventarioRepository.deleteBySucursalIdIn(sucursalIds);
+                    deletion.sucursalesDeleted.addAndGet(sucursalRepository.deleteByIdIn(sucursalIds));
+                    sucursalIds.forEach(referenceCache::evictSucursal);
+                }
+                sucursalIds.forEach(sucursalId -> eventPublisher.publishEvent(new ProductosDeletedEvent(sucursalId)));
+                // The listeners find the franquicia through the sucursal, which may be gone.
+                maxStockReportCache.invalidate(franquiciaId);
+                return empty;
+            }));
+        }
+    }
+
+    private static final class Deletion {
+
+        private final String id = UUID.randomUUID().toString();
+        private final Target target;
+        private final Instant startedAt = Instant.now();
+        private final AtomicLong sucursalesDeleted = new AtomicLong();
+        private final AtomicLong productosDeleted = new AtomicLong();
+        private volatile DeletionResponse.State state = DeletionResponse.State.RUNNING;
+        private volatile String error;
+        private volatile Instant finishedAt;
+
+        private Deletion(Target target) {
+            this.target = target;
+        }
+
+        private void complete() {
+            finishedAt = Instant.now();
+            state = DeletionResponse.State.COMPLETED;
+        }
+
+        private void fail(RuntimeException ex) {
+            error = ex.getMessage() != null ? ex.getMessage() : ex.getClass().getSimpleName();
+            finishedAt = Instant.now();
+            state = DeletionResponse.State.FAILED;
+        }
+
+        private DeletionResponse toResponse() {
+            return new DeletionResponse(id, target.resource(), target.id(), state, sucursalesDeleted.get(),
+                    productosDeleted.get(), error, startedAt, finishedAt);
+        }
+    }
+}
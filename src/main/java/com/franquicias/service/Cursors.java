@@ -0,0 +1,58 @@
+package com.franquicias.service;
+
+import com.franquicias.dto.CursorPage;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Opaque keyset cursors: the sort they belong to, the id of the last row of a page and, for
+ * sorts other than id, the sort value of that row.
+ */
+final class Cursors {
+
+    record Position(long id, String value) {
+    }
+
+    private Cursors() {
+    }
+
+    static String encode(String sort, long id, Object value) {
+        String position = sort + ":" + id + ":" + (value != null ? value : "");
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(position.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Returns the position encoded in {@code cursor}, or null when it is absent. Fails with an
+     * {@link IllegalArgumentException} when the cursor is malformed or from another sort.
+     */
+    static Position decode(String cursor, String sort) {
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+        try {
+            String[] parts = new String(Base64.getUrlDecoder().decode(cursor.trim()), StandardCharsets.UTF_8)
+                    .split(":", 3);
+            if (parts.length == 3 && parts[0].equals(sort)) {
+                return new Position(Long.parseLong(parts[1]), parts[2]);
+            }
+        } catch (IllegalArgumentException ex) {
+            // Invalid Base64 or id; reported below.
+        }
+        throw new IllegalArgumentException("Invalid cursor: " + cursor);
+    }
+
+    /**
+     * Builds a page from up to {@code limit + 1} rows; the extra row only signals that another
+     * page follows.
+     */
+    static <T> CursorPage<T> page(List<T> rows, int limit, Function<T, String> cursorOf) {
+        if (rows.size() <= limit) {
+            return new CursorPage<>(rows, null);
+        }
+        List<T> items = rows.subList(0, limit);
+        return new CursorPage<>(List.copyOf(items), cursorOf.apply(items.get(limit - 1)));
+    }
+}
@@ -1,19 +1,27 @@
 package com.franquicias.service;
 
+import com.franquicias.cache.ReferenceCache;
+import com.franquicias.dto.CursorPage;
 import com.franquicias.dto.FranquiciaResponse;
 import com.franquicias.entity.Franquicia;
 import com.franquicias.exception.NotFoundException;
 import com.franquicias.repository.FranquiciaRepository;
+import io.micrometer.core.annotation.Timed;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.List;
+
 @Service
+@Timed(value = "franquicias.service", description = "Time spent in service methods")
 public class FranquiciaService {
 
     private final FranquiciaRepository franquiciaRepository;
+    private final ReferenceCache referenceCache;
 
-    public FranquiciaService(FranquiciaRepository franquiciaRepository) {
+    public FranquiciaService(FranquiciaRepository franquiciaRepository, ReferenceCache referenceCache) {
         this.franquiciaRepository = franquiciaRepository;
+        this.referenceCache = referenceCache;
     }
 
     @Transactional
@@ -26,14 +34,56 @@ public class FranquiciaService {
 
     @Transactional
     public FranquiciaResponse updateFranquiciaName(Long id, String name) {
+        return updateFranquiciaName(id, name, null);
+    }
+
+    /**
+     * Renames a franquicia. When {@code expectedVersion} is given and is no longer current a
+     * {@link com.franquicias.exception.VersionConflictException} is thrown.
+     */
+    @Transactional
+    public FranquiciaResponse updateFranquiciaName(Long id, String name, Long expectedVersion) {
         Franquicia franquicia = findById(id);
+        Versions.check("Franquicia", id, expectedVersion, franquicia.getVersion());
         franquicia.setName(name);
         franquicia = franquiciaRepository.save(franquicia);
+        // Flush so the response carries the incremented version.
+        franquiciaRepository.flush();
+        referenceCache.evictFranquicia(id);
         return FranquiciaResponse.from(franquicia);
     }
 
+    /**
+     * Returns the franquicias after the {@code after} cursor in id order.
+     */
+    @Transactional(readOnly = true)
+    public CursorPage<FranquiciaResponse> listFranquicias(String after, int limit) {
+        Cursors.Position position = Cursors.decode(after, "id");
+        List<FranquiciaResponse> rows = franquiciaRepository.findPage(position != null ? position.id() : 0, limit + 1);
+        return Cursors.page(rows, limit, franquicia -> Cursors.encode("id", franquicia.id(), null));
+    }
+
     public Franquicia findById(Long id) {
         return franquiciaRepository.findById(id)
                 .orElseThrow(() -> new NotFoundException("Franquicia not found: " + id));
     }
+
+    /**
+     * Throws a {@link NotFoundException} unless the franquicia exists, answering from the
+     * reference cache when possible.
+     */
+    public void checkExists(Long id) {
+        if (!referenceCache.franquiciaExists(id)) {
+            throw new NotFoundException("Franquicia not found: " + id);
+        }
+    }
+
+    /**
+     * Returns an uninitialized reference to an existing franquicia, for use as the owner of a
+     * new sucursal without loading the row.
+     */
+    public Franquicia getReference(Long id) {
+        checkExists(id);
+        return franquiciaRepository.getReferenceById(id);
+    }
 }
@@ -0,0 +1,120 @@
+package com.franquicias.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.franquicias.cache.StockWriteBuffer;
+import com.franquicias.dto.InventarioExportRow;
+import com.franquicias.dto.InventarioFormat;
+import com.franquicias.entity.Sucursal;
+import com.franquicias.repository.ProductoRepository;
+import io.micrometer.core.annotation.Timed;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * Writes the whole inventory of a franquicia to an output stream. Rows go from the database
+ * cursor straight to the stream, so memory use stays the same however many productos there are.
+ */
+@Service
+@Timed(value = "franquicias.service", description = "Time spent in service methods")
+public class InventarioExportService {
+
+    static final String CSV_HEADER = "sucursalId,sucursalName,productoId,productoName,stock,version";
+
+    private final ProductoRepository productoRepository;
+    private final SucursalService sucursalService;
+    private final StockWriteBuffer stockWriteBuffer;
+    private final TransactionTemplate readOnlyTransaction;
+    private final ObjectWriter rowWriter;
+
+    public InventarioExportService(ProductoRepository productoRepository,
+                                   SucursalService sucursalService,
+                                   StockWriteBuffer stockWriteBuffer,
+                                   PlatformTransactionManager transactionManager,
+                                   ObjectMapper objectMapper) {
+        this.productoRepository = productoRepository;
+        this.sucursalService = sucursalService;
+        this.stockWriteBuffer = stockWriteBuffer;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.rowWriter = objectMapper.writerFor(InventarioExportRow.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE)
+                .withRootValueSeparator("\n");
+    }
+
+    /**
+     * Writes every producto of the franquicia in the given format. Buffered stock writes of its
+     * sucursales are flushed first, before the read-only transaction that holds the cursor opens.
+     * The caller checks that the franquicia exists, since by the time this runs the response
+     * status has usually been sent; the stream is not closed.
+     */
+    public void export(Long franquiciaId, InventarioFormat format, OutputStream out) throws IOException {
+        if (stockWriteBuffer.hasPending()) {
+            stockWriteBuffer.flushSucursales(sucursalService.findByFranquiciaId(franquiciaId).stream()
+                    .map(Sucursal::getId)
+                    .toList());
+        }
+        try {
+            readOnlyTransaction.executeWithoutResult(status -> {
+                try (Stream<InventarioExportRow> rows = productoRepository.streamInventarioByFranquiciaId(franquiciaId)) {
+                    switch (format) {
+                        case NDJSON -> writeNdjson(rows.iterator(), out);
+                        case CSV -> writeCsv(rows.iterator(), out);
+                    }
+                } catch (IOException ex) {
+                    throw new UncheckedIOException(ex);
+                }
+            });
+        } catch (UncheckedIOException ex) {
+            throw ex.getCause();
+        }
+    }
+
+    private void writeNdjson(Iterator<InventarioExportRow> rows, OutputStream out) throws IOException {
+        try (JsonGenerator generator = rowWriter.createGenerator(out)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            if (!rows.hasNext()) {
+                return;
+            }
+            while (rows.hasNext()) {
+                rowWriter.writeValue(generator, rows.next());
+            }
+            generator.writeRaw('\n');
+        }
+    }
+
+    private static void writeCsv(Iterator<InventarioExportRow> rows, OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        writer.write(CSV_HEADER);
+        writer.write('\n');
+        while (rows.hasNext()) {
+            InventarioExportRow row = rows.next();
+            writer.write(row.sucursalId() + "," + csv(row.sucursalName()) + "," + row.productoId() + ","
+                    + csv(row.productoName()) + "," + row.stock() + "," + row.version() + "\n");
+        }
+        writer.flush();
+    }
+
+    static String csv(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+}
@@ -0,0 +1,195 @@
+package com.franquicias.service;
+
+import com.franquicias.cache.StockWriteBuffer;
+import com.franquicias.dto.InventarioFranquiciaResponse;
+import com.franquicias.dto.InventarioSucursalResponse;
+import com.franquicias.entity.InventarioSucursal;
+import com.franquicias.entity.Sucursal;
+import com.franquicias.exception.NotFoundException;
+import com.franquicias.repository.InventarioCount;
+import com.franquicias.repository.InventarioSucursalRepository;
+import com.franquicias.repository.SucursalRepository;
+import io.micrometer.core.annotation.Timed;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Inventory totals per sucursal and per franquicia, read from the counters that
+ * {@link ProductoService} keeps in step with the productos.
+ * <p>
+ * Every {@code reconcile-interval-ms} the counters are checked against a count of the
+ * productos, {@code reconcile-chunk-size} sucursales per transaction. Counters that drifted are
+ * recounted, logged and counted in {@value #DRIFT_METRIC}; sucursales without counters get
+ * them. An interval of 0 turns the scheduled check off.
+ * <p>
+ * Reads flush buffered stock writes before they open their read-only transaction, so a reader
+ * never holds a pooled connection while the flush commits on another.
+ */
+@Service
+@Timed(value = "franquicias.service", description = "Time spent in service methods")
+public class InventarioService {
+
+    public static final String DRIFT_METRIC = "franquicias.inventario.drift";
+
+    private static final Logger log = LoggerFactory.getLogger(InventarioService.class);
+
+    private final InventarioSucursalRepository inventarioRepository;
+    private final SucursalRepository sucursalRepository;
+    private final FranquiciaService franquiciaService;
+    private final SucursalService sucursalService;
+    private final StockWriteBuffer stockWriteBuffer;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionTemplate readOnlyTransaction;
+    private final Counter drift;
+    private final int chunkSize;
+    private final ScheduledExecutorService scheduler;
+
+    public InventarioService(InventarioSucursalRepository inventarioRepository,
+                             SucursalRepository sucursalRepository,
+                             FranquiciaService franquiciaService,
+                             SucursalService sucursalService,
+                             StockWriteBuffer stockWriteBuffer,
+                             PlatformTransactionManager transactionManager,
+                             MeterRegistry meterRegistry,
+                             @Value("${franquicias.inventario-counters.reconcile-interval-ms:300000}") long reconcileIntervalMs,
+                             @Value("${franquicias.inventario-counters.reconcile-chunk-size:500}") int chunkSize) {
+        if (reconcileIntervalMs < 0) {
+            throw new IllegalArgumentException("Inventory counter reconcile interval cannot be negative");
+        }
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("Inventory counter reconcile chunk size must be positive");
+        }
+        this.inventarioRepository = inventarioRepository;
+        this.sucursalRepository = sucursalRepository;
+        this.franquiciaService = franquiciaService;
+        this.sucursalService = sucursalService;
+        this.stockWriteBuffer = stockWriteBuffer;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.drift = Counter.builder(DRIFT_METRIC)
+                .description("Sucursales whose inventory counters differed from their productos")
+                .register(meterRegistry);
+        this.chunkSize = chunkSize;
+        if (reconcileIntervalMs > 0) {
+            this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "inventario-reconcile");
+                thread.setDaemon(true);
+                return thread;
+            });
+            this.scheduler.scheduleWithFixedDelay(this::reconcileInBackground,
+                    reconcileIntervalMs, reconcileIntervalMs, TimeUnit.MILLISECONDS);
+        } else {
+            this.scheduler = null;
+        }
+    }
+
+    /**
+     * Returns the totals of the franquicia and of each of its sucursales with one query over
+     * the counters. Buffered stock writes of the franquicia's sucursales are flushed first.
+     */
+    public InventarioFranquiciaResponse getFranquiciaInventario(Long franquiciaId) {
+        franquiciaService.checkExists(franquiciaId);
+        if (stockWriteBuffer.hasPending()) {
+            stockWriteBuffer.flushSucursales(
+                    sucursalService.findByFranquiciaId(franquiciaId).stream().map(Sucursal::getId).toList());
+        }
+        return InventarioFranquiciaResponse.of(franquiciaId, readOnlyTransaction.execute(status ->
+                inventarioRepository.findResponsesByFranquiciaId(franquiciaId)));
+    }
+
+    /**
+     * Returns the totals of a sucursal of the franquicia. Buffered stock writes of the sucursal
+     * are flushed first.
+     */
+    public InventarioSucursalResponse getSucursalInventario(Long franquiciaId, Long sucursalId) {
+        franquiciaService.checkExists(franquiciaId);
+        if (!sucursalService.findFranquiciaId(sucursalId).equals(franquiciaId)) {
+            throw new NotFoundException("Sucursal does not belong to franquicia: " + franquiciaId);
+        }
+        if (stockWriteBuffer.hasPending()) {
+            stockWriteBuffer.flushSucursales(List.of(sucursalId));
+        }
+        return readOnlyTransaction.execute(status -> inventarioRepository.findResponseBySucursalId(sucursalId))
+                .orElseThrow(() -> new NotFoundException("Inventario not found for sucursal: " + sucursalId));
+    }
+
+    /**
+     * Creates the counters that are missing from a count of the productos, then compares every
+     * sucursal's counters with such a count and recounts the ones that differ. Returns the number of
+     * sucursales whose counters were missing or wrong.
+     */
+    public int reconcile() {
+        int drifted = 0;
+        List<Long> missing;
+        do {
+            missing = transactionTemplate.execute(status -> {
+                List<Long> ids = inventarioRepository.findSucursalIdsWithoutCounters(chunkSize);
+                if (!ids.isEmpty()) {
+                    inventarioRepository.saveAll(ids.stream()
+                            .map(id -> new InventarioSucursal(sucursalRepository.getReferenceById(id)))
+                            .toList());
+                    inventarioRepository.recount(ids);
+                }
+                return ids;
+            });
+            if (!missing.isEmpty()) {
+                log.warn("Created missing inventory counters for sucursales {}", missing);
+                drift.increment(missing.size());
+                drifted += missing.size();
+            }
+        } while (missing.size() == chunkSize);
+
+        long after = 0;
+        List<InventarioCount> counts;
+        do {
+            long from = after;
+            counts = transactionTemplate.execute(status -> inventarioRepository.findCountsAfter(from, chunkSize));
+            List<InventarioCount> wrong = counts.stream().filter(InventarioCount::drifted).toList();
+            if (!wrong.isEmpty()) {
+                wrong.forEach(count -> log.warn("Inventory counters of sucursal {} drifted: productos {} (counted {}), "
+                                + "total stock {} (counted {}), out of stock {} (counted {})", count.sucursalId(),
+                        count.productos(), count.countedProductos(), count.totalStock(), count.countedTotalStock(),
+                        count.outOfStock(), count.countedOutOfStock()));
+                transactionTemplate.executeWithoutResult(status ->
+                        inventarioRepository.recount(wrong.stream().map(InventarioCount::sucursalId).toList()));
+                drift.increment(wrong.size());
+                drifted += wrong.size();
+            }
+            if (!counts.isEmpty()) {
+                after = counts.get(counts.size() - 1).sucursalId();
+            }
+        } while (counts.size() == chunkSize);
+        return drifted;
+    }
+
+    @PreDestroy
+    public void close() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    private void reconcileInBackground() {
+        try {
+            int drifted = reconcile();
+            if (drifted > 0) {
+                log.warn("Reconciled the inventory counters of {} sucursales", drifted);
+            }
+        } catch (RuntimeException ex) {
+            log.warn("Inventory counter reconciliation failed; it will be retried", ex);
+        }
+    }
+}
@@ -1,90 +1,573 @@
 package com.franquicias.service;
 
+import com.franquicias.cache.MaxStockIndex;
+import com.franquicias.cache.StockWriteBuffer;
+import com.franquicias.dto.CreateProductoRequest;
+import com.franquicias.dto.CursorPage;
+import com.franquicias.dto.ProductoBatchItemResponse;
 import com.franquicias.dto.ProductoMaxStockPorSucursalResponse;
 import com.franquicias.dto.ProductoResponse;
+import com.franquicias.dto.ProductoSort;
+import com.franquicias.dto.TransferStockRequest;
+import com.franquicias.dto.TransferStockResponse;
+import com.franquicias.dto.UpdateStockItemRequest;
 import com.franquicias.entity.Producto;
 import com.franquicias.entity.Sucursal;
+import com.franquicias.event.ProductoChangedEvent;
+import com.franquicias.event.ProductosDeletedEvent;
+import com.franquicias.exception.ConflictException;
 import com.franquicias.exception.NotFoundException;
+import com.franquicias.exception.VersionConflictException;
+import com.franquicias.repository.InventarioDelta;
+import com.franquicias.repository.InventarioSucursalRepository;
 import com.franquicias.repository.ProductoRepository;
+import com.franquicias.repository.ProductoStockView;
+import com.franquicias.repository.ProductoVersionView;
+import com.franquicias.repository.StockAdjustment;
+import com.franquicias.repository.StockUpdate;
+import io.micrometer.core.annotation.Timed;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
 
+/**
+ * Writes to productos also keep the inventory counters of their sucursal, in the same
+ * transaction: by the change between the stock the write replaced and the one it wrote, or by
+ * recounting the sucursal after bulk deletes, which do not know what they removed. Counters
+ * of several sucursales are updated in sucursal id order, after the productos, so concurrent
+ * writers lock rows in the same order and hold the counter row only until they commit.
+ * <p>
+ * Reads that flush buffered stock writes flush before they open their read-only transaction:
+ * the flush commits in a transaction of its own, and doing it inside the read would hold two
+ * pooled connections per reader.
+ */
 @Service
+@Timed(value = "franquicias.service", description = "Time spent in service methods")
 public class ProductoService {
 
+    static final int OWNERSHIP_CHUNK_SIZE = 1_000;
+
     private final ProductoRepository productoRepository;
+    private final InventarioSucursalRepository inventarioRepository;
     private final SucursalService sucursalService;
     private final FranquiciaService franquiciaService;
+    private final MaxStockIndex maxStockIndex;
+    private final StockWriteBuffer stockWriteBuffer;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate readOnlyTransaction;
 
     public ProductoService(ProductoRepository productoRepository,
+                           InventarioSucursalRepository inventarioRepository,
                            SucursalService sucursalService,
-                           FranquiciaService franquiciaService) {
+                           FranquiciaService franquiciaService,
+                           MaxStockIndex maxStockIndex,
+                           StockWriteBuffer stockWriteBuffer,
+                           ApplicationEventPublisher eventPublisher,
+                           PlatformTransactionManager transactionManager) {
         this.productoRepository = productoRepository;
+        this.inventarioRepository = inventarioRepository;
         this.sucursalService = sucursalService;
         this.franquiciaService = franquiciaService;
+        this.maxStockIndex = maxStockIndex;
+        this.stockWriteBuffer = stockWriteBuffer;
+        this.eventPublisher = eventPublisher;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
     }
 
     @Transactional
     public ProductoResponse createProducto(Long sucursalId, String name, String description, Integer stock) {
-        Sucursal sucursal = sucursalService.findById(sucursalId);
+        Sucursal sucursal = sucursalService.getReference(sucursalId);
         Producto producto = new Producto();
         producto.setName(name);
         producto.setStock(stock != null ? stock : 0);
         producto.setSucursal(sucursal);
         producto = productoRepository.save(producto);
-        sucursal.getProductos().add(producto);
+        count(InventarioDelta.created(sucursalId, producto.getStock()));
+        eventPublisher.publishEvent(ProductoChangedEvent.saved(producto));
         return ProductoResponse.from(producto);
     }
 
+    /**
+     * Creates all the given productos in one transaction. The sucursal is checked once and the
+     * inserts are flushed as JDBC batches; the responses keep the order of the requests.
+     */
+    @Transactional
+    public List<ProductoResponse> createProductos(Long sucursalId, List<CreateProductoRequest> requests) {
+        Sucursal sucursal = sucursalService.getReference(sucursalId);
+        List<Producto> productos = requests.stream()
+                .map(request -> {
+                    Producto producto = new Producto();
+                    producto.setName(request.getName());
+                    producto.setStock(request.getStock() != null ? request.getStock() : 0);
+                    producto.setSucursal(sucursal);
+                    return producto;
+                })
+                .toList();
+        List<Producto> saved = productoRepository.saveAll(productos);
+        saved.stream()
+                .map(producto -> InventarioDelta.created(sucursalId, producto.getStock()))
+                .reduce(InventarioDelta::plus)
+                .ifPresent(this::count);
+        saved.forEach(producto -> eventPublisher.publishEvent(ProductoChangedEvent.saved(producto)));
+        return saved.stream().map(ProductoResponse::from).toList();
+    }
+
+    /**
+     * Deletes a producto of a sucursal with a single statement, which also returns the stock it
+     * removed for the counters; no row deleted means it is not in the sucursal. Buffered stock
+     * of the producto is dropped by the next flush, which finds no row to update.
+     */
     @Transactional
     public void deleteProductoFromSucursal(Long sucursalId, Long productoId) {
-        if (!productoRepository.existsByIdAndSucursalId(productoId, sucursalId)) {
-            throw new NotFoundException("Producto not found in sucursal: " + productoId);
+        int stock = productoRepository.deleteByIdAndSucursalId(productoId, sucursalId)
+                .orElseThrow(() -> new NotFoundException("Producto not found in sucursal: " + productoId));
+        count(InventarioDelta.deleted(sucursalId, stock));
+        eventPublisher.publishEvent(ProductoChangedEvent.deleted(sucursalId, productoId));
+    }
+
+    /**
+     * Deletes the given productos of a sucursal, one statement per {@value #OWNERSHIP_CHUNK_SIZE}
+     * ids. Ids that are not in the sucursal are ignored; returns the number of deleted productos.
+     */
+    @Transactional
+    public int deleteProductos(Long sucursalId, Collection<Long> productoIds) {
+        sucursalService.findFranquiciaId(sucursalId);
+        List<Long> ids = List.copyOf(new LinkedHashSet<>(productoIds));
+        int deleted = 0;
+        for (int from = 0; from < ids.size(); from += OWNERSHIP_CHUNK_SIZE) {
+            deleted += productoRepository.deleteBySucursalIdAndIdIn(
+                    sucursalId, ids.subList(from, Math.min(from + OWNERSHIP_CHUNK_SIZE, ids.size())));
         }
-        productoRepository.deleteById(productoId);
+        if (deleted > 0) {
+            inventarioRepository.recount(List.of(sucursalId));
+            ids.forEach(productoId -> eventPublisher.publishEvent(ProductoChangedEvent.deleted(sucursalId, productoId)));
+        }
+        return deleted;
+    }
+
+    /**
+     * Deletes, in a single statement, the productos of a sucursal with a stock of at most
+     * {@code maxStock}, or all of them when it is null. Returns the number of deleted productos.
+     */
+    @Transactional
+    public int deleteProductosMatching(Long sucursalId, Integer maxStock) {
+        sucursalService.findFranquiciaId(sucursalId);
+        int deleted = maxStock != null
+                ? productoRepository.deleteBySucursalIdAndStockAtMost(sucursalId, maxStock)
+                : productoRepository.deleteBySucursalId(sucursalId);
+        if (deleted > 0) {
+            inventarioRepository.recount(List.of(sucursalId));
+            eventPublisher.publishEvent(new ProductosDeletedEvent(sucursalId));
+        }
+        return deleted;
     }
 
     @Transactional
     public ProductoResponse updateStock(Long sucursalId, Long productoId, Integer stock) {
-        Producto producto = productoRepository.findById(productoId)
-                .orElseThrow(() -> new NotFoundException("Producto not found: " + productoId));
-        if (!producto.getSucursal().getId().equals(sucursalId)) {
-            throw new NotFoundException("Producto does not belong to sucursal: " + sucursalId);
+        return updateStock(sucursalId, productoId, stock, null);
+    }
+
+    /**
+     * Sets the stock of a producto with a single update that checks the sucursal and the
+     * version and returns the row it replaced, from which the response and the change to the
+     * counters are built. When {@code expectedVersion} is given and is no longer current a
+     * {@link VersionConflictException} is thrown.
+     * <p>
+     * With the {@link StockWriteBuffer} enabled, unconditional writes are only buffered and
+     * the response carries no version; conditional writes flush the buffered value and go
+     * straight to the database.
+     */
+    @Transactional
+    public ProductoResponse updateStock(Long sucursalId, Long productoId, Integer stock, Long expectedVersion) {
+        if (stock != null && expectedVersion == null && stockWriteBuffer.isEnabled()) {
+            ProductoResponse buffered = bufferStock(sucursalId, productoId, stock);
+            if (buffered != null) {
+                return buffered;
+            }
         }
         if (stock != null && stock < 0) {
             throw new IllegalArgumentException("Stock cannot be negative");
         }
-        producto.setStock(stock != null ? stock : producto.getStock());
-        producto = productoRepository.save(producto);
-        return ProductoResponse.from(producto);
+        stockWriteBuffer.flush(List.of(productoId));
+        ProductoVersionView previous = productoRepository.updateStock(sucursalId, productoId, stock, expectedVersion)
+                .orElseThrow(() -> missedUpdate(sucursalId, productoId, expectedVersion));
+        ProductoResponse producto = new ProductoResponse(productoId, previous.getName(),
+                stock != null ? stock : previous.getStock(), sucursalId, previous.getVersion() + 1);
+        count(InventarioDelta.stockChanged(sucursalId, previous.getStock(), producto.stock()));
+        eventPublisher.publishEvent(ProductoChangedEvent.saved(producto));
+        return producto;
+    }
+
+    /**
+     * Checks the producto against a read-only projection and hands the stock to the
+     * {@link StockWriteBuffer}, with the stock it read as the one the write replaces. A producto
+     * that already has a buffered write is not read again. Returns null when the buffer no longer
+     * accepts writes.
+     */
+    private ProductoResponse bufferStock(Long sucursalId, Long productoId, int stock) {
+        if (stock < 0) {
+            throw new IllegalArgumentException("Stock cannot be negative");
+        }
+        StockWriteBuffer.PendingStock pending = stockWriteBuffer.pending(productoId)
+                .filter(entry -> entry.sucursalId().equals(sucursalId))
+                .orElse(null);
+        String name;
+        int previousStock;
+        if (pending != null) {
+            name = pending.name();
+            previousStock = pending.previousStock();
+        } else {
+            ProductoStockView view = productoRepository.findStockViewsByIdIn(List.of(productoId)).stream()
+                    .findFirst()
+                    .orElseThrow(() -> new NotFoundException("Producto not found: " + productoId));
+            if (!view.getSucursalId().equals(sucursalId)) {
+                throw new NotFoundException("Producto does not belong to sucursal: " + sucursalId);
+            }
+            name = view.getName();
+            previousStock = view.getStock();
+        }
+        if (!stockWriteBuffer.offer(sucursalId, productoId, name, previousStock, stock)) {
+            return null;
+        }
+        return new ProductoResponse(productoId, name, stock, sucursalId);
+    }
+
+    /**
+     * Adds {@code delta} (possibly negative) to the stock of a producto with one conditional
+     * update, so concurrent adjustments never overwrite each other. The producto is only read
+     * back after the update to build the response.
+     */
+    @Transactional
+    public ProductoResponse adjustStock(Long sucursalId, Long productoId, int delta) {
+        stockWriteBuffer.flush(List.of(productoId));
+        adjust(sucursalId, productoId, delta);
+        ProductoResponse producto = updated(productoId);
+        count(InventarioDelta.stockChanged(sucursalId, producto.stock() - delta, producto.stock()));
+        return producto;
+    }
+
+    private void adjust(Long sucursalId, Long productoId, int delta) {
+        if (productoRepository.adjustStock(sucursalId, productoId, delta) == 0) {
+            if (!productoRepository.existsByIdAndSucursalId(productoId, sucursalId)) {
+                throw new NotFoundException("Producto not found in sucursal: " + productoId);
+            }
+            throw new ConflictException("Insufficient stock for producto: " + productoId);
+        }
+    }
+
+    /**
+     * Moves stock from one producto to another of a sucursal of the same franquicia in one
+     * transaction. Both rows change through conditional updates taken in producto id order, so
+     * opposite transfers between the same productos wait for each other instead of
+     * deadlocking. When the source lacks the stock nothing changes.
+     */
+    @Transactional
+    public TransferStockResponse transferStock(TransferStockRequest transfer) {
+        checkTransfer(transfer, new HashMap<>(), "");
+        Long fromId = transfer.getFromProductoId();
+        Long toId = transfer.getToProductoId();
+        int quantity = transfer.getQuantity();
+        stockWriteBuffer.flush(List.of(fromId, toId));
+        if (fromId < toId) {
+            adjust(transfer.getFromSucursalId(), fromId, -quantity);
+            adjust(transfer.getToSucursalId(), toId, quantity);
+        } else {
+            adjust(transfer.getToSucursalId(), toId, quantity);
+            adjust(transfer.getFromSucursalId(), fromId, -quantity);
+        }
+        ProductoResponse from = updated(fromId);
+        ProductoResponse to = updated(toId);
+        Map<Long, InventarioDelta> deltas = new TreeMap<>();
+        deltas.merge(from.sucursalId(), InventarioDelta.stockChanged(
+                from.sucursalId(), from.stock() + quantity, from.stock()), InventarioDelta::plus);
+        deltas.merge(to.sucursalId(), InventarioDelta.stockChanged(
+                to.sucursalId(), to.stock() - quantity, to.stock()), InventarioDelta::plus);
+        deltas.values().forEach(this::count);
+        return new TransferStockResponse(from, to);
+    }
+
+    /**
+     * Applies a rebalancing plan in one transaction: either every transfer happens or none
+     * does. The transfers are summed into one net change per producto, which is applied with
+     * batched conditional updates in producto id order; a producto may pass stock on that it
+     * receives in the same plan, but no producto may end up negative. Returns the changed
+     * productos in id order.
+     */
+    @Transactional
+    public List<ProductoResponse> transferStocks(List<TransferStockRequest> transfers) {
+        Map<Long, Long> franquiciaIds = new HashMap<>();
+        Map<Long, StockAdjustment> adjustments = new TreeMap<>();
+        for (int i = 0; i < transfers.size(); i++) {
+            TransferStockRequest transfer = transfers.get(i);
+            String position = "[" + i + "] ";
+            checkTransfer(transfer, franquiciaIds, position);
+            addAdjustment(adjustments, transfer.getFromSucursalId(), transfer.getFromProductoId(),
+                    -transfer.getQuantity(), position);
+            addAdjustment(adjustments, transfer.getToSucursalId(), transfer.getToProductoId(),
+                    transfer.getQuantity(), position);
+        }
+        List<Long> productoIds = List.copyOf(adjustments.keySet());
+        stockWriteBuffer.flush(productoIds);
+        List<StockAdjustment> ordered = List.copyOf(adjustments.values());
+        int[] counts = productoRepository.adjustStocks(ordered);
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] == 0) {
+                throw missedAdjustment(ordered.get(i));
+            }
+        }
+
+        List<ProductoResponse> productos = new ArrayList<>(productoIds.size());
+        for (int from = 0; from < productoIds.size(); from += OWNERSHIP_CHUNK_SIZE) {
+            productos.addAll(productoRepository.findResponsesByIdIn(
+                    productoIds.subList(from, Math.min(from + OWNERSHIP_CHUNK_SIZE, productoIds.size()))));
+        }
+        Map<Long, InventarioDelta> deltas = new TreeMap<>();
+        for (ProductoResponse producto : productos) {
+            int delta = adjustments.get(producto.id()).delta();
+            deltas.merge(producto.sucursalId(), InventarioDelta.stockChanged(
+                    producto.sucursalId(), producto.stock() - delta, producto.stock()), InventarioDelta::plus);
+        }
+        deltas.values().forEach(this::count);
+        productos.forEach(producto -> eventPublisher.publishEvent(ProductoChangedEvent.saved(producto)));
+        return productos;
+    }
+
+    /**
+     * Checks that a transfer is between two productos of sucursales of the same franquicia.
+     * The franquicia of each sucursal is remembered in {@code franquiciaIds}.
+     */
+    private void checkTransfer(TransferStockRequest transfer, Map<Long, Long> franquiciaIds, String position) {
+        if (transfer.getFromProductoId().equals(transfer.getToProductoId())) {
+            throw new IllegalArgumentException(
+                    position + "Cannot transfer stock of producto " + transfer.getFromProductoId() + " to itself");
+        }
+        if (transfer.getQuantity() < 1) {
+            throw new IllegalArgumentException(position + "Quantity must be positive");
+        }
+        Long from = franquiciaIds.computeIfAbsent(transfer.getFromSucursalId(), sucursalService::findFranquiciaId);
+        Long to = franquiciaIds.computeIfAbsent(transfer.getToSucursalId(), sucursalService::findFranquiciaId);
+        if (!from.equals(to)) {
+            throw new IllegalArgumentException(position + "Sucursales " + transfer.getFromSucursalId() + " and "
+                    + transfer.getToSucursalId() + " belong to different franquicias");
+        }
+    }
+
+    private static void addAdjustment(Map<Long, StockAdjustment> adjustments, Long sucursalId, Long productoId,
+                                      int delta, String position) {
+        StockAdjustment current = adjustments.get(productoId);
+        if (current == null) {
+            adjustments.put(productoId, new StockAdjustment(sucursalId, productoId, delta));
+            return;
+        }
+        if (!current.sucursalId().equals(sucursalId)) {
+            throw new IllegalArgumentException(position + "Producto " + productoId + " is listed under sucursales "
+                    + current.sucursalId() + " and " + sucursalId);
+        }
+        try {
+            adjustments.put(productoId, new StockAdjustment(sucursalId, productoId,
+                    Math.addExact(current.delta(), delta)));
+        } catch (ArithmeticException ex) {
+            throw new IllegalArgumentException(position + "Transfers of producto " + productoId + " are too large");
+        }
+    }
+
+    /**
+     * Tells why the net change of a producto in a plan matched no row: it is not in the
+     * sucursal, or it would end up with negative stock.
+     */
+    private RuntimeException missedAdjustment(StockAdjustment adjustment) {
+        boolean found = productoRepository.findStockViewsByIdIn(List.of(adjustment.productoId())).stream()
+                .anyMatch(view -> view.getSucursalId().equals(adjustment.sucursalId()));
+        if (!found) {
+            return new NotFoundException("Producto not found in sucursal: " + adjustment.productoId());
+        }
+        return new ConflictException("Insufficient stock for producto: " + adjustment.productoId());
+    }
+
+    /**
+     * Sets the stock of many productos, possibly of different sucursales, in one transaction.
+     * Ownership is checked with one projection query per chunk of ids and the updates are sent
+     * as JDBC batches. Items whose producto does not exist or belongs to another sucursal are
+     * reported as failures without affecting the rest of the batch. The counters change by the
+     * difference with the stock read for the ownership check; that read is not locked, so a
+     * concurrent write to the same producto in between leaves drift for the reconciliation.
+     */
+    @Transactional
+    public List<ProductoBatchItemResponse> updateStocks(List<UpdateStockItemRequest> requests) {
+        List<Long> productoIds = requests.stream().map(UpdateStockItemRequest::getProductoId).distinct().toList();
+        stockWriteBuffer.flush(productoIds);
+        Map<Long, ProductoStockView> current = new HashMap<>();
+        for (int from = 0; from < productoIds.size(); from += OWNERSHIP_CHUNK_SIZE) {
+            List<Long> chunk = productoIds.subList(from, Math.min(from + OWNERSHIP_CHUNK_SIZE, productoIds.size()));
+            productoRepository.findStockViewsByIdIn(chunk).forEach(view -> current.put(view.getProductoId(), view));
+        }
+
+        List<ProductoBatchItemResponse> results = new ArrayList<>(requests.size());
+        List<StockUpdate> updates = new ArrayList<>();
+        List<Integer> updatedIndexes = new ArrayList<>();
+        for (int i = 0; i < requests.size(); i++) {
+            UpdateStockItemRequest request = requests.get(i);
+            ProductoStockView view = current.get(request.getProductoId());
+            if (view == null) {
+                results.add(ProductoBatchItemResponse.failed(i, "Producto not found: " + request.getProductoId()));
+            } else if (!view.getSucursalId().equals(request.getSucursalId())) {
+                results.add(ProductoBatchItemResponse.failed(i,
+                        "Producto does not belong to sucursal: " + request.getSucursalId()));
+            } else {
+                updates.add(new StockUpdate(view.getSucursalId(), view.getProductoId(), request.getStock()));
+                updatedIndexes.add(i);
+                results.add(ProductoBatchItemResponse.succeeded(i, new ProductoResponse(
+                        view.getProductoId(), view.getName(), request.getStock(), view.getSucursalId())));
+            }
+        }
+        if (updates.isEmpty()) {
+            return results;
+        }
+
+        int[] counts = productoRepository.updateStocks(updates);
+        Map<Long, InventarioDelta> deltas = new TreeMap<>();
+        Map<Long, Integer> written = new HashMap<>();
+        for (int u = 0; u < updates.size(); u++) {
+            int index = updatedIndexes.get(u);
+            ProductoResponse producto = results.get(index).producto();
+            if (counts[u] == 0) {
+                // Deleted after the ownership check.
+                results.set(index, ProductoBatchItemResponse.failed(index, "Producto not found: " + producto.id()));
+            } else {
+                // A repeated producto replaces the stock written by its previous item.
+                Integer replaced = written.put(producto.id(), producto.stock());
+                int previous = replaced != null ? replaced : current.get(producto.id()).getStock();
+                deltas.merge(producto.sucursalId(), InventarioDelta.stockChanged(
+                        producto.sucursalId(), previous, producto.stock()), InventarioDelta::plus);
+                eventPublisher.publishEvent(ProductoChangedEvent.saved(producto));
+            }
+        }
+        deltas.values().forEach(this::count);
+        return results;
     }
 
     @Transactional
     public ProductoResponse updateProductoName(Long sucursalId, Long productoId, String name) {
-        Producto producto = productoRepository.findById(productoId)
+        return updateProductoName(sucursalId, productoId, name, null);
+    }
+
+    /**
+     * Renames a producto with a single update that checks the sucursal and the version, then
+     * reads the row back. When {@code expectedVersion} is given and is no longer current a
+     * {@link VersionConflictException} is thrown.
+     */
+    @Transactional
+    public ProductoResponse updateProductoName(Long sucursalId, Long productoId, String name, Long expectedVersion) {
+        stockWriteBuffer.flush(List.of(productoId));
+        if (productoRepository.updateName(sucursalId, productoId, name, expectedVersion) == 0) {
+            throw missedUpdate(sucursalId, productoId, expectedVersion);
+        }
+        return updated(productoId);
+    }
+
+    /**
+     * Applies a change to the inventory counters of a sucursal, skipping the statement when
+     * nothing changes.
+     */
+    private void count(InventarioDelta delta) {
+        if (!delta.isEmpty()) {
+            inventarioRepository.add(delta.sucursalId(), delta.productos(), delta.totalStock(), delta.outOfStock());
+        }
+    }
+
+    /**
+     * Reads back a producto changed by a targeted update, which bypasses the persistence
+     * context, and publishes the change.
+     */
+    private ProductoResponse updated(Long productoId) {
+        ProductoResponse producto = productoRepository.findResponseById(productoId)
+                .orElseThrow(() -> new NotFoundException("Producto not found: " + productoId));
+        eventPublisher.publishEvent(ProductoChangedEvent.saved(producto));
+        return producto;
+    }
+
+    /**
+     * Tells why a targeted update of a producto matched no row: it does not exist, belongs to
+     * another sucursal or no longer has the expected version.
+     */
+    private RuntimeException missedUpdate(Long sucursalId, Long productoId, Long expectedVersion) {
+        ProductoResponse current = productoRepository.findResponseById(productoId)
                 .orElseThrow(() -> new NotFoundException("Producto not found: " + productoId));
-        if (!producto.getSucursal().getId().equals(sucursalId)) {
-            throw new NotFoundException("Producto does not belong to sucursal: " + sucursalId);
+        if (!current.sucursalId().equals(sucursalId)) {
+            return new NotFoundException("Producto does not belong to sucursal: " + sucursalId);
+        }
+        Versions.check("Producto", productoId, expectedVersion, current.version());
+        // The row changed between the update and this read; report it as a conflict.
+        return new VersionConflictException(
+                "Producto " + productoId + " was modified concurrently", current.version());
+    }
+
+    /**
+     * Returns the productos of the sucursal after the {@code after} cursor, in the given order.
+     * Each page is a single index seek, however deep it is. Buffered stock writes of the
+     * sucursal are flushed first.
+     */
+    public CursorPage<ProductoResponse> listProductos(Long sucursalId, ProductoSort sort, String after, int limit) {
+        sucursalService.findFranquiciaId(sucursalId);
+        String sortName = sort.name().toLowerCase(Locale.ROOT);
+        Cursors.Position position = Cursors.decode(after, sortName);
+        if (stockWriteBuffer.hasPending()) {
+            stockWriteBuffer.flushSucursales(List.of(sucursalId));
+        }
+        long afterId = position != null ? position.id() : 0;
+        List<ProductoResponse> rows = readOnlyTransaction.execute(status -> switch (sort) {
+            case ID -> productoRepository.findPageBySucursalId(sucursalId, afterId, limit + 1);
+            case NAME -> productoRepository.findPageBySucursalIdOrderByName(
+                    sucursalId, position != null ? position.value() : "", afterId, limit + 1);
+            case STOCK -> productoRepository.findPageBySucursalIdOrderByStock(
+                    sucursalId, position != null ? parseStock(position.value(), after) : Integer.MAX_VALUE,
+                    afterId, limit + 1);
+        });
+        return Cursors.page(rows, limit, producto -> Cursors.encode(sortName, producto.id(), switch (sort) {
+            case ID -> null;
+            case NAME -> producto.name();
+            case STOCK -> producto.stock();
+        }));
+    }
+
+    private static int parseStock(String value, String cursor) {
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException ex) {
+            throw new IllegalArgumentException("Invalid cursor: " + cursor);
         }
-        producto.setName(name);
-        producto = productoRepository.save(producto);
-        return ProductoResponse.from(producto);
     }
 
     /**
      * Returns the product with the highest stock per branch for the given franchise.
-     * Branches with no products are omitted from the result.
+     * Branches with no products are omitted from the result. The report is answered from the
+     * {@link MaxStockIndex} when it is enabled, and otherwise with a single set-based query;
+     * either way the statement count does not grow with the number of branches. Buffered stock
+     * writes of the franquicia's branches are flushed first.
      */
-    @Transactional(readOnly = true)
     public List<ProductoMaxStockPorSucursalResponse> getProductosConMaxStockPorSucursal(Long franquiciaId) {
-        franquiciaService.findById(franquiciaId);
+        franquiciaService.checkExists(franquiciaId);
+        if (!maxStockIndex.isEnabled() && !stockWriteBuffer.hasPending()) {
+            return readOnlyTransaction.execute(status -> productoRepository.findMaxStockPorSucursal(franquiciaId));
+        }
         List<Sucursal> sucursales = sucursalService.findByFranquiciaId(franquiciaId);
-        return sucursales.stream()
-                .map(sucursal -> productoRepository.findFirstBySucursalIdOrderByStockDesc(sucursal.getId()))
-                .filter(java.util.Optional::isPresent)
-                .map(opt -> ProductoMaxStockPorSucursalResponse.from(opt.get()))
-                .toList();
+        if (stockWriteBuffer.hasPending()) {
+            stockWriteBuffer.flushSucursales(sucursales.stream().map(Sucursal::getId).toList());
+        }
+        return readOnlyTransaction.execute(status -> maxStockIndex.isEnabled()
+                ? maxStockIndex.maxStockPorSucursal(sucursales)
+                : productoRepository.findMaxStockPorSucursal(franquiciaId));
     }
 }
@@ -1,47 +1,99 @@
 package com.franquicias.service;
 
+import com.franquicias.cache.MaxStockReportCache;
+import com.franquicias.cache.ReferenceCache;
+import com.franquicias.dto.CursorPage;
 import com.franquicias.dto.SucursalResponse;
 import com.franquicias.entity.Franquicia;
+import com.franquicias.entity.InventarioSucursal;
 import com.franquicias.entity.Sucursal;
 import com.franquicias.exception.NotFoundException;
+import com.franquicias.exception.VersionConflictException;
+import com.franquicias.repository.InventarioSucursalRepository;
 import com.franquicias.repository.SucursalRepository;
+import io.micrometer.core.annotation.Timed;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 
 @Service
+@Timed(value = "franquicias.service", description = "Time spent in service methods")
 public class SucursalService {
 
     private final SucursalRepository sucursalRepository;
+    private final InventarioSucursalRepository inventarioRepository;
     private final FranquiciaService franquiciaService;
+    private final ReferenceCache referenceCache;
+    private final MaxStockReportCache maxStockReportCache;
 
-    public SucursalService(SucursalRepository sucursalRepository, FranquiciaService franquiciaService) {
+    public SucursalService(SucursalRepository sucursalRepository, InventarioSucursalRepository inventarioRepository,
+                           FranquiciaService franquiciaService, ReferenceCache referenceCache,
+                           MaxStockReportCache maxStockReportCache) {
         this.sucursalRepository = sucursalRepository;
+        this.inventarioRepository = inventarioRepository;
         this.franquiciaService = franquiciaService;
+        this.referenceCache = referenceCache;
+        this.maxStockReportCache = maxStockReportCache;
     }
 
+    /**
+     * Creates a sucursal together with its empty inventory counters.
+     */
     @Transactional
     public SucursalResponse createSucursal(Long franquiciaId, String name) {
-        Franquicia franquicia = franquiciaService.findById(franquiciaId);
+        Franquicia franquicia = franquiciaService.getReference(franquiciaId);
         Sucursal sucursal = new Sucursal();
         sucursal.setName(name);
         sucursal.setFranquicia(franquicia);
         sucursal = sucursalRepository.save(sucursal);
-        franquicia.getSucursales().add(sucursal);
+        inventarioRepository.save(new InventarioSucursal(sucursal));
         return SucursalResponse.from(sucursal);
     }
 
     @Transactional
     public SucursalResponse updateSucursalName(Long franquiciaId, Long sucursalId, String name) {
-        franquiciaService.findById(franquiciaId);
-        Sucursal sucursal = findById(sucursalId);
-        if (!sucursal.getFranquicia().getId().equals(franquiciaId)) {
-            throw new NotFoundException("Sucursal does not belong to franquicia: " + franquiciaId);
+        return updateSucursalName(franquiciaId, sucursalId, name, null);
+    }
+
+    /**
+     * Renames a sucursal with a single update that checks the franquicia and the version, then
+     * reads the row back. When {@code expectedVersion} is given and is no longer current a
+     * {@link VersionConflictException} is thrown.
+     */
+    @Transactional
+    public SucursalResponse updateSucursalName(Long franquiciaId, Long sucursalId, String name, Long expectedVersion) {
+        franquiciaService.checkExists(franquiciaId);
+        if (sucursalRepository.updateName(franquiciaId, sucursalId, name, expectedVersion) == 0) {
+            SucursalResponse current = findResponse(sucursalId);
+            if (!current.franquiciaId().equals(franquiciaId)) {
+                throw new NotFoundException("Sucursal does not belong to franquicia: " + franquiciaId);
+            }
+            Versions.check("Sucursal", sucursalId, expectedVersion, current.version());
+            throw new VersionConflictException(
+                    "Sucursal " + sucursalId + " was modified concurrently", current.version());
         }
-        sucursal.setName(name);
-        sucursal = sucursalRepository.save(sucursal);
-        return SucursalResponse.from(sucursal);
+        referenceCache.evictSucursal(sucursalId);
+        // The max-stock report shows sucursal names.
+        maxStockReportCache.invalidate(franquiciaId);
+        return findResponse(sucursalId);
+    }
+
+    private SucursalResponse findResponse(Long sucursalId) {
+        return sucursalRepository.findResponseById(sucursalId)
+                .orElseThrow(() -> new NotFoundException("Sucursal not found: " + sucursalId));
+    }
+
+    /**
+     * Returns the sucursales of the franquicia after the {@code after} cursor in id order.
+     */
+    @Transactional(readOnly = true)
+    public CursorPage<SucursalResponse> listSucursales(Long franquiciaId, String after, int limit) {
+        franquiciaService.checkExists(franquiciaId);
+        Cursors.Position position = Cursors.decode(after, "id");
+        List<SucursalResponse> rows = sucursalRepository.findPageByFranquiciaId(
+                franquiciaId, position != null ? position.id() : 0, limit + 1);
+        return Cursors.page(rows, limit, sucursal -> Cursors.encode("id", sucursal.id(), null));
     }
 
     public Sucursal findById(Long id) {
@@ -49,6 +101,24 @@ public class SucursalService {
                 .orElseThrow(() -> new NotFoundException("Sucursal not found: " + id));
     }
 
+    /**
+     * Returns an uninitialized reference to an existing sucursal, for use as the owner of a
+     * new producto without loading the row.
+     */
+    public Sucursal getReference(Long id) {
+        findFranquiciaId(id);
+        return sucursalRepository.getReferenceById(id);
+    }
+
+    /**
+     * Returns the id of the franquicia the sucursal belongs to, answering from the reference
+     * cache when possible.
+     */
+    public Long findFranquiciaId(Long id) {
+        return referenceCache.franquiciaIdOfSucursal(id)
+                .orElseThrow(() -> new NotFoundException("Sucursal not found: " + id));
+    }
+
     public List<Sucursal> findByFranquiciaId(Long franquiciaId) {
         return sucursalRepository.findByFranquiciaId(franquiciaId);
     }
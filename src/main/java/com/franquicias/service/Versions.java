@@ -0,0 +1,22 @@
+package com.franquicias.service;
+
+import com.franquicias.exception.VersionConflictException;
+
+final class Versions {
+
+    private Versions() {
+    }
+
+    /**
+     * Fails when the client sent an expected version and it differs from the current one.
+     * A null {@code expectedVersion} means the client did not ask for the check.
+     */
+    static void check(String resource, Long id, Long expectedVersion, Long currentVersion) {
+        if (expectedVersion != null && !expectedVersion.equals(currentVersion)) {
+            throw new VersionConflictException(
+                    resource + " " + id + " was modified: expected version " + expectedVersion
+                            + " but is " + currentVersion,
+                    currentVersion);
+        }
+    }
+}
@@ -0,0 +1,32 @@
+CREATE TABLE franquicias (
+    id   BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    name VARCHAR(255) NOT NULL
+);
+
+CREATE TABLE sucursales (
+    id            BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    name          VARCHAR(255) NOT NULL,
+    franquicia_id BIGINT       NOT NULL
+);
+
+CREATE TABLE productos (
+    id          BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    name        VARCHAR(255) NOT NULL,
+    stock       INTEGER      NOT NULL,
+    sucursal_id BIGINT       NOT NULL
+);
+
+-- Created before the foreign keys so H2 reuses them instead of generating its own.
+CREATE INDEX idx_sucursales_franquicia ON sucursales (franquicia_id);
+
+-- Covers findBySucursalId and the max-stock lookups: rows of a sucursal are read in
+-- stock order without touching the table. It starts with sucursal_id, so lookups by sucursal
+-- need no index of their own. H2 still backs fk_productos_sucursal with an index on exactly
+-- sucursal_id, which it creates and names itself.
+CREATE INDEX idx_productos_sucursal_stock ON productos (sucursal_id, stock DESC, id, name);
+
+ALTER TABLE sucursales
+    ADD CONSTRAINT fk_sucursales_franquicia FOREIGN KEY (franquicia_id) REFERENCES franquicias (id);
+
+ALTER TABLE productos
+    ADD CONSTRAINT fk_productos_sucursal FOREIGN KEY (sucursal_id) REFERENCES sucursales (id);
@@ -0,0 +1,15 @@
+-- Ids are allocated by Hibernate from pooled sequences (allocationSize = 50) so inserts
+-- can be batched. Each sequence restarts at MAX(id) + 50: with the pooled optimizer the
+-- first value is the upper bound of the first block, so new ids start right after MAX(id).
+
+ALTER TABLE franquicias ALTER COLUMN id DROP IDENTITY;
+ALTER TABLE sucursales ALTER COLUMN id DROP IDENTITY;
+ALTER TABLE productos ALTER COLUMN id DROP IDENTITY;
+
+CREATE SEQUENCE franquicias_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE sucursales_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE productos_seq START WITH 1 INCREMENT BY 50;
+
+ALTER SEQUENCE franquicias_seq RESTART WITH (SELECT COALESCE(MAX(id), 0) + 50 FROM franquicias);
+ALTER SEQUENCE sucursales_seq RESTART WITH (SELECT COALESCE(MAX(id), 0) + 50 FROM sucursales);
+ALTER SEQUENCE productos_seq RESTART WITH (SELECT COALESCE(MAX(id), 0) + 50 FROM productos);
@@ -0,0 +1,11 @@
+-- Optimistic locking: Hibernate bumps the version on every update and only writes the row
+-- if the version is still the one it read. Existing rows start at version 0.
+
+ALTER TABLE franquicias ADD COLUMN version BIGINT DEFAULT 0 NOT NULL;
+ALTER TABLE sucursales ADD COLUMN version BIGINT DEFAULT 0 NOT NULL;
+ALTER TABLE productos ADD COLUMN version BIGINT DEFAULT 0 NOT NULL;
+
+-- Keep the max-stock index covering for entity loads, which now also select the version.
+-- Every update touches the version and stock or name anyway, so this costs no extra writes.
+DROP INDEX idx_productos_sucursal_stock;
+CREATE INDEX idx_productos_sucursal_stock ON productos (sucursal_id, stock DESC, id, name, version);
@@ -0,0 +1,3 @@
+-- Lets the productos listing sorted by name seek to its keyset cursor and read the sucursal's
+-- rows in (name, id) order instead of sorting them.
+CREATE INDEX idx_productos_sucursal_name ON productos (sucursal_id, name, id);
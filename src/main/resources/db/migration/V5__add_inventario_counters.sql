@@ -0,0 +1,16 @@
+-- Inventory counters per sucursal: number of productos, total stock and productos out of
+-- stock. Every producto write updates the row of its sucursal in the same transaction, so the
+-- aggregate endpoints read one row per sucursal instead of the sucursal's productos.
+CREATE TABLE inventario_sucursales (
+    sucursal_id  BIGINT NOT NULL PRIMARY KEY,
+    productos    BIGINT NOT NULL,
+    total_stock  BIGINT NOT NULL,
+    out_of_stock BIGINT NOT NULL,
+    CONSTRAINT fk_inventario_sucursales_sucursal FOREIGN KEY (sucursal_id) REFERENCES sucursales (id)
+);
+
+INSERT INTO inventario_sucursales (sucursal_id, productos, total_stock, out_of_stock)
+SELECT s.id, COUNT(p.id), COALESCE(SUM(p.stock), 0), COUNT(CASE WHEN p.stock = 0 THEN 1 END)
+FROM sucursales s
+         LEFT JOIN productos p ON p.sucursal_id = s.id
+GROUP BY s.id;
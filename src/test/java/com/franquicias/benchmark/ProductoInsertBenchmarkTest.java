@@ -0,0 +1,118 @@
+package com.franquicias.benchmark;
+
+import com.franquicias.entity.Franquicia;
+import com.franquicias.entity.Producto;
+import com.franquicias.entity.Sucursal;
+import org.hibernate.Session;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+
+import java.util.function.BiFunction;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Compares producto insert throughput with IDENTITY ids, which Hibernate inserts one row at a
+ * time to read the generated key back, against the pooled sequence ids of {@link Producto}
+ * with JDBC batching. The IDENTITY mapping is a copy of productos that only this context
+ * migrates and maps. Run with {@code mvn test -Pbenchmark}.
+ */
+@Tag("benchmark")
+@DataJpaTest(properties = {
+        "spring.jpa.mapping-resources=benchmark-orm.xml",
+        "spring.flyway.locations=classpath:db/migration,classpath:db/benchmark"})
+class ProductoInsertBenchmarkTest {
+
+    private static final Logger log = LoggerFactory.getLogger(ProductoInsertBenchmarkTest.class);
+
+    private static final int PRODUCTOS = 20_000;
+    private static final int BATCH_SIZE = 50;
+
+    /**
+     * Producto mapped with an IDENTITY id in {@code benchmark-orm.xml}.
+     */
+    static class IdentityProducto {
+
+        private Long id;
+        private String name;
+        private Integer stock;
+        private Long version;
+        private Sucursal sucursal;
+
+        IdentityProducto() {
+        }
+
+        IdentityProducto(String name, Integer stock, Sucursal sucursal) {
+            this.name = name;
+            this.stock = stock;
+            this.sucursal = sucursal;
+        }
+    }
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    private double insertsPerSecond(Long sucursalId, BiFunction<Integer, Sucursal, Object> producto) {
+        Session session = entityManager.getEntityManager().unwrap(Session.class);
+        // Both mappings run with the same batch size; Hibernate cannot batch the IDENTITY inserts.
+        session.setJdbcBatchSize(BATCH_SIZE);
+        long start = System.nanoTime();
+        for (int i = 0; i < PRODUCTOS; i++) {
+            session.persist(producto.apply(i, session.getReference(Sucursal.class, sucursalId)));
+            if ((i + 1) % BATCH_SIZE == 0) {
+                session.flush();
+                session.clear();
+            }
+        }
+        session.flush();
+        session.clear();
+        long elapsed = System.nanoTime() - start;
+        return PRODUCTOS / (elapsed / 1_000_000_000.0);
+    }
+
+    private static Object identityProducto(int i, Sucursal sucursal) {
+        return new IdentityProducto("Producto " + i, i % 100, sucursal);
+    }
+
+    private static Object sequenceProducto(int i, Sucursal sucursal) {
+        Producto producto = new Producto();
+        producto.setName("Producto " + i);
+        producto.setStock(i % 100);
+        producto.setSucursal(sucursal);
+        return producto;
+    }
+
+    private Long newSucursal() {
+        Franquicia franquicia = new Franquicia();
+        franquicia.setName("Benchmark");
+        entityManager.persist(franquicia);
+        Sucursal sucursal = new Sucursal();
+        sucursal.setName("Benchmark");
+        sucursal.setFranquicia(franquicia);
+        entityManager.persist(sucursal);
+        entityManager.flush();
+        return sucursal.getId();
+    }
+
+    @Test
+    @DisplayName("batched inserts with pooled sequence ids vs IDENTITY ids")
+    void comparesInsertThroughput() {
+        // Warm up the JIT and the connection before measuring.
+        insertsPerSecond(newSucursal(), ProductoInsertBenchmarkTest::sequenceProducto);
+        insertsPerSecond(newSucursal(), ProductoInsertBenchmarkTest::identityProducto);
+
+        double identity = insertsPerSecond(newSucursal(), ProductoInsertBenchmarkTest::identityProducto);
+        double sequence = insertsPerSecond(newSucursal(), ProductoInsertBenchmarkTest::sequenceProducto);
+
+        log.info(String.format("Producto inserts/s: IDENTITY = %.0f, pooled sequence batched (%d) = %.0f, speedup = %.2fx",
+                identity, BATCH_SIZE, sequence, sequence / identity));
+        assertThat(sequence).isPositive();
+        assertThat(identity).isPositive();
+    }
+}
@@ -0,0 +1,164 @@
+package com.franquicias.benchmark;
+
+import com.franquicias.FranquiciasApiApplication;
+import com.franquicias.service.FranquiciaService;
+import com.franquicias.service.ProductoService;
+import com.franquicias.service.SucursalService;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Compares p99 latency and throughput of the API served by Tomcat's platform thread pool
+ * against the {@code virtual-threads} profile, with {@code benchmark.connections} (default
+ * 5000) concurrent clients alternating the max-stock report and atomic stock adjustments.
+ * Both runs use a connection pool of {@code benchmark.pool-size} (default 50, the profile's
+ * size), so the comparison measures the request threads and not the pool.
+ * Run with {@code mvn test -Pbenchmark}; the process needs about two file descriptors per
+ * connection ({@code ulimit -n}).
+ */
+@Tag("benchmark")
+class RequestThreadModeBenchmarkTest {
+
+    private static final Logger log = LoggerFactory.getLogger(RequestThreadModeBenchmarkTest.class);
+
+    private static final int CONNECTIONS = Integer.getInteger("benchmark.connections", 5_000);
+    private static final int REQUESTS_PER_CONNECTION = Integer.getInteger("benchmark.requests-per-connection", 20);
+    private static final int POOL_SIZE = Integer.getInteger("benchmark.pool-size", 50);
+    private static final int SUCURSALES = 10;
+    private static final int PRODUCTOS_PER_SUCURSAL = 50;
+
+    private record Result(double requestsPerSecond, double p99Millis, long errors) {
+
+        String summary() {
+            return String.format("%.0f req/s, p99 = %.1f ms, errors = %d", requestsPerSecond, p99Millis, errors);
+        }
+    }
+
+    private record Target(Long franquiciaId, List<Long> sucursalIds, List<Long> productoIds) {
+    }
+
+    private Result run(boolean virtualThreads) throws Exception {
+        SpringApplicationBuilder builder = new SpringApplicationBuilder(FranquiciasApiApplication.class)
+                .properties(
+                        "server.port=0",
+                        "spring.jpa.show-sql=false",
+                        "spring.datasource.url=jdbc:h2:mem:threadmode" + virtualThreads);
+        if (virtualThreads) {
+            builder.profiles("virtual-threads");
+        }
+        // Command line arguments, unlike the builder's default properties, override the profile.
+        String[] pool = {
+                "--spring.datasource.hikari.maximum-pool-size=" + POOL_SIZE,
+                "--spring.datasource.hikari.minimum-idle=" + POOL_SIZE};
+        try (ServletWebServerApplicationContext context = (ServletWebServerApplicationContext) builder.run(pool)) {
+            Target target = seed(context);
+            String baseUrl = "http://localhost:" + context.getWebServer().getPort();
+            // Warm up the JIT, the connection pool and the max-stock index before measuring.
+            load(baseUrl, target, Math.min(CONNECTIONS, 200), 5);
+            return load(baseUrl, target, CONNECTIONS, REQUESTS_PER_CONNECTION);
+        }
+    }
+
+    private Target seed(ServletWebServerApplicationContext context) {
+        FranquiciaService franquiciaService = context.getBean(FranquiciaService.class);
+        SucursalService sucursalService = context.getBean(SucursalService.class);
+        ProductoService productoService = context.getBean(ProductoService.class);
+        Long franquiciaId = franquiciaService.createFranquicia("Benchmark").id();
+        List<Long> sucursalIds = new ArrayList<>();
+        List<Long> productoIds = new ArrayList<>();
+        for (int s = 0; s < SUCURSALES; s++) {
+            Long sucursalId = sucursalService.createSucursal(franquiciaId, "Sucursal " + s).id();
+            for (int p = 0; p < PRODUCTOS_PER_SUCURSAL; p++) {
+                sucursalIds.add(sucursalId);
+                productoIds.add(productoService.createProducto(sucursalId, "Producto " + p, null, 1_000_000).id());
+            }
+        }
+        return new Target(franquiciaId, sucursalIds, productoIds);
+    }
+
+    private Result load(String baseUrl, Target target, int connections, int requestsPerConnection) throws Exception {
+        HttpRequest report = HttpRequest.newBuilder(
+                URI.create(baseUrl + "/api/franquicias/" + target.franquiciaId() + "/productos-max-stock")).build();
+        AtomicLong errors = new AtomicLong();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<long[]>> clients = new ArrayList<>(connections);
+        long elapsed;
+        try (HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+             ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int c = 0; c < connections; c++) {
+                int slot = c % target.productoIds().size();
+                HttpRequest adjust = HttpRequest.newBuilder(URI.create(baseUrl + "/api/sucursales/"
+                                + target.sucursalIds().get(slot) + "/productos/" + target.productoIds().get(slot)
+                                + "/stock/adjust"))
+                        .header("Content-Type", "application/json")
+                        .POST(HttpRequest.BodyPublishers.ofString("{\"delta\": " + (c % 2 == 0 ? 1 : -1) + "}"))
+                        .build();
+                clients.add(executor.submit(() -> {
+                    long[] latencies = new long[requestsPerConnection];
+                    start.await();
+                    for (int r = 0; r < requestsPerConnection; r++) {
+                        long begin = System.nanoTime();
+                        try {
+                            HttpResponse<Void> response = client.send(r % 2 == 0 ? report : adjust,
+                                    HttpResponse.BodyHandlers.discarding());
+                            if (response.statusCode() >= 400) {
+                                errors.incrementAndGet();
+                            }
+                        } catch (IOException ex) {
+                            errors.incrementAndGet();
+                        }
+                        latencies[r] = System.nanoTime() - begin;
+                    }
+                    return latencies;
+                }));
+            }
+            long begin = System.nanoTime();
+            start.countDown();
+            for (Future<long[]> future : clients) {
+                future.get();
+            }
+            elapsed = System.nanoTime() - begin;
+        }
+        long[] all = new long[connections * requestsPerConnection];
+        for (int c = 0; c < connections; c++) {
+            System.arraycopy(clients.get(c).get(), 0, all, c * requestsPerConnection, requestsPerConnection);
+        }
+        Arrays.sort(all);
+        double p99Millis = all[(int) Math.ceil(all.length * 0.99) - 1] / 1_000_000.0;
+        return new Result(all.length / (elapsed / 1_000_000_000.0), p99Millis, errors.get());
+    }
+
+    @Test
+    @DisplayName("virtual request threads vs the platform thread pool under many concurrent connections")
+    void comparesRequestThreadModes() throws Exception {
+        Result platform = run(false);
+        Result virtual = run(true);
+
+        log.info("{} connections x {} requests", CONNECTIONS, REQUESTS_PER_CONNECTION);
+        log.info("platform threads: {}", platform.summary());
+        log.info("virtual threads:  {}", virtual.summary());
+        assertThat(platform.requestsPerSecond()).isPositive();
+        assertThat(virtual.requestsPerSecond()).isPositive();
+    }
+}
@@ -0,0 +1,77 @@
+package com.franquicias.cache;
+
+import com.franquicias.dto.ProductoMaxStockPorSucursalResponse;
+import com.franquicias.dto.ProductoResponse;
+import com.franquicias.service.FranquiciaService;
+import com.franquicias.service.ProductoService;
+import com.franquicias.service.SucursalService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+class MaxStockIndexIntegrationTest {
+
+    @Autowired
+    private FranquiciaService franquiciaService;
+
+    @Autowired
+    private SucursalService sucursalService;
+
+    @Autowired
+    private ProductoService productoService;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private Long franquiciaId;
+    private Long sucursalId;
+    private ProductoResponse alto;
+    private ProductoResponse bajo;
+
+    @BeforeEach
+    void setUp() {
+        franquiciaId = franquiciaService.createFranquicia("Franquicia").id();
+        sucursalId = sucursalService.createSucursal(franquiciaId, "Centro").id();
+        alto = productoService.createProducto(sucursalId, "Alto", null, 30);
+        bajo = productoService.createProducto(sucursalId, "Bajo", null, 10);
+    }
+
+    private List<Long> topProductIds() {
+        return productoService.getProductosConMaxStockPorSucursal(franquiciaId).stream()
+                .map(ProductoMaxStockPorSucursalResponse::productId)
+                .toList();
+    }
+
+    @Test
+    @DisplayName("keeps the index unchanged when the writing transaction rolls back")
+    void ignoresRolledBackWrites() {
+        assertThat(topProductIds()).containsExactly(alto.id());
+
+        transactionTemplate.executeWithoutResult(status -> {
+            productoService.updateStock(sucursalId, bajo.id(), 99);
+            status.setRollbackOnly();
+        });
+
+        assertThat(topProductIds()).containsExactly(alto.id());
+    }
+
+    @Test
+    @DisplayName("reflects committed stock changes and deletions")
+    void reflectsCommittedWrites() {
+        assertThat(topProductIds()).containsExactly(alto.id());
+
+        productoService.updateStock(sucursalId, bajo.id(), 99);
+        assertThat(topProductIds()).containsExactly(bajo.id());
+
+        productoService.deleteProductoFromSucursal(sucursalId, bajo.id());
+        assertThat(topProductIds()).containsExactly(alto.id());
+    }
+}
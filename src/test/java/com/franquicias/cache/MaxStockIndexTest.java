@@ -0,0 +1,234 @@
+package com.franquicias.cache;
+
+import com.franquicias.dto.ProductoMaxStockPorSucursalResponse;
+import com.franquicias.entity.Sucursal;
+import com.franquicias.event.ProductoChangedEvent;
+import com.franquicias.event.ProductosDeletedEvent;
+import com.franquicias.repository.ProductoRepository;
+import com.franquicias.repository.ProductoVersionView;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class MaxStockIndexTest {
+
+    private static final Long SUCURSAL_ID = 10L;
+
+    @Mock
+    private ProductoRepository productoRepository;
+
+    private MaxStockIndex index;
+
+    private Sucursal sucursal;
+
+    @BeforeEach
+    void setUp() {
+        index = new MaxStockIndex(productoRepository, true, 2);
+        sucursal = new Sucursal();
+        sucursal.setId(SUCURSAL_ID);
+        sucursal.setName("Centro");
+    }
+
+    private static ProductoVersionView view(Long productoId, String name, int stock) {
+        return new ProductoVersionView() {
+            public Long getSucursalId() {
+                return SUCURSAL_ID;
+            }
+
+            public Long getProductoId() {
+                return productoId;
+            }
+
+            public String getName() {
+                return name;
+            }
+
+            public Integer getStock() {
+                return stock;
+            }
+
+            public Long getVersion() {
+                return 0L;
+            }
+        };
+    }
+
+    private List<ProductoMaxStockPorSucursalResponse> read() {
+        return index.maxStockPorSucursal(List.of(sucursal));
+    }
+
+    private void stubLoad(ProductoVersionView... views) {
+        when(productoRepository.findTopByStockPorSucursal(List.of(SUCURSAL_ID), 3)).thenReturn(List.of(views));
+    }
+
+    @Nested
+    @DisplayName("maxStockPorSucursal")
+    class MaxStockPorSucursal {
+
+        @Test
+        @DisplayName("loads a sucursal once and then answers from memory")
+        void loadsOnceThenAnswersFromMemory() {
+            stubLoad(view(1L, "A", 5), view(2L, "B", 9));
+
+            assertThat(read()).containsExactly(new ProductoMaxStockPorSucursalResponse(2L, "B", 9, SUCURSAL_ID, "Centro"));
+            assertThat(read()).hasSize(1);
+
+            verify(productoRepository, times(1)).findTopByStockPorSucursal(anyCollection(), anyInt());
+        }
+
+        @Test
+        @DisplayName("omits sucursales without productos")
+        void omitsEmptySucursales() {
+            stubLoad();
+
+            assertThat(read()).isEmpty();
+        }
+    }
+
+    @Nested
+    @DisplayName("onProductoChanged")
+    class OnProductoChanged {
+
+        @Test
+        @DisplayName("promotes a producto whose stock rises above the current max")
+        void promotesProductoWithHigherStock() {
+            stubLoad(view(1L, "A", 5), view(2L, "B", 9));
+            read();
+
+            index.onProductoChanged(new ProductoChangedEvent(SUCURSAL_ID, 1L, "A", 20, 1L, false));
+
+            assertThat(read()).extracting(ProductoMaxStockPorSucursalResponse::productId).containsExactly(1L);
+            verify(productoRepository, times(1)).findTopByStockPorSucursal(anyCollection(), anyInt());
+        }
+
+        @Test
+        @DisplayName("falls back to the next producto when the max is deleted")
+        void fallsBackWhenMaxDeleted() {
+            stubLoad(view(1L, "A", 5), view(2L, "B", 9));
+            read();
+
+            index.onProductoChanged(ProductoChangedEvent.deleted(SUCURSAL_ID, 2L));
+
+            assertThat(read()).extracting(ProductoMaxStockPorSucursalResponse::productId).containsExactly(1L);
+        }
+
+        @Test
+        @DisplayName("reloads the sucursal when no tracked producto is left above the floor")
+        void reloadsWhenTrackedProductosDrained() {
+            stubLoad(view(1L, "A", 9), view(2L, "B", 7), view(3L, "C", 6));
+            read();
+
+            index.onProductoChanged(ProductoChangedEvent.deleted(SUCURSAL_ID, 1L));
+            index.onProductoChanged(new ProductoChangedEvent(SUCURSAL_ID, 2L, "B", 1, 1L, false));
+            stubLoad(view(3L, "C", 6), view(2L, "B", 1));
+
+            assertThat(read()).extracting(ProductoMaxStockPorSucursalResponse::productId).containsExactly(3L);
+            verify(productoRepository, times(2)).findTopByStockPorSucursal(anyCollection(), anyInt());
+        }
+
+        @Test
+        @DisplayName("ignores a change delivered after a newer one of the same producto")
+        void ignoresOlderChange() {
+            stubLoad(view(1L, "A", 5), view(2L, "B", 9));
+            read();
+
+            index.onProductoChanged(new ProductoChangedEvent(SUCURSAL_ID, 1L, "A", 20, 2L, false));
+            index.onProductoChanged(new ProductoChangedEvent(SUCURSAL_ID, 1L, "A", 1, 1L, false));
+
+            assertThat(read()).extracting(ProductoMaxStockPorSucursalResponse::productId,
+                    ProductoMaxStockPorSucursalResponse::stock).containsExactly(tuple(1L, 20));
+        }
+
+        @Test
+        @DisplayName("ignores a change delivered after the producto was deleted")
+        void ignoresChangeOfDeletedProducto() {
+            stubLoad(view(1L, "A", 5), view(2L, "B", 9));
+            read();
+
+            index.onProductoChanged(ProductoChangedEvent.deleted(SUCURSAL_ID, 2L));
+            index.onProductoChanged(new ProductoChangedEvent(SUCURSAL_ID, 2L, "B", 30, 1L, false));
+
+            assertThat(read()).extracting(ProductoMaxStockPorSucursalResponse::productId).containsExactly(1L);
+        }
+
+        @Test
+        @DisplayName("ignores changes of sucursales that are not indexed")
+        void ignoresSucursalesNotIndexed() {
+            index.onProductoChanged(new ProductoChangedEvent(SUCURSAL_ID, 1L, "A", 20, 1L, false));
+            stubLoad(view(1L, "A", 20));
+
+            assertThat(read()).extracting(ProductoMaxStockPorSucursalResponse::stock).containsExactly(20);
+        }
+
+        @Test
+        @DisplayName("does not keep a snapshot read while a write committed")
+        void discardsSnapshotRacingWrite() {
+            when(productoRepository.findTopByStockPorSucursal(List.of(SUCURSAL_ID), 3)).thenAnswer(invocation -> {
+                index.onProductoChanged(new ProductoChangedEvent(SUCURSAL_ID, 1L, "A", 50, 1L, false));
+                return List.of(view(1L, "A", 5));
+            });
+            read();
+            stubLoad(view(1L, "A", 50));
+
+            assertThat(read()).extracting(ProductoMaxStockPorSucursalResponse::stock).containsExactly(50);
+            verify(productoRepository, times(2)).findTopByStockPorSucursal(anyCollection(), anyInt());
+        }
+    }
+
+    @Nested
+    @DisplayName("onProductosDeleted")
+    class OnProductosDeleted {
+
+        @Test
+        @DisplayName("reloads the sucursal after a bulk delete")
+        void reloadsSucursal() {
+            stubLoad(view(1L, "A", 5), view(2L, "B", 9));
+            read();
+
+            index.onProductosDeleted(new ProductosDeletedEvent(SUCURSAL_ID));
+            stubLoad(view(1L, "A", 5));
+
+            assertThat(read()).extracting(ProductoMaxStockPorSucursalResponse::productId).containsExactly(1L);
+            verify(productoRepository, times(2)).findTopByStockPorSucursal(anyCollection(), anyInt());
+        }
+
+        @Test
+        @DisplayName("does not keep a snapshot read while the sucursal was evicted")
+        void discardsSnapshotRacingEviction() {
+            when(productoRepository.findTopByStockPorSucursal(List.of(SUCURSAL_ID), 3)).thenAnswer(invocation -> {
+                index.onProductosDeleted(new ProductosDeletedEvent(SUCURSAL_ID));
+                return List.of(view(1L, "A", 5));
+            });
+            read();
+            stubLoad();
+
+            assertThat(read()).isEmpty();
+        }
+
+        @Test
+        @DisplayName("forgets the generation of the sucursal")
+        void dropsGeneration() {
+            stubLoad(view(1L, "A", 5));
+            read();
+            assertThat(index.generationCount()).isEqualTo(1);
+
+            index.onProductosDeleted(new ProductosDeletedEvent(SUCURSAL_ID));
+            index.onProductoChanged(new ProductoChangedEvent(SUCURSAL_ID, 1L, "A", 7, 1L, false));
+
+            assertThat(index.generationCount()).isZero();
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package com.franquicias.cache;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.franquicias.dto.ProductoMaxStockPorSucursalResponse;
+import com.franquicias.event.ProductoChangedEvent;
+import com.franquicias.event.ProductosDeletedEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class MaxStockReportCacheTest {
+
+    private static final ProductoMaxStockPorSucursalResponse TOP =
+            new ProductoMaxStockPorSucursalResponse(100L, "Prod", 20, 10L, "Centro");
+
+    @Mock
+    private ReferenceCache referenceCache;
+
+    @Mock
+    private StockWriteBuffer stockWriteBuffer;
+
+    private MaxStockReportCache cache;
+    private final AtomicInteger renders = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() {
+        cache = new MaxStockReportCache(referenceCache, stockWriteBuffer, new ObjectMapper(),
+                new SimpleMeterRegistry(), true, 100);
+    }
+
+    private Supplier<List<ProductoMaxStockPorSucursalResponse>> report() {
+        return () -> {
+            renders.incrementAndGet();
+            return List.of(TOP);
+        };
+    }
+
+    @Test
+    @DisplayName("renders the report once and serves it until the franquicia changes")
+    void servesCachedReportUntilChanged() {
+        when(referenceCache.franquiciaIdOfSucursal(10L)).thenReturn(Optional.of(1L));
+
+        MaxStockReportCache.Report first = cache.get(1L, report());
+        MaxStockReportCache.Report second = cache.get(1L, report());
+        cache.onProductoChanged(new ProductoChangedEvent(10L, 100L, "Prod", 30, 1L, false));
+        MaxStockReportCache.Report third = cache.get(1L, report());
+
+        assertThat(second).isSameAs(first);
+        assertThat(third.eTag()).isNotEqualTo(first.eTag());
+        assertThat(renders).hasValue(2);
+        assertThat(new String(first.body())).contains("\"productId\":100");
+    }
+
+    @Test
+    @DisplayName("renders the report again after a bulk delete in one of its sucursales")
+    void rendersAgainAfterBulkDelete() {
+        when(referenceCache.franquiciaIdOfSucursal(10L)).thenReturn(Optional.of(1L));
+
+        MaxStockReportCache.Report first = cache.get(1L, report());
+        cache.onProductosDeleted(new ProductosDeletedEvent(10L));
+
+        assertThat(cache.get(1L, report()).eTag()).isNotEqualTo(first.eTag());
+        assertThat(renders).hasValue(2);
+    }
+
+    @Test
+    @DisplayName("keeps the reports of other franquicias when one changes")
+    void keepsOtherFranquicias() {
+        when(referenceCache.franquiciaIdOfSucursal(10L)).thenReturn(Optional.of(2L));
+
+        MaxStockReportCache.Report first = cache.get(1L, report());
+        cache.onProductoChanged(new ProductoChangedEvent(10L, 100L, "Prod", 30, 1L, false));
+
+        assertThat(cache.get(1L, report())).isSameAs(first);
+    }
+
+    @Test
+    @DisplayName("does not keep a report rendered while a write to the franquicia committed")
+    void discardsReportRenderedDuringWrite() {
+        MaxStockReportCache.Report raced = cache.get(1L, () -> {
+            cache.invalidate(1L);
+            return List.of(TOP);
+        });
+
+        MaxStockReportCache.Report next = cache.get(1L, report());
+
+        assertThat(next.eTag()).isNotEqualTo(raced.eTag());
+        assertThat(renders).hasValue(1);
+    }
+
+    @Test
+    @DisplayName("renders the report on every call while stock writes are buffered, with a weak ETag")
+    void bypassesCacheWhileWritesArePending() {
+        when(stockWriteBuffer.hasPending()).thenReturn(true);
+
+        cache.get(1L, report());
+        MaxStockReportCache.Report second = cache.get(1L, report());
+
+        assertThat(renders).hasValue(2);
+        assertThat(second.eTag()).startsWith("W/\"");
+    }
+}
@@ -0,0 +1,157 @@
+package com.franquicias.cache;
+
+import com.franquicias.service.FranquiciaService;
+import com.franquicias.service.ProductoService;
+import com.franquicias.service.SucursalService;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.doAnswer;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+
+/**
+ * Fires bursts of identical max-stock requests right after a write invalidated the cached
+ * report and checks that each burst costs the statements of a single rendering. The rendering
+ * is held until every other request of the burst waits for it, so the coalescing does not
+ * depend on thread timing.
+ */
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@AutoConfigureMockMvc
+class MaxStockReportCoalescingIntegrationTest {
+
+    private static final int BURST = 64;
+    private static final int SUCURSALES = 20;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private FranquiciaService franquiciaService;
+
+    @Autowired
+    private SucursalService sucursalService;
+
+    @SpyBean
+    private ProductoService productoService;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private Statistics statistics;
+    private Long franquiciaId;
+    private Long sucursalId;
+    private Long productoId;
+    private int stock = 1_000;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        franquiciaId = franquiciaService.createFranquicia("Dashboard").id();
+        for (int s = 0; s < SUCURSALES; s++) {
+            sucursalId = sucursalService.createSucursal(franquiciaId, "Sucursal " + s).id();
+            productoId = productoService.createProducto(sucursalId, "Producto " + s, null, s).id();
+        }
+        // Warm the max-stock index so that every rendering below costs the same statements.
+        report();
+    }
+
+    private int report() throws Exception {
+        return mockMvc.perform(get("/api/franquicias/" + franquiciaId + "/productos-max-stock"))
+                .andReturn().getResponse().getStatus();
+    }
+
+    private double executed() {
+        return calls("executed");
+    }
+
+    private double coalesced() {
+        return calls("coalesced");
+    }
+
+    private double calls(String result) {
+        return meterRegistry.get(SingleFlight.METRIC)
+                .tag("name", "max-stock-report").tag("result", result).counter().count();
+    }
+
+    /**
+     * Blocks the calling thread until {@code count} more requests joined the rendering in
+     * flight than before.
+     */
+    private void awaitCoalesced(double before, int count) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        while (coalesced() - before < count) {
+            assertThat(System.nanoTime()).as("requests waiting for the rendering").isLessThan(deadline);
+            Thread.sleep(5);
+        }
+    }
+
+    private long statementsOf(ThrowingRunnable requests) throws Exception {
+        productoService.updateStock(sucursalId, productoId, ++stock);
+        statistics.clear();
+        requests.run();
+        return statistics.getPrepareStatementCount();
+    }
+
+    private interface ThrowingRunnable {
+        void run() throws Exception;
+    }
+
+    @Test
+    @DisplayName("a burst of identical requests queries the database once")
+    void burstQueriesDatabaseOnce() throws Exception {
+        long single = statementsOf(() -> assertThat(report()).isEqualTo(200));
+        double executedBefore = executed();
+        double coalescedBefore = coalesced();
+        CountDownLatch allWaiting = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            assertThat(allWaiting.await(30, TimeUnit.SECONDS)).isTrue();
+            return invocation.callRealMethod();
+        }).when(productoService).getProductosConMaxStockPorSucursal(franquiciaId);
+
+        long burst = statementsOf(() -> {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<Integer>> responses = new ArrayList<>();
+            try (ExecutorService executor = Executors.newFixedThreadPool(BURST)) {
+                for (int i = 0; i < BURST; i++) {
+                    responses.add(executor.submit(() -> {
+                        start.await();
+                        return report();
+                    }));
+                }
+                start.countDown();
+                awaitCoalesced(coalescedBefore, BURST - 1);
+                allWaiting.countDown();
+                for (Future<Integer> response : responses) {
+                    assertThat(response.get(30, TimeUnit.SECONDS)).isEqualTo(200);
+                }
+            }
+        });
+
+        assertThat(single).isPositive();
+        assertThat(burst).isEqualTo(single);
+        assertThat(executed() - executedBefore).isEqualTo(1);
+        assertThat(coalesced() - coalescedBefore).isEqualTo(BURST - 1);
+    }
+}
@@ -0,0 +1,90 @@
+package com.franquicias.cache;
+
+import com.franquicias.repository.FranquiciaRepository;
+import com.franquicias.repository.SucursalRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ReferenceCacheTest {
+
+    @Mock
+    private FranquiciaRepository franquiciaRepository;
+
+    @Mock
+    private SucursalRepository sucursalRepository;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private ReferenceCache cache;
+
+    @BeforeEach
+    void setUp() {
+        cache = new ReferenceCache(franquiciaRepository, sucursalRepository, meterRegistry, 100, 600);
+    }
+
+    @Test
+    @DisplayName("looks an existing franquicia up once")
+    void cachesExistingFranquicia() {
+        when(franquiciaRepository.existsById(1L)).thenReturn(true);
+
+        assertThat(cache.franquiciaExists(1L)).isTrue();
+        assertThat(cache.franquiciaExists(1L)).isTrue();
+
+        verify(franquiciaRepository, times(1)).existsById(1L);
+    }
+
+    @Test
+    @DisplayName("does not cache missing franquicias")
+    void doesNotCacheMissingFranquicia() {
+        when(franquiciaRepository.existsById(1L)).thenReturn(false, true);
+
+        assertThat(cache.franquiciaExists(1L)).isFalse();
+        assertThat(cache.franquiciaExists(1L)).isTrue();
+    }
+
+    @Test
+    @DisplayName("caches the franquicia of a sucursal until it is evicted")
+    void cachesSucursalOwnerUntilEvicted() {
+        when(sucursalRepository.findFranquiciaIdById(2L)).thenReturn(Optional.of(1L));
+
+        assertThat(cache.franquiciaIdOfSucursal(2L)).contains(1L);
+        assertThat(cache.franquiciaIdOfSucursal(2L)).contains(1L);
+        cache.evictSucursal(2L);
+        assertThat(cache.franquiciaIdOfSucursal(2L)).contains(1L);
+
+        verify(sucursalRepository, times(2)).findFranquiciaIdById(2L);
+    }
+
+    @Test
+    @DisplayName("returns empty for a missing sucursal")
+    void returnsEmptyForMissingSucursal() {
+        when(sucursalRepository.findFranquiciaIdById(2L)).thenReturn(Optional.empty());
+
+        assertThat(cache.franquiciaIdOfSucursal(2L)).isEmpty();
+    }
+
+    @Test
+    @DisplayName("publishes hit and miss counts")
+    void publishesHitAndMissCounts() {
+        when(franquiciaRepository.existsById(1L)).thenReturn(true);
+
+        cache.franquiciaExists(1L);
+        cache.franquiciaExists(1L);
+
+        assertThat(meterRegistry.get("cache.gets").tag("cache", "franquicias").tag("result", "hit")
+                .functionCounter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("cache.gets").tag("cache", "franquicias").tag("result", "miss")
+                .functionCounter().count()).isEqualTo(1);
+    }
+}
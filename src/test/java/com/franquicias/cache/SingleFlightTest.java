@@ -0,0 +1,109 @@
+package com.franquicias.cache;
+
+import com.franquicias.exception.NotFoundException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SingleFlightTest {
+
+    private static final int CALLERS = 16;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final SingleFlight<Long, String> flight = new SingleFlight<>("test", meterRegistry);
+
+    private double calls(String result) {
+        return meterRegistry.get(SingleFlight.METRIC).tag("name", "test").tag("result", result).counter().count();
+    }
+
+    /**
+     * Holds the computation until every other caller has joined it.
+     */
+    private void awaitCoalesced(int expected) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (calls("coalesced") < expected && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+    }
+
+    @Test
+    @DisplayName("runs the computation once for concurrent callers of the same key")
+    void collapsesConcurrentCalls() throws Exception {
+        AtomicInteger computations = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<String>> results = new ArrayList<>();
+        try (ExecutorService executor = Executors.newFixedThreadPool(CALLERS)) {
+            for (int i = 0; i < CALLERS; i++) {
+                results.add(executor.submit(() -> {
+                    start.await();
+                    return flight.execute(1L, () -> {
+                        computations.incrementAndGet();
+                        try {
+                            awaitCoalesced(CALLERS - 1);
+                        } catch (InterruptedException ex) {
+                            Thread.currentThread().interrupt();
+                        }
+                        return "report";
+                    });
+                }));
+            }
+            start.countDown();
+            for (Future<String> result : results) {
+                assertThat(result.get(10, TimeUnit.SECONDS)).isEqualTo("report");
+            }
+        }
+
+        assertThat(computations).hasValue(1);
+        assertThat(calls("executed")).isEqualTo(1);
+        assertThat(calls("coalesced")).isEqualTo(CALLERS - 1);
+    }
+
+    @Test
+    @DisplayName("runs the computation again once the previous flight has landed")
+    void runsAgainAfterCompletion() {
+        AtomicInteger computations = new AtomicInteger();
+
+        flight.execute(1L, () -> "a" + computations.incrementAndGet());
+        String second = flight.execute(1L, () -> "a" + computations.incrementAndGet());
+
+        assertThat(second).isEqualTo("a2");
+        assertThat(calls("coalesced")).isZero();
+    }
+
+    @Test
+    @DisplayName("propagates the exception of the computation to every caller")
+    void propagatesFailures() throws Exception {
+        CountDownLatch joined = new CountDownLatch(1);
+        try (ExecutorService executor = Executors.newSingleThreadExecutor()) {
+            Future<?> follower = executor.submit(() -> {
+                joined.await();
+                return flight.execute(1L, () -> "unused");
+            });
+
+            assertThatThrownBy(() -> flight.execute(1L, () -> {
+                joined.countDown();
+                try {
+                    awaitCoalesced(1);
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+                throw new NotFoundException("Franquicia not found: 1");
+            })).isInstanceOf(NotFoundException.class);
+
+            assertThatThrownBy(() -> follower.get(10, TimeUnit.SECONDS))
+                    .hasCauseInstanceOf(NotFoundException.class);
+        }
+    }
+}
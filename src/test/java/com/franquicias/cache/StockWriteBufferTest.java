@@ -0,0 +1,161 @@
+package com.franquicias.cache;
+
+import com.franquicias.event.ProductoChangedEvent;
+import com.franquicias.repository.InventarioSucursalRepository;
+import com.franquicias.repository.ProductoRepository;
+import com.franquicias.repository.StockUpdate;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class StockWriteBufferTest {
+
+    @Mock
+    private ProductoRepository productoRepository;
+
+    @Mock
+    private InventarioSucursalRepository inventarioRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    private StockWriteBuffer buffer;
+
+    @BeforeEach
+    void setUp() {
+        // The interval is long enough for the scheduled flush never to run during a test.
+        buffer = new StockWriteBuffer(productoRepository, inventarioRepository, transactionManager, eventPublisher, true, 60_000, 100);
+    }
+
+    @AfterEach
+    void tearDown() {
+        buffer.close();
+    }
+
+    @Test
+    @DisplayName("coalesces repeated writes of a producto to the last value, replacing the first stock read")
+    void coalescesRepeatedWrites() {
+        when(productoRepository.updateStocks(anyList())).thenReturn(new int[]{1});
+
+        buffer.offer(1L, 2L, "P", 5, 10);
+        buffer.offer(1L, 2L, "P", 10, 20);
+        buffer.offer(1L, 2L, "P", 20, 30);
+
+        assertThat(buffer.pending(2L)).contains(new StockWriteBuffer.PendingStock(1L, 2L, "P", 5, 30));
+        buffer.flushAll();
+
+        verify(productoRepository).updateStocks(List.of(new StockUpdate(1L, 2L, 30)));
+        verify(eventPublisher).publishEvent(new ProductoChangedEvent(1L, 2L, "P", 30, null, false));
+        assertThat(buffer.hasPending()).isFalse();
+    }
+
+    @Test
+    @DisplayName("moves the counters of each sucursal by the stock replaced, in sucursal order")
+    void countsReplacedStock() {
+        when(productoRepository.updateStocks(anyList())).thenReturn(new int[]{1, 1, 1});
+        buffer.offer(5L, 2L, "P", 0, 10);
+        buffer.offer(5L, 3L, "Q", 25, 20);
+        buffer.offer(1L, 4L, "R", 30, 0);
+
+        buffer.flushAll();
+
+        InOrder inOrder = inOrder(inventarioRepository);
+        inOrder.verify(inventarioRepository).add(1L, 0, -30, 1);
+        inOrder.verify(inventarioRepository).add(5L, 0, 5, -1);
+        verify(inventarioRepository, never()).recount(anyCollection());
+    }
+
+    @Test
+    @DisplayName("flushes only the requested productos")
+    void flushesRequestedProductos() {
+        when(productoRepository.updateStocks(anyList())).thenReturn(new int[]{1});
+        buffer.offer(1L, 2L, "P", 0, 10);
+        buffer.offer(1L, 3L, "Q", 0, 20);
+
+        buffer.flush(List.of(3L));
+
+        verify(productoRepository).updateStocks(List.of(new StockUpdate(1L, 3L, 20)));
+        assertThat(buffer.pending(2L)).contains(new StockWriteBuffer.PendingStock(1L, 2L, "P", 0, 10));
+        assertThat(buffer.pending(3L)).isEmpty();
+    }
+
+    @Test
+    @DisplayName("flushes only the productos of the requested sucursales")
+    void flushesRequestedSucursales() {
+        when(productoRepository.updateStocks(anyList())).thenReturn(new int[]{1});
+        buffer.offer(1L, 2L, "P", 0, 10);
+        buffer.offer(5L, 3L, "Q", 0, 20);
+
+        buffer.flushSucursales(List.of(5L));
+
+        verify(productoRepository).updateStocks(List.of(new StockUpdate(5L, 3L, 20)));
+        assertThat(buffer.pending(2L)).isPresent();
+    }
+
+    @Test
+    @DisplayName("does not publish changes for productos deleted before the flush")
+    void skipsDeletedProductos() {
+        when(productoRepository.updateStocks(anyList())).thenReturn(new int[]{0});
+        buffer.offer(1L, 2L, "P", 0, 10);
+
+        buffer.flushAll();
+
+        verifyNoInteractions(eventPublisher);
+    }
+
+    @Test
+    @DisplayName("keeps the writes for the next flush when the flush fails")
+    void keepsWritesWhenFlushFails() {
+        when(productoRepository.updateStocks(anyList())).thenThrow(new IllegalStateException("database down"));
+        buffer.offer(1L, 2L, "P", 0, 10);
+
+        assertThatThrownBy(() -> buffer.flushAll()).isInstanceOf(IllegalStateException.class);
+
+        assertThat(buffer.pending(2L)).contains(new StockWriteBuffer.PendingStock(1L, 2L, "P", 0, 10));
+    }
+
+    @Test
+    @DisplayName("drains the buffer on close and then stops accepting writes")
+    void drainsOnClose() {
+        when(productoRepository.updateStocks(anyList())).thenReturn(new int[]{1});
+        buffer.offer(1L, 2L, "P", 0, 10);
+
+        buffer.close();
+
+        verify(productoRepository).updateStocks(List.of(new StockUpdate(1L, 2L, 10)));
+        assertThat(buffer.offer(1L, 2L, "P", 0, 20)).isFalse();
+    }
+
+    @Test
+    @DisplayName("rejects writes and never flushes when disabled")
+    void disabled() {
+        StockWriteBuffer disabled =
+                new StockWriteBuffer(productoRepository, inventarioRepository, transactionManager, eventPublisher, false, 200, 100);
+
+        assertThat(disabled.offer(1L, 2L, "P", 0, 10)).isFalse();
+        disabled.flushAll();
+        disabled.close();
+
+        assertThat(disabled.hasPending()).isFalse();
+        verifyNoInteractions(productoRepository);
+    }
+}
@@ -0,0 +1,117 @@
+package com.franquicias.config;
+
+import com.franquicias.entity.Franquicia;
+import com.franquicias.entity.Sucursal;
+import com.franquicias.repository.FranquiciaRepository;
+import com.franquicias.repository.SucursalRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs every step in its own committed transaction: read-write regions only publish changes
+ * once the transaction that made them completes.
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@Import(SecondLevelCacheConfig.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class SecondLevelCacheConfigTest {
+
+    @Autowired
+    private FranquiciaRepository franquiciaRepository;
+
+    @Autowired
+    private SucursalRepository sucursalRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate transaction;
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        transaction = new TransactionTemplate(transactionManager);
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    private Long franquiciaWithSucursal(String sucursalName) {
+        return transaction.execute(status -> {
+            Franquicia franquicia = new Franquicia();
+            franquicia.setName("Franquicia");
+            franquicia = franquiciaRepository.save(franquicia);
+            sucursal(franquicia.getId(), sucursalName);
+            return franquicia.getId();
+        });
+    }
+
+    private void sucursal(Long franquiciaId, String name) {
+        Sucursal sucursal = new Sucursal();
+        sucursal.setName(name);
+        sucursal.setFranquicia(franquiciaRepository.getReferenceById(franquiciaId));
+        sucursalRepository.save(sucursal);
+    }
+
+    private List<String> sucursalNames(Long franquiciaId) {
+        return transaction.execute(status -> franquiciaRepository.findById(franquiciaId).orElseThrow()
+                .getSucursales().stream().map(Sucursal::getName).toList());
+    }
+
+    @Test
+    @DisplayName("loads a franquicia and its sucursales from the cache the second time")
+    void loadsFromCacheSecondTime() {
+        Long franquiciaId = franquiciaWithSucursal("Centro");
+        sucursalNames(franquiciaId);
+        statistics.clear();
+
+        assertThat(sucursalNames(franquiciaId)).containsExactly("Centro");
+
+        assertThat(statistics.getPrepareStatementCount()).isZero();
+        assertThat(statistics.getDomainDataRegionStatistics("franquicia").getHitCount()).isEqualTo(1);
+        assertThat(statistics.getDomainDataRegionStatistics("franquicia-sucursales").getHitCount()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("evicts the cached sucursales of a franquicia when a sucursal is added to it")
+    void evictsCollectionWhenSucursalAdded() {
+        Long franquiciaId = franquiciaWithSucursal("Centro");
+        sucursalNames(franquiciaId);
+
+        transaction.executeWithoutResult(status -> sucursal(franquiciaId, "Norte"));
+
+        assertThat(sucursalNames(franquiciaId)).containsExactlyInAnyOrder("Centro", "Norte");
+    }
+
+    @Test
+    @DisplayName("drops a franquicia and its sucursales from the cache when they are deleted in bulk")
+    void evictsOnBulkDelete() {
+        Long franquiciaId = franquiciaWithSucursal("Centro");
+        sucursalNames(franquiciaId);
+
+        transaction.executeWithoutResult(status -> {
+            sucursalRepository.deleteByIdIn(sucursalRepository.findIdsByFranquiciaId(franquiciaId, 10));
+            franquiciaRepository.deleteRowById(franquiciaId);
+        });
+
+        Optional<Franquicia> deleted = transaction.execute(status -> franquiciaRepository.findById(franquiciaId));
+        assertThat(deleted).isEmpty();
+    }
+}
@@ -0,0 +1,55 @@
+package com.franquicias.controller;
+
+import com.franquicias.dto.DeletionResponse;
+import com.franquicias.exception.GlobalExceptionHandler;
+import com.franquicias.exception.NotFoundException;
+import com.franquicias.service.CascadeDeleteService;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.Instant;
+
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@WebMvcTest(DeletionController.class)
+@Import(GlobalExceptionHandler.class)
+class DeletionControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private CascadeDeleteService cascadeDeleteService;
+
+    @Test
+    @DisplayName("GET /api/deletions/{deletionId} returns the progress of the deletion")
+    void returnsProgress() throws Exception {
+        when(cascadeDeleteService.getDeletion("d-1")).thenReturn(new DeletionResponse("d-1",
+                DeletionResponse.Resource.FRANQUICIA, 1L, DeletionResponse.State.FAILED, 3, 4000,
+                "Connection lost", Instant.EPOCH, Instant.EPOCH));
+
+        mockMvc.perform(get("/api/deletions/d-1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.resourceId").value(1))
+                .andExpect(jsonPath("$.state").value("FAILED"))
+                .andExpect(jsonPath("$.productosDeleted").value(4000))
+                .andExpect(jsonPath("$.error").value("Connection lost"));
+    }
+
+    @Test
+    @DisplayName("GET /api/deletions/{deletionId} returns 404 for unknown or expired deletions")
+    void returns404WhenUnknown() throws Exception {
+        when(cascadeDeleteService.getDeletion("nope")).thenThrow(new NotFoundException("Deletion not found: nope"));
+
+        mockMvc.perform(get("/api/deletions/nope"))
+                .andExpect(status().isNotFound())
+                .andExpect(jsonPath("$.error").value("Deletion not found: nope"));
+    }
+}
@@ -1,16 +1,24 @@
 package com.franquicias.controller;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.franquicias.cache.MaxStockReportCache;
 import com.franquicias.dto.CreateFranquiciaRequest;
 import com.franquicias.dto.CreateSucursalRequest;
+import com.franquicias.dto.CursorPage;
+import com.franquicias.dto.DeletionResponse;
 import com.franquicias.dto.FranquiciaResponse;
+import com.franquicias.dto.InventarioFranquiciaResponse;
+import com.franquicias.dto.InventarioSucursalResponse;
 import com.franquicias.dto.ProductoMaxStockPorSucursalResponse;
 import com.franquicias.dto.SucursalResponse;
 import com.franquicias.dto.UpdateFranquiciaNameRequest;
 import com.franquicias.dto.UpdateSucursalNameRequest;
 import com.franquicias.exception.NotFoundException;
+import com.franquicias.exception.VersionConflictException;
 import com.franquicias.exception.GlobalExceptionHandler;
+import com.franquicias.service.CascadeDeleteService;
 import com.franquicias.service.FranquiciaService;
+import com.franquicias.service.InventarioService;
 import com.franquicias.service.ProductoService;
 import com.franquicias.service.SucursalService;
 import org.junit.jupiter.api.DisplayName;
@@ -20,10 +28,13 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.context.annotation.Import;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 
+import java.time.Instant;
 import java.util.List;
+import java.util.function.Supplier;
 
 import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.verify;
@@ -50,6 +61,77 @@ class FranquiciaControllerTest {
     @MockBean
     private ProductoService productoService;
 
+    @MockBean
+    private MaxStockReportCache maxStockReportCache;
+
+    @MockBean
+    private CascadeDeleteService cascadeDeleteService;
+
+    @MockBean
+    private InventarioService inventarioService;
+
+    @Nested
+    @DisplayName("GET /api/franquicias")
+    class ListFranquicias {
+
+        @Test
+        @DisplayName("returns 200 with the page and the cursor of the next one")
+        void returnsPage() throws Exception {
+            when(franquiciaService.listFranquicias("abc", 1)).thenReturn(
+                    new CursorPage<>(List.of(new FranquiciaResponse(2L, "Norte")), "next"));
+
+            mockMvc.perform(get("/api/franquicias?after=abc&limit=1"))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.items[0].name").value("Norte"))
+                    .andExpect(jsonPath("$.nextCursor").value("next"));
+        }
+
+        @Test
+        @DisplayName("returns 400 when the cursor is invalid")
+        void returns400WhenCursorInvalid() throws Exception {
+            when(franquiciaService.listFranquicias("bad", 50))
+                    .thenThrow(new IllegalArgumentException("Invalid cursor: bad"));
+
+            mockMvc.perform(get("/api/franquicias?after=bad"))
+                    .andExpect(status().isBadRequest())
+                    .andExpect(jsonPath("$.error").value("Invalid cursor: bad"));
+        }
+
+        @Test
+        @DisplayName("returns 400 when the page size is out of range")
+        void returns400WhenLimitOutOfRange() throws Exception {
+            mockMvc.perform(get("/api/franquicias?limit=0"))
+                    .andExpect(status().isBadRequest());
+        }
+    }
+
+    @Nested
+    @DisplayName("GET /api/franquicias/{franquiciaId}/sucursales")
+    class ListSucursales {
+
+        @Test
+        @DisplayName("returns 200 with the sucursales of the franquicia")
+        void returnsPage() throws Exception {
+            when(sucursalService.listSucursales(1L, null, 50)).thenReturn(
+                    new CursorPage<>(List.of(new SucursalResponse(3L, "Centro", 1L)), null));
+
+            mockMvc.perform(get("/api/franquicias/1/sucursales"))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.items[0].id").value(3))
+                    .andExpect(jsonPath("$.nextCursor").doesNotExist());
+        }
+
+        @Test
+        @DisplayName("returns 404 when franquicia does not exist")
+        void returns404WhenFranquiciaNotFound() throws Exception {
+            when(sucursalService.listSucursales(999L, null, 50))
+                    .thenThrow(new NotFoundException("Franquicia not found: 999"));
+
+            mockMvc.perform(get("/api/franquicias/999/sucursales"))
+                    .andExpect(status().isNotFound());
+        }
+    }
+
     @Nested
     @DisplayName("POST /api/franquicias")
     class AddFranquicia {
@@ -166,7 +248,7 @@ class FranquiciaControllerTest {
             request.setName("Nueva Franquicia");
             FranquiciaResponse response = new FranquiciaResponse(franquiciaId, "Nueva Franquicia");
 
-            when(franquiciaService.updateFranquiciaName(franquiciaId, "Nueva Franquicia")).thenReturn(response);
+            when(franquiciaService.updateFranquiciaName(franquiciaId, "Nueva Franquicia", null)).thenReturn(response);
 
             mockMvc.perform(patch("/api/franquicias/" + franquiciaId + "/name")
                             .contentType(MediaType.APPLICATION_JSON)
@@ -175,7 +257,7 @@ class FranquiciaControllerTest {
                     .andExpect(jsonPath("$.id").value(1))
                     .andExpect(jsonPath("$.name").value("Nueva Franquicia"));
 
-            verify(franquiciaService).updateFranquiciaName(franquiciaId, "Nueva Franquicia");
+            verify(franquiciaService).updateFranquiciaName(franquiciaId, "Nueva Franquicia", null);
         }
 
         @Test
@@ -184,7 +266,7 @@ class FranquiciaControllerTest {
             UpdateFranquiciaNameRequest request = new UpdateFranquiciaNameRequest();
             request.setName("Nueva Franquicia");
 
-            when(franquiciaService.updateFranquiciaName(999L, "Nueva Franquicia"))
+            when(franquiciaService.updateFranquiciaName(999L, "Nueva Franquicia", null))
                     .thenThrow(new NotFoundException("Franquicia not found: 999"));
 
             mockMvc.perform(patch("/api/franquicias/999/name")
@@ -194,6 +276,54 @@ class FranquiciaControllerTest {
                     .andExpect(jsonPath("$.error").value("Franquicia not found: 999"));
         }
 
+        @Test
+        @DisplayName("passes If-Match to the service and returns the new version as ETag")
+        void passesIfMatchAndReturnsETag() throws Exception {
+            UpdateFranquiciaNameRequest request = new UpdateFranquiciaNameRequest();
+            request.setName("Nueva Franquicia");
+
+            when(franquiciaService.updateFranquiciaName(1L, "Nueva Franquicia", 3L))
+                    .thenReturn(new FranquiciaResponse(1L, "Nueva Franquicia", 4L));
+
+            mockMvc.perform(patch("/api/franquicias/1/name")
+                            .header(HttpHeaders.IF_MATCH, "\"3\"")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(objectMapper.writeValueAsString(request)))
+                    .andExpect(status().isOk())
+                    .andExpect(header().string(HttpHeaders.ETAG, "\"4\""))
+                    .andExpect(jsonPath("$.version").value(4));
+        }
+
+        @Test
+        @DisplayName("returns 409 with the current version when If-Match is stale")
+        void returns409WhenIfMatchIsStale() throws Exception {
+            UpdateFranquiciaNameRequest request = new UpdateFranquiciaNameRequest();
+            request.setName("Nueva Franquicia");
+
+            when(franquiciaService.updateFranquiciaName(1L, "Nueva Franquicia", 3L))
+                    .thenThrow(new VersionConflictException("Franquicia 1 was modified", 5L));
+
+            mockMvc.perform(patch("/api/franquicias/1/name")
+                            .header(HttpHeaders.IF_MATCH, "\"3\"")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(objectMapper.writeValueAsString(request)))
+                    .andExpect(status().isConflict())
+                    .andExpect(jsonPath("$.currentVersion").value(5));
+        }
+
+        @Test
+        @DisplayName("returns 400 when If-Match is not a version")
+        void returns400WhenIfMatchIsInvalid() throws Exception {
+            UpdateFranquiciaNameRequest request = new UpdateFranquiciaNameRequest();
+            request.setName("Nueva Franquicia");
+
+            mockMvc.perform(patch("/api/franquicias/1/name")
+                            .header(HttpHeaders.IF_MATCH, "\"abc\"")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(objectMapper.writeValueAsString(request)))
+                    .andExpect(status().isBadRequest());
+        }
+
         @Test
         @DisplayName("returns 400 when name is blank")
         void returns400WhenNameBlank() throws Exception {
@@ -220,7 +350,7 @@ class FranquiciaControllerTest {
             request.setName("Sucursal Norte");
             SucursalResponse response = new SucursalResponse(sucursalId, "Sucursal Norte", franquiciaId);
 
-            when(sucursalService.updateSucursalName(franquiciaId, sucursalId, "Sucursal Norte")).thenReturn(response);
+            when(sucursalService.updateSucursalName(franquiciaId, sucursalId, "Sucursal Norte", null)).thenReturn(response);
 
             mockMvc.perform(patch("/api/franquicias/" + franquiciaId + "/sucursales/" + sucursalId + "/name")
                             .contentType(MediaType.APPLICATION_JSON)
@@ -230,7 +360,7 @@ class FranquiciaControllerTest {
                     .andExpect(jsonPath("$.name").value("Sucursal Norte"))
                     .andExpect(jsonPath("$.franquiciaId").value(1));
 
-            verify(sucursalService).updateSucursalName(franquiciaId, sucursalId, "Sucursal Norte");
+            verify(sucursalService).updateSucursalName(franquiciaId, sucursalId, "Sucursal Norte", null);
         }
 
         @Test
@@ -239,7 +369,7 @@ class FranquiciaControllerTest {
             UpdateSucursalNameRequest request = new UpdateSucursalNameRequest();
             request.setName("Sucursal Norte");
 
-            when(sucursalService.updateSucursalName(1L, 999L, "Sucursal Norte"))
+            when(sucursalService.updateSucursalName(1L, 999L, "Sucursal Norte", null))
                     .thenThrow(new NotFoundException("Sucursal does not belong to franquicia: 1"));
 
             mockMvc.perform(patch("/api/franquicias/1/sucursales/999/name")
@@ -249,6 +379,23 @@ class FranquiciaControllerTest {
                     .andExpect(jsonPath("$.error").value("Sucursal does not belong to franquicia: 1"));
         }
 
+        @Test
+        @DisplayName("accepts a weak If-Match and returns the new version as ETag")
+        void acceptsWeakIfMatch() throws Exception {
+            UpdateSucursalNameRequest request = new UpdateSucursalNameRequest();
+            request.setName("Sucursal Norte");
+
+            when(sucursalService.updateSucursalName(1L, 2L, "Sucursal Norte", 7L))
+                    .thenReturn(new SucursalResponse(2L, "Sucursal Norte", 1L, 8L));
+
+            mockMvc.perform(patch("/api/franquicias/1/sucursales/2/name")
+                            .header(HttpHeaders.IF_MATCH, "W/\"7\"")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(objectMapper.writeValueAsString(request)))
+                    .andExpect(status().isOk())
+                    .andExpect(header().string(HttpHeaders.ETAG, "\"8\""));
+        }
+
         @Test
         @DisplayName("returns 400 when name is missing")
         void returns400WhenNameMissing() throws Exception {
@@ -259,10 +406,166 @@ class FranquiciaControllerTest {
         }
     }
 
+    private static DeletionResponse deletion(DeletionResponse.Resource resource, Long resourceId,
+                                             DeletionResponse.State state) {
+        Instant finishedAt = state == DeletionResponse.State.RUNNING ? null : Instant.EPOCH;
+        return new DeletionResponse("d-1", resource, resourceId, state, 2, 300, null, Instant.EPOCH, finishedAt);
+    }
+
+    @Nested
+    @DisplayName("DELETE /api/franquicias/{franquiciaId}")
+    class DeleteFranquicia {
+
+        @Test
+        @DisplayName("returns 200 with the counts once everything is deleted")
+        void returns200WhenDeleted() throws Exception {
+            when(cascadeDeleteService.deleteFranquicia(1L)).thenReturn(
+                    deletion(DeletionResponse.Resource.FRANQUICIA, 1L, DeletionResponse.State.COMPLETED));
+
+            mockMvc.perform(delete("/api/franquicias/1"))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.state").value("COMPLETED"))
+                    .andExpect(jsonPath("$.sucursalesDeleted").value(2))
+                    .andExpect(jsonPath("$.productosDeleted").value(300));
+        }
+
+        @Test
+        @DisplayName("returns 202 pointing to the status when async")
+        void returns202WhenAsync() throws Exception {
+            when(cascadeDeleteService.deleteFranquiciaAsync(1L)).thenReturn(
+                    deletion(DeletionResponse.Resource.FRANQUICIA, 1L, DeletionResponse.State.RUNNING));
+
+            mockMvc.perform(delete("/api/franquicias/1?async=true"))
+                    .andExpect(status().isAccepted())
+                    .andExpect(header().string(HttpHeaders.LOCATION, "http://localhost/api/deletions/d-1"))
+                    .andExpect(jsonPath("$.resource").value("FRANQUICIA"))
+                    .andExpect(jsonPath("$.state").value("RUNNING"));
+        }
+
+        @Test
+        @DisplayName("returns 404 when franquicia does not exist")
+        void returns404WhenFranquiciaNotFound() throws Exception {
+            when(cascadeDeleteService.deleteFranquicia(999L))
+                    .thenThrow(new NotFoundException("Franquicia not found: 999"));
+
+            mockMvc.perform(delete("/api/franquicias/999"))
+                    .andExpect(status().isNotFound())
+                    .andExpect(jsonPath("$.error").value("Franquicia not found: 999"));
+        }
+    }
+
+    @Nested
+    @DisplayName("DELETE /api/franquicias/{franquiciaId}/sucursales/{sucursalId}")
+    class DeleteSucursal {
+
+        @Test
+        @DisplayName("returns 200 with the counts once everything is deleted")
+        void returns200WhenDeleted() throws Exception {
+            when(cascadeDeleteService.deleteSucursal(1L, 2L)).thenReturn(
+                    deletion(DeletionResponse.Resource.SUCURSAL, 2L, DeletionResponse.State.COMPLETED));
+
+            mockMvc.perform(delete("/api/franquicias/1/sucursales/2"))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.resource").value("SUCURSAL"))
+                    .andExpect(jsonPath("$.resourceId").value(2));
+        }
+
+        @Test
+        @DisplayName("returns 202 pointing to the status when async")
+        void returns202WhenAsync() throws Exception {
+            when(cascadeDeleteService.deleteSucursalAsync(1L, 2L)).thenReturn(
+                    deletion(DeletionResponse.Resource.SUCURSAL, 2L, DeletionResponse.State.RUNNING));
+
+            mockMvc.perform(delete("/api/franquicias/1/sucursales/2?async=true"))
+                    .andExpect(status().isAccepted())
+                    .andExpect(header().string(HttpHeaders.LOCATION, "http://localhost/api/deletions/d-1"));
+        }
+
+        @Test
+        @DisplayName("returns 404 when sucursal belongs to another franquicia")
+        void returns404WhenSucursalOfOtherFranquicia() throws Exception {
+            when(cascadeDeleteService.deleteSucursal(1L, 2L))
+                    .thenThrow(new NotFoundException("Sucursal does not belong to franquicia: 1"));
+
+            mockMvc.perform(delete("/api/franquicias/1/sucursales/2"))
+                    .andExpect(status().isNotFound());
+        }
+    }
+
+    @Nested
+    @DisplayName("GET /api/franquicias/{franquiciaId}/inventario")
+    class GetFranquiciaInventario {
+
+        @Test
+        @DisplayName("returns 200 with the totals of the franquicia and of each sucursal")
+        void returnsTotals() throws Exception {
+            when(inventarioService.getFranquiciaInventario(1L)).thenReturn(InventarioFranquiciaResponse.of(1L, List.of(
+                    new InventarioSucursalResponse(2L, "Centro", 3L, 40L, 1L),
+                    new InventarioSucursalResponse(3L, "Norte", 2L, 5L, 0L))));
+
+            mockMvc.perform(get("/api/franquicias/1/inventario"))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.franquiciaId").value(1))
+                    .andExpect(jsonPath("$.productos").value(5))
+                    .andExpect(jsonPath("$.totalStock").value(45))
+                    .andExpect(jsonPath("$.outOfStock").value(1))
+                    .andExpect(jsonPath("$.sucursales[1].sucursalName").value("Norte"))
+                    .andExpect(jsonPath("$.sucursales[1].totalStock").value(5));
+        }
+
+        @Test
+        @DisplayName("returns 404 when franquicia does not exist")
+        void returns404WhenFranquiciaNotFound() throws Exception {
+            when(inventarioService.getFranquiciaInventario(999L))
+                    .thenThrow(new NotFoundException("Franquicia not found: 999"));
+
+            mockMvc.perform(get("/api/franquicias/999/inventario"))
+                    .andExpect(status().isNotFound())
+                    .andExpect(jsonPath("$.error").value("Franquicia not found: 999"));
+        }
+    }
+
+    @Nested
+    @DisplayName("GET /api/franquicias/{franquiciaId}/sucursales/{sucursalId}/inventario")
+    class GetSucursalInventario {
+
+        @Test
+        @DisplayName("returns 200 with the totals of the sucursal")
+        void returnsTotals() throws Exception {
+            when(inventarioService.getSucursalInventario(1L, 2L))
+                    .thenReturn(new InventarioSucursalResponse(2L, "Centro", 3L, 40L, 1L));
+
+            mockMvc.perform(get("/api/franquicias/1/sucursales/2/inventario"))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.sucursalId").value(2))
+                    .andExpect(jsonPath("$.productos").value(3))
+                    .andExpect(jsonPath("$.totalStock").value(40))
+                    .andExpect(jsonPath("$.outOfStock").value(1));
+        }
+
+        @Test
+        @DisplayName("returns 404 when sucursal belongs to another franquicia")
+        void returns404WhenSucursalOfOtherFranquicia() throws Exception {
+            when(inventarioService.getSucursalInventario(1L, 2L))
+                    .thenThrow(new NotFoundException("Sucursal does not belong to franquicia: 1"));
+
+            mockMvc.perform(get("/api/franquicias/1/sucursales/2/inventario"))
+                    .andExpect(status().isNotFound())
+                    .andExpect(jsonPath("$.error").value("Sucursal does not belong to franquicia: 1"));
+        }
+    }
+
     @Nested
     @DisplayName("GET /api/franquicias/{franquiciaId}/productos-max-stock")
     class GetProductosConMaxStockPorSucursal {
 
+        private void renderReports(String eTag) {
+            when(maxStockReportCache.get(anyLong(), any())).thenAnswer(inv -> {
+                Supplier<List<ProductoMaxStockPorSucursalResponse>> report = inv.getArgument(1);
+                return new MaxStockReportCache.Report(eTag, objectMapper.writeValueAsBytes(report.get()));
+            });
+        }
+
         @Test
         @DisplayName("returns 200 and product list when franquicia exists")
         void returns200AndProductListWhenFranquiciaExists() throws Exception {
@@ -272,10 +575,12 @@ class FranquiciaControllerTest {
             ProductoMaxStockPorSucursalResponse p2 =
                     new ProductoMaxStockPorSucursalResponse(11L, "B", 50, 2L, "Norte");
 
+            renderReports("\"e-1\"");
             when(productoService.getProductosConMaxStockPorSucursal(franquiciaId)).thenReturn(List.of(p1, p2));
 
             mockMvc.perform(get("/api/franquicias/" + franquiciaId + "/productos-max-stock"))
                     .andExpect(status().isOk())
+                    .andExpect(header().string(HttpHeaders.ETAG, "\"e-1\""))
                     .andExpect(jsonPath("$[0].productId").value(10))
                     .andExpect(jsonPath("$[0].productName").value("A"))
                     .andExpect(jsonPath("$[0].stock").value(100))
@@ -286,9 +591,23 @@ class FranquiciaControllerTest {
             verify(productoService).getProductosConMaxStockPorSucursal(franquiciaId);
         }
 
+        @Test
+        @DisplayName("returns 304 without a body when If-None-Match matches the current ETag")
+        void returns304WhenNotModified() throws Exception {
+            when(maxStockReportCache.get(eq(1L), any()))
+                    .thenReturn(new MaxStockReportCache.Report("\"e-7\"", "[]".getBytes()));
+
+            mockMvc.perform(get("/api/franquicias/1/productos-max-stock")
+                            .header(HttpHeaders.IF_NONE_MATCH, "\"e-7\""))
+                    .andExpect(status().isNotModified())
+                    .andExpect(header().string(HttpHeaders.ETAG, "\"e-7\""))
+                    .andExpect(content().string(""));
+        }
+
         @Test
         @DisplayName("returns 404 when franquicia does not exist")
         void returns404WhenFranquiciaNotFound() throws Exception {
+            renderReports("\"e-1\"");
             when(productoService.getProductosConMaxStockPorSucursal(999L))
                     .thenThrow(new NotFoundException("Franquicia not found: 999"));
 
@@ -3,9 +3,13 @@ package com.franquicias.controller;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthEndpoint;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.test.web.servlet.MockMvc;
 
+import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
@@ -15,12 +19,47 @@ class HealthControllerTest {
     @Autowired
     private MockMvc mockMvc;
 
+    @MockBean
+    private HealthEndpoint healthEndpoint;
+
     @Test
     @DisplayName("GET /api/health returns 200 with status UP")
     void healthReturnsUp() throws Exception {
+        when(healthEndpoint.health()).thenReturn(Health.up().build());
+
         mockMvc.perform(get("/api/health"))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.status").value("UP"))
                 .andExpect(jsonPath("$.application").value("franquicias-api"));
     }
+
+    @Test
+    @DisplayName("GET /api/health returns 503 when the database is down")
+    void healthReturnsServiceUnavailableWhenDown() throws Exception {
+        when(healthEndpoint.health()).thenReturn(Health.down().build());
+
+        mockMvc.perform(get("/api/health"))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(jsonPath("$.status").value("DOWN"));
+    }
+
+    @Test
+    @DisplayName("GET /api/health/liveness reports the liveness group")
+    void livenessReportsGroup() throws Exception {
+        when(healthEndpoint.healthForPath("liveness")).thenReturn(Health.up().build());
+
+        mockMvc.perform(get("/api/health/liveness"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status").value("UP"));
+    }
+
+    @Test
+    @DisplayName("GET /api/health/readiness returns 503 when the readiness group is down")
+    void readinessReturnsServiceUnavailableWhenDown() throws Exception {
+        when(healthEndpoint.healthForPath("readiness")).thenReturn(Health.outOfService().build());
+
+        mockMvc.perform(get("/api/health/readiness"))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(jsonPath("$.status").value("OUT_OF_SERVICE"));
+    }
 }
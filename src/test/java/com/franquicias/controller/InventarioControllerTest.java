@@ -0,0 +1,249 @@
+package com.franquicias.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.franquicias.dto.InventarioFormat;
+import com.franquicias.dto.ProductoBatchItemResponse;
+import com.franquicias.dto.ProductoResponse;
+import com.franquicias.dto.TransferStockRequest;
+import com.franquicias.dto.TransferStockResponse;
+import com.franquicias.dto.UpdateStockItemRequest;
+import com.franquicias.exception.ConflictException;
+import com.franquicias.exception.GlobalExceptionHandler;
+import com.franquicias.exception.NotFoundException;
+import com.franquicias.service.FranquiciaService;
+import com.franquicias.service.InventarioExportService;
+import com.franquicias.service.ProductoService;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@WebMvcTest(controllers = InventarioController.class)
+@Import(GlobalExceptionHandler.class)
+class InventarioControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @MockBean
+    private ProductoService productoService;
+
+    @MockBean
+    private FranquiciaService franquiciaService;
+
+    @MockBean
+    private InventarioExportService inventarioExportService;
+
+    private UpdateStockItemRequest item(Long sucursalId, Long productoId, Integer stock) {
+        UpdateStockItemRequest request = new UpdateStockItemRequest();
+        request.setSucursalId(sucursalId);
+        request.setProductoId(productoId);
+        request.setStock(stock);
+        return request;
+    }
+
+    @Nested
+    @DisplayName("PATCH /api/inventario/stock")
+    class UpdateStocks {
+
+        @Test
+        @DisplayName("returns 200 with per-item results")
+        void returns200WithItemResults() throws Exception {
+            List<UpdateStockItemRequest> request = List.of(item(1L, 10L, 5), item(2L, 20L, 7));
+            when(productoService.updateStocks(anyList())).thenReturn(List.of(
+                    ProductoBatchItemResponse.succeeded(0, new ProductoResponse(10L, "A", 5, 1L)),
+                    ProductoBatchItemResponse.failed(1, "Producto not found: 20")));
+
+            mockMvc.perform(patch("/api/inventario/stock")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(objectMapper.writeValueAsString(request)))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.total").value(2))
+                    .andExpect(jsonPath("$.succeeded").value(1))
+                    .andExpect(jsonPath("$.failed").value(1))
+                    .andExpect(jsonPath("$.items[0].producto.stock").value(5))
+                    .andExpect(jsonPath("$.items[1].error").value("Producto not found: 20"));
+        }
+
+        @Test
+        @DisplayName("returns 400 when an item is invalid")
+        void returns400WhenAnItemIsInvalid() throws Exception {
+            List<UpdateStockItemRequest> request = List.of(item(1L, 10L, 5), item(1L, null, -1));
+
+            mockMvc.perform(patch("/api/inventario/stock")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(objectMapper.writeValueAsString(request)))
+                    .andExpect(status().isBadRequest())
+                    .andExpect(jsonPath("$.error").value(containsString("[1].productoId")))
+                    .andExpect(jsonPath("$.error").value(containsString("[1].stock: Stock cannot be negative")));
+
+            verify(productoService, never()).updateStocks(anyList());
+        }
+
+        @Test
+        @DisplayName("returns 400 when the batch is empty")
+        void returns400WhenEmpty() throws Exception {
+            mockMvc.perform(patch("/api/inventario/stock")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content("[]"))
+                    .andExpect(status().isBadRequest());
+
+            verify(productoService, never()).updateStocks(anyList());
+        }
+    }
+
+    private TransferStockRequest transfer(Long fromProductoId, Long toProductoId, Integer quantity) {
+        TransferStockRequest transfer = new TransferStockRequest();
+        transfer.setFromSucursalId(1L);
+        transfer.setFromProductoId(fromProductoId);
+        transfer.setToSucursalId(2L);
+        transfer.setToProductoId(toProductoId);
+        transfer.setQuantity(quantity);
+        return transfer;
+    }
+
+    @Nested
+    @DisplayName("POST /api/inventario/transfers")
+    class TransferStock {
+
+        @Test
+        @DisplayName("returns 200 with both productos after the transfer")
+        void returns200WithBothProductos() throws Exception {
+            when(productoService.transferStock(any(TransferStockRequest.class))).thenReturn(new TransferStockResponse(
+                    new ProductoResponse(10L, "A", 6, 1L, 2L), new ProductoResponse(20L, "A", 4, 2L, 1L)));
+
+            mockMvc.perform(post("/api/inventario/transfers")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(objectMapper.writeValueAsString(transfer(10L, 20L, 4))))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.from.stock").value(6))
+                    .andExpect(jsonPath("$.to.stock").value(4));
+        }
+
+        @Test
+        @DisplayName("returns 409 when the source lacks stock")
+        void returns409WhenStockIsInsufficient() throws Exception {
+            when(productoService.transferStock(any(TransferStockRequest.class)))
+                    .thenThrow(new ConflictException("Insufficient stock for producto: 10"));
+
+            mockMvc.perform(post("/api/inventario/transfers")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(objectMapper.writeValueAsString(transfer(10L, 20L, 400))))
+                    .andExpect(status().isConflict())
+                    .andExpect(jsonPath("$.error").value("Insufficient stock for producto: 10"));
+        }
+
+        @Test
+        @DisplayName("returns 400 when the quantity is not positive")
+        void returns400WhenQuantityNotPositive() throws Exception {
+            mockMvc.perform(post("/api/inventario/transfers")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(objectMapper.writeValueAsString(transfer(10L, 20L, 0))))
+                    .andExpect(status().isBadRequest())
+                    .andExpect(jsonPath("$.error").value("quantity: Quantity must be positive"));
+
+            verify(productoService, never()).transferStock(any());
+        }
+    }
+
+    @Nested
+    @DisplayName("POST /api/inventario/transfers/batch")
+    class TransferStocks {
+
+        @Test
+        @DisplayName("returns 200 with every producto the plan changed")
+        void returns200WithChangedProductos() throws Exception {
+            when(productoService.transferStocks(anyList())).thenReturn(List.of(
+                    new ProductoResponse(10L, "A", 6, 1L, 2L), new ProductoResponse(20L, "A", 4, 2L, 1L)));
+
+            mockMvc.perform(post("/api/inventario/transfers/batch")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(objectMapper.writeValueAsString(List.of(transfer(10L, 20L, 4)))))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$[1].id").value(20));
+        }
+
+        @Test
+        @DisplayName("returns 400 when a line is invalid")
+        void returns400WhenALineIsInvalid() throws Exception {
+            mockMvc.perform(post("/api/inventario/transfers/batch")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(objectMapper.writeValueAsString(List.of(
+                                    transfer(10L, 20L, 4), transfer(10L, null, 4)))))
+                    .andExpect(status().isBadRequest())
+                    .andExpect(jsonPath("$.error").value(containsString("[1].toProductoId")));
+
+            verify(productoService, never()).transferStocks(anyList());
+        }
+    }
+
+    @Nested
+    @DisplayName("GET /api/inventario/export")
+    class Export {
+
+        @Test
+        @DisplayName("streams the rows written by the export service")
+        void streamsExport() throws Exception {
+            doAnswer(invocation -> {
+                OutputStream out = invocation.getArgument(2);
+                out.write("{\"productoId\":10}\n".getBytes(StandardCharsets.UTF_8));
+                return null;
+            }).when(inventarioExportService).export(eq(1L), eq(InventarioFormat.NDJSON), any());
+
+            MvcResult result = mockMvc.perform(get("/api/inventario/export?franquiciaId=1"))
+                    .andExpect(request().asyncStarted())
+                    .andReturn();
+
+            mockMvc.perform(asyncDispatch(result))
+                    .andExpect(status().isOk())
+                    .andExpect(header().string("Content-Type", "application/x-ndjson;charset=UTF-8"))
+                    .andExpect(header().string("Content-Disposition", containsString("inventario-1.ndjson")))
+                    .andExpect(content().string("{\"productoId\":10}\n"));
+            verify(franquiciaService).checkExists(1L);
+        }
+
+        @Test
+        @DisplayName("returns 404 before streaming when franquicia does not exist")
+        void returns404WhenFranquiciaNotFound() throws Exception {
+            doThrow(new NotFoundException("Franquicia not found: 999")).when(franquiciaService).checkExists(999L);
+
+            mockMvc.perform(get("/api/inventario/export?franquiciaId=999&format=csv"))
+                    .andExpect(status().isNotFound())
+                    .andExpect(jsonPath("$.error").value("Franquicia not found: 999"));
+            verifyNoInteractions(inventarioExportService);
+        }
+
+        @Test
+        @DisplayName("returns 400 for an unknown format")
+        void returns400ForUnknownFormat() throws Exception {
+            mockMvc.perform(get("/api/inventario/export?franquiciaId=1&format=xml"))
+                    .andExpect(status().isBadRequest())
+                    .andExpect(jsonPath("$.error").value(containsString("Invalid format: xml")));
+            verifyNoInteractions(franquiciaService, inventarioExportService);
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package com.franquicias.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Walks through every endpoint with a {@link com.franquicias.metrics.StatementBudget}. The
+ * test configuration fails requests over budget, so an N+1 regression turns into a 500 here.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+class StatementBudgetIntegrationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private long idOf(ResultActions result) throws Exception {
+        JsonNode body = objectMapper.readTree(result.andReturn().getResponse().getContentAsString());
+        return body.get("id").asLong();
+    }
+
+    @Test
+    @DisplayName("every budgeted endpoint stays within its statement budget")
+    void endpointsStayWithinBudget() throws Exception {
+        long franquiciaId = idOf(mockMvc.perform(post("/api/franquicias")
+                .contentType(MediaType.APPLICATION_JSON).content("{\"name\":\"Franquicia\"}"))
+                .andExpect(status().isCreated()));
+        long sucursalId = idOf(mockMvc.perform(post("/api/franquicias/" + franquiciaId + "/sucursales")
+                .contentType(MediaType.APPLICATION_JSON).content("{\"name\":\"Centro\"}"))
+                .andExpect(status().isCreated()));
+        String productos = "/api/sucursales/" + sucursalId + "/productos";
+        long productoId = idOf(mockMvc.perform(post(productos)
+                .contentType(MediaType.APPLICATION_JSON).content("{\"name\":\"A\",\"stock\":5}"))
+                .andExpect(status().isCreated()));
+        long otroId = idOf(mockMvc.perform(post(productos)
+                .contentType(MediaType.APPLICATION_JSON).content("{\"name\":\"B\",\"stock\":7}"))
+                .andExpect(status().isCreated()));
+
+        mockMvc.perform(patch("/api/franquicias/" + franquiciaId + "/name")
+                .contentType(MediaType.APPLICATION_JSON).content("{\"name\":\"Franquicia 2\"}"))
+                .andExpect(status().isOk());
+        mockMvc.perform(patch("/api/franquicias/" + franquiciaId + "/sucursales/" + sucursalId + "/name")
+                .contentType(MediaType.APPLICATION_JSON).content("{\"name\":\"Centro 2\"}"))
+                .andExpect(status().isOk());
+        mockMvc.perform(patch(productos + "/" + productoId + "/stock")
+                .contentType(MediaType.APPLICATION_JSON).content("{\"stock\":20}"))
+                .andExpect(status().isOk());
+        mockMvc.perform(post(productos + "/" + productoId + "/stock/adjust")
+                .contentType(MediaType.APPLICATION_JSON).content("{\"delta\":-3}"))
+                .andExpect(status().isOk());
+        long norteId = idOf(mockMvc.perform(post("/api/franquicias/" + franquiciaId + "/sucursales")
+                .contentType(MediaType.APPLICATION_JSON).content("{\"name\":\"Norte\"}"))
+                .andExpect(status().isCreated()));
+        long norteProductoId = idOf(mockMvc.perform(post("/api/sucursales/" + norteId + "/productos")
+                .contentType(MediaType.APPLICATION_JSON).content("{\"name\":\"A\",\"stock\":0}"))
+                .andExpect(status().isCreated()));
+        String transfer = "{\"fromSucursalId\":" + sucursalId + ",\"fromProductoId\":" + productoId
+                + ",\"toSucursalId\":" + norteId + ",\"toProductoId\":" + norteProductoId + ",\"quantity\":2}";
+        mockMvc.perform(post("/api/inventario/transfers")
+                .contentType(MediaType.APPLICATION_JSON).content(transfer))
+                .andExpect(status().isOk());
+        mockMvc.perform(patch(productos + "/" + productoId + "/name")
+                .contentType(MediaType.APPLICATION_JSON).content("{\"name\":\"A2\"}"))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/api/franquicias/" + franquiciaId + "/productos-max-stock"))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/api/franquicias/" + franquiciaId + "/productos-max-stock"))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/api/franquicias/" + franquiciaId + "/inventario"))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/api/franquicias/" + franquiciaId + "/sucursales/" + norteId + "/inventario"))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/api/franquicias?limit=1"))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/api/franquicias/" + franquiciaId + "/sucursales"))
+                .andExpect(status().isOk());
+        for (String sort : new String[]{"id", "name", "stock"}) {
+            mockMvc.perform(get(productos + "?limit=1&sort=" + sort))
+                    .andExpect(status().isOk());
+        }
+        mockMvc.perform(delete(productos + "/" + otroId))
+                .andExpect(status().isNoContent());
+        mockMvc.perform(delete(productos + "?maxStock=0"))
+                .andExpect(status().isOk());
+        mockMvc.perform(delete(productos + "?ids=" + productoId + ",999"))
+                .andExpect(status().isOk());
+        mockMvc.perform(delete(productos + "?all=true"))
+                .andExpect(status().isOk());
+
+
+        // Deletes are not budgeted; the status of a background deletion runs no SQL at all.
+        String location = mockMvc.perform(delete("/api/franquicias/" + franquiciaId + "?async=true"))
+                .andExpect(status().isAccepted())
+                .andReturn().getResponse().getHeader(HttpHeaders.LOCATION);
+        mockMvc.perform(get(location))
+                .andExpect(status().isOk());
+    }
+}
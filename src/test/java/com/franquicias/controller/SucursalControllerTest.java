@@ -1,12 +1,17 @@
 package com.franquicias.controller;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.franquicias.dto.AdjustStockRequest;
 import com.franquicias.dto.CreateProductoRequest;
+import com.franquicias.dto.CursorPage;
 import com.franquicias.dto.ProductoResponse;
+import com.franquicias.dto.ProductoSort;
 import com.franquicias.dto.UpdateProductoNameRequest;
 import com.franquicias.dto.UpdateStockRequest;
+import com.franquicias.exception.ConflictException;
 import com.franquicias.exception.GlobalExceptionHandler;
 import com.franquicias.exception.NotFoundException;
+import com.franquicias.exception.VersionConflictException;
 import com.franquicias.service.ProductoService;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Nested;
@@ -15,9 +20,13 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 
+import java.util.List;
+
+import static org.hamcrest.Matchers.containsString;
 import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
@@ -36,6 +45,52 @@ class SucursalControllerTest {
     @MockBean
     private ProductoService productoService;
 
+    @Nested
+    @DisplayName("GET /api/sucursales/{sucursalId}/productos")
+    class ListProductos {
+
+        @Test
+        @DisplayName("returns 200 with the page and the cursor of the next one")
+        void returnsPage() throws Exception {
+            when(productoService.listProductos(1L, ProductoSort.STOCK, "abc", 2)).thenReturn(new CursorPage<>(
+                    List.of(new ProductoResponse(5L, "A", 90, 1L, 0L), new ProductoResponse(3L, "B", 80, 1L, 0L)),
+                    "next"));
+
+            mockMvc.perform(get("/api/sucursales/1/productos?sort=stock&after=abc&limit=2"))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.items[0].id").value(5))
+                    .andExpect(jsonPath("$.items[1].stock").value(80))
+                    .andExpect(jsonPath("$.nextCursor").value("next"));
+        }
+
+        @Test
+        @DisplayName("defaults to id order and pages of 50")
+        void defaultsToIdOrder() throws Exception {
+            when(productoService.listProductos(1L, ProductoSort.ID, null, 50))
+                    .thenReturn(new CursorPage<>(List.of(), null));
+
+            mockMvc.perform(get("/api/sucursales/1/productos"))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.items").isEmpty());
+        }
+
+        @Test
+        @DisplayName("returns 400 for an unknown sort")
+        void returns400ForUnknownSort() throws Exception {
+            mockMvc.perform(get("/api/sucursales/1/productos?sort=price"))
+                    .andExpect(status().isBadRequest())
+                    .andExpect(jsonPath("$.error").value(containsString("Invalid sort: price")));
+        }
+
+        @Test
+        @DisplayName("returns 400 when the page size is out of range")
+        void returns400ForPageSizeOutOfRange() throws Exception {
+            mockMvc.perform(get("/api/sucursales/1/productos?limit=501"))
+                    .andExpect(status().isBadRequest());
+            verifyNoInteractions(productoService);
+        }
+    }
+
     @Nested
     @DisplayName("POST /api/sucursales/{sucursalId}/productos")
     class AddProducto {
@@ -95,6 +150,63 @@ class SucursalControllerTest {
         }
     }
 
+    @Nested
+    @DisplayName("POST /api/sucursales/{sucursalId}/productos/batch")
+    class AddProductos {
+
+        private CreateProductoRequest request(String name, Integer stock) {
+            CreateProductoRequest request = new CreateProductoRequest();
+            request.setName(name);
+            request.setStock(stock);
+            return request;
+        }
+
+        @Test
+        @DisplayName("returns 201 and one result per item when valid")
+        void returns201AndItemResultsWhenValid() throws Exception {
+            List<CreateProductoRequest> request = List.of(request("A", 1), request("B", 2));
+            when(productoService.createProductos(eq(1L), anyList())).thenReturn(List.of(
+                    new ProductoResponse(10L, "A", 1, 1L),
+                    new ProductoResponse(11L, "B", 2, 1L)));
+
+            mockMvc.perform(post("/api/sucursales/1/productos/batch")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(objectMapper.writeValueAsString(request)))
+                    .andExpect(status().isCreated())
+                    .andExpect(jsonPath("$.total").value(2))
+                    .andExpect(jsonPath("$.succeeded").value(2))
+                    .andExpect(jsonPath("$.items[0].index").value(0))
+                    .andExpect(jsonPath("$.items[0].producto.id").value(10))
+                    .andExpect(jsonPath("$.items[1].producto.name").value("B"));
+        }
+
+        @Test
+        @DisplayName("returns 400 without persisting anything when an item is invalid")
+        void returns400WhenAnItemIsInvalid() throws Exception {
+            List<CreateProductoRequest> request = List.of(request("A", 1), request("", -1));
+
+            mockMvc.perform(post("/api/sucursales/1/productos/batch")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(objectMapper.writeValueAsString(request)))
+                    .andExpect(status().isBadRequest())
+                    .andExpect(jsonPath("$.error").value(containsString("[1].name: Name is required")))
+                    .andExpect(jsonPath("$.error").value(containsString("[1].stock: Stock cannot be negative")));
+
+            verify(productoService, never()).createProductos(anyLong(), anyList());
+        }
+
+        @Test
+        @DisplayName("returns 400 when the batch is empty")
+        void returns400WhenEmpty() throws Exception {
+            mockMvc.perform(post("/api/sucursales/1/productos/batch")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content("[]"))
+                    .andExpect(status().isBadRequest());
+
+            verify(productoService, never()).createProductos(anyLong(), anyList());
+        }
+    }
+
     @Nested
     @DisplayName("DELETE /api/sucursales/{sucursalId}/productos/{productoId}")
     class DeleteProducto {
@@ -126,6 +238,52 @@ class SucursalControllerTest {
         }
     }
 
+    @Nested
+    @DisplayName("DELETE /api/sucursales/{sucursalId}/productos")
+    class DeleteProductos {
+
+        @Test
+        @DisplayName("deletes the given ids and returns the count")
+        void deletesIds() throws Exception {
+            when(productoService.deleteProductos(1L, List.of(2L, 3L))).thenReturn(2);
+
+            mockMvc.perform(delete("/api/sucursales/1/productos?ids=2,3"))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.deleted").value(2));
+        }
+
+        @Test
+        @DisplayName("deletes the productos with stock up to maxStock")
+        void deletesByStock() throws Exception {
+            when(productoService.deleteProductosMatching(1L, 0)).thenReturn(4);
+
+            mockMvc.perform(delete("/api/sucursales/1/productos?maxStock=0"))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.deleted").value(4));
+        }
+
+        @Test
+        @DisplayName("deletes every producto with all=true")
+        void deletesAll() throws Exception {
+            when(productoService.deleteProductosMatching(1L, null)).thenReturn(10);
+
+            mockMvc.perform(delete("/api/sucursales/1/productos?all=true"))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.deleted").value(10));
+        }
+
+        @Test
+        @DisplayName("returns 400 unless exactly one filter is given")
+        void returns400WithoutExactlyOneFilter() throws Exception {
+            mockMvc.perform(delete("/api/sucursales/1/productos"))
+                    .andExpect(status().isBadRequest())
+                    .andExpect(jsonPath("$.error").value("Pass exactly one of ids, maxStock or all=true"));
+            mockMvc.perform(delete("/api/sucursales/1/productos?ids=2&all=true"))
+                    .andExpect(status().isBadRequest());
+            verifyNoInteractions(productoService);
+        }
+    }
+
     @Nested
     @DisplayName("PATCH /api/sucursales/{sucursalId}/productos/{productoId}/stock")
     class UpdateStock {
@@ -139,7 +297,7 @@ class SucursalControllerTest {
             request.setStock(50);
             ProductoResponse response = new ProductoResponse(productoId, "P", 50, sucursalId);
 
-            when(productoService.updateStock(sucursalId, productoId, 50)).thenReturn(response);
+            when(productoService.updateStock(sucursalId, productoId, 50, null)).thenReturn(response);
 
             mockMvc.perform(patch("/api/sucursales/" + sucursalId + "/productos/" + productoId + "/stock")
                             .contentType(MediaType.APPLICATION_JSON)
@@ -147,7 +305,7 @@ class SucursalControllerTest {
                     .andExpect(status().isOk())
                     .andExpect(jsonPath("$.stock").value(50));
 
-            verify(productoService).updateStock(sucursalId, productoId, 50);
+            verify(productoService).updateStock(sucursalId, productoId, 50, null);
         }
 
         @Test
@@ -156,7 +314,7 @@ class SucursalControllerTest {
             UpdateStockRequest request = new UpdateStockRequest();
             request.setStock(10);
 
-            when(productoService.updateStock(1L, 999L, 10))
+            when(productoService.updateStock(1L, 999L, 10, null))
                     .thenThrow(new NotFoundException("Producto not found: 999"));
 
             mockMvc.perform(patch("/api/sucursales/1/productos/999/stock")
@@ -165,6 +323,39 @@ class SucursalControllerTest {
                     .andExpect(status().isNotFound());
         }
 
+        @Test
+        @DisplayName("passes If-Match to the service and returns the new version as ETag")
+        void passesIfMatchAndReturnsETag() throws Exception {
+            UpdateStockRequest request = new UpdateStockRequest();
+            request.setStock(50);
+
+            when(productoService.updateStock(1L, 2L, 50, 3L)).thenReturn(new ProductoResponse(2L, "P", 50, 1L, 4L));
+
+            mockMvc.perform(patch("/api/sucursales/1/productos/2/stock")
+                            .header(HttpHeaders.IF_MATCH, "\"3\"")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(objectMapper.writeValueAsString(request)))
+                    .andExpect(status().isOk())
+                    .andExpect(header().string(HttpHeaders.ETAG, "\"4\""));
+        }
+
+        @Test
+        @DisplayName("returns 409 with the current version when If-Match is stale")
+        void returns409WhenIfMatchIsStale() throws Exception {
+            UpdateStockRequest request = new UpdateStockRequest();
+            request.setStock(50);
+
+            when(productoService.updateStock(1L, 2L, 50, 3L))
+                    .thenThrow(new VersionConflictException("Producto 2 was modified", 6L));
+
+            mockMvc.perform(patch("/api/sucursales/1/productos/2/stock")
+                            .header(HttpHeaders.IF_MATCH, "\"3\"")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(objectMapper.writeValueAsString(request)))
+                    .andExpect(status().isConflict())
+                    .andExpect(jsonPath("$.currentVersion").value(6));
+        }
+
         @Test
         @DisplayName("returns 400 when stock is negative")
         void returns400WhenStockNegative() throws Exception {
@@ -200,7 +391,7 @@ class SucursalControllerTest {
             request.setName("Producto Renombrado");
             ProductoResponse response = new ProductoResponse(productoId, "Producto Renombrado", 10, sucursalId);
 
-            when(productoService.updateProductoName(sucursalId, productoId, "Producto Renombrado"))
+            when(productoService.updateProductoName(sucursalId, productoId, "Producto Renombrado", null))
                     .thenReturn(response);
 
             mockMvc.perform(patch("/api/sucursales/" + sucursalId + "/productos/" + productoId + "/name")
@@ -212,7 +403,7 @@ class SucursalControllerTest {
                     .andExpect(jsonPath("$.stock").value(10))
                     .andExpect(jsonPath("$.sucursalId").value(1));
 
-            verify(productoService).updateProductoName(sucursalId, productoId, "Producto Renombrado");
+            verify(productoService).updateProductoName(sucursalId, productoId, "Producto Renombrado", null);
         }
 
         @Test
@@ -221,7 +412,7 @@ class SucursalControllerTest {
             UpdateProductoNameRequest request = new UpdateProductoNameRequest();
             request.setName("Producto Renombrado");
 
-            when(productoService.updateProductoName(1L, 999L, "Producto Renombrado"))
+            when(productoService.updateProductoName(1L, 999L, "Producto Renombrado", null))
                     .thenThrow(new NotFoundException("Producto not found: 999"));
 
             mockMvc.perform(patch("/api/sucursales/1/productos/999/name")
@@ -243,4 +434,52 @@ class SucursalControllerTest {
                     .andExpect(status().isBadRequest());
         }
     }
+
+    @Nested
+    @DisplayName("POST /api/sucursales/{sucursalId}/productos/{productoId}/stock/adjust")
+    class AdjustStock {
+
+        private AdjustStockRequest request(Integer delta) {
+            AdjustStockRequest request = new AdjustStockRequest();
+            request.setDelta(delta);
+            return request;
+        }
+
+        @Test
+        @DisplayName("returns 200 with the adjusted producto")
+        void returns200WithAdjustedProducto() throws Exception {
+            when(productoService.adjustStock(1L, 2L, -3)).thenReturn(new ProductoResponse(2L, "P", 7, 1L));
+
+            mockMvc.perform(post("/api/sucursales/1/productos/2/stock/adjust")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(objectMapper.writeValueAsString(request(-3))))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.stock").value(7));
+        }
+
+        @Test
+        @DisplayName("returns 409 when stock is insufficient")
+        void returns409WhenStockIsInsufficient() throws Exception {
+            when(productoService.adjustStock(1L, 2L, -30))
+                    .thenThrow(new ConflictException("Insufficient stock for producto: 2"));
+
+            mockMvc.perform(post("/api/sucursales/1/productos/2/stock/adjust")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(objectMapper.writeValueAsString(request(-30))))
+                    .andExpect(status().isConflict())
+                    .andExpect(jsonPath("$.error").value("Insufficient stock for producto: 2"));
+        }
+
+        @Test
+        @DisplayName("returns 400 when delta is missing")
+        void returns400WhenDeltaIsMissing() throws Exception {
+            mockMvc.perform(post("/api/sucursales/1/productos/2/stock/adjust")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content("{}"))
+                    .andExpect(status().isBadRequest())
+                    .andExpect(jsonPath("$.error").value(containsString("delta: Delta is required")));
+
+            verify(productoService, never()).adjustStock(anyLong(), anyLong(), anyInt());
+        }
+    }
 }
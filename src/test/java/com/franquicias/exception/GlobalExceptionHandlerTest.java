@@ -1,13 +1,19 @@
 package com.franquicias.exception;
 
+import com.franquicias.entity.Producto;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.validation.BindingResult;
+import org.springframework.context.support.DefaultMessageSourceResolvable;
+import org.springframework.core.MethodParameter;
 import org.springframework.validation.FieldError;
+import org.springframework.validation.method.ParameterValidationResult;
 import org.springframework.web.bind.MethodArgumentNotValidException;
+import org.springframework.web.method.annotation.HandlerMethodValidationException;
 
 import java.util.List;
 import java.util.Map;
@@ -36,6 +42,57 @@ class GlobalExceptionHandlerTest {
         }
     }
 
+    @Nested
+    @DisplayName("handleConflict")
+    class HandleConflict {
+
+        @Test
+        @DisplayName("returns 409 and error message")
+        void returns409AndMessage() {
+            ConflictException ex = new ConflictException("Insufficient stock for producto: 1");
+
+            ResponseEntity<Map<String, String>> response = handler.handleConflict(ex);
+
+            assertThat(response.getStatusCode()).isEqualTo(HttpStatus.CONFLICT);
+            assertThat(response.getBody()).containsEntry("error", "Insufficient stock for producto: 1");
+        }
+    }
+
+    @Nested
+    @DisplayName("handleVersionConflict")
+    class HandleVersionConflict {
+
+        @Test
+        @DisplayName("returns 409 with the current version")
+        void returns409WithCurrentVersion() {
+            VersionConflictException ex = new VersionConflictException("Producto 1 was modified", 7L);
+
+            ResponseEntity<Map<String, Object>> response = handler.handleVersionConflict(ex);
+
+            assertThat(response.getStatusCode()).isEqualTo(HttpStatus.CONFLICT);
+            assertThat(response.getBody())
+                    .containsEntry("error", "Producto 1 was modified")
+                    .containsEntry("currentVersion", 7L);
+        }
+    }
+
+    @Nested
+    @DisplayName("handleOptimisticLockingFailure")
+    class HandleOptimisticLockingFailure {
+
+        @Test
+        @DisplayName("returns 409 naming the entity that was modified concurrently")
+        void returns409NamingEntity() {
+            ObjectOptimisticLockingFailureException ex =
+                    new ObjectOptimisticLockingFailureException(Producto.class, 5L);
+
+            ResponseEntity<Map<String, String>> response = handler.handleOptimisticLockingFailure(ex);
+
+            assertThat(response.getStatusCode()).isEqualTo(HttpStatus.CONFLICT);
+            assertThat(response.getBody()).containsEntry("error", "Producto 5 was modified concurrently");
+        }
+    }
+
     @Nested
     @DisplayName("handleIllegalArgument")
     class HandleIllegalArgument {
@@ -76,4 +133,33 @@ class GlobalExceptionHandlerTest {
             assertThat(error).contains("stock: must be >= 0");
         }
     }
+
+    @Nested
+    @DisplayName("handleMethodValidation")
+    class HandleMethodValidation {
+
+        @Test
+        @DisplayName("returns 400 with item and parameter errors message")
+        void returns400WithItemErrors() {
+            ParameterValidationResult itemResult = mock(ParameterValidationResult.class);
+            when(itemResult.getContainerIndex()).thenReturn(3);
+            when(itemResult.getResolvableErrors()).thenReturn(List.of(
+                    new FieldError("request", "name", "Name is required")));
+            MethodParameter parameter = mock(MethodParameter.class);
+            when(parameter.getParameterName()).thenReturn("request");
+            ParameterValidationResult listResult = mock(ParameterValidationResult.class);
+            when(listResult.getMethodParameter()).thenReturn(parameter);
+            when(listResult.getResolvableErrors()).thenReturn(List.of(
+                    new DefaultMessageSourceResolvable(
+                            null, null, "size must be between 0 and 10000")));
+            HandlerMethodValidationException ex = mock(HandlerMethodValidationException.class);
+            when(ex.getAllValidationResults()).thenReturn(List.of(itemResult, listResult));
+
+            ResponseEntity<Map<String, String>> response = handler.handleMethodValidation(ex);
+
+            assertThat(response.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+            assertThat(response.getBody()).containsEntry("error",
+                    "[3].name: Name is required, request: size must be between 0 and 10000");
+        }
+    }
 }
@@ -0,0 +1,62 @@
+package com.franquicias.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.server.observation.ServerRequestObservationContext;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RequestStatementsObservationHandlerTest {
+
+    private final SqlStatementCounter statementCounter = new SqlStatementCounter();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private RequestStatementsObservationHandler handler;
+
+    @BeforeEach
+    void setUp() {
+        handler = new RequestStatementsObservationHandler(statementCounter, meterRegistry);
+    }
+
+    private ServerRequestObservationContext context(String method, String pathPattern) {
+        ServerRequestObservationContext context = new ServerRequestObservationContext(
+                new MockHttpServletRequest(method, "/ignored"), new MockHttpServletResponse());
+        context.setPathPattern(pathPattern);
+        return context;
+    }
+
+    @Test
+    @DisplayName("records the statements run between the start and the end of a request")
+    void recordsStatementsPerRequest() {
+        statementCounter.inspect("select 1");
+        ServerRequestObservationContext context = context("GET", "/api/franquicias/{franquiciaId}/productos-max-stock");
+
+        handler.onStart(context);
+        statementCounter.inspect("select 2");
+        statementCounter.inspect("select 3");
+        handler.onStop(context);
+
+        DistributionSummary summary = meterRegistry.get(RequestStatementsObservationHandler.METRIC)
+                .tag("method", "GET")
+                .tag("uri", "/api/franquicias/{franquiciaId}/productos-max-stock")
+                .summary();
+        assertThat(summary.count()).isEqualTo(1);
+        assertThat(summary.totalAmount()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("tags requests without a matching handler as UNKNOWN")
+    void tagsUnmatchedRequests() {
+        ServerRequestObservationContext context = context("POST", null);
+
+        handler.onStart(context);
+        handler.onStop(context);
+
+        assertThat(meterRegistry.get(RequestStatementsObservationHandler.METRIC).tag("uri", "UNKNOWN").summary().count())
+                .isEqualTo(1);
+    }
+}
@@ -0,0 +1,73 @@
+package com.franquicias.metrics;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class StatementBudgetAspectTest {
+
+    private final SqlStatementCounter statementCounter = new SqlStatementCounter();
+
+    @BeforeEach
+    void setUp() {
+        statementCounter.reset();
+    }
+
+    public static class Handler {
+
+        private final SqlStatementCounter statementCounter;
+
+        public Handler(SqlStatementCounter statementCounter) {
+            this.statementCounter = statementCounter;
+        }
+
+        @StatementBudget(2)
+        public String run(int statements) {
+            for (int i = 0; i < statements; i++) {
+                statementCounter.inspect("select " + i);
+            }
+            return "ok";
+        }
+    }
+
+    private Handler proxy(boolean failOnBreach) {
+        AspectJProxyFactory factory = new AspectJProxyFactory(new Handler(statementCounter));
+        factory.setProxyTargetClass(true);
+        factory.addAspect(new StatementBudgetAspect(statementCounter, failOnBreach));
+        return factory.getProxy();
+    }
+
+    @Test
+    @DisplayName("lets handlers within their budget through")
+    void allowsHandlersWithinBudget() {
+        assertThat(proxy(true).run(2)).isEqualTo("ok");
+    }
+
+    @Test
+    @DisplayName("fails handlers over their budget when configured to")
+    void failsHandlersOverBudget() {
+        assertThatThrownBy(() -> proxy(true).run(3))
+                .isInstanceOf(StatementBudgetExceededException.class)
+                .hasMessageContaining("ran 3 SQL statements, over its budget of 2");
+    }
+
+    @Test
+    @DisplayName("only logs handlers over their budget by default")
+    void onlyLogsByDefault() {
+        assertThat(proxy(false).run(3)).isEqualTo("ok");
+    }
+
+    @Test
+    @DisplayName("ignores statements run before the handler")
+    void countsOnlyTheHandlersStatements() {
+        statementCounter.inspect("select before");
+        statementCounter.inspect("select before");
+
+        assertThat(proxy(true).run(2)).isEqualTo("ok");
+        assertThat(statementCounter.statementsSince(2)).containsExactly("select 0", "select 1");
+    }
+}
@@ -0,0 +1,533 @@
+package com.franquicias.repository;
+
+import com.franquicias.cache.MaxStockIndex;
+import com.franquicias.cache.MaxStockReportCache;
+import com.franquicias.cache.ReferenceCache;
+import com.franquicias.cache.StockWriteBuffer;
+import com.franquicias.dto.InventarioExportRow;
+import com.franquicias.dto.InventarioSucursalResponse;
+import com.franquicias.dto.ProductoMaxStockPorSucursalResponse;
+import com.franquicias.dto.ProductoResponse;
+import com.franquicias.dto.TransferStockRequest;
+import com.franquicias.entity.Franquicia;
+import com.franquicias.entity.InventarioSucursal;
+import com.franquicias.entity.Producto;
+import com.franquicias.entity.Sucursal;
+import com.franquicias.exception.VersionConflictException;
+import com.franquicias.service.FranquiciaService;
+import com.franquicias.service.InventarioService;
+import com.franquicias.service.ProductoService;
+import com.franquicias.service.SucursalService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.test.context.TestPropertySource;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+
+// Properties go through @TestPropertySource: nested classes do not inherit @DataJpaTest(properties)
+// and would otherwise start a second context.
+@DataJpaTest
+@TestPropertySource(properties = {"spring.jpa.properties.hibernate.generate_statistics=true",
+        "franquicias.inventario-counters.reconcile-interval-ms=0"})
+@Import({ProductoService.class, SucursalService.class, FranquiciaService.class, InventarioService.class,
+        MaxStockIndex.class, StockWriteBuffer.class, ReferenceCache.class, MaxStockReportCache.class,
+        JacksonAutoConfiguration.class, SimpleMeterRegistry.class})
+class ProductoRepositoryTest {
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private ProductoRepository productoRepository;
+
+    @Autowired
+    private ProductoService productoService;
+
+    @Autowired
+    private InventarioSucursalRepository inventarioRepository;
+
+    @Autowired
+    private InventarioService inventarioService;
+
+    private Franquicia franquicia(String name) {
+        Franquicia franquicia = new Franquicia();
+        franquicia.setName(name);
+        return entityManager.persist(franquicia);
+    }
+
+    private Sucursal sucursal(Franquicia franquicia, String name) {
+        Sucursal sucursal = new Sucursal();
+        sucursal.setName(name);
+        sucursal.setFranquicia(franquicia);
+        return entityManager.persist(sucursal);
+    }
+
+    private Sucursal sucursalConInventario(Franquicia franquicia, String name) {
+        Sucursal sucursal = sucursal(franquicia, name);
+        entityManager.persist(new InventarioSucursal(sucursal));
+        return sucursal;
+    }
+
+    private Producto producto(Sucursal sucursal, String name, int stock) {
+        Producto producto = new Producto();
+        producto.setName(name);
+        producto.setStock(stock);
+        producto.setSucursal(sucursal);
+        return entityManager.persist(producto);
+    }
+
+    private long statementsFor(Runnable action) {
+        entityManager.flush();
+        entityManager.clear();
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        action.run();
+        return statistics.getPrepareStatementCount();
+    }
+
+    @Nested
+    @DisplayName("findMaxStockPorSucursal")
+    class FindMaxStockPorSucursal {
+
+        @Test
+        @DisplayName("returns the top producto of each sucursal of the franquicia only")
+        void returnsTopProductoPerSucursal() {
+            Franquicia franquicia = franquicia("Franquicia");
+            Sucursal centro = sucursal(franquicia, "Centro");
+            Sucursal norte = sucursal(franquicia, "Norte");
+            sucursal(franquicia, "Vacia");
+            producto(centro, "Bajo", 5);
+            Producto alto = producto(centro, "Alto", 50);
+            Producto norteTop = producto(norte, "Norte A", 7);
+            producto(norte, "Norte B", 7);
+            Sucursal otra = sucursal(franquicia("Otra"), "Otra");
+            producto(otra, "Ajeno", 100);
+            entityManager.flush();
+            entityManager.clear();
+
+            List<ProductoMaxStockPorSucursalResponse> result = productoRepository.findMaxStockPorSucursal(franquicia.getId());
+
+            assertThat(result).containsExactly(
+                    new ProductoMaxStockPorSucursalResponse(alto.getId(), "Alto", 50, centro.getId(), "Centro"),
+                    new ProductoMaxStockPorSucursalResponse(norteTop.getId(), "Norte A", 7, norte.getId(), "Norte"));
+        }
+    }
+
+    @Nested
+    @DisplayName("findTopByStockPorSucursal")
+    class FindTopByStockPorSucursal {
+
+        @Test
+        @DisplayName("returns up to limit productos per sucursal ordered by stock")
+        void returnsTopProductosPerSucursal() {
+            Franquicia franquicia = franquicia("Franquicia");
+            Sucursal centro = sucursal(franquicia, "Centro");
+            Sucursal norte = sucursal(franquicia, "Norte");
+            producto(centro, "A", 1);
+            Producto b = producto(centro, "B", 30);
+            Producto c = producto(centro, "C", 20);
+            Producto d = producto(norte, "D", 4);
+            entityManager.flush();
+
+            List<ProductoVersionView> result =
+                    productoRepository.findTopByStockPorSucursal(List.of(centro.getId(), norte.getId()), 2);
+
+            assertThat(result)
+                    .extracting(ProductoVersionView::getSucursalId, ProductoVersionView::getProductoId,
+                            ProductoVersionView::getName, ProductoVersionView::getStock, ProductoVersionView::getVersion)
+                    .containsExactlyInAnyOrder(
+                            tuple(centro.getId(), b.getId(), "B", 30, 0L),
+                            tuple(centro.getId(), c.getId(), "C", 20, 0L),
+                            tuple(norte.getId(), d.getId(), "D", 4, 0L));
+        }
+    }
+
+    @Nested
+    @DisplayName("streamInventarioByFranquiciaId")
+    class StreamInventarioByFranquiciaId {
+
+        @Test
+        @DisplayName("streams every producto of the franquicia without managing entities")
+        void streamsProductosOfFranquicia() {
+            Franquicia franquicia = franquicia("F");
+            Sucursal centro = sucursal(franquicia, "Centro");
+            Sucursal norte = sucursal(franquicia, "Norte");
+            Producto a = producto(centro, "A", 5);
+            Producto b = producto(norte, "B", 7);
+            producto(sucursal(franquicia("Otra"), "Sur"), "C", 9);
+            entityManager.flush();
+            entityManager.clear();
+
+            try (Stream<InventarioExportRow> rows = productoRepository.streamInventarioByFranquiciaId(franquicia.getId())) {
+                assertThat(rows.toList()).containsExactlyInAnyOrder(
+                        new InventarioExportRow(centro.getId(), "Centro", a.getId(), "A", 5, 0L),
+                        new InventarioExportRow(norte.getId(), "Norte", b.getId(), "B", 7, 0L));
+            }
+            assertThat(entityManager.getEntityManager().unwrap(Session.class).getStatistics().getEntityCount())
+                    .isZero();
+        }
+    }
+
+    @Nested
+    @DisplayName("conditional deletes")
+    class ConditionalDeletes {
+
+        @Test
+        @DisplayName("deletes a producto of the sucursal in one statement that returns its stock")
+        void deletesByIdAndSucursalId() {
+            Franquicia franquicia = franquicia("F");
+            Sucursal centro = sucursal(franquicia, "Centro");
+            Sucursal norte = sucursal(franquicia, "Norte");
+            Producto producto = producto(centro, "A", 5);
+
+            long statements = statementsFor(() -> {
+                assertThat(productoRepository.deleteByIdAndSucursalId(producto.getId(), norte.getId())).isEmpty();
+                assertThat(productoRepository.deleteByIdAndSucursalId(producto.getId(), centro.getId())).contains(5);
+            });
+
+            assertThat(statements).isEqualTo(2);
+            assertThat(productoRepository.findById(producto.getId())).isEmpty();
+        }
+
+        @Test
+        @DisplayName("deletes only the matching productos of the sucursal")
+        void deletesMatchingProductos() {
+            Franquicia franquicia = franquicia("F");
+            Sucursal centro = sucursal(franquicia, "Centro");
+            Sucursal norte = sucursal(franquicia, "Norte");
+            Producto agotado = producto(centro, "Agotado", 0);
+            Producto lleno = producto(centro, "Lleno", 9);
+            Producto otro = producto(centro, "Otro", 3);
+            Producto ajeno = producto(norte, "Ajeno", 0);
+            entityManager.flush();
+
+            assertThat(productoRepository.deleteBySucursalIdAndIdIn(centro.getId(), List.of(otro.getId(), ajeno.getId())))
+                    .isEqualTo(1);
+            assertThat(productoRepository.deleteBySucursalIdAndStockAtMost(centro.getId(), 0)).isEqualTo(1);
+            assertThat(productoRepository.findBySucursalId(centro.getId())).extracting(Producto::getId)
+                    .containsExactly(lleno.getId());
+            assertThat(productoRepository.deleteBySucursalId(centro.getId())).isEqualTo(1);
+            assertThat(productoRepository.findBySucursalId(norte.getId())).extracting(Producto::getId)
+                    .containsExactly(ajeno.getId());
+            assertThat(productoRepository.existsById(agotado.getId())).isFalse();
+        }
+    }
+
+    @Nested
+    @DisplayName("adjustStock")
+    class AdjustStock {
+
+        @Test
+        @DisplayName("applies deltas only while stock stays non-negative and the sucursal matches")
+        void appliesDeltaConditionally() {
+            Franquicia franquicia = franquicia("Franquicia");
+            Sucursal centro = sucursal(franquicia, "Centro");
+            Sucursal norte = sucursal(franquicia, "Norte");
+            Producto producto = producto(centro, "A", 5);
+            entityManager.flush();
+
+            assertThat(productoRepository.adjustStock(centro.getId(), producto.getId(), -5)).isEqualTo(1);
+            assertThat(productoRepository.adjustStock(centro.getId(), producto.getId(), -1)).isZero();
+            assertThat(productoRepository.adjustStock(norte.getId(), producto.getId(), 3)).isZero();
+            assertThat(productoRepository.adjustStock(centro.getId(), producto.getId(), 3)).isEqualTo(1);
+
+            assertThat(productoRepository.findResponseById(producto.getId())).get()
+                    .extracting(ProductoResponse::stock, ProductoResponse::version)
+                    .containsExactly(3, 2L);
+        }
+    }
+
+    @Nested
+    @DisplayName("adjustStocks")
+    class AdjustStocks {
+
+        @Test
+        @DisplayName("applies each delta only while stock stays non-negative and the sucursal matches")
+        void appliesDeltasConditionally() {
+            Franquicia franquicia = franquicia("Franquicia");
+            Sucursal centro = sucursal(franquicia, "Centro");
+            Sucursal norte = sucursal(franquicia, "Norte");
+            Producto a = producto(centro, "A", 5);
+            Producto b = producto(norte, "B", 2);
+            Producto c = producto(norte, "C", 1);
+            entityManager.flush();
+            entityManager.clear();
+
+            int[] counts = productoRepository.adjustStocks(List.of(
+                    new StockAdjustment(centro.getId(), a.getId(), -5),
+                    new StockAdjustment(norte.getId(), b.getId(), -3),
+                    new StockAdjustment(centro.getId(), c.getId(), 4)));
+
+            assertThat(counts).containsExactly(1, 0, 0);
+            assertThat(productoRepository.findResponsesByIdIn(List.of(c.getId(), b.getId(), a.getId())))
+                    .extracting(ProductoResponse::id, ProductoResponse::stock, ProductoResponse::version)
+                    .containsExactly(tuple(a.getId(), 0, 1L), tuple(b.getId(), 2, 0L), tuple(c.getId(), 1, 0L));
+        }
+
+        @Test
+        @DisplayName("lets a transfer plan route stock through a producto that starts empty")
+        void routesStockThroughEmptyProducto() {
+            Franquicia franquicia = franquicia("Franquicia");
+            Sucursal centro = sucursal(franquicia, "Centro");
+            Sucursal norte = sucursal(franquicia, "Norte");
+            Producto a = producto(centro, "A", 5);
+            Producto b = producto(norte, "A", 0);
+            Producto c = producto(centro, "A", 0);
+            entityManager.flush();
+            entityManager.clear();
+
+            List<ProductoResponse> result = productoService.transferStocks(List.of(
+                    transfer(norte.getId(), b.getId(), centro.getId(), c.getId(), 4),
+                    transfer(centro.getId(), a.getId(), norte.getId(), b.getId(), 5)));
+
+            assertThat(result).extracting(ProductoResponse::id, ProductoResponse::stock)
+                    .containsExactly(tuple(a.getId(), 0), tuple(b.getId(), 1), tuple(c.getId(), 4));
+        }
+
+        private TransferStockRequest transfer(Long fromSucursalId, Long fromProductoId,
+                                              Long toSucursalId, Long toProductoId, int quantity) {
+            TransferStockRequest transfer = new TransferStockRequest();
+            transfer.setFromSucursalId(fromSucursalId);
+            transfer.setFromProductoId(fromProductoId);
+            transfer.setToSucursalId(toSucursalId);
+            transfer.setToProductoId(toProductoId);
+            transfer.setQuantity(quantity);
+            return transfer;
+        }
+    }
+
+    @Nested
+    @DisplayName("updateStocks")
+    class UpdateStocks {
+
+        @Test
+        @DisplayName("updates only productos that belong to the given sucursal")
+        void updatesOnlyOwnedProductos() {
+            Franquicia franquicia = franquicia("Franquicia");
+            Sucursal centro = sucursal(franquicia, "Centro");
+            Sucursal norte = sucursal(franquicia, "Norte");
+            Producto a = producto(centro, "A", 1);
+            Producto b = producto(norte, "B", 2);
+            entityManager.flush();
+            entityManager.clear();
+
+            int[] counts = productoRepository.updateStocks(List.of(
+                    new StockUpdate(centro.getId(), a.getId(), 10),
+                    new StockUpdate(centro.getId(), b.getId(), 20)));
+
+            assertThat(counts).containsExactly(1, 0);
+            assertThat(productoRepository.findStockViewsByIdIn(List.of(a.getId(), b.getId())))
+                    .extracting(ProductoStockView::getProductoId, ProductoStockView::getStock)
+                    .containsExactlyInAnyOrder(tuple(a.getId(), 10), tuple(b.getId(), 2));
+        }
+
+        @Test
+        @DisplayName("returns counts in request order and keeps the last update of a repeated producto")
+        void mapsCountsBackToRequestOrder() {
+            Sucursal centro = sucursal(franquicia("Franquicia"), "Centro");
+            Producto a = producto(centro, "A", 1);
+            Producto b = producto(centro, "B", 2);
+            entityManager.flush();
+            entityManager.clear();
+
+            int[] counts = productoRepository.updateStocks(List.of(
+                    new StockUpdate(centro.getId(), b.getId(), 20),
+                    new StockUpdate(centro.getId(), -1L, 30),
+                    new StockUpdate(centro.getId(), a.getId(), 10),
+                    new StockUpdate(centro.getId(), b.getId(), 21)));
+
+            assertThat(counts).containsExactly(1, 0, 1, 1);
+            assertThat(productoRepository.findStockViewsByIdIn(List.of(a.getId(), b.getId())))
+                    .extracting(ProductoStockView::getProductoId, ProductoStockView::getStock)
+                    .containsExactlyInAnyOrder(tuple(a.getId(), 10), tuple(b.getId(), 21));
+        }
+    }
+
+    @Nested
+    @DisplayName("versioning")
+    class Versioning {
+
+        @Test
+        @DisplayName("bumps the producto version on update but not the sucursal version on insert")
+        void bumpsOnlyTheUpdatedRow() {
+            Sucursal sucursal = sucursal(franquicia("Franquicia"), "Centro");
+            entityManager.flush();
+
+            ProductoResponse created = productoService.createProducto(sucursal.getId(), "A", null, 1);
+            ProductoResponse renamed = productoService.updateProductoName(sucursal.getId(), created.id(), "B", 0L);
+            entityManager.flush();
+            entityManager.clear();
+
+            assertThat(renamed.version()).isEqualTo(1L);
+            assertThat(entityManager.find(Sucursal.class, sucursal.getId()).getVersion()).isZero();
+        }
+
+        @Test
+        @DisplayName("updates stock with one update and one counter update, and name with one update and "
+                + "one projection read")
+        void targetedUpdatesRunFewStatements() {
+            Producto producto = producto(sucursal(franquicia("Franquicia"), "Centro"), "A", 5);
+            Long sucursalId = producto.getSucursal().getId();
+
+            long stockStatements = statementsFor(() ->
+                    assertThat(productoService.updateStock(sucursalId, producto.getId(), 9, 0L).version()).isEqualTo(1L));
+            long nameStatements = statementsFor(() ->
+                    assertThat(productoService.updateProductoName(sucursalId, producto.getId(), "B").name()).isEqualTo("B"));
+
+            assertThat(stockStatements).isEqualTo(2);
+            assertThat(nameStatements).isEqualTo(2);
+        }
+
+        @Test
+        @DisplayName("does not update a producto whose version moved on")
+        void skipsStaleVersion() {
+            Producto producto = producto(sucursal(franquicia("Franquicia"), "Centro"), "A", 5);
+            entityManager.flush();
+
+            assertThat(productoRepository.updateStock(producto.getSucursal().getId(), producto.getId(), 9, 7L)).isEmpty();
+            assertThatThrownBy(() -> productoService.updateStock(producto.getSucursal().getId(), producto.getId(), 9, 7L))
+                    .isInstanceOf(VersionConflictException.class);
+        }
+
+        @Test
+        @DisplayName("returns the row a stock update replaced")
+        void returnsReplacedRow() {
+            Producto producto = producto(sucursal(franquicia("Franquicia"), "Centro"), "A", 5);
+            entityManager.flush();
+
+            ProductoVersionView replaced = productoRepository
+                    .updateStock(producto.getSucursal().getId(), producto.getId(), 9, 0L).orElseThrow();
+
+            assertThat(replaced.getStock()).isEqualTo(5);
+            assertThat(replaced.getVersion()).isZero();
+            assertThat(replaced.getName()).isEqualTo("A");
+            assertThat(productoRepository.findResponseById(producto.getId())).get()
+                    .extracting(ProductoResponse::stock, ProductoResponse::version)
+                    .containsExactly(9, 1L);
+        }
+
+        @Test
+        @DisplayName("rejects writing a stale copy of a producto")
+        void rejectsStaleCopy() {
+            Producto producto = producto(sucursal(franquicia("Franquicia"), "Centro"), "A", 5);
+            entityManager.flush();
+            entityManager.clear();
+            Producto stale = productoRepository.findById(producto.getId()).orElseThrow();
+            entityManager.clear();
+            productoRepository.adjustStock(stale.getSucursal().getId(), stale.getId(), 1);
+
+            stale.setStock(0);
+
+            assertThatThrownBy(() -> productoRepository.saveAndFlush(stale))
+                    .isInstanceOf(ObjectOptimisticLockingFailureException.class);
+        }
+    }
+
+    @Nested
+    @DisplayName("inventory counters")
+    class InventoryCounters {
+
+        @Test
+        @DisplayName("stay equal to a count of the productos through creates, stock changes and deletes")
+        void followProductoWrites() {
+            Franquicia franquicia = franquicia("Franquicia");
+            Sucursal centro = sucursalConInventario(franquicia, "Centro");
+            Sucursal norte = sucursalConInventario(franquicia, "Norte");
+            entityManager.flush();
+
+            Long a = productoService.createProducto(centro.getId(), "A", null, 5).id();
+            Long b = productoService.createProducto(centro.getId(), "B", null, 0).id();
+            Long c = productoService.createProducto(norte.getId(), "C", null, 2).id();
+            productoService.adjustStock(centro.getId(), a, -5);
+            productoService.updateStock(centro.getId(), b, 7);
+            productoService.deleteProductoFromSucursal(norte.getId(), c);
+            assertThat(productoService.deleteProductosMatching(centro.getId(), 0)).isEqualTo(1);
+
+            assertThat(inventarioRepository.findResponsesByFranquiciaId(franquicia.getId())).containsExactly(
+                    new InventarioSucursalResponse(centro.getId(), "Centro", 1L, 7L, 0L),
+                    new InventarioSucursalResponse(norte.getId(), "Norte", 0L, 0L, 0L));
+            assertThat(inventarioRepository.findCountsAfter(0, 10)).noneMatch(InventarioCount::drifted);
+        }
+
+        @Test
+        @DisplayName("are recounted by reconcile when they drifted and created when missing")
+        void reconcileRepairsCounters() {
+            Franquicia franquicia = franquicia("Franquicia");
+            Sucursal centro = sucursalConInventario(franquicia, "Centro");
+            Sucursal norte = sucursal(franquicia, "Norte");
+            producto(centro, "A", 5);
+            producto(norte, "B", 0);
+            producto(norte, "C", 3);
+            entityManager.flush();
+
+            assertThat(inventarioService.reconcile()).isEqualTo(2);
+
+            assertThat(inventarioRepository.findResponsesByFranquiciaId(franquicia.getId())).containsExactly(
+                    new InventarioSucursalResponse(centro.getId(), "Centro", 1L, 5L, 0L),
+                    new InventarioSucursalResponse(norte.getId(), "Norte", 2L, 3L, 1L));
+            assertThat(inventarioService.reconcile()).isZero();
+        }
+    }
+
+    @Nested
+    @DisplayName("getProductosConMaxStockPorSucursal")
+    class GetProductosConMaxStockPorSucursal {
+
+        @Test
+        @DisplayName("runs a constant number of statements regardless of the number of sucursales")
+        void runsConstantNumberOfStatements() {
+            Franquicia pequena = franquicia("Pequena");
+            Franquicia grande = franquicia("Grande");
+            for (int i = 0; i < 2; i++) {
+                producto(sucursal(pequena, "P" + i), "Producto", i);
+            }
+            for (int i = 0; i < 50; i++) {
+                Sucursal sucursal = sucursal(grande, "G" + i);
+                producto(sucursal, "Producto A", i);
+                producto(sucursal, "Producto B", i + 1);
+            }
+
+            long pequenaStatements = statementsFor(() ->
+                    assertThat(productoService.getProductosConMaxStockPorSucursal(pequena.getId())).hasSize(2));
+            long grandeStatements = statementsFor(() ->
+                    assertThat(productoService.getProductosConMaxStockPorSucursal(grande.getId())).hasSize(50));
+
+            assertThat(grandeStatements).isEqualTo(pequenaStatements).isEqualTo(3);
+        }
+
+        @Test
+        @DisplayName("only lists the sucursales once they are indexed and the franquicia is cached")
+        void skipsProductoQueryWhenIndexed() {
+            Franquicia franquicia = franquicia("Indexada");
+            for (int i = 0; i < 10; i++) {
+                producto(sucursal(franquicia, "S" + i), "Producto", i);
+            }
+            statementsFor(() -> productoService.getProductosConMaxStockPorSucursal(franquicia.getId()));
+
+            long statements = statementsFor(() ->
+                    assertThat(productoService.getProductosConMaxStockPorSucursal(franquicia.getId())).hasSize(10));
+
+            assertThat(statements).isEqualTo(1);
+        }
+    }
+}
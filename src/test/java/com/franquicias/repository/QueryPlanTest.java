@@ -0,0 +1,210 @@
+package com.franquicias.repository;
+
+import com.franquicias.dto.InventarioExportRow;
+import com.franquicias.entity.Franquicia;
+import com.franquicias.entity.InventarioSucursal;
+import com.franquicias.entity.Producto;
+import com.franquicias.entity.Sucursal;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs EXPLAIN on the SQL that Hibernate generates for each hot repository query and
+ * checks that the database resolves it through an index rather than a table scan.
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+        + "com.franquicias.repository.QueryPlanTest$RecordingStatementInspector")
+class QueryPlanTest {
+
+    // Prefix of the index H2 creates for fk_productos_sucursal, on sucursal_id alone.
+    private static final String FK_PRODUCTOS_SUCURSAL = "FK_PRODUCTOS_SUCURSAL_INDEX";
+
+    public static class RecordingStatementInspector implements StatementInspector {
+
+        static final List<String> STATEMENTS = new CopyOnWriteArrayList<>();
+
+        @Override
+        public String inspect(String sql) {
+            STATEMENTS.add(sql);
+            return sql;
+        }
+    }
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private ProductoRepository productoRepository;
+
+    @Autowired
+    private SucursalRepository sucursalRepository;
+
+    @Autowired
+    private InventarioSucursalRepository inventarioRepository;
+
+    private Franquicia franquicia;
+    private Sucursal sucursal;
+
+    @BeforeEach
+    void setUp() {
+        franquicia = new Franquicia();
+        franquicia.setName("Franquicia");
+        entityManager.persist(franquicia);
+        for (int i = 0; i < 20; i++) {
+            Sucursal s = new Sucursal();
+            s.setName("Sucursal " + i);
+            s.setFranquicia(franquicia);
+            entityManager.persist(s);
+            entityManager.persist(new InventarioSucursal(s));
+            for (int j = 0; j < 50; j++) {
+                Producto producto = new Producto();
+                producto.setName("Producto " + j);
+                producto.setStock(j);
+                producto.setSucursal(s);
+                entityManager.persist(producto);
+            }
+            sucursal = s;
+        }
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    private String planOf(Runnable query) {
+        RecordingStatementInspector.STATEMENTS.clear();
+        query.run();
+        List<String> statements = RecordingStatementInspector.STATEMENTS;
+        assertThat(statements).isNotEmpty();
+        // A quoted literal converts to the type of whichever column it is compared with, so
+        // string parameters such as a name cursor still match their index.
+        String sql = statements.get(statements.size() - 1).replace("?", "'1'");
+        return (String) entityManager.getEntityManager()
+                .createNativeQuery("EXPLAIN " + sql)
+                .getSingleResult();
+    }
+
+    @Test
+    @DisplayName("findBySucursalId uses the sucursal index")
+    void findBySucursalIdUsesIndex() {
+        String plan = planOf(() -> productoRepository.findBySucursalId(sucursal.getId()));
+
+        assertThat(plan).contains("IDX_PRODUCTOS_SUCURSAL").doesNotContain("tableScan");
+    }
+
+    @Test
+    @DisplayName("existsByIdAndSucursalId uses an index")
+    void existsByIdAndSucursalIdUsesIndex() {
+        String plan = planOf(() -> productoRepository.existsByIdAndSucursalId(1L, sucursal.getId()));
+
+        assertThat(plan).containsAnyOf("PRIMARY_KEY", "IDX_PRODUCTOS_SUCURSAL", FK_PRODUCTOS_SUCURSAL)
+                .doesNotContain("tableScan");
+    }
+
+    @Test
+    @DisplayName("max-stock lookup reads the stock index in order without sorting")
+    void maxStockLookupReadsIndexInOrder() {
+        String plan = planOf(() -> productoRepository.findFirstBySucursalIdOrderByStockDesc(sucursal.getId()));
+
+        assertThat(plan).contains("IDX_PRODUCTOS_SUCURSAL_STOCK", "index sorted").doesNotContain("tableScan");
+    }
+
+    @Test
+    @DisplayName("max-stock report uses indexes only")
+    void maxStockReportUsesIndexes() {
+        String plan = planOf(() -> productoRepository.findMaxStockPorSucursal(franquicia.getId()));
+
+        assertThat(plan).contains("IDX_SUCURSALES_FRANQUICIA", "IDX_PRODUCTOS_SUCURSAL").doesNotContain("tableScan");
+    }
+
+    @Test
+    @DisplayName("top productos per sucursal uses the stock index")
+    void topByStockPorSucursalUsesIndex() {
+        String plan = planOf(() ->
+                productoRepository.findTopByStockPorSucursal(List.of(sucursal.getId()), 17));
+
+        assertThat(plan).contains("IDX_PRODUCTOS_SUCURSAL").doesNotContain("tableScan");
+    }
+
+    @Test
+    @DisplayName("findByFranquiciaId uses the franquicia index")
+    void findByFranquiciaIdUsesIndex() {
+        String plan = planOf(() -> sucursalRepository.findByFranquiciaId(franquicia.getId()));
+
+        assertThat(plan).contains("IDX_SUCURSALES_FRANQUICIA").doesNotContain("tableScan");
+    }
+
+    @Test
+    @DisplayName("name-sorted producto pages read the name index in order")
+    void productoPageByNameReadsIndexInOrder() {
+        String plan = planOf(() ->
+                productoRepository.findPageBySucursalIdOrderByName(sucursal.getId(), "Producto 1", 0, 10));
+
+        assertThat(plan).contains("IDX_PRODUCTOS_SUCURSAL_NAME", "index sorted").doesNotContain("tableScan");
+    }
+
+    @Test
+    @DisplayName("stock-sorted producto pages read the stock index in order")
+    void productoPageByStockReadsIndexInOrder() {
+        String plan = planOf(() ->
+                productoRepository.findPageBySucursalIdOrderByStock(sucursal.getId(), 25, 0, 10));
+
+        assertThat(plan).contains("IDX_PRODUCTOS_SUCURSAL_STOCK", "index sorted").doesNotContain("tableScan");
+    }
+
+    @Test
+    @DisplayName("sucursal pages use the franquicia index")
+    void sucursalPageUsesIndex() {
+        String plan = planOf(() -> sucursalRepository.findPageByFranquiciaId(franquicia.getId(), 0, 10));
+
+        assertThat(plan).contains("IDX_SUCURSALES_FRANQUICIA").doesNotContain("tableScan");
+    }
+
+    @Test
+    @DisplayName("inventory export reads the sucursales and their productos through indexes")
+    void inventarioExportUsesIndexes() {
+        String plan = planOf(() -> {
+            // The query only runs once the stream is read.
+            try (Stream<InventarioExportRow> rows = productoRepository.streamInventarioByFranquiciaId(franquicia.getId())) {
+                rows.findFirst();
+            }
+        });
+
+        assertThat(plan).contains("IDX_SUCURSALES_FRANQUICIA", "IDX_PRODUCTOS_SUCURSAL").doesNotContain("tableScan");
+    }
+
+    @Test
+    @DisplayName("franquicia inventory totals find the counters through the franquicia index")
+    void inventarioTotalsUseIndexes() {
+        String plan = planOf(() -> inventarioRepository.findResponsesByFranquiciaId(franquicia.getId()));
+
+        assertThat(plan).contains("IDX_SUCURSALES_FRANQUICIA").doesNotContain("tableScan");
+    }
+
+    @Test
+    @DisplayName("filtered producto deletes find their rows through the sucursal indexes")
+    void filteredDeleteUsesIndex() {
+        String plan = planOf(() -> productoRepository.deleteBySucursalIdAndStockAtMost(sucursal.getId(), 0));
+
+        assertThat(plan).containsAnyOf("IDX_PRODUCTOS_SUCURSAL", FK_PRODUCTOS_SUCURSAL).doesNotContain("tableScan");
+    }
+
+    @Test
+    @DisplayName("cascade deletes pick their chunks through the foreign key indexes")
+    void cascadeDeleteChunksUseIndexes() {
+        String productos = planOf(() -> productoRepository.findIdsBySucursalIdIn(List.of(sucursal.getId()), 100));
+        String sucursales = planOf(() -> sucursalRepository.findIdsByFranquiciaId(franquicia.getId(), 100));
+
+        assertThat(productos).containsAnyOf("IDX_PRODUCTOS_SUCURSAL", FK_PRODUCTOS_SUCURSAL).doesNotContain("tableScan");
+        assertThat(sucursales).contains("IDX_SUCURSALES_FRANQUICIA").doesNotContain("tableScan");
+    }
+}
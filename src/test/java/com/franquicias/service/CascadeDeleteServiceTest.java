@@ -0,0 +1,215 @@
+package com.franquicias.service;
+
+import com.franquicias.cache.MaxStockReportCache;
+import com.franquicias.cache.ReferenceCache;
+import com.franquicias.dto.DeletionResponse;
+import com.franquicias.event.ProductosDeletedEvent;
+import com.franquicias.exception.NotFoundException;
+import com.franquicias.repository.FranquiciaRepository;
+import com.franquicias.repository.InventarioSucursalRepository;
+import com.franquicias.repository.ProductoRepository;
+import com.franquicias.repository.SucursalRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CascadeDeleteServiceTest {
+
+    @Mock
+    private FranquiciaRepository franquiciaRepository;
+
+    @Mock
+    private SucursalRepository sucursalRepository;
+
+    @Mock
+    private ProductoRepository productoRepository;
+
+    @Mock
+    private InventarioSucursalRepository inventarioRepository;
+
+    @Mock
+    private FranquiciaService franquiciaService;
+
+    @Mock
+    private SucursalService sucursalService;
+
+    @Mock
+    private ReferenceCache referenceCache;
+
+    @Mock
+    private MaxStockReportCache maxStockReportCache;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private final List<Runnable> background = new ArrayList<>();
+    private CascadeDeleteService cascadeDeleteService;
+
+    @BeforeEach
+    void setUp() {
+        // Background deletions are queued and run by the test; chunks hold two productos.
+        cascadeDeleteService = new CascadeDeleteService(franquiciaRepository, sucursalRepository, productoRepository,
+                inventarioRepository, franquiciaService, sucursalService, referenceCache, maxStockReportCache,
+                eventPublisher, transactionManager, 2, 60, background::add);
+    }
+
+    private void runBackground() {
+        List<Runnable> tasks = new ArrayList<>(background);
+        background.clear();
+        tasks.forEach(Runnable::run);
+    }
+
+    @Nested
+    @DisplayName("deleteSucursal")
+    class DeleteSucursal {
+
+        @Test
+        @DisplayName("deletes the productos a chunk per transaction, then the sucursal with the last chunk")
+        void deletesInChunks() {
+            when(sucursalService.findFranquiciaId(2L)).thenReturn(1L);
+            when(productoRepository.findIdsBySucursalIdIn(List.of(2L), 2)).thenReturn(List.of(10L, 11L)).thenReturn(List.of(12L));
+            when(productoRepository.deleteByIdIn(List.of(10L, 11L))).thenReturn(2);
+            when(productoRepository.deleteByIdIn(List.of(12L))).thenReturn(1);
+            when(sucursalRepository.deleteByIdIn(List.of(2L))).thenReturn(1);
+
+            DeletionResponse result = cascadeDeleteService.deleteSucursal(1L, 2L);
+
+            assertThat(result.state()).isEqualTo(DeletionResponse.State.COMPLETED);
+            assertThat(result.productosDeleted()).isEqualTo(3);
+            assertThat(result.sucursalesDeleted()).isEqualTo(1);
+            InOrder inOrder = inOrder(productoRepository, inventarioRepository, sucursalRepository);
+            inOrder.verify(productoRepository).deleteByIdIn(List.of(10L, 11L));
+            inOrder.verify(productoRepository).deleteByIdIn(List.of(12L));
+            inOrder.verify(inventarioRepository).deleteBySucursalIdIn(List.of(2L));
+            inOrder.verify(sucursalRepository).deleteByIdIn(List.of(2L));
+            verify(transactionManager, times(2)).commit(any());
+            verify(referenceCache).evictSucursal(2L);
+            verify(eventPublisher, times(2)).publishEvent(new ProductosDeletedEvent(2L));
+            verify(maxStockReportCache, times(2)).invalidate(1L);
+        }
+
+        @Test
+        @DisplayName("throws NotFoundException when sucursal belongs to another franquicia")
+        void throwsWhenSucursalOfOtherFranquicia() {
+            when(sucursalService.findFranquiciaId(2L)).thenReturn(9L);
+
+            assertThatThrownBy(() -> cascadeDeleteService.deleteSucursal(1L, 2L))
+                    .isInstanceOf(NotFoundException.class)
+                    .hasMessage("Sucursal does not belong to franquicia: 1");
+            verifyNoInteractions(productoRepository, sucursalRepository);
+        }
+    }
+
+    @Nested
+    @DisplayName("deleteFranquicia")
+    class DeleteFranquicia {
+
+        @Test
+        @DisplayName("deletes the sucursales a chunk at a time, then the franquicia once none are left")
+        void deletesSucursalesThenFranquicia() {
+            when(sucursalRepository.findIdsByFranquiciaId(1L, CascadeDeleteService.SUCURSAL_CHUNK_SIZE))
+                    .thenReturn(List.of(2L, 3L)).thenReturn(List.of());
+            when(productoRepository.findIdsBySucursalIdIn(List.of(2L, 3L), 2)).thenReturn(List.of(10L));
+            when(productoRepository.deleteByIdIn(List.of(10L))).thenReturn(1);
+            when(sucursalRepository.deleteByIdIn(List.of(2L, 3L))).thenReturn(2);
+
+            DeletionResponse result = cascadeDeleteService.deleteFranquicia(1L);
+
+            assertThat(result.resource()).isEqualTo(DeletionResponse.Resource.FRANQUICIA);
+            assertThat(result.productosDeleted()).isEqualTo(1);
+            assertThat(result.sucursalesDeleted()).isEqualTo(2);
+            InOrder inOrder = inOrder(sucursalRepository, franquiciaRepository);
+            inOrder.verify(sucursalRepository).deleteByIdIn(List.of(2L, 3L));
+            inOrder.verify(franquiciaRepository).deleteRowById(1L);
+            verify(referenceCache).evictSucursal(3L);
+            verify(referenceCache).evictFranquicia(1L);
+        }
+
+        @Test
+        @DisplayName("throws NotFoundException when franquicia does not exist")
+        void throwsWhenFranquiciaNotFound() {
+            doThrow(new NotFoundException("Franquicia not found: 999")).when(franquiciaService).checkExists(999L);
+
+            assertThatThrownBy(() -> cascadeDeleteService.deleteFranquicia(999L))
+                    .isInstanceOf(NotFoundException.class);
+            verifyNoInteractions(franquiciaRepository, sucursalRepository);
+        }
+    }
+
+    @Nested
+    @DisplayName("background deletions")
+    class Background {
+
+        @Test
+        @DisplayName("reports the deletion as running until it completes")
+        void tracksProgress() {
+            when(sucursalRepository.findIdsByFranquiciaId(1L, CascadeDeleteService.SUCURSAL_CHUNK_SIZE))
+                    .thenReturn(List.of());
+
+            DeletionResponse started = cascadeDeleteService.deleteFranquiciaAsync(1L);
+
+            assertThat(started.state()).isEqualTo(DeletionResponse.State.RUNNING);
+            assertThat(started.finishedAt()).isNull();
+            verifyNoInteractions(franquiciaRepository);
+
+            runBackground();
+
+            DeletionResponse finished = cascadeDeleteService.getDeletion(started.id());
+            assertThat(finished.state()).isEqualTo(DeletionResponse.State.COMPLETED);
+            assertThat(finished.finishedAt()).isNotNull();
+            verify(franquiciaRepository).deleteRowById(1L);
+        }
+
+        @Test
+        @DisplayName("returns the running deletion when the same resource is deleted again")
+        void joinsRunningDeletion() {
+            DeletionResponse first = cascadeDeleteService.deleteFranquiciaAsync(1L);
+            DeletionResponse second = cascadeDeleteService.deleteFranquiciaAsync(1L);
+
+            assertThat(second.id()).isEqualTo(first.id());
+            assertThat(background).hasSize(1);
+        }
+
+        @Test
+        @DisplayName("records the error of a failed deletion and lets it be requested again")
+        void recordsFailure() {
+            when(sucursalService.findFranquiciaId(2L)).thenReturn(1L);
+            when(productoRepository.findIdsBySucursalIdIn(List.of(2L), 2))
+                    .thenThrow(new IllegalStateException("Connection lost"));
+
+            DeletionResponse started = cascadeDeleteService.deleteSucursalAsync(1L, 2L);
+            runBackground();
+
+            DeletionResponse failed = cascadeDeleteService.getDeletion(started.id());
+            assertThat(failed.state()).isEqualTo(DeletionResponse.State.FAILED);
+            assertThat(failed.error()).isEqualTo("Connection lost");
+            assertThat(cascadeDeleteService.deleteSucursalAsync(1L, 2L).id()).isNotEqualTo(started.id());
+        }
+
+        @Test
+        @DisplayName("throws NotFoundException for an unknown deletion")
+        void throwsWhenUnknown() {
+            assertThatThrownBy(() -> cascadeDeleteService.getDeletion("nope"))
+                    .isInstanceOf(NotFoundException.class)
+                    .hasMessage("Deletion not found: nope");
+        }
+    }
+}
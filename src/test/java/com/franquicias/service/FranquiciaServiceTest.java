@@ -1,8 +1,11 @@
 package com.franquicias.service;
 
+import com.franquicias.cache.ReferenceCache;
+import com.franquicias.dto.CursorPage;
 import com.franquicias.dto.FranquiciaResponse;
 import com.franquicias.entity.Franquicia;
 import com.franquicias.exception.NotFoundException;
+import com.franquicias.exception.VersionConflictException;
 import com.franquicias.repository.FranquiciaRepository;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
@@ -13,12 +16,15 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import java.util.List;
 import java.util.Optional;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
@@ -27,6 +33,9 @@ class FranquiciaServiceTest {
     @Mock
     private FranquiciaRepository franquiciaRepository;
 
+    @Mock
+    private ReferenceCache referenceCache;
+
     @InjectMocks
     private FranquiciaService franquiciaService;
 
@@ -78,6 +87,23 @@ class FranquiciaServiceTest {
             assertThat(result.name()).isEqualTo("Nueva");
             verify(franquiciaRepository).findById(id);
             verify(franquiciaRepository).save(existing);
+            verify(referenceCache).evictFranquicia(id);
+        }
+
+        @Test
+        @DisplayName("throws VersionConflictException when the expected version is stale")
+        void throwsVersionConflictWhenVersionIsStale() {
+            Franquicia existing = new Franquicia();
+            existing.setId(1L);
+            existing.setName("Vieja");
+            existing.setVersion(2L);
+            when(franquiciaRepository.findById(1L)).thenReturn(Optional.of(existing));
+
+            assertThatThrownBy(() -> franquiciaService.updateFranquiciaName(1L, "Nueva", 1L))
+                    .isInstanceOf(VersionConflictException.class)
+                    .hasFieldOrPropertyWithValue("currentVersion", 2L);
+            assertThat(existing.getName()).isEqualTo("Vieja");
+            verify(franquiciaRepository, never()).save(any());
         }
 
         @Test
@@ -126,4 +152,58 @@ class FranquiciaServiceTest {
             verify(franquiciaRepository).findById(id);
         }
     }
+
+    @Nested
+    @DisplayName("getReference")
+    class GetReference {
+
+        @Test
+        @DisplayName("returns a reference without loading the franquicia when it exists")
+        void returnsReferenceWhenExists() {
+            Franquicia reference = new Franquicia();
+            reference.setId(1L);
+            when(referenceCache.franquiciaExists(1L)).thenReturn(true);
+            when(franquiciaRepository.getReferenceById(1L)).thenReturn(reference);
+
+            assertThat(franquiciaService.getReference(1L)).isSameAs(reference);
+            verify(franquiciaRepository, never()).findById(any());
+        }
+
+        @Test
+        @DisplayName("throws NotFoundException when franquicia does not exist")
+        void throwsNotFoundExceptionWhenNotExists() {
+            when(referenceCache.franquiciaExists(999L)).thenReturn(false);
+
+            assertThatThrownBy(() -> franquiciaService.getReference(999L))
+                    .isInstanceOf(NotFoundException.class)
+                    .hasMessage("Franquicia not found: 999");
+            verify(franquiciaRepository, never()).getReferenceById(any());
+        }
+    }
+
+    @Nested
+    @DisplayName("listFranquicias")
+    class ListFranquicias {
+
+        @Test
+        @DisplayName("returns the page after the cursor and no cursor on the last page")
+        void returnsLastPage() {
+            FranquiciaResponse response = new FranquiciaResponse(8L, "Norte", 0L);
+            when(franquiciaRepository.findPage(7L, 11)).thenReturn(List.of(response));
+
+            CursorPage<FranquiciaResponse> page = franquiciaService.listFranquicias(Cursors.encode("id", 7L, null), 10);
+
+            assertThat(page.items()).containsExactly(response);
+            assertThat(page.nextCursor()).isNull();
+        }
+
+        @Test
+        @DisplayName("rejects a malformed cursor")
+        void rejectsMalformedCursor() {
+            assertThatThrownBy(() -> franquiciaService.listFranquicias("%%%", 10))
+                    .isInstanceOf(IllegalArgumentException.class)
+                    .hasMessage("Invalid cursor: %%%");
+            verifyNoInteractions(franquiciaRepository);
+        }
+    }
 }
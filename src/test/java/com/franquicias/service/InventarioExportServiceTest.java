@@ -0,0 +1,116 @@
+package com.franquicias.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.franquicias.cache.StockWriteBuffer;
+import com.franquicias.dto.InventarioExportRow;
+import com.franquicias.dto.InventarioFormat;
+import com.franquicias.entity.Sucursal;
+import com.franquicias.repository.ProductoRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class InventarioExportServiceTest {
+
+    @Mock
+    private ProductoRepository productoRepository;
+
+    @Mock
+    private SucursalService sucursalService;
+
+    @Mock
+    private StockWriteBuffer stockWriteBuffer;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private InventarioExportService exportService;
+
+    @BeforeEach
+    void setUp() {
+        exportService = new InventarioExportService(productoRepository, sucursalService, stockWriteBuffer,
+                transactionManager, new ObjectMapper());
+    }
+
+    private String export(InventarioFormat format) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        exportService.export(1L, format, out);
+        return out.toString(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    @DisplayName("writes one JSON object per line")
+    void writesNdjson() throws Exception {
+        when(productoRepository.streamInventarioByFranquiciaId(1L)).thenReturn(Stream.of(
+                new InventarioExportRow(2L, "Centro", 10L, "A", 5, 0L),
+                new InventarioExportRow(3L, "Norte", 11L, "B", 7, 2L)));
+
+        assertThat(export(InventarioFormat.NDJSON)).isEqualTo("""
+                {"sucursalId":2,"sucursalName":"Centro","productoId":10,"productoName":"A","stock":5,"version":0}
+                {"sucursalId":3,"sucursalName":"Norte","productoId":11,"productoName":"B","stock":7,"version":2}
+                """);
+    }
+
+    @Test
+    @DisplayName("writes nothing when the franquicia has no productos")
+    void writesNothingWhenEmpty() throws Exception {
+        when(productoRepository.streamInventarioByFranquiciaId(1L)).thenReturn(Stream.empty());
+
+        assertThat(export(InventarioFormat.NDJSON)).isEmpty();
+    }
+
+    @Test
+    @DisplayName("writes CSV with a header and quotes values that need it")
+    void writesCsv() throws Exception {
+        when(productoRepository.streamInventarioByFranquiciaId(1L)).thenReturn(Stream.of(
+                new InventarioExportRow(2L, "Centro, local 4", 10L, "Vino \"reserva\"", 5, 0L)));
+
+        assertThat(export(InventarioFormat.CSV)).isEqualTo("""
+                sucursalId,sucursalName,productoId,productoName,stock,version
+                2,"Centro, local 4",10,"Vino ""reserva\""",5,0
+                """);
+    }
+
+    @Test
+    @DisplayName("closes the database cursor when the export ends")
+    void closesStream() throws Exception {
+        Stream<InventarioExportRow> rows = Stream.<InventarioExportRow>empty();
+        Runnable onClose = mock(Runnable.class);
+        when(productoRepository.streamInventarioByFranquiciaId(1L)).thenReturn(rows.onClose(onClose));
+
+        export(InventarioFormat.CSV);
+
+        verify(onClose).run();
+    }
+
+    @Test
+    @DisplayName("flushes buffered stock of the franquicia's sucursales before reading")
+    void flushesBufferedStock() throws Exception {
+        Sucursal centro = new Sucursal();
+        centro.setId(2L);
+        when(stockWriteBuffer.hasPending()).thenReturn(true);
+        when(sucursalService.findByFranquiciaId(1L)).thenReturn(List.of(centro));
+        when(productoRepository.streamInventarioByFranquiciaId(1L)).thenReturn(Stream.empty());
+
+        export(InventarioFormat.NDJSON);
+
+        InOrder inOrder = inOrder(stockWriteBuffer, transactionManager, productoRepository);
+        inOrder.verify(stockWriteBuffer).flushSucursales(List.of(2L));
+        inOrder.verify(transactionManager).getTransaction(any());
+        inOrder.verify(productoRepository).streamInventarioByFranquiciaId(1L);
+    }
+}
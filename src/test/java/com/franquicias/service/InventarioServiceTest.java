@@ -0,0 +1,183 @@
+package com.franquicias.service;
+
+import com.franquicias.cache.StockWriteBuffer;
+import com.franquicias.dto.InventarioFranquiciaResponse;
+import com.franquicias.dto.InventarioSucursalResponse;
+import com.franquicias.entity.Sucursal;
+import com.franquicias.exception.NotFoundException;
+import com.franquicias.repository.InventarioCount;
+import com.franquicias.repository.InventarioSucursalRepository;
+import com.franquicias.repository.SucursalRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class InventarioServiceTest {
+
+    @Mock
+    private InventarioSucursalRepository inventarioRepository;
+
+    @Mock
+    private SucursalRepository sucursalRepository;
+
+    @Mock
+    private FranquiciaService franquiciaService;
+
+    @Mock
+    private SucursalService sucursalService;
+
+    @Mock
+    private StockWriteBuffer stockWriteBuffer;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private InventarioService inventarioService;
+
+    @BeforeEach
+    void setUp() {
+        // No scheduled reconciliation; each check covers two sucursales.
+        inventarioService = new InventarioService(inventarioRepository, sucursalRepository, franquiciaService,
+                sucursalService, stockWriteBuffer, transactionManager, meterRegistry, 0, 2);
+    }
+
+    @Nested
+    @DisplayName("getFranquiciaInventario")
+    class GetFranquiciaInventario {
+
+        @Test
+        @DisplayName("sums the counters of the franquicia's sucursales")
+        void sumsCounters() {
+            when(inventarioRepository.findResponsesByFranquiciaId(1L)).thenReturn(List.of(
+                    new InventarioSucursalResponse(2L, "Centro", 3L, 40L, 1L),
+                    new InventarioSucursalResponse(3L, "Norte", 2L, 5L, 0L)));
+
+            InventarioFranquiciaResponse result = inventarioService.getFranquiciaInventario(1L);
+
+            assertThat(result.productos()).isEqualTo(5);
+            assertThat(result.totalStock()).isEqualTo(45);
+            assertThat(result.outOfStock()).isEqualTo(1);
+            assertThat(result.sucursales()).hasSize(2);
+            verify(franquiciaService).checkExists(1L);
+            verify(stockWriteBuffer, never()).flushSucursales(any());
+        }
+
+        @Test
+        @DisplayName("flushes buffered stock writes of the franquicia's sucursales first")
+        void flushesBufferedWritesFirst() {
+            Sucursal centro = new Sucursal();
+            centro.setId(2L);
+            when(stockWriteBuffer.hasPending()).thenReturn(true);
+            when(sucursalService.findByFranquiciaId(1L)).thenReturn(List.of(centro));
+
+            inventarioService.getFranquiciaInventario(1L);
+
+            InOrder inOrder = inOrder(stockWriteBuffer, transactionManager, inventarioRepository);
+            inOrder.verify(stockWriteBuffer).flushSucursales(List.of(2L));
+            inOrder.verify(transactionManager).getTransaction(any());
+            inOrder.verify(inventarioRepository).findResponsesByFranquiciaId(1L);
+        }
+
+        @Test
+        @DisplayName("throws NotFoundException when franquicia does not exist")
+        void throwsWhenFranquiciaNotFound() {
+            doThrow(new NotFoundException("Franquicia not found: 999")).when(franquiciaService).checkExists(999L);
+
+            assertThatThrownBy(() -> inventarioService.getFranquiciaInventario(999L))
+                    .isInstanceOf(NotFoundException.class)
+                    .hasMessage("Franquicia not found: 999");
+            verifyNoInteractions(inventarioRepository);
+        }
+    }
+
+    @Nested
+    @DisplayName("getSucursalInventario")
+    class GetSucursalInventario {
+
+        @Test
+        @DisplayName("returns the counters of the sucursal")
+        void returnsCounters() {
+            InventarioSucursalResponse centro = new InventarioSucursalResponse(2L, "Centro", 3L, 40L, 1L);
+            when(sucursalService.findFranquiciaId(2L)).thenReturn(1L);
+            when(inventarioRepository.findResponseBySucursalId(2L)).thenReturn(Optional.of(centro));
+
+            assertThat(inventarioService.getSucursalInventario(1L, 2L)).isEqualTo(centro);
+        }
+
+        @Test
+        @DisplayName("throws NotFoundException when sucursal belongs to another franquicia")
+        void throwsWhenSucursalOfOtherFranquicia() {
+            when(sucursalService.findFranquiciaId(2L)).thenReturn(9L);
+
+            assertThatThrownBy(() -> inventarioService.getSucursalInventario(1L, 2L))
+                    .isInstanceOf(NotFoundException.class)
+                    .hasMessage("Sucursal does not belong to franquicia: 1");
+            verifyNoInteractions(inventarioRepository);
+        }
+    }
+
+    @Nested
+    @DisplayName("reconcile")
+    class Reconcile {
+
+        private InventarioCount count(Long sucursalId, long productos, long countedProductos) {
+            return new InventarioCount(sucursalId, productos, 10L, 0L, countedProductos, 10L, 0L);
+        }
+
+        @Test
+        @DisplayName("creates missing counters, recounts the drifted ones and reports them")
+        void repairsAndReportsDrift() {
+            when(inventarioRepository.findSucursalIdsWithoutCounters(2)).thenReturn(List.of(7L));
+            when(sucursalRepository.getReferenceById(7L)).thenReturn(new Sucursal());
+            when(inventarioRepository.findCountsAfter(0L, 2)).thenReturn(List.of(count(1L, 3, 3), count(3L, 3, 4)));
+            when(inventarioRepository.findCountsAfter(3L, 2)).thenReturn(List.of(count(7L, 1, 1)));
+
+            assertThat(inventarioService.reconcile()).isEqualTo(2);
+
+            verify(inventarioRepository).saveAll(anyList());
+            verify(inventarioRepository).recount(List.of(7L));
+            verify(inventarioRepository).recount(List.of(3L));
+            assertThat(meterRegistry.get(InventarioService.DRIFT_METRIC).counter().count()).isEqualTo(2.0);
+        }
+
+        @Test
+        @DisplayName("writes nothing when the counters match the productos")
+        void writesNothingWithoutDrift() {
+            when(inventarioRepository.findSucursalIdsWithoutCounters(2)).thenReturn(List.of());
+            when(inventarioRepository.findCountsAfter(0L, 2)).thenReturn(List.of(count(1L, 3, 3)));
+
+            assertThat(inventarioService.reconcile()).isZero();
+
+            verify(inventarioRepository, never()).saveAll(anyList());
+            verify(inventarioRepository, never()).recount(any());
+            assertThat(meterRegistry.get(InventarioService.DRIFT_METRIC).counter().count()).isZero();
+        }
+    }
+
+    @Test
+    @DisplayName("rejects a negative reconcile interval")
+    void rejectsNegativeInterval() {
+        assertThatThrownBy(() -> new InventarioService(inventarioRepository, sucursalRepository, franquiciaService,
+                sucursalService, stockWriteBuffer, transactionManager, meterRegistry, -1, 2))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Inventory counter reconcile interval cannot be negative");
+    }
+}
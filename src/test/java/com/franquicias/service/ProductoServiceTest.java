@@ -1,27 +1,50 @@
 package com.franquicias.service;
 
+import com.franquicias.cache.MaxStockIndex;
+import com.franquicias.cache.StockWriteBuffer;
+import com.franquicias.dto.CreateProductoRequest;
+import com.franquicias.dto.CursorPage;
+import com.franquicias.dto.ProductoBatchItemResponse;
 import com.franquicias.dto.ProductoResponse;
 import com.franquicias.dto.ProductoMaxStockPorSucursalResponse;
-import com.franquicias.entity.Franquicia;
+import com.franquicias.dto.ProductoSort;
+import com.franquicias.dto.TransferStockRequest;
+import com.franquicias.dto.TransferStockResponse;
+import com.franquicias.dto.UpdateStockItemRequest;
 import com.franquicias.entity.Producto;
 import com.franquicias.entity.Sucursal;
+import com.franquicias.event.ProductoChangedEvent;
+import com.franquicias.event.ProductosDeletedEvent;
+import com.franquicias.exception.ConflictException;
 import com.franquicias.exception.NotFoundException;
+import com.franquicias.exception.VersionConflictException;
+import com.franquicias.repository.InventarioSucursalRepository;
 import com.franquicias.repository.ProductoRepository;
+import com.franquicias.repository.ProductoStockView;
+import com.franquicias.repository.ProductoVersionView;
+import com.franquicias.repository.StockAdjustment;
+import com.franquicias.repository.StockUpdate;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.transaction.PlatformTransactionManager;
 
-import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.LongStream;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -30,15 +53,43 @@ class ProductoServiceTest {
     @Mock
     private ProductoRepository productoRepository;
 
+    @Mock
+    private InventarioSucursalRepository inventarioRepository;
+
     @Mock
     private SucursalService sucursalService;
 
     @Mock
     private FranquiciaService franquiciaService;
 
+    @Mock
+    private MaxStockIndex maxStockIndex;
+
+    @Mock
+    private StockWriteBuffer stockWriteBuffer;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
     @InjectMocks
     private ProductoService productoService;
 
+    /**
+     * The row a targeted stock update replaced, as returned by the update itself.
+     */
+    private static ProductoVersionView previous(Long sucursalId, Long productoId, String name, int stock, long version) {
+        ProductoVersionView view = mock(ProductoVersionView.class);
+        lenient().when(view.getSucursalId()).thenReturn(sucursalId);
+        lenient().when(view.getProductoId()).thenReturn(productoId);
+        lenient().when(view.getName()).thenReturn(name);
+        lenient().when(view.getStock()).thenReturn(stock);
+        lenient().when(view.getVersion()).thenReturn(version);
+        return view;
+    }
+
     @Nested
     @DisplayName("createProducto")
     class CreateProducto {
@@ -53,7 +104,6 @@ class ProductoServiceTest {
 
             Sucursal sucursal = new Sucursal();
             sucursal.setId(sucursalId);
-            sucursal.setProductos(new ArrayList<>());
 
             Producto saved = new Producto();
             saved.setId(1L);
@@ -61,7 +111,7 @@ class ProductoServiceTest {
             saved.setStock(stock);
             saved.setSucursal(sucursal);
 
-            when(sucursalService.findById(sucursalId)).thenReturn(sucursal);
+            when(sucursalService.getReference(sucursalId)).thenReturn(sucursal);
             when(productoRepository.save(any(Producto.class))).thenReturn(saved);
 
             ProductoResponse result = productoService.createProducto(sucursalId, name, description, stock);
@@ -71,9 +121,10 @@ class ProductoServiceTest {
             assertThat(result.name()).isEqualTo(name);
             assertThat(result.stock()).isEqualTo(stock);
             assertThat(result.sucursalId()).isEqualTo(sucursalId);
-            assertThat(sucursal.getProductos()).contains(saved);
-            verify(sucursalService).findById(sucursalId);
+            verify(sucursalService).getReference(sucursalId);
             verify(productoRepository).save(any(Producto.class));
+            verify(eventPublisher).publishEvent(new ProductoChangedEvent(sucursalId, 1L, name, stock, null, false));
+            verify(inventarioRepository).add(sucursalId, 1, 10, 0);
         }
 
         @Test
@@ -82,15 +133,8 @@ class ProductoServiceTest {
             Long sucursalId = 1L;
             Sucursal sucursal = new Sucursal();
             sucursal.setId(sucursalId);
-            sucursal.setProductos(new ArrayList<>());
 
-            Producto saved = new Producto();
-            saved.setId(1L);
-            saved.setName("P");
-            saved.setStock(0);
-            saved.setSucursal(sucursal);
-
-            when(sucursalService.findById(sucursalId)).thenReturn(sucursal);
+            when(sucursalService.getReference(sucursalId)).thenReturn(sucursal);
             when(productoRepository.save(any(Producto.class))).thenAnswer(inv -> {
                 Producto p = inv.getArgument(0);
                 p.setId(1L);
@@ -100,13 +144,14 @@ class ProductoServiceTest {
             ProductoResponse result = productoService.createProducto(sucursalId, "P", null, null);
 
             assertThat(result.stock()).isEqualTo(0);
+            verify(inventarioRepository).add(sucursalId, 1, 0, 1);
         }
 
         @Test
         @DisplayName("throws NotFoundException when sucursal does not exist")
         void throwsNotFoundExceptionWhenSucursalNotExists() {
             Long sucursalId = 999L;
-            when(sucursalService.findById(sucursalId))
+            when(sucursalService.getReference(sucursalId))
                     .thenThrow(new NotFoundException("Sucursal not found: 999"));
 
             assertThatThrownBy(() -> productoService.createProducto(sucursalId, "P", "D", 0))
@@ -115,35 +160,459 @@ class ProductoServiceTest {
         }
     }
 
+    @Nested
+    @DisplayName("createProductos")
+    class CreateProductos {
+
+        private CreateProductoRequest request(String name, Integer stock) {
+            CreateProductoRequest request = new CreateProductoRequest();
+            request.setName(name);
+            request.setStock(stock);
+            return request;
+        }
+
+        @Test
+        @DisplayName("checks the sucursal once and saves all productos together")
+        void savesAllProductosTogether() {
+            Long sucursalId = 1L;
+            Sucursal sucursal = new Sucursal();
+            sucursal.setId(sucursalId);
+
+            when(sucursalService.getReference(sucursalId)).thenReturn(sucursal);
+            when(productoRepository.saveAll(anyList())).thenAnswer(inv -> {
+                List<Producto> productos = inv.getArgument(0);
+                for (int i = 0; i < productos.size(); i++) {
+                    productos.get(i).setId(100L + i);
+                }
+                return productos;
+            });
+
+            List<ProductoResponse> result = productoService.createProductos(
+                    sucursalId, List.of(request("A", 5), request("B", null)));
+
+            assertThat(result).containsExactly(
+                    new ProductoResponse(100L, "A", 5, sucursalId),
+                    new ProductoResponse(101L, "B", 0, sucursalId));
+            verify(sucursalService, times(1)).getReference(sucursalId);
+            verify(productoRepository, never()).save(any());
+            verify(eventPublisher, times(2)).publishEvent(any(ProductoChangedEvent.class));
+            verify(inventarioRepository, times(1)).add(sucursalId, 2, 5, 1);
+        }
+
+        @Test
+        @DisplayName("throws NotFoundException when sucursal does not exist")
+        void throwsNotFoundExceptionWhenSucursalNotExists() {
+            when(sucursalService.getReference(999L)).thenThrow(new NotFoundException("Sucursal not found: 999"));
+
+            assertThatThrownBy(() -> productoService.createProductos(999L, List.of(request("A", 1))))
+                    .isInstanceOf(NotFoundException.class)
+                    .hasMessage("Sucursal not found: 999");
+            verify(productoRepository, never()).saveAll(anyList());
+            verifyNoInteractions(inventarioRepository);
+        }
+    }
+
+    @Nested
+    @DisplayName("adjustStock")
+    class AdjustStock {
+
+        @Test
+        @DisplayName("applies the delta with a conditional update and reads the result back")
+        void appliesDeltaWithoutLoadingEntity() {
+            when(productoRepository.adjustStock(1L, 2L, -3)).thenReturn(1);
+            when(productoRepository.findResponseById(2L))
+                    .thenReturn(Optional.of(new ProductoResponse(2L, "P", 7, 1L, 4L)));
+
+            ProductoResponse result = productoService.adjustStock(1L, 2L, -3);
+
+            assertThat(result).isEqualTo(new ProductoResponse(2L, "P", 7, 1L, 4L));
+            verify(productoRepository, never()).findById(any());
+            verify(productoRepository, never()).save(any());
+            verify(eventPublisher).publishEvent(new ProductoChangedEvent(1L, 2L, "P", 7, 4L, false));
+            verify(inventarioRepository).add(1L, 0, -3, 0);
+        }
+
+        @Test
+        @DisplayName("counts a producto that runs out of stock")
+        void countsProductoOutOfStock() {
+            when(productoRepository.adjustStock(1L, 2L, -3)).thenReturn(1);
+            when(productoRepository.findResponseById(2L))
+                    .thenReturn(Optional.of(new ProductoResponse(2L, "P", 0, 1L, 4L)));
+
+            productoService.adjustStock(1L, 2L, -3);
+
+            verify(inventarioRepository).add(1L, 0, -3, 1);
+        }
+
+        @Test
+        @DisplayName("throws ConflictException when stock would become negative")
+        void throwsConflictWhenStockIsInsufficient() {
+            when(productoRepository.adjustStock(1L, 2L, -30)).thenReturn(0);
+            when(productoRepository.existsByIdAndSucursalId(2L, 1L)).thenReturn(true);
+
+            assertThatThrownBy(() -> productoService.adjustStock(1L, 2L, -30))
+                    .isInstanceOf(ConflictException.class)
+                    .hasMessage("Insufficient stock for producto: 2");
+            verify(eventPublisher, never()).publishEvent(any());
+            verifyNoInteractions(inventarioRepository);
+        }
+
+        @Test
+        @DisplayName("throws NotFoundException when producto is not in sucursal")
+        void throwsNotFoundWhenProductoNotInSucursal() {
+            when(productoRepository.adjustStock(1L, 2L, 5)).thenReturn(0);
+            when(productoRepository.existsByIdAndSucursalId(2L, 1L)).thenReturn(false);
+
+            assertThatThrownBy(() -> productoService.adjustStock(1L, 2L, 5))
+                    .isInstanceOf(NotFoundException.class)
+                    .hasMessage("Producto not found in sucursal: 2");
+        }
+    }
+
+    private static TransferStockRequest transfer(Long fromSucursalId, Long fromProductoId,
+                                                 Long toSucursalId, Long toProductoId, int quantity) {
+        TransferStockRequest transfer = new TransferStockRequest();
+        transfer.setFromSucursalId(fromSucursalId);
+        transfer.setFromProductoId(fromProductoId);
+        transfer.setToSucursalId(toSucursalId);
+        transfer.setToProductoId(toProductoId);
+        transfer.setQuantity(quantity);
+        return transfer;
+    }
+
+    @Nested
+    @DisplayName("transferStock")
+    class TransferStock {
+
+        @Test
+        @DisplayName("moves the stock with two conditional updates taken in producto id order")
+        void movesStockInIdOrder() {
+            when(sucursalService.findFranquiciaId(1L)).thenReturn(9L);
+            when(sucursalService.findFranquiciaId(2L)).thenReturn(9L);
+            when(productoRepository.adjustStock(2L, 3L, 4)).thenReturn(1);
+            when(productoRepository.adjustStock(1L, 5L, -4)).thenReturn(1);
+            when(productoRepository.findResponseById(5L)).thenReturn(Optional.of(new ProductoResponse(5L, "A", 6, 1L, 1L)));
+            when(productoRepository.findResponseById(3L)).thenReturn(Optional.of(new ProductoResponse(3L, "A", 4, 2L, 1L)));
+
+            TransferStockResponse result = productoService.transferStock(transfer(1L, 5L, 2L, 3L, 4));
+
+            assertThat(result.from().stock()).isEqualTo(6);
+            assertThat(result.to().stock()).isEqualTo(4);
+            InOrder inOrder = inOrder(stockWriteBuffer, productoRepository);
+            inOrder.verify(stockWriteBuffer).flush(List.of(5L, 3L));
+            inOrder.verify(productoRepository).adjustStock(2L, 3L, 4);
+            inOrder.verify(productoRepository).adjustStock(1L, 5L, -4);
+            verify(eventPublisher).publishEvent(new ProductoChangedEvent(1L, 5L, "A", 6, 1L, false));
+            verify(eventPublisher).publishEvent(new ProductoChangedEvent(2L, 3L, "A", 4, 1L, false));
+            InOrder counters = inOrder(inventarioRepository);
+            counters.verify(inventarioRepository).add(1L, 0, -4, 0);
+            counters.verify(inventarioRepository).add(2L, 0, 4, -1);
+        }
+
+        @Test
+        @DisplayName("leaves the counters alone when both productos are in the same sucursal")
+        void skipsCountersWithinSucursal() {
+            when(sucursalService.findFranquiciaId(1L)).thenReturn(9L);
+            when(productoRepository.adjustStock(1L, 3L, 4)).thenReturn(1);
+            when(productoRepository.adjustStock(1L, 5L, -4)).thenReturn(1);
+            when(productoRepository.findResponseById(5L)).thenReturn(Optional.of(new ProductoResponse(5L, "A", 6, 1L, 1L)));
+            when(productoRepository.findResponseById(3L)).thenReturn(Optional.of(new ProductoResponse(3L, "B", 7, 1L, 1L)));
+
+            productoService.transferStock(transfer(1L, 5L, 1L, 3L, 4));
+
+            verifyNoInteractions(inventarioRepository);
+        }
+
+        @Test
+        @DisplayName("throws ConflictException and credits nothing when the source lacks stock")
+        void throwsConflictWhenStockIsInsufficient() {
+            when(sucursalService.findFranquiciaId(1L)).thenReturn(9L);
+            when(sucursalService.findFranquiciaId(2L)).thenReturn(9L);
+            when(productoRepository.adjustStock(1L, 3L, -10)).thenReturn(0);
+            when(productoRepository.existsByIdAndSucursalId(3L, 1L)).thenReturn(true);
+
+            assertThatThrownBy(() -> productoService.transferStock(transfer(1L, 3L, 2L, 5L, 10)))
+                    .isInstanceOf(ConflictException.class)
+                    .hasMessage("Insufficient stock for producto: 3");
+            verify(productoRepository, never()).adjustStock(2L, 5L, 10);
+            verify(eventPublisher, never()).publishEvent(any());
+        }
+
+        @Test
+        @DisplayName("throws IllegalArgumentException when the sucursales belong to different franquicias")
+        void throwsWhenFranquiciasDiffer() {
+            when(sucursalService.findFranquiciaId(1L)).thenReturn(9L);
+            when(sucursalService.findFranquiciaId(2L)).thenReturn(8L);
+
+            assertThatThrownBy(() -> productoService.transferStock(transfer(1L, 3L, 2L, 5L, 10)))
+                    .isInstanceOf(IllegalArgumentException.class)
+                    .hasMessage("Sucursales 1 and 2 belong to different franquicias");
+            verifyNoInteractions(productoRepository);
+        }
+
+        @Test
+        @DisplayName("throws IllegalArgumentException when transferring to the same producto")
+        void throwsWhenSameProducto() {
+            assertThatThrownBy(() -> productoService.transferStock(transfer(1L, 3L, 1L, 3L, 10)))
+                    .isInstanceOf(IllegalArgumentException.class)
+                    .hasMessage("Cannot transfer stock of producto 3 to itself");
+        }
+    }
+
+    @Nested
+    @DisplayName("transferStocks")
+    class TransferStocks {
+
+        @Test
+        @DisplayName("applies one net change per producto with a batch of conditional updates in id order")
+        void appliesNetChangesInIdOrder() {
+            when(sucursalService.findFranquiciaId(1L)).thenReturn(9L);
+            when(sucursalService.findFranquiciaId(2L)).thenReturn(9L);
+            when(productoRepository.adjustStocks(anyList())).thenReturn(new int[]{1, 1, 1});
+            when(productoRepository.findResponsesByIdIn(List.of(10L, 20L, 30L))).thenReturn(List.of(
+                    new ProductoResponse(10L, "A", 0, 1L, 1L),
+                    new ProductoResponse(20L, "A", 2, 2L, 1L),
+                    new ProductoResponse(30L, "A", 3, 1L, 1L)));
+
+            List<ProductoResponse> result = productoService.transferStocks(List.of(
+                    transfer(2L, 20L, 1L, 30L, 3),
+                    transfer(1L, 10L, 2L, 20L, 5)));
+
+            assertThat(result).extracting(ProductoResponse::id).containsExactly(10L, 20L, 30L);
+            verify(stockWriteBuffer).flush(List.of(10L, 20L, 30L));
+            verify(productoRepository).adjustStocks(List.of(
+                    new StockAdjustment(1L, 10L, -5),
+                    new StockAdjustment(2L, 20L, 2),
+                    new StockAdjustment(1L, 30L, 3)));
+            verify(eventPublisher).publishEvent(new ProductoChangedEvent(2L, 20L, "A", 2, 1L, false));
+            verify(sucursalService, times(1)).findFranquiciaId(1L);
+            InOrder counters = inOrder(inventarioRepository);
+            counters.verify(inventarioRepository).add(1L, 0, -2, 0);
+            counters.verify(inventarioRepository).add(2L, 0, 2, -1);
+        }
+
+        @Test
+        @DisplayName("throws ConflictException when a producto would end up with negative stock")
+        void throwsConflictWhenStockIsInsufficient() {
+            ProductoStockView view = mock(ProductoStockView.class);
+            when(view.getSucursalId()).thenReturn(1L);
+            when(sucursalService.findFranquiciaId(1L)).thenReturn(9L);
+            when(sucursalService.findFranquiciaId(2L)).thenReturn(9L);
+            when(productoRepository.adjustStocks(anyList())).thenReturn(new int[]{0, 1});
+            when(productoRepository.findStockViewsByIdIn(List.of(10L))).thenReturn(List.of(view));
+
+            assertThatThrownBy(() -> productoService.transferStocks(List.of(transfer(1L, 10L, 2L, 20L, 5))))
+                    .isInstanceOf(ConflictException.class)
+                    .hasMessage("Insufficient stock for producto: 10");
+            verify(productoRepository, never()).findResponsesByIdIn(any());
+            verify(eventPublisher, never()).publishEvent(any());
+        }
+
+        @Test
+        @DisplayName("throws NotFoundException when a producto is not in its sucursal")
+        void throwsNotFoundWhenProductoNotInSucursal() {
+            when(sucursalService.findFranquiciaId(1L)).thenReturn(9L);
+            when(sucursalService.findFranquiciaId(2L)).thenReturn(9L);
+            when(productoRepository.adjustStocks(anyList())).thenReturn(new int[]{1, 0});
+            when(productoRepository.findStockViewsByIdIn(List.of(20L))).thenReturn(List.of());
+
+            assertThatThrownBy(() -> productoService.transferStocks(List.of(transfer(1L, 10L, 2L, 20L, 5))))
+                    .isInstanceOf(NotFoundException.class)
+                    .hasMessage("Producto not found in sucursal: 20");
+        }
+
+        @Test
+        @DisplayName("rejects the plan with the position of a producto listed under two sucursales")
+        void rejectsProductoUnderTwoSucursales() {
+            when(sucursalService.findFranquiciaId(1L)).thenReturn(9L);
+            when(sucursalService.findFranquiciaId(2L)).thenReturn(9L);
+
+            assertThatThrownBy(() -> productoService.transferStocks(List.of(
+                    transfer(1L, 10L, 2L, 20L, 5),
+                    transfer(2L, 10L, 2L, 30L, 1))))
+                    .isInstanceOf(IllegalArgumentException.class)
+                    .hasMessage("[1] Producto 10 is listed under sucursales 1 and 2");
+            verify(productoRepository, never()).adjustStocks(anyList());
+        }
+    }
+
+    @Nested
+    @DisplayName("updateStocks")
+    class UpdateStocks {
+
+        private UpdateStockItemRequest request(Long sucursalId, Long productoId, int stock) {
+            UpdateStockItemRequest request = new UpdateStockItemRequest();
+            request.setSucursalId(sucursalId);
+            request.setProductoId(productoId);
+            request.setStock(stock);
+            return request;
+        }
+
+        private ProductoStockView view(Long sucursalId, Long productoId, String name, int stock) {
+            ProductoStockView view = mock(ProductoStockView.class);
+            lenient().when(view.getSucursalId()).thenReturn(sucursalId);
+            lenient().when(view.getProductoId()).thenReturn(productoId);
+            lenient().when(view.getName()).thenReturn(name);
+            lenient().when(view.getStock()).thenReturn(stock);
+            return view;
+        }
+
+        @Test
+        @DisplayName("updates owned productos in one batch and reports the rest as failures")
+        void updatesOwnedProductosAndReportsFailures() {
+            List<ProductoStockView> views = List.of(view(1L, 10L, "A", 0), view(2L, 20L, "B", 2));
+            when(productoRepository.findStockViewsByIdIn(anyList())).thenReturn(views);
+            when(productoRepository.updateStocks(anyList())).thenReturn(new int[]{1});
+
+            List<ProductoBatchItemResponse> result = productoService.updateStocks(List.of(
+                    request(1L, 10L, 50), request(1L, 20L, 60), request(1L, 30L, 70)));
+
+            assertThat(result).containsExactly(
+                    ProductoBatchItemResponse.succeeded(0, new ProductoResponse(10L, "A", 50, 1L)),
+                    ProductoBatchItemResponse.failed(1, "Producto does not belong to sucursal: 1"),
+                    ProductoBatchItemResponse.failed(2, "Producto not found: 30"));
+            verify(productoRepository).updateStocks(List.of(new StockUpdate(1L, 10L, 50)));
+            verify(eventPublisher).publishEvent(new ProductoChangedEvent(1L, 10L, "A", 50, null, false));
+            verify(productoRepository, never()).save(any());
+            verify(inventarioRepository).add(1L, 0, 50, -1);
+            verify(inventarioRepository, never()).recount(any());
+        }
+
+        @Test
+        @DisplayName("counts each write of a repeated producto against the stock written before it")
+        void countsRepeatedProductoAgainstPreviousItem() {
+            List<ProductoStockView> views = List.of(view(1L, 10L, "A", 5));
+            when(productoRepository.findStockViewsByIdIn(anyList())).thenReturn(views);
+            when(productoRepository.updateStocks(anyList())).thenReturn(new int[]{1, 1});
+
+            productoService.updateStocks(List.of(request(1L, 10L, 0), request(1L, 10L, 8)));
+
+            verify(inventarioRepository).add(1L, 0, 3, 0);
+        }
+
+        @Test
+        @DisplayName("reports a producto deleted after the ownership check as not found")
+        void reportsConcurrentlyDeletedProductoAsNotFound() {
+            List<ProductoStockView> views = List.of(view(1L, 10L, "A", 1));
+            when(productoRepository.findStockViewsByIdIn(anyList())).thenReturn(views);
+            when(productoRepository.updateStocks(anyList())).thenReturn(new int[]{0});
+
+            List<ProductoBatchItemResponse> result = productoService.updateStocks(List.of(request(1L, 10L, 5)));
+
+            assertThat(result).containsExactly(ProductoBatchItemResponse.failed(0, "Producto not found: 10"));
+            verify(eventPublisher, never()).publishEvent(any());
+            verifyNoInteractions(inventarioRepository);
+        }
+
+        @Test
+        @DisplayName("does not write when no item is valid")
+        void doesNotWriteWhenNoItemIsValid() {
+            when(productoRepository.findStockViewsByIdIn(anyList())).thenReturn(List.of());
+
+            List<ProductoBatchItemResponse> result = productoService.updateStocks(List.of(request(1L, 10L, 5)));
+
+            assertThat(result).extracting(ProductoBatchItemResponse::success).containsExactly(false);
+            verify(productoRepository, never()).updateStocks(anyList());
+        }
+    }
+
     @Nested
     @DisplayName("deleteProductoFromSucursal")
     class DeleteProductoFromSucursal {
 
         @Test
-        @DisplayName("deletes producto when it exists in sucursal")
+        @DisplayName("deletes with a single statement and takes the stock it returns off the counters")
         void deletesWhenExistsInSucursal() {
             Long sucursalId = 1L;
             Long productoId = 2L;
-            when(productoRepository.existsByIdAndSucursalId(productoId, sucursalId)).thenReturn(true);
+            when(productoRepository.deleteByIdAndSucursalId(productoId, sucursalId)).thenReturn(Optional.of(0));
 
             productoService.deleteProductoFromSucursal(sucursalId, productoId);
 
-            verify(productoRepository).existsByIdAndSucursalId(productoId, sucursalId);
-            verify(productoRepository).deleteById(productoId);
+            verify(productoRepository, never()).findById(any());
+            verify(productoRepository, never()).deleteById(any());
+            verify(inventarioRepository).add(sucursalId, -1, 0, -1);
+            verify(eventPublisher).publishEvent(ProductoChangedEvent.deleted(sucursalId, productoId));
         }
 
         @Test
-        @DisplayName("throws NotFoundException when producto not in sucursal")
+        @DisplayName("throws NotFoundException when no row was deleted")
         void throwsNotFoundExceptionWhenNotInSucursal() {
-            Long sucursalId = 1L;
-            Long productoId = 999L;
-            when(productoRepository.existsByIdAndSucursalId(productoId, sucursalId)).thenReturn(false);
+            when(productoRepository.deleteByIdAndSucursalId(999L, 1L)).thenReturn(Optional.empty());
 
-            assertThatThrownBy(() -> productoService.deleteProductoFromSucursal(sucursalId, productoId))
+            assertThatThrownBy(() -> productoService.deleteProductoFromSucursal(1L, 999L))
                     .isInstanceOf(NotFoundException.class)
                     .hasMessage("Producto not found in sucursal: 999");
-            verify(productoRepository).existsByIdAndSucursalId(productoId, sucursalId);
-            verify(productoRepository, never()).deleteById(any());
+            verifyNoInteractions(eventPublisher, inventarioRepository);
+        }
+    }
+
+    @Nested
+    @DisplayName("deleteProductos")
+    class DeleteProductos {
+
+        @Test
+        @DisplayName("deletes the given ids in chunks and publishes a deletion for each")
+        void deletesIdsInChunks() {
+            List<Long> ids = LongStream.rangeClosed(1, ProductoService.OWNERSHIP_CHUNK_SIZE + 1)
+                    .boxed()
+                    .toList();
+            when(productoRepository.deleteBySucursalIdAndIdIn(eq(1L), anyList())).thenReturn(1000, 1);
+
+            assertThat(productoService.deleteProductos(1L, ids)).isEqualTo(1001);
+
+            verify(productoRepository).deleteBySucursalIdAndIdIn(1L, ids.subList(0, ProductoService.OWNERSHIP_CHUNK_SIZE));
+            verify(productoRepository).deleteBySucursalIdAndIdIn(1L, List.of(1001L));
+            verify(eventPublisher).publishEvent(ProductoChangedEvent.deleted(1L, 1001L));
+            verify(eventPublisher, times(1001)).publishEvent(any(ProductoChangedEvent.class));
+            verify(inventarioRepository).recount(List.of(1L));
+        }
+
+        @Test
+        @DisplayName("publishes nothing when no producto was deleted")
+        void publishesNothingWhenNoneDeleted() {
+            when(productoRepository.deleteBySucursalIdAndIdIn(1L, List.of(7L))).thenReturn(0);
+
+            assertThat(productoService.deleteProductos(1L, List.of(7L, 7L))).isZero();
+
+            verifyNoInteractions(eventPublisher, inventarioRepository);
+        }
+
+        @Test
+        @DisplayName("throws NotFoundException when sucursal does not exist")
+        void throwsNotFoundExceptionWhenSucursalNotExists() {
+            when(sucursalService.findFranquiciaId(999L)).thenThrow(new NotFoundException("Sucursal not found: 999"));
+
+            assertThatThrownBy(() -> productoService.deleteProductos(999L, List.of(1L)))
+                    .isInstanceOf(NotFoundException.class);
+            verifyNoInteractions(productoRepository);
+        }
+    }
+
+    @Nested
+    @DisplayName("deleteProductosMatching")
+    class DeleteProductosMatching {
+
+        @Test
+        @DisplayName("deletes the productos with stock up to the limit in one statement")
+        void deletesByStock() {
+            when(productoRepository.deleteBySucursalIdAndStockAtMost(1L, 0)).thenReturn(3);
+
+            assertThat(productoService.deleteProductosMatching(1L, 0)).isEqualTo(3);
+
+            verify(eventPublisher).publishEvent(new ProductosDeletedEvent(1L));
+            verify(inventarioRepository).recount(List.of(1L));
+        }
+
+        @Test
+        @DisplayName("deletes every producto of the sucursal when no limit is given")
+        void deletesAll() {
+            when(productoRepository.deleteBySucursalId(1L)).thenReturn(50_000);
+
+            assertThat(productoService.deleteProductosMatching(1L, null)).isEqualTo(50_000);
+
+            verify(productoRepository, never()).deleteBySucursalIdAndStockAtMost(any(), anyInt());
+            verify(eventPublisher).publishEvent(new ProductosDeletedEvent(1L));
         }
     }
 
@@ -152,101 +621,168 @@ class ProductoServiceTest {
     class UpdateStock {
 
         @Test
-        @DisplayName("updates stock when producto belongs to sucursal")
+        @DisplayName("updates the stock with one targeted update and counts the change from the row it replaced")
         void updatesStockWhenProductoInSucursal() {
-            Long sucursalId = 1L;
-            Long productoId = 2L;
-            Integer newStock = 50;
-
-            Sucursal sucursal = new Sucursal();
-            sucursal.setId(sucursalId);
-            Producto producto = new Producto();
-            producto.setId(productoId);
-            producto.setName("P");
-            producto.setStock(10);
-            producto.setSucursal(sucursal);
+            ProductoVersionView replaced = previous(1L, 2L, "P", 0, 3L);
+            when(productoRepository.updateStock(1L, 2L, 50, null)).thenReturn(Optional.of(replaced));
 
-            when(productoRepository.findById(productoId)).thenReturn(Optional.of(producto));
-            when(productoRepository.save(any(Producto.class))).thenAnswer(inv -> inv.getArgument(0));
+            ProductoResponse result = productoService.updateStock(1L, 2L, 50);
 
-            ProductoResponse result = productoService.updateStock(sucursalId, productoId, newStock);
-
-            assertThat(result).isNotNull();
-            assertThat(result.stock()).isEqualTo(newStock);
-            assertThat(producto.getStock()).isEqualTo(newStock);
-            verify(productoRepository).findById(productoId);
-            verify(productoRepository).save(producto);
+            assertThat(result).isEqualTo(new ProductoResponse(2L, "P", 50, 1L, 4L));
+            verify(productoRepository, never()).findResponseById(any());
+            verify(productoRepository, never()).save(any());
+            verify(inventarioRepository).add(1L, 0, 50, -1);
+            verify(eventPublisher).publishEvent(new ProductoChangedEvent(1L, 2L, "P", 50, 4L, false));
         }
 
         @Test
-        @DisplayName("keeps current stock when new stock is null")
+        @DisplayName("passes a null stock through so the current one is kept")
         void keepsCurrentStockWhenNull() {
-            Long sucursalId = 1L;
-            Long productoId = 2L;
-            Sucursal sucursal = new Sucursal();
-            sucursal.setId(sucursalId);
-            Producto producto = new Producto();
-            producto.setId(productoId);
-            producto.setStock(25);
-            producto.setSucursal(sucursal);
+            ProductoVersionView replaced = previous(1L, 2L, "P", 25, 0L);
+            when(productoRepository.updateStock(1L, 2L, null, null)).thenReturn(Optional.of(replaced));
 
-            when(productoRepository.findById(productoId)).thenReturn(Optional.of(producto));
-            when(productoRepository.save(any(Producto.class))).thenAnswer(inv -> inv.getArgument(0));
-
-            ProductoResponse result = productoService.updateStock(sucursalId, productoId, null);
+            ProductoResponse result = productoService.updateStock(1L, 2L, null);
 
             assertThat(result.stock()).isEqualTo(25);
-            assertThat(producto.getStock()).isEqualTo(25);
+            assertThat(result.version()).isEqualTo(1L);
+            verifyNoInteractions(inventarioRepository);
         }
 
         @Test
         @DisplayName("throws NotFoundException when producto does not exist")
         void throwsNotFoundExceptionWhenProductoNotExists() {
-            Long productoId = 999L;
-            when(productoRepository.findById(productoId)).thenReturn(Optional.empty());
+            when(productoRepository.updateStock(1L, 999L, 10, null)).thenReturn(Optional.empty());
+            when(productoRepository.findResponseById(999L)).thenReturn(Optional.empty());
 
-            assertThatThrownBy(() -> productoService.updateStock(1L, productoId, 10))
+            assertThatThrownBy(() -> productoService.updateStock(1L, 999L, 10))
                     .isInstanceOf(NotFoundException.class)
                     .hasMessage("Producto not found: 999");
+            verifyNoInteractions(eventPublisher, inventarioRepository);
         }
 
         @Test
         @DisplayName("throws NotFoundException when producto does not belong to sucursal")
         void throwsNotFoundExceptionWhenProductoNotInSucursal() {
-            Long sucursalId = 1L;
-            Long otherSucursalId = 2L;
-            Long productoId = 2L;
-            Sucursal otherSucursal = new Sucursal();
-            otherSucursal.setId(otherSucursalId);
-            Producto producto = new Producto();
-            producto.setId(productoId);
-            producto.setSucursal(otherSucursal);
-
-            when(productoRepository.findById(productoId)).thenReturn(Optional.of(producto));
+            when(productoRepository.updateStock(1L, 2L, 10, null)).thenReturn(Optional.empty());
+            when(productoRepository.findResponseById(2L))
+                    .thenReturn(Optional.of(new ProductoResponse(2L, "P", 5, 9L, 0L)));
 
-            assertThatThrownBy(() -> productoService.updateStock(sucursalId, productoId, 10))
+            assertThatThrownBy(() -> productoService.updateStock(1L, 2L, 10))
                     .isInstanceOf(NotFoundException.class)
                     .hasMessage("Producto does not belong to sucursal: 1");
-            verify(productoRepository, never()).save(any());
+            verifyNoInteractions(eventPublisher, inventarioRepository);
+        }
+
+        @Test
+        @DisplayName("throws VersionConflictException when the expected version is stale")
+        void throwsVersionConflictWhenVersionIsStale() {
+            when(productoRepository.updateStock(1L, 2L, 10, 3L)).thenReturn(Optional.empty());
+            when(productoRepository.findResponseById(2L))
+                    .thenReturn(Optional.of(new ProductoResponse(2L, "P", 5, 1L, 4L)));
+
+            assertThatThrownBy(() -> productoService.updateStock(1L, 2L, 10, 3L))
+                    .isInstanceOf(VersionConflictException.class)
+                    .hasMessage("Producto 2 was modified: expected version 3 but is 4");
+            verifyNoInteractions(eventPublisher, inventarioRepository);
         }
 
         @Test
         @DisplayName("throws IllegalArgumentException when stock is negative")
         void throwsIllegalArgumentExceptionWhenStockNegative() {
-            Long sucursalId = 1L;
-            Long productoId = 2L;
-            Sucursal sucursal = new Sucursal();
-            sucursal.setId(sucursalId);
-            Producto producto = new Producto();
-            producto.setId(productoId);
-            producto.setSucursal(sucursal);
-
-            when(productoRepository.findById(productoId)).thenReturn(Optional.of(producto));
-
-            assertThatThrownBy(() -> productoService.updateStock(sucursalId, productoId, -5))
+            assertThatThrownBy(() -> productoService.updateStock(1L, 2L, -5))
                     .isInstanceOf(IllegalArgumentException.class)
                     .hasMessage("Stock cannot be negative");
+            verifyNoInteractions(productoRepository);
+        }
+    }
+
+    @Nested
+    @DisplayName("updateStock with write-behind")
+    class UpdateStockWriteBehind {
+
+        private ProductoStockView view(Long sucursalId, Long productoId, String name) {
+            ProductoStockView view = mock(ProductoStockView.class);
+            when(view.getSucursalId()).thenReturn(sucursalId);
+            lenient().when(view.getProductoId()).thenReturn(productoId);
+            lenient().when(view.getName()).thenReturn(name);
+            lenient().when(view.getStock()).thenReturn(40);
+            return view;
+        }
+
+        @Test
+        @DisplayName("buffers the stock, with the stock it replaces, without loading or saving the entity")
+        void buffersStock() {
+            ProductoStockView view = view(1L, 2L, "P");
+            when(stockWriteBuffer.isEnabled()).thenReturn(true);
+            when(stockWriteBuffer.pending(2L)).thenReturn(Optional.empty());
+            when(productoRepository.findStockViewsByIdIn(List.of(2L))).thenReturn(List.of(view));
+            when(stockWriteBuffer.offer(1L, 2L, "P", 40, 50)).thenReturn(true);
+
+            ProductoResponse result = productoService.updateStock(1L, 2L, 50);
+
+            assertThat(result).isEqualTo(new ProductoResponse(2L, "P", 50, 1L));
+            verify(productoRepository, never()).findById(any());
             verify(productoRepository, never()).save(any());
+            verifyNoInteractions(eventPublisher);
+        }
+
+        @Test
+        @DisplayName("skips the ownership query when the producto already has a buffered write")
+        void reusesPendingWrite() {
+            when(stockWriteBuffer.isEnabled()).thenReturn(true);
+            when(stockWriteBuffer.pending(2L))
+                    .thenReturn(Optional.of(new StockWriteBuffer.PendingStock(1L, 2L, "P", 30, 40)));
+            when(stockWriteBuffer.offer(1L, 2L, "P", 30, 50)).thenReturn(true);
+
+            ProductoResponse result = productoService.updateStock(1L, 2L, 50);
+
+            assertThat(result.stock()).isEqualTo(50);
+            verify(productoRepository, never()).findStockViewsByIdIn(any());
+        }
+
+        @Test
+        @DisplayName("throws NotFoundException when producto does not belong to sucursal")
+        void rejectsProductoOfAnotherSucursal() {
+            ProductoStockView view = view(9L, 2L, "P");
+            when(stockWriteBuffer.isEnabled()).thenReturn(true);
+            when(stockWriteBuffer.pending(2L)).thenReturn(Optional.empty());
+            when(productoRepository.findStockViewsByIdIn(List.of(2L))).thenReturn(List.of(view));
+
+            assertThatThrownBy(() -> productoService.updateStock(1L, 2L, 50))
+                    .isInstanceOf(NotFoundException.class)
+                    .hasMessage("Producto does not belong to sucursal: 1");
+            verify(stockWriteBuffer, never()).offer(any(), any(), any(), anyInt(), anyInt());
+        }
+
+        @Test
+        @DisplayName("writes directly and flushes the buffered value when a version is expected")
+        void writesDirectlyWithExpectedVersion() {
+            ProductoVersionView replaced = previous(1L, 2L, "P", 40, 3L);
+            when(productoRepository.updateStock(1L, 2L, 50, 3L)).thenReturn(Optional.of(replaced));
+
+            productoService.updateStock(1L, 2L, 50, 3L);
+
+            InOrder inOrder = inOrder(stockWriteBuffer, productoRepository);
+            inOrder.verify(stockWriteBuffer).flush(List.of(2L));
+            inOrder.verify(productoRepository).updateStock(1L, 2L, 50, 3L);
+            verify(stockWriteBuffer, never()).offer(any(), any(), any(), anyInt(), anyInt());
+        }
+
+        @Test
+        @DisplayName("writes directly when the buffer no longer accepts writes")
+        void writesDirectlyWhenBufferIsClosed() {
+            ProductoStockView view = view(1L, 2L, "P");
+            when(stockWriteBuffer.isEnabled()).thenReturn(true);
+            when(stockWriteBuffer.pending(2L)).thenReturn(Optional.empty());
+            when(productoRepository.findStockViewsByIdIn(List.of(2L))).thenReturn(List.of(view));
+            when(stockWriteBuffer.offer(1L, 2L, "P", 40, 50)).thenReturn(false);
+            ProductoVersionView replaced = previous(1L, 2L, "P", 40, 3L);
+            when(productoRepository.updateStock(1L, 2L, 50, null)).thenReturn(Optional.of(replaced));
+
+            ProductoResponse result = productoService.updateStock(1L, 2L, 50);
+
+            assertThat(result.stock()).isEqualTo(50);
+            verify(inventarioRepository).add(1L, 0, 10, 0);
         }
     }
 
@@ -255,32 +791,49 @@ class ProductoServiceTest {
     class UpdateProductoName {
 
         @Test
-        @DisplayName("updates name when producto belongs to sucursal")
+        @DisplayName("renames with one targeted update and reads the row back")
         void updatesNameWhenProductoInSucursal() {
-            Long sucursalId = 1L;
-            Long productoId = 2L;
-            Sucursal sucursal = new Sucursal();
-            sucursal.setId(sucursalId);
-            Producto producto = new Producto();
-            producto.setId(productoId);
-            producto.setName("Viejo");
-            producto.setStock(10);
-            producto.setSucursal(sucursal);
-
-            when(productoRepository.findById(productoId)).thenReturn(Optional.of(producto));
-            when(productoRepository.save(producto)).thenReturn(producto);
+            when(productoRepository.updateName(1L, 2L, "Nuevo", null)).thenReturn(1);
+            when(productoRepository.findResponseById(2L))
+                    .thenReturn(Optional.of(new ProductoResponse(2L, "Nuevo", 10, 1L, 1L)));
 
-            ProductoResponse result = productoService.updateProductoName(sucursalId, productoId, "Nuevo");
+            ProductoResponse result = productoService.updateProductoName(1L, 2L, "Nuevo");
 
             assertThat(result.name()).isEqualTo("Nuevo");
-            assertThat(producto.getName()).isEqualTo("Nuevo");
-            verify(productoRepository).save(producto);
+            verify(productoRepository, never()).findById(any());
+            verify(eventPublisher).publishEvent(new ProductoChangedEvent(1L, 2L, "Nuevo", 10, 1L, false));
+        }
+
+        @Test
+        @DisplayName("renames when the expected version is current")
+        void renamesWhenVersionMatches() {
+            when(productoRepository.updateName(1L, 2L, "Nuevo", 3L)).thenReturn(1);
+            when(productoRepository.findResponseById(2L))
+                    .thenReturn(Optional.of(new ProductoResponse(2L, "Nuevo", 10, 1L, 4L)));
+
+            ProductoResponse result = productoService.updateProductoName(1L, 2L, "Nuevo", 3L);
+
+            assertThat(result.version()).isEqualTo(4L);
+        }
+
+        @Test
+        @DisplayName("throws VersionConflictException when the expected version is stale")
+        void throwsVersionConflictWhenVersionIsStale() {
+            when(productoRepository.updateName(1L, 2L, "Nuevo", 3L)).thenReturn(0);
+            when(productoRepository.findResponseById(2L))
+                    .thenReturn(Optional.of(new ProductoResponse(2L, "Viejo", 10, 1L, 4L)));
+
+            assertThatThrownBy(() -> productoService.updateProductoName(1L, 2L, "Nuevo", 3L))
+                    .isInstanceOf(VersionConflictException.class)
+                    .hasMessage("Producto 2 was modified: expected version 3 but is 4");
+            verifyNoInteractions(eventPublisher);
         }
 
         @Test
         @DisplayName("throws NotFoundException when producto not found")
         void throwsWhenProductoNotFound() {
-            when(productoRepository.findById(999L)).thenReturn(Optional.empty());
+            when(productoRepository.updateName(1L, 999L, "X", null)).thenReturn(0);
+            when(productoRepository.findResponseById(999L)).thenReturn(Optional.empty());
 
             assertThatThrownBy(() -> productoService.updateProductoName(1L, 999L, "X"))
                     .isInstanceOf(NotFoundException.class)
@@ -296,34 +849,142 @@ class ProductoServiceTest {
         @DisplayName("returns max stock product per sucursal")
         void returnsMaxStockProductPerSucursal() {
             Long franquiciaId = 1L;
-            Franquicia franquicia = new Franquicia();
-            franquicia.setId(franquiciaId);
+            ProductoMaxStockPorSucursalResponse centro =
+                    new ProductoMaxStockPorSucursalResponse(100L, "Prod Centro", 20, 10L, "Centro");
+
+            when(productoRepository.findMaxStockPorSucursal(franquiciaId)).thenReturn(List.of(centro));
+
+            List<ProductoMaxStockPorSucursalResponse> result =
+                    productoService.getProductosConMaxStockPorSucursal(franquiciaId);
+
+            assertThat(result).hasSize(1);
+            assertThat(result.get(0).productId()).isEqualTo(100L);
+            assertThat(result.get(0).sucursalId()).isEqualTo(10L);
+            verify(franquiciaService).checkExists(franquiciaId);
+            verify(productoRepository, never()).findFirstBySucursalIdOrderByStockDesc(any());
+        }
 
+        @Test
+        @DisplayName("answers from the max-stock index when it is enabled")
+        void answersFromIndexWhenEnabled() {
+            Long franquiciaId = 1L;
             Sucursal centro = new Sucursal();
             centro.setId(10L);
             centro.setName("Centro");
-            Sucursal norte = new Sucursal();
-            norte.setId(11L);
-            norte.setName("Norte");
+            ProductoMaxStockPorSucursalResponse top =
+                    new ProductoMaxStockPorSucursalResponse(100L, "Prod Centro", 20, 10L, "Centro");
+
+            when(maxStockIndex.isEnabled()).thenReturn(true);
+            when(sucursalService.findByFranquiciaId(franquiciaId)).thenReturn(List.of(centro));
+            when(maxStockIndex.maxStockPorSucursal(List.of(centro))).thenReturn(List.of(top));
+
+            List<ProductoMaxStockPorSucursalResponse> result =
+                    productoService.getProductosConMaxStockPorSucursal(franquiciaId);
 
-            Producto pCentro = new Producto();
-            pCentro.setId(100L);
-            pCentro.setName("Prod Centro");
-            pCentro.setStock(20);
-            pCentro.setSucursal(centro);
+            assertThat(result).containsExactly(top);
+            verify(franquiciaService).checkExists(franquiciaId);
+            verify(productoRepository, never()).findMaxStockPorSucursal(any());
+        }
 
-            when(franquiciaService.findById(franquiciaId)).thenReturn(franquicia);
-            when(sucursalService.findByFranquiciaId(franquiciaId)).thenReturn(List.of(centro, norte));
-            when(productoRepository.findFirstBySucursalIdOrderByStockDesc(10L)).thenReturn(Optional.of(pCentro));
-            when(productoRepository.findFirstBySucursalIdOrderByStockDesc(11L)).thenReturn(Optional.empty());
+        @Test
+        @DisplayName("flushes buffered stock writes of the franquicia's sucursales first")
+        void flushesBufferedWritesFirst() {
+            Long franquiciaId = 1L;
+            Sucursal centro = new Sucursal();
+            centro.setId(10L);
+            ProductoMaxStockPorSucursalResponse top =
+                    new ProductoMaxStockPorSucursalResponse(100L, "Prod Centro", 20, 10L, "Centro");
+
+            when(stockWriteBuffer.hasPending()).thenReturn(true);
+            when(sucursalService.findByFranquiciaId(franquiciaId)).thenReturn(List.of(centro));
+            when(productoRepository.findMaxStockPorSucursal(franquiciaId)).thenReturn(List.of(top));
 
             List<ProductoMaxStockPorSucursalResponse> result =
                     productoService.getProductosConMaxStockPorSucursal(franquiciaId);
 
-            assertThat(result).hasSize(1);
-            assertThat(result.get(0).productId()).isEqualTo(100L);
-            assertThat(result.get(0).sucursalId()).isEqualTo(10L);
-            verify(franquiciaService).findById(franquiciaId);
+            assertThat(result).containsExactly(top);
+            InOrder inOrder = inOrder(stockWriteBuffer, transactionManager, productoRepository);
+            inOrder.verify(stockWriteBuffer).flushSucursales(List.of(10L));
+            inOrder.verify(transactionManager).getTransaction(any());
+            inOrder.verify(productoRepository).findMaxStockPorSucursal(franquiciaId);
+        }
+
+        @Test
+        @DisplayName("throws NotFoundException when franquicia does not exist")
+        void throwsNotFoundExceptionWhenFranquiciaNotExists() {
+            doThrow(new NotFoundException("Franquicia not found: 999")).when(franquiciaService).checkExists(999L);
+
+            assertThatThrownBy(() -> productoService.getProductosConMaxStockPorSucursal(999L))
+                    .isInstanceOf(NotFoundException.class)
+                    .hasMessage("Franquicia not found: 999");
+            verify(productoRepository, never()).findMaxStockPorSucursal(any());
+        }
+    }
+
+    @Nested
+    @DisplayName("listProductos")
+    class ListProductos {
+
+        @Test
+        @DisplayName("returns the cursor of the last row when another page follows")
+        void returnsNextCursor() {
+            ProductoResponse a = new ProductoResponse(1L, "A", 5, 1L, 0L);
+            ProductoResponse b = new ProductoResponse(2L, "B", 3, 1L, 0L);
+            when(productoRepository.findPageBySucursalId(1L, 0L, 2)).thenReturn(List.of(a, b));
+
+            CursorPage<ProductoResponse> page = productoService.listProductos(1L, ProductoSort.ID, null, 1);
+
+            assertThat(page.items()).containsExactly(a);
+            assertThat(page.nextCursor()).isEqualTo(Cursors.encode("id", 1L, null));
+            verify(sucursalService).findFranquiciaId(1L);
+        }
+
+        @Test
+        @DisplayName("resumes a stock-sorted listing after the cursor position")
+        void resumesAfterStockCursor() {
+            ProductoResponse c = new ProductoResponse(3L, "C", 7, 1L, 0L);
+            when(productoRepository.findPageBySucursalIdOrderByStock(1L, 9, 4L, 3)).thenReturn(List.of(c));
+
+            CursorPage<ProductoResponse> page =
+                    productoService.listProductos(1L, ProductoSort.STOCK, Cursors.encode("stock", 4L, 9), 2);
+
+            assertThat(page.items()).containsExactly(c);
+            assertThat(page.nextCursor()).isNull();
+        }
+
+        @Test
+        @DisplayName("flushes buffered stock of the sucursal before reading")
+        void flushesBufferedStock() {
+            when(stockWriteBuffer.hasPending()).thenReturn(true);
+            when(productoRepository.findPageBySucursalIdOrderByName(1L, "", 0L, 51)).thenReturn(List.of());
+
+            productoService.listProductos(1L, ProductoSort.NAME, null, 50);
+
+            InOrder inOrder = inOrder(stockWriteBuffer, transactionManager, productoRepository);
+            inOrder.verify(stockWriteBuffer).flushSucursales(List.of(1L));
+            inOrder.verify(transactionManager).getTransaction(any());
+            inOrder.verify(productoRepository).findPageBySucursalIdOrderByName(1L, "", 0L, 51);
+        }
+
+        @Test
+        @DisplayName("rejects a cursor issued for another sort")
+        void rejectsCursorOfAnotherSort() {
+            String cursor = Cursors.encode("name", 4L, "B");
+
+            assertThatThrownBy(() -> productoService.listProductos(1L, ProductoSort.STOCK, cursor, 2))
+                    .isInstanceOf(IllegalArgumentException.class)
+                    .hasMessage("Invalid cursor: " + cursor);
+            verifyNoInteractions(productoRepository);
+        }
+
+        @Test
+        @DisplayName("throws NotFoundException when sucursal does not exist")
+        void throwsNotFoundExceptionWhenSucursalNotExists() {
+            when(sucursalService.findFranquiciaId(999L)).thenThrow(new NotFoundException("Sucursal not found: 999"));
+
+            assertThatThrownBy(() -> productoService.listProductos(999L, ProductoSort.ID, null, 10))
+                    .isInstanceOf(NotFoundException.class);
+            verifyNoInteractions(productoRepository);
         }
     }
 }
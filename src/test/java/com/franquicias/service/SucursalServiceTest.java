@@ -1,9 +1,15 @@
 package com.franquicias.service;
 
+import com.franquicias.cache.MaxStockReportCache;
+import com.franquicias.cache.ReferenceCache;
+import com.franquicias.dto.CursorPage;
 import com.franquicias.dto.SucursalResponse;
 import com.franquicias.entity.Franquicia;
+import com.franquicias.entity.InventarioSucursal;
 import com.franquicias.entity.Sucursal;
 import com.franquicias.exception.NotFoundException;
+import com.franquicias.exception.VersionConflictException;
+import com.franquicias.repository.InventarioSucursalRepository;
 import com.franquicias.repository.SucursalRepository;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Nested;
@@ -13,14 +19,17 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
-import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
@@ -29,9 +38,18 @@ class SucursalServiceTest {
     @Mock
     private SucursalRepository sucursalRepository;
 
+    @Mock
+    private InventarioSucursalRepository inventarioRepository;
+
     @Mock
     private FranquiciaService franquiciaService;
 
+    @Mock
+    private ReferenceCache referenceCache;
+
+    @Mock
+    private MaxStockReportCache maxStockReportCache;
+
     @InjectMocks
     private SucursalService sucursalService;
 
@@ -47,15 +65,13 @@ class SucursalServiceTest {
 
             Franquicia franquicia = new Franquicia();
             franquicia.setId(franquiciaId);
-            franquicia.setName("Franquicia");
-            franquicia.setSucursales(new ArrayList<>());
 
             Sucursal saved = new Sucursal();
             saved.setId(1L);
             saved.setName(name);
             saved.setFranquicia(franquicia);
 
-            when(franquiciaService.findById(franquiciaId)).thenReturn(franquicia);
+            when(franquiciaService.getReference(franquiciaId)).thenReturn(franquicia);
             when(sucursalRepository.save(any(Sucursal.class))).thenReturn(saved);
 
             SucursalResponse result = sucursalService.createSucursal(franquiciaId, name);
@@ -64,22 +80,23 @@ class SucursalServiceTest {
             assertThat(result.id()).isEqualTo(1L);
             assertThat(result.name()).isEqualTo(name);
             assertThat(result.franquiciaId()).isEqualTo(franquiciaId);
-            assertThat(franquicia.getSucursales()).contains(saved);
-            verify(franquiciaService).findById(franquiciaId);
+            verify(franquiciaService).getReference(franquiciaId);
             verify(sucursalRepository).save(any(Sucursal.class));
+            verify(inventarioRepository).save(argThat((InventarioSucursal inventario) -> inventario.getSucursal() == saved));
         }
 
         @Test
         @DisplayName("throws NotFoundException when franquicia does not exist")
         void throwsNotFoundExceptionWhenFranquiciaNotExists() {
             Long franquiciaId = 999L;
-            when(franquiciaService.findById(franquiciaId))
+            when(franquiciaService.getReference(franquiciaId))
                     .thenThrow(new NotFoundException("Franquicia not found: 999"));
 
             assertThatThrownBy(() -> sucursalService.createSucursal(franquiciaId, "Name"))
                     .isInstanceOf(NotFoundException.class)
                     .hasMessage("Franquicia not found: 999");
-            verify(franquiciaService).findById(franquiciaId);
+            verify(sucursalRepository, never()).save(any());
+            verifyNoInteractions(inventarioRepository);
         }
     }
 
@@ -88,54 +105,61 @@ class SucursalServiceTest {
     class UpdateSucursalName {
 
         @Test
-        @DisplayName("updates sucursal name when it belongs to franquicia")
+        @DisplayName("renames with one targeted update when the sucursal belongs to franquicia")
         void updatesSucursalNameWhenBelongsToFranquicia() {
             Long franquiciaId = 1L;
             Long sucursalId = 2L;
             String newName = "Sucursal Norte";
-
-            Franquicia franquicia = new Franquicia();
-            franquicia.setId(franquiciaId);
-
-            Sucursal sucursal = new Sucursal();
-            sucursal.setId(sucursalId);
-            sucursal.setName("Sucursal Sur");
-            sucursal.setFranquicia(franquicia);
-
-            when(franquiciaService.findById(franquiciaId)).thenReturn(franquicia);
-            when(sucursalRepository.findById(sucursalId)).thenReturn(Optional.of(sucursal));
-            when(sucursalRepository.save(sucursal)).thenReturn(sucursal);
+            when(sucursalRepository.updateName(franquiciaId, sucursalId, newName, null)).thenReturn(1);
+            when(sucursalRepository.findResponseById(sucursalId))
+                    .thenReturn(Optional.of(new SucursalResponse(sucursalId, newName, franquiciaId, 1L)));
 
             SucursalResponse result = sucursalService.updateSucursalName(franquiciaId, sucursalId, newName);
 
             assertThat(result.id()).isEqualTo(sucursalId);
             assertThat(result.name()).isEqualTo(newName);
             assertThat(result.franquiciaId()).isEqualTo(franquiciaId);
-            verify(sucursalRepository).save(sucursal);
+            verify(franquiciaService).checkExists(franquiciaId);
+            verify(sucursalRepository, never()).findById(any());
+            verify(sucursalRepository, never()).save(any());
+            verify(referenceCache).evictSucursal(sucursalId);
+            verify(maxStockReportCache).invalidate(franquiciaId);
         }
 
         @Test
         @DisplayName("throws NotFoundException when sucursal belongs to another franquicia")
         void throwsWhenSucursalBelongsToAnotherFranquicia() {
-            Long franquiciaId = 1L;
-            Long otherFranquiciaId = 2L;
-            Long sucursalId = 3L;
-
-            Franquicia requestedFranquicia = new Franquicia();
-            requestedFranquicia.setId(franquiciaId);
-            Franquicia otherFranquicia = new Franquicia();
-            otherFranquicia.setId(otherFranquiciaId);
+            when(sucursalRepository.updateName(1L, 3L, "X", null)).thenReturn(0);
+            when(sucursalRepository.findResponseById(3L))
+                    .thenReturn(Optional.of(new SucursalResponse(3L, "Sur", 2L, 0L)));
 
-            Sucursal sucursal = new Sucursal();
-            sucursal.setId(sucursalId);
-            sucursal.setFranquicia(otherFranquicia);
+            assertThatThrownBy(() -> sucursalService.updateSucursalName(1L, 3L, "X"))
+                    .isInstanceOf(NotFoundException.class)
+                    .hasMessage("Sucursal does not belong to franquicia: 1");
+            verify(maxStockReportCache, never()).invalidate(any());
+        }
 
-            when(franquiciaService.findById(franquiciaId)).thenReturn(requestedFranquicia);
-            when(sucursalRepository.findById(sucursalId)).thenReturn(Optional.of(sucursal));
+        @Test
+        @DisplayName("throws NotFoundException when sucursal does not exist")
+        void throwsWhenSucursalNotFound() {
+            when(sucursalRepository.updateName(1L, 999L, "X", null)).thenReturn(0);
+            when(sucursalRepository.findResponseById(999L)).thenReturn(Optional.empty());
 
-            assertThatThrownBy(() -> sucursalService.updateSucursalName(franquiciaId, sucursalId, "X"))
+            assertThatThrownBy(() -> sucursalService.updateSucursalName(1L, 999L, "X"))
                     .isInstanceOf(NotFoundException.class)
-                    .hasMessage("Sucursal does not belong to franquicia: 1");
+                    .hasMessage("Sucursal not found: 999");
+        }
+
+        @Test
+        @DisplayName("throws VersionConflictException when the expected version is stale")
+        void throwsVersionConflictWhenVersionIsStale() {
+            when(sucursalRepository.updateName(1L, 3L, "X", 2L)).thenReturn(0);
+            when(sucursalRepository.findResponseById(3L))
+                    .thenReturn(Optional.of(new SucursalResponse(3L, "Sur", 1L, 5L)));
+
+            assertThatThrownBy(() -> sucursalService.updateSucursalName(1L, 3L, "X", 2L))
+                    .isInstanceOf(VersionConflictException.class)
+                    .hasMessage("Sucursal 3 was modified: expected version 2 but is 5");
         }
     }
 
@@ -195,4 +219,57 @@ class SucursalServiceTest {
             verify(sucursalRepository).findById(id);
         }
     }
+
+    @Nested
+    @DisplayName("findFranquiciaId")
+    class FindFranquiciaId {
+
+        @Test
+        @DisplayName("answers from the reference cache")
+        void answersFromReferenceCache() {
+            when(referenceCache.franquiciaIdOfSucursal(2L)).thenReturn(Optional.of(1L));
+
+            assertThat(sucursalService.findFranquiciaId(2L)).isEqualTo(1L);
+        }
+
+        @Test
+        @DisplayName("throws NotFoundException when sucursal does not exist")
+        void throwsNotFoundExceptionWhenNotExists() {
+            when(referenceCache.franquiciaIdOfSucursal(999L)).thenReturn(Optional.empty());
+
+            assertThatThrownBy(() -> sucursalService.getReference(999L))
+                    .isInstanceOf(NotFoundException.class)
+                    .hasMessage("Sucursal not found: 999");
+            verify(sucursalRepository, never()).getReferenceById(any());
+        }
+    }
+
+    @Nested
+    @DisplayName("listSucursales")
+    class ListSucursales {
+
+        @Test
+        @DisplayName("returns a page of the franquicia's sucursales with the next cursor")
+        void returnsPage() {
+            SucursalResponse centro = new SucursalResponse(3L, "Centro", 1L, 0L);
+            SucursalResponse norte = new SucursalResponse(4L, "Norte", 1L, 0L);
+            when(sucursalRepository.findPageByFranquiciaId(1L, 0L, 2)).thenReturn(List.of(centro, norte));
+
+            CursorPage<SucursalResponse> page = sucursalService.listSucursales(1L, null, 1);
+
+            assertThat(page.items()).containsExactly(centro);
+            assertThat(page.nextCursor()).isEqualTo(Cursors.encode("id", 3L, null));
+        }
+
+        @Test
+        @DisplayName("throws NotFoundException when franquicia does not exist")
+        void throwsNotFoundExceptionWhenFranquiciaNotExists() {
+            doThrow(new NotFoundException("Franquicia not found: 999")).when(franquiciaService).checkExists(999L);
+
+            assertThatThrownBy(() -> sucursalService.listSucursales(999L, null, 10))
+                    .isInstanceOf(NotFoundException.class)
+                    .hasMessage("Franquicia not found: 999");
+            verifyNoInteractions(sucursalRepository);
+        }
+    }
 }
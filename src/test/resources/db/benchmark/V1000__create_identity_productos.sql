@@ -0,0 +1,9 @@
+-- Only migrated by ProductoInsertBenchmarkTest: a copy of productos whose ids are still
+-- generated by an IDENTITY column, as before V2.
+CREATE TABLE identity_productos (
+    id          BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    name        VARCHAR(255) NOT NULL,
+    stock       INTEGER      NOT NULL,
+    version     BIGINT       NOT NULL,
+    sucursal_id BIGINT       NOT NULL
+);